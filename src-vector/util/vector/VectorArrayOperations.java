@@ -0,0 +1,196 @@
+package capsis.lib.cstability.util.vector;
+
+import capsis.lib.cstability.util.ArrayOperations;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The backend of ArrayOperations with the Java Vector API (SIMD): the loops
+ * are made on vectors of the preferred width of the platform, the tails with
+ * scalars. The sums are accumulated in one vector and reduced at the end, in a
+ * different order than the scalar backend. The products and sums are not
+ * fused (no fma): the order of the sums is the only difference with the
+ * scalar backend.
+ *
+ * This class is in the separate source directory src-vector, it needs a JDK
+ * 16 or later and --add-modules jdk.incubator.vector at compile and run time
+ * (see cstability.sh). It is loaded by reflection by ArrayOperations, the
+ * sources of src compile without it.
+ *
+ * @author agent - October 2026
+ */
+public class VectorArrayOperations extends ArrayOperations {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Default constructor, used by ArrayOperations
+	 */
+	public VectorArrayOperations() {
+	}
+
+	/**
+	 * add(): out = a + b
+	 */
+	@Override
+	public void add(double[] a, double[] b, double[] out) {
+		int n = out.length;
+		int bound = SPECIES.loopBound(n);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector va = DoubleVector.fromArray(SPECIES, a, i);
+			va.add(DoubleVector.fromArray(SPECIES, b, i)).intoArray(out, i);
+		}
+		for (; i < n; i++)
+			out[i] = a[i] + b[i];
+	}
+
+	/**
+	 * sub(): out = a - b
+	 */
+	@Override
+	public void sub(double[] a, double[] b, double[] out) {
+		int n = out.length;
+		int bound = SPECIES.loopBound(n);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector va = DoubleVector.fromArray(SPECIES, a, i);
+			va.sub(DoubleVector.fromArray(SPECIES, b, i)).intoArray(out, i);
+		}
+		for (; i < n; i++)
+			out[i] = a[i] - b[i];
+	}
+
+	/**
+	 * mult(): out = a * b, element-wise
+	 */
+	@Override
+	public void mult(double[] a, double[] b, double[] out) {
+		int n = out.length;
+		int bound = SPECIES.loopBound(n);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector va = DoubleVector.fromArray(SPECIES, a, i);
+			va.mul(DoubleVector.fromArray(SPECIES, b, i)).intoArray(out, i);
+		}
+		for (; i < n; i++)
+			out[i] = a[i] * b[i];
+	}
+
+	/**
+	 * mult(): out = scalar * a
+	 */
+	@Override
+	public void mult(double scalar, double[] a, double[] out) {
+		int n = out.length;
+		int bound = SPECIES.loopBound(n);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length())
+			DoubleVector.fromArray(SPECIES, a, i).mul(scalar).intoArray(out, i);
+		for (; i < n; i++)
+			out[i] = scalar * a[i];
+	}
+
+	/**
+	 * axpy(): y = y + a * x, without fused multiply-add: same results as the
+	 * scalar backend
+	 */
+	@Override
+	public void axpy(double a, double[] x, double[] y) {
+		int n = y.length;
+		int bound = SPECIES.loopBound(n);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector ax = DoubleVector.fromArray(SPECIES, x, i).mul(a);
+			DoubleVector.fromArray(SPECIES, y, i).add(ax).intoArray(y, i);
+		}
+		for (; i < n; i++)
+			y[i] += a * x[i];
+	}
+
+	/**
+	 * integrateRectangleLeft(): sum (x[i + 1] - x[i]) * y[i]
+	 */
+	@Override
+	public double integrateRectangleLeft(double[] x, double[] y) {
+		int n = x.length - 1;
+		int bound = SPECIES.loopBound(n);
+		DoubleVector sum = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector dx = DoubleVector.fromArray(SPECIES, x, i + 1).sub(DoubleVector.fromArray(SPECIES, x, i));
+			sum = sum.add(dx.mul(DoubleVector.fromArray(SPECIES, y, i)));
+		}
+		double integral = sum.reduceLanes(VectorOperators.ADD);
+		for (; i < n; i++)
+			integral += (x[i + 1] - x[i]) * y[i];
+		return integral;
+	}
+
+	/**
+	 * integrateRectangleRight(): sum (x[i + 1] - x[i]) * y[i + 1]
+	 */
+	@Override
+	public double integrateRectangleRight(double[] x, double[] y) {
+		int n = x.length - 1;
+		int bound = SPECIES.loopBound(n);
+		DoubleVector sum = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector dx = DoubleVector.fromArray(SPECIES, x, i + 1).sub(DoubleVector.fromArray(SPECIES, x, i));
+			sum = sum.add(dx.mul(DoubleVector.fromArray(SPECIES, y, i + 1)));
+		}
+		double integral = sum.reduceLanes(VectorOperators.ADD);
+		for (; i < n; i++)
+			integral += (x[i + 1] - x[i]) * y[i + 1];
+		return integral;
+	}
+
+	/**
+	 * integrateTrapeze(): sum (x[i + 1] - x[i]) * (y[i] + y[i + 1]) / 2
+	 */
+	@Override
+	public double integrateTrapeze(double[] x, double[] y) {
+		int n = x.length - 1;
+		int bound = SPECIES.loopBound(n);
+		DoubleVector sum = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector dx = DoubleVector.fromArray(SPECIES, x, i + 1).sub(DoubleVector.fromArray(SPECIES, x, i));
+			DoubleVector sy = DoubleVector.fromArray(SPECIES, y, i).add(DoubleVector.fromArray(SPECIES, y, i + 1));
+			sum = sum.add(dx.mul(sy));
+		}
+		double integral = sum.reduceLanes(VectorOperators.ADD) / 2d;
+		for (; i < n; i++)
+			integral += (x[i + 1] - x[i]) * (y[i] + y[i + 1]) / 2d;
+		return integral;
+	}
+
+	/**
+	 * dot(): sum a[aOffset + k] * b[bOffset + k] for k < n
+	 */
+	@Override
+	public double dot(double[] a, int aOffset, double[] b, int bOffset, int n) {
+		int bound = SPECIES.loopBound(n);
+		DoubleVector sum = DoubleVector.zero(SPECIES);
+		int k = 0;
+		for (; k < bound; k += SPECIES.length()) {
+			DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + k);
+			sum = sum.add(va.mul(DoubleVector.fromArray(SPECIES, b, bOffset + k)));
+		}
+		double result = sum.reduceLanes(VectorOperators.ADD);
+		for (; k < n; k++)
+			result += a[aOffset + k] * b[bOffset + k];
+		return result;
+	}
+
+	/**
+	 * getName()
+	 */
+	@Override
+	public String getName() {
+		return VECTOR;
+	}
+
+}
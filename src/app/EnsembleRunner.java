@@ -0,0 +1,275 @@
+package capsis.lib.cstability.app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import capsis.lib.cstability.context.Context;
+import capsis.lib.cstability.observer.ObserverList;
+import capsis.lib.cstability.parameter.Parameters;
+import capsis.lib.cstability.state.State;
+import capsis.lib.cstability.util.ForkJoin;
+import capsis.lib.cstability.util.Log;
+import capsis.lib.cstability.util.LogSink;
+import capsis.lib.cstability.util.StateStorageListener;
+
+/**
+ * Runner of an ensemble of simulations in the same JVM: the members are
+ * variants of one loaded model (e.g. perturbed initial pools, microbe masses,
+ * functions or substrate inputs), executed in parallel on a work stealing pool.
+ *
+ * The setup file is loaded once. The members share the structures which are
+ * not modified during a simulation: polymerizations, kernel matrices of the
+ * enzymes, signatures of the microbes, functions... Each member has its own
+ * copy of the parameters (see Parameters.copy()), context, initial state and
+ * observers, its own log and output directory.
+ *
+ * The ensemble pool is the only level of parallelism: when the members run in
+ * parallel (threads > 1), their contexts are set to engineThreads = 1, so that
+ * each member does not start its own engine pool of the model engineThreads
+ * next to the ensemble threads. With threads = 1, the members are executed one
+ * after the other with the engineThreads of the model.
+ *
+ * <pre>
+ * Simulator model = new Simulator();
+ * SetupFileLoader sfl = model.load(filePath);
+ * EnsembleRunner runner = new EnsembleRunner(model, sfl.getContext(), sfl.getObserverList());
+ * runner.addMember("member_1", m -> m.getInitialState().getMicrobe(0).setMass(2), outputDir1);
+ * runner.addMember("member_2", m -> {
+ * 	MicrobeSpecies ms = m.getParameters().getMicrobeSpeciesMap().get("bacteria").copy();
+ * 	ms.setMortalityFunction(mortality2);
+ * 	m.getParameters().addMicrobeSpecies(ms);
+ * }, outputDir2);
+ * runner.execute(threads);
+ * </pre>
+ *
+ * @author agent - October 2026
+ */
+public class EnsembleRunner {
+
+	/**
+	 * The changes of a member compared to the model.
+	 */
+	public interface Variant {
+
+		/**
+		 * apply(): modifies the parameters, context or initial state of the member
+		 * before its execution. The objects shared with the model must not be
+		 * modified but replaced: e.g. a species by a modified MicrobeSpecies.copy()
+		 * added in the parameters of the member, the input of a pool by a new
+		 * PoolInputManager added in the SubstrateInputManager of its context. The
+		 * species and traits must replace ones of the model with the same names:
+		 * the initial state has no microbe, enzyme or pool transfer for new ones.
+		 */
+		public void apply(Member m) throws Exception;
+	}
+
+	/**
+	 * A member of the ensemble.
+	 */
+	public static class Member {
+
+		private String name;
+		private Variant variant; // may be null
+		private String outputDir; // may be null: nothing written
+		private Parameters parameters;
+		private Context context;
+		private State initialState;
+		private ObserverList observerList;
+		private List<StateStorageListener> stateStorageListeners;
+		private State finalState; // after execution
+
+		/**
+		 * Constructor
+		 */
+		private Member(String name, Variant variant, String outputDir) {
+			this.name = name;
+			this.variant = variant;
+			this.outputDir = outputDir;
+			stateStorageListeners = new ArrayList<>();
+		}
+
+		/**
+		 * addStateStorageListener(): the states of the member are streamed to the
+		 * listener during its execution
+		 */
+		public void addStateStorageListener(StateStorageListener ssl) {
+			stateStorageListeners.add(ssl);
+		}
+
+		/**
+		 * getName()
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * getOutputDir(): the directory of the log and the observations, may be
+		 * null
+		 */
+		public String getOutputDir() {
+			return outputDir;
+		}
+
+		/**
+		 * getParameters(): a copy of the parameters of the model
+		 */
+		public Parameters getParameters() {
+			return parameters;
+		}
+
+		/**
+		 * getContext(): a copy of the context of the model
+		 */
+		public Context getContext() {
+			return context;
+		}
+
+		/**
+		 * getInitialState(): a copy of the initial state of the model
+		 */
+		public State getInitialState() {
+			return initialState;
+		}
+
+		/**
+		 * getObserverList(): the observations of the member, released after they
+		 * are written if the member has an output directory
+		 */
+		public ObserverList getObserverList() {
+			return observerList;
+		}
+
+		/**
+		 * getFinalState(): the state at the final date, null before execution
+		 */
+		public State getFinalState() {
+			return finalState;
+		}
+	}
+
+	private Parameters parameters;
+	private State initialState;
+	private Context context;
+	private ObserverList observerList;
+	private List<Member> members;
+
+	/**
+	 * Constructor, the model is loaded and not executed
+	 */
+	public EnsembleRunner(Simulator model, Context c, ObserverList ol) throws Exception {
+		if (model.getCurrentState() == null)
+			throw new Exception("EnsembleRunner(), the model is not loaded");
+		this.parameters = model.getParameters();
+		this.initialState = model.getCurrentState();
+		this.context = c;
+		this.observerList = ol;
+		members = new ArrayList<>();
+	}
+
+	/**
+	 * addMember(): variant may be null (the model itself), outputDir may be null
+	 */
+	public Member addMember(String name, Variant variant, String outputDir) throws Exception {
+		for (Member m : members)
+			if (m.getName().equals(name))
+				throw new Exception("EnsembleRunner.addMember(), member " + name + " is defined twice");
+		Member m = new Member(name, variant, outputDir);
+		members.add(m);
+		return m;
+	}
+
+	/**
+	 * execute(): executes the members on a work stealing pool of the given
+	 * number of threads, sequentially if threads is 1. Returns when all the
+	 * members are executed, the first exception of a member in the order of the
+	 * members is thrown. If threads > 1, the members run with engineThreads = 1.
+	 */
+	public void execute(int threads) throws Exception {
+		if (threads < 1)
+			throw new Exception("EnsembleRunner.execute(), threads " + threads + " must be positive");
+
+		ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+		try {
+			ForkJoin.forEach(pool, members, m -> execute(m, pool != null));
+		} finally {
+			if (pool != null)
+				pool.shutdown();
+		}
+	}
+
+	/**
+	 * execute(): the copies of the model are made, modified by the variant of
+	 * the member and executed, with a sequential engine if inParallel
+	 */
+	private void execute(Member m, boolean inParallel) throws Exception {
+
+		LogSink sink = m.outputDir == null ? null : new LogSink(m.outputDir, m.name + ".log");
+		LogSink previousSink = Log.bind(sink != null ? sink : Log.getBoundSink());
+		try {
+			m.parameters = parameters.copy();
+			m.context = context.copy();
+			m.context.setLogSink(sink);
+			m.initialState = initialState.copy();
+			m.observerList = observerList.getEmptyCopy();
+
+			if (m.variant != null) {
+				m.variant.apply(m);
+				checkReplacements(m);
+			}
+			if (inParallel)
+				m.context.setEngineThreads(1);
+
+			// the species and traits replaced by the variant are used from the
+			// initial date
+			State s0 = m.initialState.copy(m.parameters);
+			s0.evaluate(s0.getSubstrate(), m.parameters, m.context);
+
+			Simulator simulator = new Simulator(m.parameters);
+			for (StateStorageListener ssl : m.stateStorageListeners)
+				simulator.addStateStorageListener(ssl);
+			simulator.setState0(s0);
+
+			Log.trace("Starting ensemble member " + m.name + "...");
+			simulator.execute(m.context, m.observerList);
+			m.finalState = simulator.getCurrentState();
+			Log.trace("Ensemble member " + m.name + " completed");
+
+			if (m.outputDir != null) {
+				simulator.writeObservations(m.outputDir, false);
+				m.observerList = null;
+			}
+
+		} finally {
+			Log.bind(previousSink);
+			if (sink != null)
+				sink.close();
+		}
+	}
+
+	/**
+	 * checkReplacements(): the species and traits in the parameters of the
+	 * member must all be in the model, the variant may only replace them
+	 */
+	private void checkReplacements(Member m) throws Exception {
+		Parameters p = m.parameters;
+		if (p.getMicrobeSpeciesList().size() > parameters.getMicrobeSpeciesList().size())
+			throw new Exception("EnsembleRunner.execute(), member " + m.name
+					+ ": a microbe species was added with a new name, it has no microbe in the initial state");
+		if (p.getEnzymeTraitsList().size() > parameters.getEnzymeTraitsList().size())
+			throw new Exception("EnsembleRunner.execute(), member " + m.name
+					+ ": an enzyme traits was added with a new name, it has no enzyme in the initial state");
+		if (p.getPoolTransferTraitsList().size() > parameters.getPoolTransferTraitsList().size())
+			throw new Exception("EnsembleRunner.execute(), member " + m.name
+					+ ": a pool transfer traits was added with a new key, it has no pool transfer in the initial state");
+	}
+
+	/**
+	 * getMembers()
+	 */
+	public List<Member> getMembers() {
+		return members;
+	}
+
+}
@@ -2,7 +2,6 @@ package capsis.lib.cstability.app;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -11,19 +10,28 @@ import capsis.lib.cstability.context.Timeline;
 import capsis.lib.cstability.distribution.DiscreteDistribution;
 import capsis.lib.cstability.distribution.DiscretePositiveDistribution;
 import capsis.lib.cstability.filereader.SetupFileLoader;
-import capsis.lib.cstability.function.util.EnzymeKernelMatrix;
+import capsis.lib.cstability.integrator.DormandPrinceIntegrator;
+import capsis.lib.cstability.integrator.ExponentialIntegrator;
+import capsis.lib.cstability.integrator.ImexEulerIntegrator;
+import capsis.lib.cstability.integrator.Integrator;
+import capsis.lib.cstability.integrator.OdeSystem;
+import capsis.lib.cstability.integrator.PeriodicSteadyStateSolver;
+import capsis.lib.cstability.integrator.SteadyStateSolver;
 import capsis.lib.cstability.observer.ObserverList;
 import capsis.lib.cstability.parameter.BiochemicalClass;
 import capsis.lib.cstability.parameter.MicrobeSpecies;
 import capsis.lib.cstability.parameter.Parameters;
 import capsis.lib.cstability.parameter.PoolTransferTraits;
+import capsis.lib.cstability.state.EnzymaticOperator;
 import capsis.lib.cstability.state.Enzyme;
 import capsis.lib.cstability.state.Microbe;
+import capsis.lib.cstability.state.Pool;
 import capsis.lib.cstability.state.PoolTransfer;
 import capsis.lib.cstability.state.State;
 import capsis.lib.cstability.state.Substrate;
+import capsis.lib.cstability.util.ForkJoin;
 import capsis.lib.cstability.util.Log;
-import capsis.lib.cstability.util.Matrix;
+import capsis.lib.cstability.util.LogSink;
 import capsis.lib.cstability.util.StateStorageListener;
 
 /**
@@ -41,6 +49,9 @@ public class Simulator implements Serializable {
 	private Parameters parameters;
 	private State currentState;
 
+	// key: bcName, built at the beginning of execute()
+	private Map<String, EnzymaticOperator> enzymaticOperatorMap;
+
 	/**
 	 * Constructor: has to be followed by load
 	 */
@@ -48,6 +59,14 @@ public class Simulator implements Serializable {
 		parameters = new Parameters();
 	}
 
+	/**
+	 * Constructor: the parameters are already loaded, e.g. shared by the members
+	 * of an ensemble, to be followed by setState0()
+	 */
+	public Simulator(Parameters parameters) {
+		this.parameters = parameters;
+	}
+
 	/**
 	 * Constructor: can be used without loading a setup file
 	 */
@@ -76,8 +95,34 @@ public class Simulator implements Serializable {
 	 */
 	public void execute(Context c, ObserverList ol) throws Exception {
 
-		Timeline tl = c.getTimeline();
-		double dt = tl.getStep();
+		// the log of the context is bound to the threads of this simulation
+		LogSink previousSink = Log.bind(c.getLogSink() != null ? c.getLogSink() : Log.getBoundSink());
+		try {
+			executeEngine(c, ol);
+		} finally {
+			c.shutdownForkJoinPool();
+			Log.bind(previousSink);
+		}
+	}
+
+	/**
+	 * executeEngine(): the spin-up if any, then the engine chosen in the context
+	 */
+	private void executeEngine(Context c, ObserverList ol) throws Exception {
+
+		enzymaticOperatorMap = EnzymaticOperator.getEnzymaticOperators(parameters);
+
+		// the pools were checked at load time, the engine works on a copy of the
+		// initial state whose pools and their copies are not checked any more
+		if (c.isFastCheckMode()) {
+			currentState = currentState.copy();
+			currentState.getSubstrate().setChecked(false);
+		}
+
+		if (c.getSpinUp().equals(Context.SPIN_UP_STEADY_STATE))
+			setCurentState(getSteadyState(c));
+		else if (c.getSpinUp().equals(Context.SPIN_UP_PERIODIC_STEADY_STATE))
+			setCurentState(getPeriodicSteadyState(c));
 
 		if (ol.isEmpty())
 			ol.setDefaultOberverList(currentState, c, parameters);
@@ -86,154 +131,360 @@ public class Simulator implements Serializable {
 		if (ol != null)
 			ol.observe(currentState);
 
+		if (!c.getIntegrator().equals(Context.INTEGRATOR_EULER))
+			executeIntegrator(c, ol);
+		else if (c.getEngineMode().equals(Context.ENGINE_DOUBLE_BUFFERED))
+			executeDoubleBuffered(c, ol);
+		else
+			executeStandard(c, ol);
+	}
+
+	/**
+	 * executeStandard(): a new state is created at each time step
+	 */
+	private void executeStandard(Context c, ObserverList ol) throws Exception {
+
+		Timeline tl = c.getTimeline();
+
 		for (int it = 1; it < tl.getDiscretization().length; it++) {
 
-			/**
-			 * Creation of new state to update during simulation
-			 */
 			double date = tl.getDiscretization()[it];
-			State newState = new State(date);
 			if (date == (int) date)
 				Log.trace("	Simulation time " + (int) date + " on " + tl.getMax() + " " + tl.getUnit());
 
-			/**
-			 * Creation of newSubstrate which will be stored in newState. Inputs are added
-			 * at this stage (constructor) and for each operation occurring on the current
-			 * substrate (mic, enz, transfer), the associated variations (delta) will be
-			 * computed from currentSubstrate and added to newSubstrate.
-			 */
-			Substrate newSubstrate = new Substrate(currentState.getSubstrate());
-			newSubstrate.manageInputs(parameters, c, currentState, date);
+			State newState = newStep(currentState, c, date);
+			check(newState, c);
 
 			/**
-			 * Microbial biotransformations on substrate are evaluated and new microbes'
-			 * states (species and mass) are added to newState
+			 * Observation and storage of the new state
 			 */
-			for (Microbe currentMicrobe : currentState.getMicrobes()) {
-
-				MicrobeSpecies currentMicrobeSpecies = currentMicrobe.getSpecies();
-
-				/**
-				 * Assimilation: for each biochemicalClass where C is taken up by microbe,
-				 * assimilationFlux is incremented and C is removed from accessiblePools.
-				 */
-				double assimilationFlux = 0;
-				for (String bcName : currentMicrobeSpecies.getAssimilationBCNames()) {
-
-					DiscreteDistribution cUseEfficiency = currentMicrobe.getCUseEfficiency(bcName);
-					DiscreteDistribution uptakeFlux = currentMicrobe.getUptakeFlux(bcName);
-					assimilationFlux += DiscreteDistribution.mult(cUseEfficiency, uptakeFlux).getIntegral();
-
-					DiscreteDistribution delta = DiscreteDistribution.mult(dt, uptakeFlux);
-					newSubstrate.getAccessiblePool(bcName).substract(delta);
-				}
-
-				/**
-				 * Biotransformation and mortality: for each biochemicalClass composing the
-				 * microbe, C returns to the substrate according to signature
-				 */
-				double mortalityFlux = currentMicrobe.getMortalityFlux();
-				for (String bcName : currentMicrobeSpecies.getSignatureBCNames()) {
-
-					DiscretePositiveDistribution signature = currentMicrobeSpecies.getSignature(bcName);
-
-					DiscreteDistribution delta = DiscreteDistribution.mult(dt * mortalityFlux, signature);
-					newSubstrate.getAccessiblePool(bcName).add(delta);
-				}
-
-				/**
-				 * New microbes mass is obtained with Euler's scheme and is stored in newState
-				 */
-				Microbe newMicrobe = new Microbe(currentMicrobeSpecies,
-						currentMicrobe.getMass() + dt * (assimilationFlux - mortalityFlux));
-				newState.addMicrobe(newMicrobe);
-			}
+			if (ol != null)
+				ol.observe(newState);
+
+			setCurentState(newState);
 
 			/**
-			 * PoolsTransfers: changes in local physical and chemical conditions (some
-			 * simulations may have no PoolTransfers)
+			 * TODO ajouter une vérification de la conservation de masse de C
 			 */
-			if (!parameters.getPoolTransferTraitsMap().isEmpty()) {
 
-				for (PoolTransfer pt : currentState.getPoolTransfers()) {
+		}
+	}
+
+	/**
+	 * check(): in fast check mode, the pools of the state are checked at the
+	 * dates multiple of the check period from the initial date
+	 */
+	private void check(State s, Context c) throws Exception {
+		double date = s.getDate();
+		if (c.isFastCheckMode() && date == (int) date && ((int) date - c.getInitialDate()) % c.getCheckPeriod() == 0)
+			s.getSubstrate().checkIfNonNegative();
+	}
 
-					PoolTransferTraits ptt = pt.getTraits();
-					DiscreteDistribution delta = DiscreteDistribution.mult(dt, pt);
+	/**
+	 * newStep(): returns a new state computed at the given date from currentState
+	 * with Euler's scheme
+	 */
+	private State newStep(State currentState, Context c, double date) throws Exception {
+
+		/**
+		 * Creation of new state to update during simulation
+		 */
+		State newState = new State(date);
+
+		/**
+		 * Creation of newSubstrate which will be stored in newState, microbes, enzymes
+		 * and pool transfers are created with the current values and updated by step()
+		 */
+		Substrate newSubstrate = new Substrate(currentState.getSubstrate());
+		for (Microbe m : currentState.getMicrobes())
+			newState.addMicrobe(new Microbe(m.getSpecies(), m.getMass()));
+		for (PoolTransfer pt : currentState.getPoolTransfers())
+			newState.addPoolTransfer(new PoolTransfer(pt));
+		for (Enzyme e : currentState.getEnzymes())
+			newState.addEnzyme(new Enzyme(e.getTraits()));
+
+		step(currentState, newState, newSubstrate, c, date);
+		return newState;
+	}
 
-					newSubstrate.getPool(ptt.getBiochemicalClass().getName(), ptt.getOrigin().getKey())
-							.substract(delta);
-					newSubstrate.getPool(ptt.getBiochemicalClass().getName(), ptt.getArrival().getKey()).add(delta);
+	/**
+	 * executeDoubleBuffered(): two states are preallocated and updated in turn,
+	 * the pools and the distributions of the microbes, enzymes and pool
+	 * transfers are updated in place, only the pool inputs are created at each
+	 * step. ol.observe() is called at each step, with a
+	 * copy of the updated state at the observed dates only: at the other dates,
+	 * the state passed is a buffer reused by the next steps. A copy is also
+	 * materialized when stateStorageListeners are registered.
+	 */
+	private void executeDoubleBuffered(Context c, ObserverList ol) throws Exception {
 
-					newState.addPoolTransfer(new PoolTransfer(pt));
-				}
-			}
+		Timeline tl = c.getTimeline();
 
-			/**
-			 * Enzymes action on accessible substrate:
-			 * 
-			 * - The cumulated enzymatic depolymerization action is evaluated and stored in
-			 * enzymaticMatricesMap (key: BCNames value: transformation matrix of substrate
-			 * - initiated with zeros).
-			 * 
-			 * - Enzymes' states (traits) are added to newState
-			 */
-			Map<String, Matrix> enzymaticMatricesMap = new HashMap<>();
-
-			for (Enzyme currentEnzyme : currentState.getEnzymes()) {
-
-				/**
-				 * Initialization of enzymaticMatricesMap entry if needed
-				 */
-				BiochemicalClass bc = currentEnzyme.getTraits().getBiochemicalClass();
-				int size = bc.getPolymerization().getDiscretization().length;
-				if (!enzymaticMatricesMap.containsKey(bc.getName()))
-					enzymaticMatricesMap.put(bc.getName(), Matrix.zeros(size));
-
-				/**
-				 * Construction of enzymaticMatrix ( = (-Id + K).tau) and storage of
-				 * enzymaticMatrix in enzymaticMatricesMap
-				 */
-				double[] depolymerizationRate = currentEnzyme.getDepolymerizationRate().getValuesY();
-				EnzymeKernelMatrix kernel = currentEnzyme.getTraits().getKernelMatrix();
-				Matrix enzymaticMatrix = kernel.clone();
-				enzymaticMatrix.substract(Matrix.eye(size));
-				for (int j = 0; j < size; ++j)
-					enzymaticMatrix.multiplyColumn(depolymerizationRate[j], j);
-				enzymaticMatricesMap.get(bc.getName()).add(enzymaticMatrix);
-
-				/**
-				 * Creation of new enzyme's state
-				 */
-				Enzyme newEnzyme = new Enzyme(currentEnzyme.getTraits());
-				newState.addEnzyme(newEnzyme);
+		State current = currentState.copy();
+		State next = currentState.copy();
 
-			}
+		for (int it = 1; it < tl.getDiscretization().length; it++) {
+
+			double date = tl.getDiscretization()[it];
+			if (date == (int) date)
+				Log.trace("	Simulation time " + (int) date + " on " + tl.getMax() + " " + tl.getUnit());
 
 			/**
-			 * Application of the cumulated enzymatic depolymerization to the substrate.
+			 * The next buffer restarts from the values of the current one
 			 */
-			for (String bcName : newSubstrate.getAccessibleBCNames()) {
+			next.reset(date);
+			Substrate nextSubstrate = next.getSubstrate();
+			nextSubstrate.copyValues(current.getSubstrate());
+			for (Microbe m : current.getMicrobes())
+				next.getMicrobe(m.getSpecies().getIndex()).setMass(m.getMass());
 
-				if (enzymaticMatricesMap.containsKey(bcName)) {
-					DiscreteDistribution delta = DiscreteDistribution.mult(dt, DiscreteDistribution.mult(
-							enzymaticMatricesMap.get(bcName), currentState.getSubstrate().getAccessiblePool(bcName)));
-					newSubstrate.getAccessiblePool(bcName).add(delta);
-				}
-			}
+			step(current, next, nextSubstrate, c, date);
+			check(next, c);
 
 			/**
-			 * Evaluation, observation and storage of the new state
+			 * Observation at each step as in executeStandard(), the observers get
+			 * a copy of the new state at their dates and the buffer otherwise
 			 */
-			newState.evaluate(newSubstrate, parameters, c);
 			if (ol != null)
-				ol.observe(newState);
+				ol.observe(ol.isObserving(date) ? next.copy() : next);
 
-			setCurentState(newState);
+			if (stateStorageListeners != null)
+				setCurentState(next.copy());
+
+			State swap = current;
+			current = next;
+			next = swap;
+		}
+
+		if (stateStorageListeners == null)
+			setCurentState(current.copy());
+	}
+
+	/**
+	 * executeIntegrator(): the system is integrated from one integer date to the
+	 * next one by the integrator chosen in the context, which manages its own
+	 * time steps
+	 */
+	private void executeIntegrator(Context c, ObserverList ol) throws Exception {
+
+		Timeline tl = c.getTimeline();
+		Integrator integrator = getIntegrator(c);
+		OdeSystem system = new OdeSystem(parameters, c, currentState, enzymaticOperatorMap);
+
+		State state = currentState;
+		for (int date = tl.getMin() + 1; date <= tl.getMax(); date++) {
+
+			Log.trace("	Simulation time " + date + " on " + tl.getMax() + " " + tl.getUnit());
+
+			state = integrator.integrate(system, state, date);
+			check(state, c);
+
+			if (ol != null)
+				ol.observe(state);
+
+			setCurentState(state);
+		}
+		Log.trace("	" + integrator);
+	}
+
+	/**
+	 * getSteadyState(): returns the steady state of the model for the inputs of
+	 * the date of the current state, computed from the current state
+	 */
+	public State getSteadyState(Context c) throws Exception {
+
+		if (enzymaticOperatorMap == null)
+			enzymaticOperatorMap = EnzymaticOperator.getEnzymaticOperators(parameters);
+
+		OdeSystem system = new OdeSystem(parameters, c, currentState, enzymaticOperatorMap);
+		SteadyStateSolver solver = new SteadyStateSolver(c.getIntegratorRelativeTolerance(),
+				c.getIntegratorAbsoluteTolerance(), c.getTimeline().getStep());
+		State steadyState = solver.solve(system, currentState);
+		Log.trace("	" + solver);
+		return steadyState;
+	}
+
+	/**
+	 * getPeriodicSteadyState(): returns the periodic steady state of the model for
+	 * inputs of period c.getSpinUpPeriod() from the date of the current state,
+	 * computed from the current state with the integrator chosen in the context
+	 */
+	public State getPeriodicSteadyState(Context c) throws Exception {
+
+		if (enzymaticOperatorMap == null)
+			enzymaticOperatorMap = EnzymaticOperator.getEnzymaticOperators(parameters);
+
+		OdeSystem system = new OdeSystem(parameters, c, currentState, enzymaticOperatorMap);
+		Integrator integrator = c.getIntegrator().equals(Context.INTEGRATOR_EULER) ? new EulerIntegrator(c)
+				: getIntegrator(c);
+		PeriodicSteadyStateSolver solver = new PeriodicSteadyStateSolver(integrator, c.getSpinUpPeriod(),
+				c.getIntegratorRelativeTolerance(), c.getIntegratorAbsoluteTolerance());
+		State periodicState = solver.solve(system, currentState);
+		Log.trace("	" + solver);
+		return periodicState;
+	}
+
+	/**
+	 * The Euler scheme of the Simulator seen as an Integrator: the steps of the
+	 * timeline from the date of the state to t1.
+	 */
+	private class EulerIntegrator implements Integrator {
+
+		private Context context;
+
+		/**
+		 * Constructor
+		 */
+		public EulerIntegrator(Context c) {
+			this.context = c;
+		}
+
+		/**
+		 * integrate()
+		 */
+		@Override
+		public State integrate(OdeSystem system, State s, double t1) throws Exception {
+			double t0 = s.getDate();
+			int n = Math.max(1, (int) Math.round((t1 - t0) / context.getTimeline().getStep()));
+			State state = s;
+			for (int k = 1; k <= n; k++)
+				state = newStep(state, context, k == n ? t1 : t0 + k * context.getTimeline().getStep());
+			return state;
+		}
+
+		/**
+		 * getName()
+		 */
+		@Override
+		public String getName() {
+			return "Euler";
+		}
+	}
+
+	/**
+	 * getIntegrator(): returns the integrator chosen in the context
+	 */
+	private Integrator getIntegrator(Context c) throws Exception {
+		if (c.getIntegrator().equals(Context.INTEGRATOR_DORMAND_PRINCE))
+			return new DormandPrinceIntegrator(c.getIntegratorRelativeTolerance(), c.getIntegratorAbsoluteTolerance(),
+					c.getTimeline().getStep());
+		else if (c.getIntegrator().equals(Context.INTEGRATOR_IMEX_EULER))
+			return new ImexEulerIntegrator(c.getTimeline().getStep());
+		else if (c.getIntegrator().equals(Context.INTEGRATOR_EXPONENTIAL))
+			return new ExponentialIntegrator(c.getTimeline().getStep(), c.getIntegratorRelativeTolerance());
+		throw new Exception("Simulator.getIntegrator(), no integrator for " + c.getIntegrator());
+	}
+
+	/**
+	 * step(): computes newState at the given date from currentState with Euler's
+	 * scheme. newSubstrate contains the current pools values, newState contains
+	 * the microbes, enzymes and pool transfers to be updated. newState is evaluated
+	 * at the end of the step.
+	 */
+	private void step(State currentState, State newState, Substrate newSubstrate, Context c, double date)
+			throws Exception {
+
+		double dt = c.getTimeline().getStep();
+
+		/**
+		 * Inputs are added to newSubstrate. For each operation occurring on the
+		 * current substrate (mic, enz, transfer), the associated variations (delta)
+		 * will be computed from currentSubstrate and added to newSubstrate.
+		 */
+		newSubstrate.manageInputs(parameters, c, currentState, date);
+
+		/**
+		 * Microbial biotransformations: new microbes' masses are stored in newState
+		 */
+		for (Microbe currentMicrobe : currentState.getMicrobes()) {
+
+			MicrobeSpecies currentMicrobeSpecies = currentMicrobe.getSpecies();
 
 			/**
-			 * TODO ajouter une vérification de la conservation de masse de C
+			 * Assimilation: for each biochemicalClass where C is taken up by microbe,
+			 * assimilationFlux is incremented
+			 */
+			double assimilationFlux = 0;
+			for (int bcIndex : currentMicrobeSpecies.getAssimilationBCIndices()) {
+				DiscreteDistribution cUseEfficiency = currentMicrobe.getCUseEfficiency(bcIndex);
+				DiscreteDistribution uptakeFlux = currentMicrobe.getUptakeFlux(bcIndex);
+				assimilationFlux += DiscreteDistribution.integrateProduct(cUseEfficiency, uptakeFlux);
+			}
+
+			/**
+			 * New microbes mass is obtained with Euler's scheme and is stored in newState
 			 */
+			newState.getMicrobe(currentMicrobeSpecies.getIndex())
+					.setMass(currentMicrobe.getMass() + dt * (assimilationFlux - currentMicrobe.getMortalityFlux()));
+		}
+
+		/**
+		 * The pools of the biochemical classes are updated independently, in parallel
+		 * if engineThreads > 1. Each pool is updated in the same order in both cases,
+		 * the results are identical.
+		 */
+		ForkJoin.forEach(c.getForkJoinPool(), parameters.getBiochemicalClasses(),
+				bc -> stepBiochemicalClass(currentState, newSubstrate, bc, dt));
+
+		/**
+		 * Evaluation of the new state
+		 */
+		newState.evaluate(newSubstrate, parameters, c);
+	}
+
+	/**
+	 * stepBiochemicalClass(): the changes of the pools of the biochemical class
+	 * bc during the step dt are computed from currentState and added to
+	 * newSubstrate
+	 */
+	private void stepBiochemicalClass(State currentState, Substrate newSubstrate, BiochemicalClass bc, double dt)
+			throws Exception {
+
+		int bcIndex = bc.getIndex();
+		Pool accessiblePool = newSubstrate.getAccessiblePool(bcIndex);
+
+		/**
+		 * Microbial biotransformations on substrate: C taken up by the microbes is
+		 * removed from the accessible pool and C of the microbes returns to the
+		 * substrate according to their signature
+		 */
+		for (Microbe currentMicrobe : currentState.getMicrobes()) {
+
+			MicrobeSpecies currentMicrobeSpecies = currentMicrobe.getSpecies();
+
+			if (currentMicrobeSpecies.assimilates(bcIndex)) {
+				accessiblePool.axpy(-dt, currentMicrobe.getUptakeFlux(bcIndex));
+			}
+
+			DiscretePositiveDistribution signature = currentMicrobeSpecies.getSignature(bcIndex);
+			if (signature != null) {
+				accessiblePool.axpy(dt * currentMicrobe.getMortalityFlux(), signature);
+			}
+		}
+
+		/**
+		 * PoolsTransfers: changes in local physical and chemical conditions (some
+		 * simulations may have no PoolTransfers)
+		 */
+		for (PoolTransfer pt : currentState.getPoolTransfers()) {
+
+			PoolTransferTraits ptt = pt.getTraits();
+			if (ptt.getBiochemicalClass().getIndex() != bcIndex)
+				continue;
+			newSubstrate.getPool(bcIndex, ptt.getOrigin().getIndex()).axpy(-dt, pt);
+			newSubstrate.getPool(bcIndex, ptt.getArrival().getIndex()).axpy(dt, pt);
+		}
 
+		/**
+		 * Enzymes action on accessible substrate: the cumulated enzymatic
+		 * depolymerization of the current accessible pool is added in place to
+		 * the new one, without building any matrix or distribution.
+		 */
+		EnzymaticOperator enzymaticOperator = enzymaticOperatorMap.get(bc.getName());
+		if (enzymaticOperator != null) {
+			Pool currentPool = currentState.getSubstrate().getAccessiblePool(bcIndex);
+			enzymaticOperator.apply(currentState, currentPool.getValuesY(), dt, accessiblePool.getValuesY());
+			accessiblePool.valuesYChanged();
 		}
 	}
 
@@ -3,4 +3,16 @@
 
 java -jar cstability.jar $*
 
-
+# Optional vector backend of the array operations (Java Vector API, requires
+# a JDK 16 or later). cstability.jar is built from earlier sources, without
+# the array operations: compile the sources of src, then the ones of src-vector,
+# into the same class directory
+#   javac -d class $(find src -name '*.java')
+#   javac --add-modules jdk.incubator.vector -cp class -d class \
+#     $(find src-vector -name '*.java')
+# then replace the line above by
+#   java --add-modules jdk.incubator.vector \
+#     -Dcstability.arrayOperations=VECTOR -cp class \
+#     capsis.lib.cstability.app.Cstability $*
+# The JVM prints a warning on the use of the incubator module. Without these
+# flags, or if the vector backend is not found, the scalar backend is used.
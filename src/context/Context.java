@@ -3,6 +3,9 @@ package capsis.lib.cstability.context;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import capsis.lib.cstability.util.LogSink;
 
 /**
  * Context of the model C-STABILITY
@@ -10,9 +13,51 @@ import java.util.List;
  * @author J. Sainte-Marie, F. de Coligny - February 2021
  */
 @SuppressWarnings("serial")
-public class Context implements Serializable {
+public class Context implements Cloneable, Serializable {
+
+	// Simulator engine modes: ENGINE_STANDARD creates a new state at each time
+	// step, ENGINE_DOUBLE_BUFFERED updates two preallocated states in turn and
+	// passes a copy to the observers at their dates only
+	public static final String ENGINE_STANDARD = "ENGINE_STANDARD";
+	public static final String ENGINE_DOUBLE_BUFFERED = "ENGINE_DOUBLE_BUFFERED";
+
+	// Integrators: INTEGRATOR_EULER is the fixed step Euler scheme of the
+	// Simulator engine, INTEGRATOR_DORMAND_PRINCE is an embedded Runge-Kutta
+	// scheme with error controlled step size, INTEGRATOR_IMEX_EULER is implicit
+	// for the pool transfers and the enzymatic depolymerization,
+	// INTEGRATOR_EXPONENTIAL solves them exactly with cached propagators
+	public static final String INTEGRATOR_EULER = "INTEGRATOR_EULER";
+	public static final String INTEGRATOR_DORMAND_PRINCE = "INTEGRATOR_DORMAND_PRINCE";
+	public static final String INTEGRATOR_IMEX_EULER = "INTEGRATOR_IMEX_EULER";
+	public static final String INTEGRATOR_EXPONENTIAL = "INTEGRATOR_EXPONENTIAL";
+
+	// Spin-up of the initial state before the simulation: SPIN_UP_NONE keeps
+	// the initial state of the setup, SPIN_UP_STEADY_STATE replaces it by the
+	// steady state for the inputs of the initial date,
+	// SPIN_UP_PERIODIC_STEADY_STATE by the state repeated by each period of
+	// spinUpPeriod time units from the initial date
+	public static final String SPIN_UP_NONE = "SPIN_UP_NONE";
+	public static final String SPIN_UP_STEADY_STATE = "SPIN_UP_STEADY_STATE";
+	public static final String SPIN_UP_PERIODIC_STEADY_STATE = "SPIN_UP_PERIODIC_STEADY_STATE";
+
+	// Check modes: CHECK_MODE_CHECKED checks the values of the pools after each
+	// operation, CHECK_MODE_FAST only at load time and every checkPeriod time
+	// units of the simulation
+	public static final String CHECK_MODE_CHECKED = "CHECK_MODE_CHECKED";
+	public static final String CHECK_MODE_FAST = "CHECK_MODE_FAST";
 
 	private String timeUnit;
+	private String engineMode = ENGINE_STANDARD;
+	private int engineThreads = 1;
+	private transient ForkJoinPool forkJoinPool; // created at first call of getForkJoinPool()
+	private transient LogSink logSink; // optional, the default Log if null
+	private String integrator = INTEGRATOR_EULER;
+	private double integratorRelativeTolerance = 1e-6;
+	private double integratorAbsoluteTolerance = 1e-9;
+	private String spinUp = SPIN_UP_NONE;
+	private int spinUpPeriod = 1;
+	private String checkMode = CHECK_MODE_CHECKED;
+	private int checkPeriod = 1;
 
 	private int initialDate = -1;
 	private int finalDate = -1;
@@ -28,6 +73,21 @@ public class Context implements Serializable {
 	public Context() {
 	}
 
+	/**
+	 * copy(): a copy of the context for another simulation, e.g. a member of an
+	 * ensemble. The timeline and the environment are shared, the substrate
+	 * inputs may be replaced in the copy. The fork join pool and the log sink
+	 * are not copied.
+	 */
+	public Context copy() throws Exception {
+		Context c = (Context) super.clone();
+		c.forkJoinPool = null;
+		c.logSink = null;
+		if (substrateInputManager != null)
+			c.substrateInputManager = substrateInputManager.copy();
+		return c;
+	}
+
 	/**
 	 * buildTimeline()
 	 */
@@ -90,6 +150,96 @@ public class Context implements Serializable {
 		this.userTimeStep = userTimeStep;
 	}
 
+	/**
+	 * setEngineMode()
+	 */
+	public void setEngineMode(String engineMode) throws Exception {
+		if (!engineMode.equals(ENGINE_STANDARD) && !engineMode.equals(ENGINE_DOUBLE_BUFFERED))
+			throw new Exception("Context.setEngineMode(): wrong engineMode " + engineMode + ", expected: "
+					+ ENGINE_STANDARD + " or " + ENGINE_DOUBLE_BUFFERED);
+		this.engineMode = engineMode;
+	}
+
+	/**
+	 * setEngineThreads()
+	 */
+	public void setEngineThreads(int engineThreads) throws Exception {
+		if (engineThreads <= 0)
+			throw new Exception("Context.setEngineThreads(): engineThreads " + engineThreads + " must be positive");
+		this.engineThreads = engineThreads;
+	}
+
+	/**
+	 * setIntegrator()
+	 */
+	public void setIntegrator(String integrator) throws Exception {
+		if (!integrator.equals(INTEGRATOR_EULER) && !integrator.equals(INTEGRATOR_DORMAND_PRINCE)
+				&& !integrator.equals(INTEGRATOR_IMEX_EULER) && !integrator.equals(INTEGRATOR_EXPONENTIAL))
+			throw new Exception("Context.setIntegrator(): wrong integrator " + integrator + ", expected: "
+					+ INTEGRATOR_EULER + ", " + INTEGRATOR_DORMAND_PRINCE + ", " + INTEGRATOR_IMEX_EULER + " or "
+					+ INTEGRATOR_EXPONENTIAL);
+		this.integrator = integrator;
+	}
+
+	/**
+	 * setIntegratorRelativeTolerance()
+	 */
+	public void setIntegratorRelativeTolerance(double integratorRelativeTolerance) throws Exception {
+		if (integratorRelativeTolerance <= 0)
+			throw new Exception("Context.setIntegratorRelativeTolerance(): integratorRelativeTolerance "
+					+ integratorRelativeTolerance + " must be positive");
+		this.integratorRelativeTolerance = integratorRelativeTolerance;
+	}
+
+	/**
+	 * setIntegratorAbsoluteTolerance()
+	 */
+	public void setIntegratorAbsoluteTolerance(double integratorAbsoluteTolerance) throws Exception {
+		if (integratorAbsoluteTolerance <= 0)
+			throw new Exception("Context.setIntegratorAbsoluteTolerance(): integratorAbsoluteTolerance "
+					+ integratorAbsoluteTolerance + " must be positive");
+		this.integratorAbsoluteTolerance = integratorAbsoluteTolerance;
+	}
+
+	/**
+	 * setSpinUp()
+	 */
+	public void setSpinUp(String spinUp) throws Exception {
+		if (!spinUp.equals(SPIN_UP_NONE) && !spinUp.equals(SPIN_UP_STEADY_STATE)
+				&& !spinUp.equals(SPIN_UP_PERIODIC_STEADY_STATE))
+			throw new Exception("Context.setSpinUp(): wrong spinUp " + spinUp + ", expected: " + SPIN_UP_NONE + ", "
+					+ SPIN_UP_STEADY_STATE + " or " + SPIN_UP_PERIODIC_STEADY_STATE);
+		this.spinUp = spinUp;
+	}
+
+	/**
+	 * setSpinUpPeriod()
+	 */
+	public void setSpinUpPeriod(int spinUpPeriod) throws Exception {
+		if (spinUpPeriod <= 0)
+			throw new Exception("Context.setSpinUpPeriod(): spinUpPeriod " + spinUpPeriod + " must be positive");
+		this.spinUpPeriod = spinUpPeriod;
+	}
+
+	/**
+	 * setCheckMode()
+	 */
+	public void setCheckMode(String checkMode) throws Exception {
+		if (!checkMode.equals(CHECK_MODE_CHECKED) && !checkMode.equals(CHECK_MODE_FAST))
+			throw new Exception("Context.setCheckMode(): wrong checkMode " + checkMode + ", expected: "
+					+ CHECK_MODE_CHECKED + " or " + CHECK_MODE_FAST);
+		this.checkMode = checkMode;
+	}
+
+	/**
+	 * setCheckPeriod()
+	 */
+	public void setCheckPeriod(int checkPeriod) throws Exception {
+		if (checkPeriod <= 0)
+			throw new Exception("Context.setCheckPeriod(): checkPeriod " + checkPeriod + " must be positive");
+		this.checkPeriod = checkPeriod;
+	}
+
 	/**
 	 * setSubstrateInputManager()
 	 */
@@ -125,6 +275,111 @@ public class Context implements Serializable {
 		return userTimeStep;
 	}
 
+	/**
+	 * getEngineMode()
+	 */
+	public String getEngineMode() {
+		return engineMode;
+	}
+
+	/**
+	 * getEngineThreads()
+	 */
+	public int getEngineThreads() {
+		return engineThreads;
+	}
+
+	/**
+	 * getForkJoinPool(): the pool of engineThreads threads running the parallel
+	 * parts of the engine, null if engineThreads is 1
+	 */
+	public synchronized ForkJoinPool getForkJoinPool() {
+		if (engineThreads > 1 && forkJoinPool == null)
+			forkJoinPool = new ForkJoinPool(engineThreads);
+		return forkJoinPool;
+	}
+
+	/**
+	 * shutdownForkJoinPool(): the threads of the pool are released, a new pool is
+	 * created at the next call of getForkJoinPool()
+	 */
+	public synchronized void shutdownForkJoinPool() {
+		if (forkJoinPool != null)
+			forkJoinPool.shutdown();
+		forkJoinPool = null;
+	}
+
+	/**
+	 * setLogSink(): the log of the simulations executed in this context, the
+	 * default Log if null
+	 */
+	public void setLogSink(LogSink logSink) {
+		this.logSink = logSink;
+	}
+
+	/**
+	 * getLogSink()
+	 */
+	public LogSink getLogSink() {
+		return logSink;
+	}
+
+	/**
+	 * getIntegrator()
+	 */
+	public String getIntegrator() {
+		return integrator;
+	}
+
+	/**
+	 * getIntegratorRelativeTolerance()
+	 */
+	public double getIntegratorRelativeTolerance() {
+		return integratorRelativeTolerance;
+	}
+
+	/**
+	 * getIntegratorAbsoluteTolerance()
+	 */
+	public double getIntegratorAbsoluteTolerance() {
+		return integratorAbsoluteTolerance;
+	}
+
+	/**
+	 * getSpinUp()
+	 */
+	public String getSpinUp() {
+		return spinUp;
+	}
+
+	/**
+	 * getSpinUpPeriod()
+	 */
+	public int getSpinUpPeriod() {
+		return spinUpPeriod;
+	}
+
+	/**
+	 * getCheckMode()
+	 */
+	public String getCheckMode() {
+		return checkMode;
+	}
+
+	/**
+	 * getCheckPeriod()
+	 */
+	public int getCheckPeriod() {
+		return checkPeriod;
+	}
+
+	/**
+	 * isFastCheckMode()
+	 */
+	public boolean isFastCheckMode() {
+		return checkMode.equals(CHECK_MODE_FAST);
+	}
+
 	/**
 	 * getTimeline()
 	 */
@@ -159,6 +414,19 @@ public class Context implements Serializable {
 		b.append(CR);
 		b.append("userTimeStep: " + userTimeStep);
 
+		b.append(CR);
+		b.append("engineMode: " + engineMode + ", engineThreads: " + engineThreads);
+
+		b.append(CR);
+		b.append("integrator: " + integrator + ", relative tolerance: " + integratorRelativeTolerance
+				+ ", absolute tolerance: " + integratorAbsoluteTolerance);
+
+		b.append(CR);
+		b.append("spinUp: " + spinUp + ", period: " + spinUpPeriod);
+
+		b.append(CR);
+		b.append("checkMode: " + checkMode + ", period: " + checkPeriod);
+
 		b.append(CR);
 		b.append("timeline: " + timeline);
 
@@ -33,6 +33,17 @@ public class SubstrateInputManager implements Decodable {
 		poolInputManagerMap = new HashMap<>();
 	}
 
+	/**
+	 * copy(): a copy sharing the pool input managers, which may be replaced in
+	 * the copy by addPoolInputManager()
+	 */
+	public SubstrateInputManager copy() {
+		SubstrateInputManager sim = new SubstrateInputManager();
+		sim.poolInputManagerMap.putAll(poolInputManagerMap);
+		sim.substrate = substrate;
+		return sim;
+	}
+
 	/**
 	 * addPoolInputManager()
 	 */
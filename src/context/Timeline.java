@@ -1,5 +1,6 @@
 package capsis.lib.cstability.context;
 
+import capsis.lib.cstability.util.Grid;
 import capsis.lib.cstability.util.Interval;
 
 /**
@@ -12,6 +13,7 @@ public class Timeline extends Interval<Integer> {
 	private String unit;
 	private double step;
 	private double[] discretization;
+	private Grid grid;
 
 	/**
 	 * Constructor
@@ -23,6 +25,7 @@ public class Timeline extends Interval<Integer> {
 			throw new Exception("Timeline, wrong discretization, user step " + userStep + " > 1");
 		step = 1d / Math.floor(1d / userStep);
 		discretize();
+		grid = Grid.of(discretization);
 	}
 
 	private void discretize() {
@@ -51,12 +54,7 @@ public class Timeline extends Interval<Integer> {
 	}
 
 	public int getIndex(double date) {
-		int index = -1;
-		for (int i = 0; i < discretization.length; ++i) {
-			if (date == discretization[i])
-				index = i;
-		}
-		return index;
+		return grid.getIndex(date);
 	}
 
 }
@@ -53,9 +53,9 @@ public class ConstantInputFunction extends Function {
 			s = s.replace(")", "");
 			StringTokenizer st = new StringTokenizer(s, ":");
 
-			constant = Double.parseDouble(st.nextToken().trim());
+			double constant = Double.parseDouble(st.nextToken().trim());
 
-			signature = Function.getFunction(st.nextToken().trim(), p, c);
+			Function signature = Function.getFunction(st.nextToken().trim(), p, c);
 
 			return new ConstantInputFunction(constant, signature);
 
@@ -77,6 +77,17 @@ public class ConstantInputFunction extends Function {
 		return constant * signature.execute(p, c, s, new OneVariable(x));
 	}
 
+	/**
+	 * evaluate(): x are the dates, y the polymerization values
+	 */
+	@Override
+	public void evaluate(Parameters p, Context c, State s, double[] x, double[] y, double[] out) throws Exception {
+		checkLength(y, out);
+		signature.evaluate(p, c, s, y, null, out);
+		for (int i = 0; i < out.length; i++)
+			out[i] = constant * out[i];
+	}
+
 	@Override
 	public Class expectedVariables() {
 		return TwoVariables.class;
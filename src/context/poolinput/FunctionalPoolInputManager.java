@@ -1,5 +1,7 @@
 package capsis.lib.cstability.context.poolinput;
 
+import java.util.Arrays;
+
 import capsis.lib.cstability.context.Context;
 import capsis.lib.cstability.function.Function;
 import capsis.lib.cstability.function.util.TwoVariables;
@@ -35,9 +37,9 @@ public class FunctionalPoolInputManager extends PoolInputManager {
 		Pool pool = s.getSubstrate().getPool(bcName, accessibilityKey);
 		double[] valuesX = pool.getValuesX();
 		double[] valuesY = new double[valuesX.length];
-		for (int i = 0; i < valuesX.length; ++i) {
-			valuesY[i] = function.execute(p, c, s, new TwoVariables(date, valuesX[i]));
-		}
+		double[] dates = new double[valuesX.length];
+		Arrays.fill(dates, date);
+		function.evaluate(p, c, s, dates, valuesX, valuesY);
 		return new PoolInput(valuesX, valuesY, pool.getIntegrationMethod(), pool.getBiochemicalClass(),
 				pool.getAccessibility());
 	}
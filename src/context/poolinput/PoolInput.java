@@ -20,7 +20,7 @@ public class PoolInput extends SubstrateDistribution {
 	public PoolInput(double[] valuesX, double[] valuesY, String integrationMethod, BiochemicalClass biochemicalClass,
 			SubstrateAccessibility accessibility) throws Exception {
 		super(valuesX, valuesY, integrationMethod, biochemicalClass, accessibility);
-		carbonFlux = integral;
+		carbonFlux = getIntegral();
 	}
 
 	/**
@@ -1,15 +1,14 @@
 package capsis.lib.cstability.distribution;
 
 import java.io.Serializable;
-import java.util.Arrays;
 
 import capsis.lib.cstability.context.Context;
 import capsis.lib.cstability.function.Function;
 import capsis.lib.cstability.function.util.OneVariable;
-import capsis.lib.cstability.function.util.TwoVariables;
-import capsis.lib.cstability.function.util.ZeroVariable;
 import capsis.lib.cstability.parameter.Parameters;
 import capsis.lib.cstability.state.State;
+import capsis.lib.cstability.util.ArrayOperations;
+import capsis.lib.cstability.util.Grid;
 import capsis.lib.cstability.util.Interval;
 import capsis.lib.cstability.util.Matrix;
 
@@ -25,22 +24,33 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 	public static final String INTEGRATION_RECTANGLE_RIGHT = "INTEGRATION_RECTANGLE_RIGHT";
 	public static final String INTEGRATION_TRAPEZE = "INTEGRATION_TRAPEZE";
 
-	protected double[] valuesX;
+	protected Grid grid; // the discretization, shared
+	protected double[] valuesX; // the values of grid, not to be modified
 	protected double[] valuesY;
 	protected int length;
 	protected String integrationMethod;
-	protected double integral;
+	private double integral; // valid if integralUpToDate
+	private volatile boolean integralUpToDate;
+	private volatile double[] cumulativeIntegral; // integral from valuesX[0] to each x, null if to be computed
+	private double[] cumulativeBuffer; // the array of the cumulative integral, reused after each change
 
 	/**
 	 * Constructor
 	 */
 	public DiscreteDistribution(double[] valuesX, double[] valuesY, String integrationMethod) throws Exception {
+		this(Grid.of(valuesX), valuesY, integrationMethod);
+	}
 
-		if (valuesX.length != valuesY.length)
-			throw new Exception("DiscreteDistribution.constructor, Dimension mismatch: X length, " + valuesX.length
+	/**
+	 * Constructor, on a shared grid
+	 */
+	public DiscreteDistribution(Grid grid, double[] valuesY, String integrationMethod) throws Exception {
+
+		if (grid.getLength() != valuesY.length)
+			throw new Exception("DiscreteDistribution.constructor, Dimension mismatch: X length, " + grid.getLength()
 					+ " != Y length: " + valuesY.length);
 
-		this.length = valuesX.length;
+		this.length = grid.getLength();
 
 		if (this.length < 2)
 			throw new Exception("DiscreteDistribution.constructor, Dimension is inferior to 2");
@@ -50,25 +60,37 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 				&& !integrationMethod.equals(INTEGRATION_TRAPEZE))
 			throw new Exception("DiscreteDistribution.constructor, Wrong integrationMethod: " + integrationMethod);
 
-		for (int i = 0; i < length - 1; ++i) {
-			if (valuesX[i] >= valuesX[i + 1])
-				throw new Exception("DiscreteDistribution.constructor, Wrong valuesX sort");
-		}
-
-		this.valuesX = valuesX;
+		// the grid values are sorted
+		this.grid = grid;
+		this.valuesX = grid.getValues();
 		this.valuesY = valuesY;
 		this.integrationMethod = integrationMethod;
-		integrate();
+		valuesChanged();
+	}
+
+	/**
+	 * Trusted constructor, for the results derived from an already validated
+	 * distribution: same grid and integrationMethod as model, valuesY must have
+	 * its length. Nothing is checked.
+	 */
+	protected DiscreteDistribution(DiscreteDistribution model, double[] valuesY) {
+		this.grid = model.grid;
+		this.valuesX = model.valuesX;
+		this.length = model.length;
+		this.integrationMethod = model.integrationMethod;
+		this.valuesY = valuesY;
+		valuesChanged();
 	}
 
 	/**
-	 * clone()
+	 * clone(): the grid is shared
 	 */
 	@Override
 	public DiscreteDistribution clone() throws CloneNotSupportedException {
 		DiscreteDistribution dd = (DiscreteDistribution) super.clone();
-		dd.valuesX = valuesX.clone();
 		dd.valuesY = valuesY.clone();
+		dd.cumulativeIntegral = null;
+		dd.cumulativeBuffer = null;
 		return dd;
 	}
 
@@ -86,11 +108,19 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 		return new DiscreteDistribution(valuesX, valuesY, integrationMethod);
 	}
 
+	/**
+	 * getZeroDiscreteDistribution()
+	 */
+	public static DiscreteDistribution getZeroDiscreteDistribution(Grid grid, String integrationMethod)
+			throws Exception {
+		return new DiscreteDistribution(grid, new double[grid.getLength()], integrationMethod);
+	}
+
 	/**
 	 * getZeroDiscreteDistribution()
 	 */
 	public static DiscreteDistribution getZeroDiscreteDistribution(DiscreteDistribution dd) throws Exception {
-		return getZeroDiscreteDistribution(dd.valuesX, dd.integrationMethod);
+		return new DiscreteDistribution(dd, new double[dd.length]);
 	}
 
 	/**
@@ -103,7 +133,7 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 				throw new Exception("DiscreteDictribution.getComplementary(), a value is not in [0,1]: " + valuesY[i]);
 			newValuesY[i] = 1 - valuesY[i];
 		}
-		return new DiscreteDistribution(valuesX, newValuesY, integrationMethod);
+		return new DiscreteDistribution(this, newValuesY);
 	}
 
 	/**
@@ -120,59 +150,93 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 	 * Integration
 	 */
 
+	/**
+	 * valuesChanged(): to be called after each change of the values of Y, the
+	 * integrals are computed again when they are needed
+	 */
+	protected void valuesChanged() {
+		integralUpToDate = false;
+		cumulativeIntegral = null;
+	}
+
+	/**
+	 * valuesYChanged(): to be called after the values returned by getValuesY()
+	 * were modified in place, the integrals are invalidated and the values
+	 * checked (see check())
+	 */
+	public void valuesYChanged() throws Exception {
+		valuesChanged();
+		check();
+	}
+
 	/**
 	 * integrate()
 	 */
 	private void integrate() {
+		ArrayOperations op = ArrayOperations.get();
 		if (integrationMethod.equals(INTEGRATION_RECTANGLE_LEFT)) {
-			integral = integrateRectangleLeft();
+			integral = op.integrateRectangleLeft(valuesX, valuesY);
 		} else if (integrationMethod.equals(INTEGRATION_RECTANGLE_RIGHT)) {
-			integral = integrateRectangleRight();
+			integral = op.integrateRectangleRight(valuesX, valuesY);
 		} else if (integrationMethod.equals(INTEGRATION_TRAPEZE)) {
-			integral = integrateTrapeze();
+			integral = op.integrateTrapeze(valuesX, valuesY);
 		}
+		integralUpToDate = true;
 	}
 
 	/**
-	 * integrateRectangleLeft()
+	 * sameDiscretization(): the grids are interned, the same values of X are the
+	 * same grid
 	 */
-	private double integrateRectangleLeft() {
-		double integral = 0d;
-		for (int i = 0; i < length - 1; i++) {
-			integral += (valuesX[i + 1] - valuesX[i]) * valuesY[i];
-		}
-		return integral;
+	private boolean sameDiscretization(DiscreteDistribution dd) {
+		return this.grid == dd.grid;
 	}
 
 	/**
-	 * integrateRectangleRight()
+	 * getCumulativeIntegral(): the integral from valuesX[0] to each value of X,
+	 * with the integration method, computed again in the same array after each
+	 * change of the values
 	 */
-	private double integrateRectangleRight() {
-		double integral = 0d;
-		for (int i = 0; i < length - 1; i++) {
-			integral += (valuesX[i + 1] - valuesX[i]) * valuesY[i + 1];
+	private double[] getCumulativeIntegral() {
+		double[] cumulative = cumulativeIntegral;
+		if (cumulative == null) {
+			synchronized (this) {
+				cumulative = cumulativeIntegral;
+				if (cumulative == null) {
+					if (cumulativeBuffer == null)
+						cumulativeBuffer = new double[length];
+					cumulative = cumulativeBuffer;
+					for (int i = 0; i < length - 1; i++)
+						cumulative[i + 1] = cumulative[i]
+								+ integrateSegment(valuesX[i], valuesX[i + 1], valuesY[i], valuesY[i + 1]);
+					cumulativeIntegral = cumulative;
+				}
+			}
 		}
-		return integral;
+		return cumulative;
 	}
 
 	/**
-	 * integrateTrapeze()
+	 * integrateSegment(): the integral between x0 and x1 of the values y0 and y1,
+	 * with the integration method
 	 */
-	private double integrateTrapeze() {
-		double integral = 0d;
-		for (int i = 0; i < length - 1; i++) {
-			integral += (valuesX[i + 1] - valuesX[i]) * (valuesY[i] + valuesY[i + 1]) / 2d;
+	private double integrateSegment(double x0, double x1, double y0, double y1) {
+		if (integrationMethod.equals(INTEGRATION_RECTANGLE_LEFT)) {
+			return (x1 - x0) * y0;
+		} else if (integrationMethod.equals(INTEGRATION_RECTANGLE_RIGHT)) {
+			return (x1 - x0) * y1;
+		} else {
+			return (x1 - x0) * (y0 + y1) / 2d;
 		}
-		return integral;
 	}
 
 	/**
-	 * getIntegral()
+	 * getIntegral(): the integral on the interval, the difference of the
+	 * cumulative integral at the points of X in the interval plus the integrals
+	 * of the interpolated values at its bounds
 	 */
 	public double getIntegral(Interval interval) throws Exception {
 
-		double integralValue = 0;
-
 		double xMin = valuesX[0];
 		double xMax = valuesX[valuesX.length - 1];
 		double iMin = (double) interval.getMin();
@@ -182,38 +246,19 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 					"DiscreteDistribution.integrate(), integration interval mismatches with distribution extremums");
 
 		int indexMin = getPreviousIndex(iMin);
-		int indexMax = getNextIndex(iMax);
+		int indexMax = getPreviousIndex(iMax);
 
-		if (indexMin + 1 == indexMax) {
+		if (indexMin == indexMax) {
 			// interval is included between two successive points of the distribution
-			// the integral is based on interpolation
-			// i.e. x[indexMin] < imin < imax < x[indexMin]
-			double[] X = new double[] { iMin, iMax };
-			double[] Y = new double[] { interpolate(iMin), interpolate(iMax) };
-			integralValue += (new DiscreteDistribution(X, Y, this.integrationMethod)).getIntegral();
-
-		} else {
-			// left interpolation required;
-			if (!(valuesX[indexMin] == iMin)) {
-				double[] X = new double[] { iMin, valuesX[indexMin] };
-				double[] Y = new double[] { interpolate(iMin), valuesY[indexMin] };
-				integralValue += (new DiscreteDistribution(X, Y, this.integrationMethod)).getIntegral();
-				indexMin += 1;
-			}
-			// right interpolation required
-			if (!(valuesX[indexMax] == iMax)) {
-				double[] X = new double[] { valuesX[indexMax], iMax };
-				double[] Y = new double[] { valuesY[indexMax], interpolate(iMax) };
-				integralValue += (new DiscreteDistribution(X, Y, this.integrationMethod)).getIntegral();
-				indexMax -= 1;
-			}
-
-			if (indexMin != indexMax) {
-				integralValue += (new DiscreteDistribution(Arrays.copyOfRange(valuesX, indexMin, indexMax),
-						Arrays.copyOfRange(valuesY, indexMin, indexMax), this.integrationMethod)).getIntegral();
-			}
+			// i.e. x[indexMin] <= imin <= imax <= x[indexMin + 1]
+			return integrateSegment(iMin, iMax, interpolate(indexMin, iMin), interpolate(indexMin, iMax));
 		}
-		return integralValue;
+
+		// x[indexMin] <= iMin <= x[indexMin + 1] <= x[indexMax] <= iMax <= x[indexMax + 1]
+		double[] cumulative = getCumulativeIntegral();
+		return integrateSegment(iMin, valuesX[indexMin + 1], interpolate(indexMin, iMin), valuesY[indexMin + 1])
+				+ cumulative[indexMax] - cumulative[indexMin + 1]
+				+ integrateSegment(valuesX[indexMax], iMax, valuesY[indexMax], interpolate(indexMax, iMax));
 	}
 
 	/**
@@ -224,36 +269,21 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 		double xMax = valuesX[valuesX.length - 1];
 		if (x < xMin || x > xMax)
 			throw new Exception("DiscreteDistribution.interpolate(), x value mismatches with distribution extremums");
-		int i = getPreviousIndex(x);
-		return valuesY[i] + (valuesY[i + 1] - valuesY[i]) * (x - valuesX[i]) / (valuesX[i + 1] - valuesX[i]);
+		return interpolate(getPreviousIndex(x), x);
 	}
 
 	/**
-	 * getPreviousIndex()
+	 * interpolate(): linear interpolation between the points i and i + 1
 	 */
-	private int getPreviousIndex(double x) {
-		int index = 0;
-		for (int i = 0; i < valuesX.length - 1; ++i) {
-			if (valuesX[i] <= x & x < valuesX[i + 1]) {
-				index = i;
-				break;
-			}
-		}
-		return index;
+	private double interpolate(int i, double x) {
+		return valuesY[i] + (valuesY[i + 1] - valuesY[i]) * (x - valuesX[i]) / (valuesX[i + 1] - valuesX[i]);
 	}
 
 	/**
-	 * getNextIndex()
+	 * getPreviousIndex()
 	 */
-	private int getNextIndex(double x) {
-		int index = 0;
-		for (int i = 0; i < valuesX.length - 1; ++i) {
-			if (valuesX[i] < x & x <= valuesX[i + 1]) {
-				index = i + 1;
-				break;
-			}
-		}
-		return index;
+	private int getPreviousIndex(double x) {
+		return grid.getPreviousIndex(x);
 	}
 
 	/**
@@ -270,7 +300,7 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 				this.valuesY[i] /= integral;
 			}
 		}
-		integrate();
+		valuesChanged();
 	}
 
 	/**
@@ -283,31 +313,89 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 				this.valuesY[i] *= (proportion / integral);
 			}
 		}
-		integrate();
+		valuesChanged();
 	}
 
 	/**
 	 * add()
 	 */
 	public void add(DiscreteDistribution dd) throws Exception {
-		for (int i = 0; i < this.length; i++) {
-			if (this.valuesX[i] != dd.valuesX[i])
-				throw new Exception("DiscreteDistribution.add(), mismatch of discretization");
-			this.valuesY[i] += dd.valuesY[i];
-		}
-		integrate();
+		if (!sameDiscretization(dd))
+			throw new Exception("DiscreteDistribution.add(), mismatch of discretization");
+		ArrayOperations.get().add(this.valuesY, dd.valuesY, this.valuesY);
+		valuesChanged();
 	}
 
 	/**
 	 * substract()
 	 */
 	public void substract(DiscreteDistribution dd) throws Exception {
-		for (int i = 0; i < this.length; i++) {
-			if (this.valuesX[i] != dd.valuesX[i])
-				throw new Exception("DiscreteDistribution.sub(), mismatch of discretization");
-			this.valuesY[i] -= dd.valuesY[i];
+		if (!sameDiscretization(dd))
+			throw new Exception("DiscreteDistribution.sub(), mismatch of discretization");
+		ArrayOperations.get().sub(this.valuesY, dd.valuesY, this.valuesY);
+		valuesChanged();
+	}
+
+	/**
+	 * addAndIntegrate(): adds dd and returns the new integral, computed in the
+	 * same pass
+	 */
+	public double addAndIntegrate(DiscreteDistribution dd) throws Exception {
+		if (!sameDiscretization(dd))
+			throw new Exception("DiscreteDistribution.addAndIntegrate(), mismatch of discretization");
+		return addScaledAndIntegrate(1d, dd);
+	}
+
+	/**
+	 * substractAndIntegrate(): substracts dd and returns the new integral,
+	 * computed in the same pass
+	 */
+	public double substractAndIntegrate(DiscreteDistribution dd) throws Exception {
+		if (!sameDiscretization(dd))
+			throw new Exception("DiscreteDistribution.substractAndIntegrate(), mismatch of discretization");
+		return addScaledAndIntegrate(-1d, dd);
+	}
+
+	/**
+	 * addScaledAndIntegrate(): adds a * dd and returns the new integral, the
+	 * segments are integrated in the order of integrate()
+	 */
+	private double addScaledAndIntegrate(double a, DiscreteDistribution dd) {
+		valuesChanged();
+		double newIntegral = 0d;
+		valuesY[0] += a * dd.valuesY[0];
+		for (int i = 1; i < length; i++) {
+			valuesY[i] += a * dd.valuesY[i];
+			newIntegral += integrateSegment(valuesX[i - 1], valuesX[i], valuesY[i - 1], valuesY[i]);
 		}
-		integrate();
+		integral = newIntegral;
+		integralUpToDate = true;
+		return newIntegral;
+	}
+
+	/**
+	 * copyValuesY(): copies in place the Y values of dd, which must have the same
+	 * discretization and integrationMethod, its integral is kept
+	 */
+	public void copyValuesY(DiscreteDistribution dd) throws Exception {
+		if (!sameDiscretization(dd) || !integrationMethod.equals(dd.integrationMethod))
+			throw new Exception("DiscreteDistribution.copyValuesY(), mismatch of discretization");
+		System.arraycopy(dd.valuesY, 0, this.valuesY, 0, this.length);
+		valuesChanged();
+		if (dd.integralUpToDate) {
+			this.integral = dd.integral;
+			this.integralUpToDate = true;
+		}
+	}
+
+	/**
+	 * copyValuesY(): copies in place the Y values from values, starting at offset
+	 */
+	public void copyValuesY(double[] values, int offset) throws Exception {
+		if (offset + this.length > values.length)
+			throw new Exception("DiscreteDistribution.copyValuesY(), mismatch of discretization");
+		System.arraycopy(values, offset, this.valuesY, 0, this.length);
+		valuesChanged();
 	}
 
 	/**
@@ -318,52 +406,36 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 	 * add()
 	 */
 	public static DiscreteDistribution add(DiscreteDistribution d1, DiscreteDistribution d2) throws Exception {
-		for (int i = 0; i < d1.length; i++) {
-			if (d1.valuesX[i] != d2.valuesX[i])
-				throw new Exception("DiscreteDistribution.sub(), mismatch of discretization");
-		}
-		if (d1.integrationMethod != d2.integrationMethod)
-			throw new Exception("DiscreteDistribution.sub(), mismatch of integrationMethod");
-		Matrix addition = Matrix.addition(Matrix.arrayToLine(d1.valuesY), Matrix.arrayToLine(d2.valuesY));
-		return new DiscreteDistribution(d1.valuesX, Matrix.lineToArray(addition), d1.integrationMethod);
+		DiscreteDistribution addition = getZeroDiscreteDistribution(d1);
+		add(d1, d2, addition);
+		return addition;
 	}
 
 	/**
 	 * sub()
 	 */
 	public static DiscreteDistribution sub(DiscreteDistribution d1, DiscreteDistribution d2) throws Exception {
-		for (int i = 0; i < d1.length; i++) {
-			if (d1.valuesX[i] != d2.valuesX[i])
-				throw new Exception("DiscreteDistribution.sub(), mismatch of discretization");
-		}
-		if (d1.integrationMethod != d2.integrationMethod)
-			throw new Exception("DiscreteDistribution.sub(), mismatch of integrationMethod");
-		Matrix substraction = Matrix.substraction(Matrix.arrayToLine(d1.valuesY), Matrix.arrayToLine(d2.valuesY));
-		return new DiscreteDistribution(d1.valuesX, Matrix.lineToArray(substraction), d1.integrationMethod);
+		DiscreteDistribution substraction = getZeroDiscreteDistribution(d1);
+		sub(d1, d2, substraction);
+		return substraction;
 	}
 
 	/**
 	 * mult()
 	 */
 	public static DiscreteDistribution mult(double scalar, DiscreteDistribution d) throws Exception {
-		Matrix product = Matrix.product(scalar, Matrix.arrayToLine(d.valuesY));
-		return new DiscreteDistribution(d.valuesX, Matrix.lineToArray(product), d.integrationMethod);
+		DiscreteDistribution product = getZeroDiscreteDistribution(d);
+		mult(scalar, d, product);
+		return product;
 	}
 
 	/**
 	 * mult()
 	 */
 	public static DiscreteDistribution mult(DiscreteDistribution d1, DiscreteDistribution d2) throws Exception {
-		for (int i = 0; i < d1.length; i++) {
-			if (d1.valuesX[i] != d2.valuesX[i])
-				throw new Exception("DiscreteDistribution.mult(), mismatch of discretization");
-		}
-		if (d1.integrationMethod != d2.integrationMethod)
-			throw new Exception("DiscreteDistribution.mult(), mismatch of integrationMethod");
-
-		Matrix product = Matrix.productByElement(Matrix.arrayToLine(d1.valuesY), Matrix.arrayToLine(d2.valuesY));
-
-		return new DiscreteDistribution(d1.valuesX, Matrix.lineToArray(product), d1.integrationMethod);
+		DiscreteDistribution product = getZeroDiscreteDistribution(d1);
+		mult(d1, d2, product);
+		return product;
 	}
 
 	/**
@@ -372,13 +444,167 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 	public static DiscreteDistribution mult(Matrix m, DiscreteDistribution d) throws Exception {
 		if (m == null || d == null)
 			throw new Exception("DiscreteDistribution.mult(), m: " + m + " d: " + d);
+		DiscreteDistribution product = getZeroDiscreteDistribution(d);
+		mult(m, d, product);
+		return product;
+	}
+
+	/**
+	 * Static operations in a destination: the result is written in the values of
+	 * dst, which must have the same discretization as the operands and may be
+	 * one of them (except for the matrix product). No distribution is created.
+	 * The values of dst are then checked as after its own operations (see
+	 * check()).
+	 */
 
-		if (m.getNColumns() != d.length)
+	/**
+	 * check(): called after the values are written by an operation, nothing to
+	 * check in a DiscreteDistribution
+	 */
+	protected void check() throws Exception {
+	}
+
+	/**
+	 * checkOperands()
+	 */
+	private static void checkOperands(DiscreteDistribution d1, DiscreteDistribution d2, DiscreteDistribution dst,
+			String methodName) throws Exception {
+		if (!d1.sameDiscretization(d2) || !d1.sameDiscretization(dst))
+			throw new Exception("DiscreteDistribution." + methodName + "(), mismatch of discretization");
+		if (!d1.integrationMethod.equals(d2.integrationMethod) || !d1.integrationMethod.equals(dst.integrationMethod))
+			throw new Exception("DiscreteDistribution." + methodName + "(), mismatch of integrationMethod");
+	}
+
+	/**
+	 * add(): dst = d1 + d2
+	 */
+	public static void add(DiscreteDistribution d1, DiscreteDistribution d2, DiscreteDistribution dst)
+			throws Exception {
+		checkOperands(d1, d2, dst, "add");
+		ArrayOperations.get().add(d1.valuesY, d2.valuesY, dst.valuesY);
+		dst.valuesChanged();
+		dst.check();
+	}
+
+	/**
+	 * sub(): dst = d1 - d2
+	 */
+	public static void sub(DiscreteDistribution d1, DiscreteDistribution d2, DiscreteDistribution dst)
+			throws Exception {
+		checkOperands(d1, d2, dst, "sub");
+		ArrayOperations.get().sub(d1.valuesY, d2.valuesY, dst.valuesY);
+		dst.valuesChanged();
+		dst.check();
+	}
+
+	/**
+	 * mult(): dst = scalar * d
+	 */
+	public static void mult(double scalar, DiscreteDistribution d, DiscreteDistribution dst) throws Exception {
+		checkOperands(d, d, dst, "mult");
+		ArrayOperations.get().mult(scalar, d.valuesY, dst.valuesY);
+		dst.valuesChanged();
+		dst.check();
+	}
+
+	/**
+	 * mult(): dst = d1 * d2, element-wise
+	 */
+	public static void mult(DiscreteDistribution d1, DiscreteDistribution d2, DiscreteDistribution dst)
+			throws Exception {
+		checkOperands(d1, d2, dst, "mult");
+		ArrayOperations.get().mult(d1.valuesY, d2.valuesY, dst.valuesY);
+		dst.valuesChanged();
+		dst.check();
+	}
+
+	/**
+	 * mult(): dst = m . d, dst must not share its values with d
+	 */
+	public static void mult(Matrix m, DiscreteDistribution d, DiscreteDistribution dst) throws Exception {
+		if (m.getNColumns() != d.length || m.getNLines() != dst.length)
 			throw new Exception("DiscreteDistribution.mult(), mismatch dimensions");
+		if (dst.valuesY == d.valuesY)
+			throw new Exception("DiscreteDistribution.mult(), the destination must not be the operand");
+		m.multiply(d.valuesY, dst.valuesY);
+		dst.valuesChanged();
+		dst.check();
+	}
+
+	/**
+	 * apply(): dst = f(dd)
+	 */
+	public static void apply(DiscreteDistribution dd, Parameters p, Context c, State s, Function f,
+			DiscreteDistribution dst) throws Exception {
+		checkOperands(dd, dd, dst, "apply");
+		dst.setValuesY(dd.valuesY, p, c, s, f);
+	}
+
+	/**
+	 * Fused operations
+	 */
+
+	/**
+	 * axpy(): this = this + a * x
+	 */
+	public void axpy(double a, DiscreteDistribution x) throws Exception {
+		if (!sameDiscretization(x))
+			throw new Exception("DiscreteDistribution.axpy(), mismatch of discretization");
+		ArrayOperations.get().axpy(a, x.valuesY, this.valuesY);
+		valuesChanged();
+	}
 
-		Matrix newY = Matrix.product(m, Matrix.arrayToColumn(d.valuesY));
+	/**
+	 * addScaledProduct(): this = this + a * x * y, element-wise
+	 */
+	public void addScaledProduct(double a, DiscreteDistribution x, DiscreteDistribution y) throws Exception {
+		checkOperands(x, y, this, "addScaledProduct");
+		for (int i = 0; i < length; i++)
+			valuesY[i] += a * x.valuesY[i] * y.valuesY[i];
+		valuesChanged();
+	}
 
-		return new DiscreteDistribution(d.valuesX, Matrix.columnToArray(newY), d.integrationMethod);
+	/**
+	 * integrateProduct(): the integral of d1 * d2, without creating the product,
+	 * same result as mult(d1, d2).getIntegral()
+	 */
+	public static double integrateProduct(DiscreteDistribution d1, DiscreteDistribution d2) throws Exception {
+		checkOperands(d1, d2, d1, "integrateProduct");
+		double[] y1 = d1.valuesY;
+		double[] y2 = d2.valuesY;
+		double integral = 0d;
+		double p0 = y1[0] * y2[0];
+		for (int i = 0; i < d1.length - 1; i++) {
+			double p1 = y1[i + 1] * y2[i + 1];
+			integral += d1.integrateSegment(d1.valuesX[i], d1.valuesX[i + 1], p0, p1);
+			p0 = p1;
+		}
+		return integral;
+	}
+
+	/**
+	 * integrateComplementaryProduct(): the integral of (1 - d1) * d2, the values
+	 * of d1 must be in [0, 1], same result as mult(d1.getComplementary(),
+	 * d2).getIntegral()
+	 */
+	public static double integrateComplementaryProduct(DiscreteDistribution d1, DiscreteDistribution d2)
+			throws Exception {
+		checkOperands(d1, d2, d1, "integrateComplementaryProduct");
+		double[] y1 = d1.valuesY;
+		double[] y2 = d2.valuesY;
+		for (int i = 0; i < d1.length; i++) {
+			if (y1[i] < 0 || y1[i] > 1)
+				throw new Exception(
+						"DiscreteDistribution.integrateComplementaryProduct(), a value is not in [0,1]: " + y1[i]);
+		}
+		double integral = 0d;
+		double p0 = (1 - y1[0]) * y2[0];
+		for (int i = 0; i < d1.length - 1; i++) {
+			double p1 = (1 - y1[i + 1]) * y2[i + 1];
+			integral += d1.integrateSegment(d1.valuesX[i], d1.valuesX[i + 1], p0, p1);
+			p0 = p1;
+		}
+		return integral;
 	}
 
 	/**
@@ -389,10 +615,8 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 	 * setValuesY()
 	 */
 	public void setValuesY(Parameters p, Context c, State s, Function f) throws Exception {
-		for (int i = 0; i < this.length; i++) {
-			this.valuesY[i] = f.execute(p, c, s, new OneVariable(this.valuesX[i]));
-		}
-		integrate();
+		f.evaluate(p, c, s, this.valuesX, null, this.valuesY);
+		valuesChanged();
 	}
 
 	/**
@@ -402,20 +626,11 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 		if (valuesY.length != this.getLength())
 			throw new Exception("DiscreteDistribution.setValuesY(), wrong length " + valuesY.length
 					+ " for valuesY, expected " + this.length);
-		for (int i = 0; i < this.length; i++) {
-			if (f.expectedVariables().equals(ZeroVariable.class)) {
-				this.valuesY[i] = f.execute(p, c, s, new ZeroVariable());
-			} else if (f.expectedVariables().equals(OneVariable.class)) {
-				this.valuesY[i] = f.execute(p, c, s, new OneVariable(valuesY[i]));
-			} else if (f.expectedVariables().equals(TwoVariables.class)) {
-				this.valuesY[i] = f.execute(p, c, s, new TwoVariables(valuesX[i], valuesY[i]));
-			} else {
-				throw new Exception(
-						"DiscreteDistribution.setValuesY(), we expect a function depending on zero, one or two parameters, got: "
-								+ f);
-			}
-		}
-		integrate();
+		if (f.expectedVariables().equals(OneVariable.class))
+			f.evaluate(p, c, s, valuesY, null, this.valuesY);
+		else
+			f.evaluate(p, c, s, valuesX, valuesY, this.valuesY);
+		valuesChanged();
 	}
 
 	/**
@@ -456,9 +671,11 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 	}
 
 	/**
-	 * getIntegral()
+	 * getIntegral(): computed after a change of the values
 	 */
 	public double getIntegral() {
+		if (!integralUpToDate)
+			integrate();
 		return integral;
 	}
 
@@ -470,7 +687,14 @@ public class DiscreteDistribution implements Cloneable, Serializable {
 	}
 
 	/**
-	 * getValuesX()
+	 * getGrid()
+	 */
+	public Grid getGrid() {
+		return grid;
+	}
+
+	/**
+	 * getValuesX(): the values of the grid, not to be modified
 	 */
 	public double[] getValuesX() {
 		return valuesX;
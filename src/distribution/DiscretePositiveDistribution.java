@@ -4,16 +4,25 @@ import capsis.lib.cstability.context.Context;
 import capsis.lib.cstability.function.Function;
 import capsis.lib.cstability.parameter.Parameters;
 import capsis.lib.cstability.state.State;
+import capsis.lib.cstability.util.Grid;
 import capsis.lib.cstability.util.Log;
 
 /**
- * A discrete positive distribution.
+ * A discrete positive distribution. The values are checked after the additions
+ * (add(), addAndIntegrate(), axpy() with a positive factor) and setValuesY(),
+ * not after the substractions (substract(), substractAndIntegrate(), axpy()
+ * with a negative factor): a negative value left by a substraction is
+ * detected at the next addition.
  * 
  * @author J. Sainte-Marie, F. de Coligny - April 2021
  */
 @SuppressWarnings("serial")
 public class DiscretePositiveDistribution extends DiscreteDistribution implements Cloneable {
 
+	// if false, the values are not checked after each operation, only when
+	// checkIfNonNegative() is called explicitly
+	private boolean checked = true;
+
 	/**
 	 * Constructor
 	 */
@@ -22,16 +31,56 @@ public class DiscretePositiveDistribution extends DiscreteDistribution implement
 		checkIfNonNegative();
 	}
 
+	/**
+	 * Constructor, on a shared grid
+	 */
+	public DiscretePositiveDistribution(Grid grid, double[] valuesY, String integrationMethod) throws Exception {
+		super(grid, valuesY, integrationMethod);
+		checkIfNonNegative();
+	}
+
+	/**
+	 * Trusted constructor, for the results derived from an already validated
+	 * distribution: same grid, integrationMethod and checked mode as model,
+	 * valuesY must have its length. Nothing is checked.
+	 */
+	protected DiscretePositiveDistribution(DiscretePositiveDistribution model, double[] valuesY) {
+		super(model, valuesY);
+		this.checked = model.checked;
+	}
+
 	/**
 	 * clone()
 	 */
 	@Override
 	public DiscretePositiveDistribution clone() {
-		try {
-			return new DiscretePositiveDistribution(valuesX.clone(), valuesY.clone(), integrationMethod);
-		} catch (Exception e) {
-			return null;
-		}
+		return new DiscretePositiveDistribution(this, valuesY.clone());
+	}
+
+	/**
+	 * setChecked(): if false, the values are not checked any more after add(),
+	 * axpy() and setValuesY(), the copies keep this mode. To be used for the
+	 * distributions of a simulation in fast check mode, which checks them from
+	 * time to time with checkIfNonNegative().
+	 */
+	public void setChecked(boolean checked) {
+		this.checked = checked;
+	}
+
+	/**
+	 * isChecked()
+	 */
+	public boolean isChecked() {
+		return checked;
+	}
+
+	/**
+	 * check(): checkIfNonNegative() if the distribution is checked
+	 */
+	@Override
+	protected void check() throws Exception {
+		if (checked)
+			checkIfNonNegative();
 	}
 
 	/**
@@ -58,19 +107,29 @@ public class DiscretePositiveDistribution extends DiscreteDistribution implement
 		return new DiscretePositiveDistribution(valuesX, valuesY, integrationMethod);
 	}
 
+	/**
+	 * getZeroDiscreteDistribution()
+	 */
+	public static DiscretePositiveDistribution getZeroDiscreteDistribution(Grid grid, String integrationMethod)
+			throws Exception {
+		return new DiscretePositiveDistribution(grid, new double[grid.getLength()], integrationMethod);
+	}
+
 	/**
 	 * getZeroDiscreteDistribution()
 	 */
 	public static DiscretePositiveDistribution getZeroDiscreteDistribution(DiscreteDistribution dd) throws Exception {
-		return getZeroDiscreteDistribution(dd.valuesX, dd.integrationMethod);
+		if (dd instanceof DiscretePositiveDistribution)
+			return new DiscretePositiveDistribution((DiscretePositiveDistribution) dd, new double[dd.length]);
+		return getZeroDiscreteDistribution(dd.grid, dd.integrationMethod);
 	}
 
 	/**
 	 * getComplementary()
 	 */
 	public DiscretePositiveDistribution getComplementary() throws Exception {
-		DiscreteDistribution dd = super.getComplementary();
-		return new DiscretePositiveDistribution(dd.getValuesX(), dd.getValuesY(), dd.getIntegrationMethod());
+		// the values of the complementary are in [0, 1]
+		return new DiscretePositiveDistribution(this, super.getComplementary().getValuesY());
 	}
 
 	/**
@@ -78,7 +137,26 @@ public class DiscretePositiveDistribution extends DiscreteDistribution implement
 	 */
 	public void add(DiscreteDistribution dd) throws Exception {
 		super.add(dd);
-		checkIfNonNegative();
+		check();
+	}
+
+	/**
+	 * addAndIntegrate()
+	 */
+	public double addAndIntegrate(DiscreteDistribution dd) throws Exception {
+		double integral = super.addAndIntegrate(dd);
+		check();
+		return integral;
+	}
+
+	/**
+	 * axpy(): the values are checked if a is positive, as in add(), a negative a
+	 * is a substraction
+	 */
+	public void axpy(double a, DiscreteDistribution x) throws Exception {
+		super.axpy(a, x);
+		if (a > 0)
+			check();
 	}
 
 	/**
@@ -86,7 +164,7 @@ public class DiscretePositiveDistribution extends DiscreteDistribution implement
 	 */
 	public void setValuesY(Parameters p, Context c, State s, Function f) throws Exception {
 		super.setValuesY(p, c, s, f);
-		checkIfNonNegative();
+		check();
 	}
 
 	/**
@@ -94,7 +172,7 @@ public class DiscretePositiveDistribution extends DiscreteDistribution implement
 	 */
 	public void setValuesY(double[] valuesY, Parameters p, Context c, State s, Function f) throws Exception {
 		super.setValuesY(valuesY, p, c, s, f);
-		checkIfNonNegative();
+		check();
 	}
 
 	/**
@@ -2,6 +2,7 @@ package capsis.lib.cstability.distribution;
 
 import capsis.lib.cstability.parameter.BiochemicalClass;
 import capsis.lib.cstability.parameter.SubstrateAccessibility;
+import capsis.lib.cstability.util.Grid;
 
 /**
  * A substrate distribution of C-STABILITY
@@ -19,22 +20,35 @@ public class SubstrateDistribution extends DiscretePositiveDistribution implemen
 	 */
 	public SubstrateDistribution(double[] valuesX, double[] valuesY, String integrationMethod,
 			BiochemicalClass biochemicalClass, SubstrateAccessibility accessibility) throws Exception {
-		super(valuesX, valuesY, integrationMethod);
+		this(Grid.of(valuesX), valuesY, integrationMethod, biochemicalClass, accessibility);
+	}
+
+	/**
+	 * Constructor, on a shared grid
+	 */
+	public SubstrateDistribution(Grid grid, double[] valuesY, String integrationMethod,
+			BiochemicalClass biochemicalClass, SubstrateAccessibility accessibility) throws Exception {
+		super(grid, valuesY, integrationMethod);
 		this.biochemicalClass = biochemicalClass;
 		this.accessibility = accessibility;
 	}
 
+	/**
+	 * Trusted constructor, for the results derived from an already validated
+	 * distribution, see DiscretePositiveDistribution
+	 */
+	protected SubstrateDistribution(SubstrateDistribution model, double[] valuesY) {
+		super(model, valuesY);
+		this.biochemicalClass = model.biochemicalClass;
+		this.accessibility = model.accessibility;
+	}
+
 	/**
 	 * clone()
 	 */
 	@Override
 	public SubstrateDistribution clone() {
-		try {
-			return new SubstrateDistribution(valuesX.clone(), valuesY.clone(), integrationMethod, biochemicalClass,
-					accessibility);
-		} catch (Exception e) {
-			return null;
-		}
+		return new SubstrateDistribution(this, valuesY.clone());
 	}
 
 	/**
@@ -60,7 +60,7 @@ public class MicrobeDecoder implements Decodable {
 				Function polymerizationFunction = Function.getFunction(st.nextToken().trim(), p, c);
 
 				DiscretePositiveDistribution polymerizationDistribution = DiscretePositiveDistribution
-						.getZeroDiscreteDistribution(bc.getPolymerization().getDiscretization(),
+						.getZeroDiscreteDistribution(bc.getPolymerization().getGrid(),
 								p.getIntegrationMethod());
 				polymerizationDistribution.setValuesY(p, c, null, polymerizationFunction);
 				polymerizationDistribution.proportionalize(proportion);
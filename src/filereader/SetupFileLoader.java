@@ -211,6 +211,16 @@ public class SetupFileLoader implements Serializable {
 				context.setUserTimeStep(ln.getDouble());
 			} else if (ln.getLabel().equals("userPolymerizationStep")) {
 				parameters.setUserPolymerizationStep(ln.getDouble());
+			} else if (ln.getLabel().equals("integratorRelativeTolerance")) {
+				context.setIntegratorRelativeTolerance(ln.getDouble());
+			} else if (ln.getLabel().equals("integratorAbsoluteTolerance")) {
+				context.setIntegratorAbsoluteTolerance(ln.getDouble());
+			} else if (ln.getLabel().equals("engineThreads")) {
+				context.setEngineThreads(ln.getInt());
+			} else if (ln.getLabel().equals("spinUpPeriod")) {
+				context.setSpinUpPeriod(ln.getInt());
+			} else if (ln.getLabel().equals("checkPeriod")) {
+				context.setCheckPeriod(ln.getInt());
 			} else {
 				throw new Exception("Unknown labeledNumber: " + ln.getLabel());
 			}
@@ -221,6 +231,14 @@ public class SetupFileLoader implements Serializable {
 				context.setTimeUnit(ls.getString());
 			} else if (ls.getLabel().equals("integrationMethod")) {
 				parameters.setIntegrationMethod(ls.getString());
+			} else if (ls.getLabel().equals("engineMode")) {
+				context.setEngineMode(ls.getString());
+			} else if (ls.getLabel().equals("integrator")) {
+				context.setIntegrator(ls.getString());
+			} else if (ls.getLabel().equals("spinUp")) {
+				context.setSpinUp(ls.getString());
+			} else if (ls.getLabel().equals("checkMode")) {
+				context.setCheckMode(ls.getString());
 			} else {
 				throw new Exception("Unknown labeledString " + ls.getLabel());
 			}
@@ -52,7 +52,7 @@ public class Constant extends Function {
 			s = s.replace(")", "");
 			StringTokenizer st = new StringTokenizer(s, ";");
 
-			constant = Double.parseDouble(st.nextToken().trim());
+			double constant = Double.parseDouble(st.nextToken().trim());
 
 			return new Constant(constant);
 
@@ -71,6 +71,15 @@ public class Constant extends Function {
 		return constant;
 	}
 
+	/**
+	 * evaluate()
+	 */
+	@Override
+	public void evaluate(Parameters p, Context c, State s, double[] x, double[] y, double[] out) throws Exception {
+		for (int i = 0; i < out.length; i++)
+			out[i] = constant;
+	}
+
 	/**
 	 * expectedVariables()
 	 */
@@ -6,6 +6,7 @@ import capsis.lib.cstability.context.Context;
 import capsis.lib.cstability.function.util.OneVariable;
 import capsis.lib.cstability.function.util.Variables;
 import capsis.lib.cstability.parameter.Parameters;
+import capsis.lib.cstability.state.Enzyme;
 import capsis.lib.cstability.state.State;
 
 /**
@@ -20,6 +21,7 @@ public class EnzymaticLinearTransfer extends Function {
 
 	private String enzymeName;
 	private double transferRate;
+	private int enzymeIndex = -1; // index of the enzyme traits, -1 if unknown
 
 	/**
 	 * Default constructor
@@ -53,13 +55,15 @@ public class EnzymaticLinearTransfer extends Function {
 			s = s.replace(")", "");
 			StringTokenizer st = new StringTokenizer(s, ";");
 
-			enzymeName = st.nextToken().trim();
+			String enzymeName = st.nextToken().trim();
 			if (!p.getEnzymeTraitsMap().keySet().contains(enzymeName))
 				throw new Exception("EnzymaticLinearTransfer.decode (), unknown enzymeName " + enzymeName);
 
-			transferRate = Double.parseDouble(st.nextToken().trim());
+			double transferRate = Double.parseDouble(st.nextToken().trim());
 
-			return new EnzymaticLinearTransfer(enzymeName, transferRate);
+			EnzymaticLinearTransfer f = new EnzymaticLinearTransfer(enzymeName, transferRate);
+			f.enzymeIndex = p.getEnzymeTraitsMap().get(enzymeName).getIndex();
+			return f;
 
 		} catch (Exception e) {
 			throw new Exception(
@@ -76,7 +80,25 @@ public class EnzymaticLinearTransfer extends Function {
 		// x is a value of the transfered distribution
 		double x = ((OneVariable) v).x1;
 		
-		return transferRate * s.getEnzyme(enzymeName).getActivity() * x;
+		return transferRate * getEnzyme(s).getActivity() * x;
+	}
+
+	/**
+	 * evaluate(): x are values of the transfered distribution
+	 */
+	@Override
+	public void evaluate(Parameters p, Context c, State s, double[] x, double[] y, double[] out) throws Exception {
+		checkLength(x, out);
+		double rate = transferRate * getEnzyme(s).getActivity();
+		for (int i = 0; i < out.length; i++)
+			out[i] = rate * x[i];
+	}
+
+	/**
+	 * getEnzyme(): by index if known, else by name
+	 */
+	private Enzyme getEnzyme(State s) {
+		return enzymeIndex >= 0 ? s.getEnzyme(enzymeIndex) : s.getEnzyme(enzymeName);
 	}
 
 	/**
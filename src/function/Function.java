@@ -7,7 +7,10 @@ import java.util.List;
 import capsis.lib.cstability.context.Context;
 import capsis.lib.cstability.context.poolinput.ConstantInputFunction;
 import capsis.lib.cstability.filereader.Decodable;
+import capsis.lib.cstability.function.util.OneVariable;
+import capsis.lib.cstability.function.util.TwoVariables;
 import capsis.lib.cstability.function.util.Variables;
+import capsis.lib.cstability.function.util.ZeroVariable;
 import capsis.lib.cstability.parameter.Parameters;
 import capsis.lib.cstability.state.State;
 
@@ -67,6 +70,40 @@ public abstract class Function implements Decodable, Serializable {
 	 */
 	public abstract double execute(Parameters p, Context c, State s, Variables v) throws Exception;
 
+	/**
+	 * evaluate(): out[i] = the value of the function for the variables x1 =
+	 * x[i] and x2 = y[i], as many as expected by the function (x and y may be
+	 * null if not expected). This default implementation calls execute() at each
+	 * point, the functions override it with loops without any Variables.
+	 */
+	public void evaluate(Parameters p, Context c, State s, double[] x, double[] y, double[] out) throws Exception {
+		Class<?> expected = expectedVariables();
+		if (expected.equals(ZeroVariable.class)) {
+			for (int i = 0; i < out.length; i++)
+				out[i] = execute(p, c, s, new ZeroVariable());
+		} else if (expected.equals(OneVariable.class)) {
+			checkLength(x, out);
+			for (int i = 0; i < out.length; i++)
+				out[i] = execute(p, c, s, new OneVariable(x[i]));
+		} else if (expected.equals(TwoVariables.class)) {
+			checkLength(x, out);
+			checkLength(y, out);
+			for (int i = 0; i < out.length; i++)
+				out[i] = execute(p, c, s, new TwoVariables(x[i], y[i]));
+		} else {
+			throw new Exception("Function.evaluate(), unexpected variables " + expected + " for " + this);
+		}
+	}
+
+	/**
+	 * checkLength(): the variables v are needed at each point of out
+	 */
+	protected static void checkLength(double[] v, double[] out) throws Exception {
+		if (v == null || v.length < out.length)
+			throw new Exception("Function.checkLength(), expected " + out.length + " values, got "
+					+ (v == null ? "null" : "" + v.length));
+	}
+
 	/**
 	 * expectedVariables(): return OneVariable or TwoVariables depending on what is
 	 * expected in execute
@@ -54,9 +54,9 @@ public class Gaussian extends Function {
 			s = s.replace(")", "");
 			StringTokenizer st = new StringTokenizer(s, ";");
 
-			mean = Double.parseDouble(st.nextToken().trim());
+			double mean = Double.parseDouble(st.nextToken().trim());
 
-			sd = Double.parseDouble(st.nextToken().trim());
+			double sd = Double.parseDouble(st.nextToken().trim());
 
 			return new Gaussian(mean, sd);
 
@@ -77,6 +77,16 @@ public class Gaussian extends Function {
 		return BasicFunctions.gaussian(mean, sd, x);
 	}
 
+	/**
+	 * evaluate()
+	 */
+	@Override
+	public void evaluate(Parameters p, Context c, State s, double[] x, double[] y, double[] out) throws Exception {
+		checkLength(x, out);
+		for (int i = 0; i < out.length; i++)
+			out[i] = BasicFunctions.gaussian(mean, sd, x[i]);
+	}
+
 	/**
 	 * expectedVariables()
 	 */
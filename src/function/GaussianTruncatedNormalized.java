@@ -23,28 +23,35 @@ public class GaussianTruncatedNormalized extends Function {
 
 	// Note: Function implements Decodable
 
-	private String biochemicalClassName;
-	private double mean;
-	private double sd;
-	private Interval<Double> domain; // name to be checked
-
-	// Calculated in init ()
-	private double integral = -1;
+	// immutable: the instances may be shared by simulations running in parallel
+	private final String biochemicalClassName;
+	private final double mean;
+	private final double sd;
+	private final Interval<Double> domain; // name to be checked
+	private final double integral; // on the polymerization of the biochemical class
 
 	/**
-	 * Default constructor
+	 * Default constructor, for the prototype
 	 */
 	public GaussianTruncatedNormalized() {
+		this.biochemicalClassName = null;
+		this.mean = 0;
+		this.sd = 0;
+		this.domain = null;
+		this.integral = 0;
 	}
 
 	/**
-	 * Constructor
+	 * Constructor, the biochemical class and the integration method must be
+	 * defined in p
 	 */
-	public GaussianTruncatedNormalized(String biochemicalClassName, double mean, double sd, Interval<Double> domain) {
+	public GaussianTruncatedNormalized(String biochemicalClassName, double mean, double sd, Interval<Double> domain,
+			Parameters p) throws Exception {
 		this.biochemicalClassName = biochemicalClassName;
 		this.mean = mean;
 		this.sd = sd;
 		this.domain = domain;
+		this.integral = computeIntegral(p);
 	}
 
 	/**
@@ -65,15 +72,15 @@ public class GaussianTruncatedNormalized extends Function {
 			s = s.replace(")", "");
 			StringTokenizer st = new StringTokenizer(s, ";");
 
-			biochemicalClassName = st.nextToken().trim();
+			String biochemicalClassName = st.nextToken().trim();
 
-			mean = Double.parseDouble(st.nextToken().trim());
+			double mean = Double.parseDouble(st.nextToken().trim());
 
-			sd = Double.parseDouble(st.nextToken().trim());
+			double sd = Double.parseDouble(st.nextToken().trim());
 
-			domain = (Interval<Double>) Decodable.pleaseDecode(Interval.class, st.nextToken().trim(), p, c);
+			Interval<Double> domain = (Interval<Double>) Decodable.pleaseDecode(Interval.class, st.nextToken().trim(), p, c);
 
-			return new GaussianTruncatedNormalized(biochemicalClassName, mean, sd, domain);
+			return new GaussianTruncatedNormalized(biochemicalClassName, mean, sd, domain, p);
 
 		} catch (Exception e) {
 			throw new Exception(
@@ -83,11 +90,14 @@ public class GaussianTruncatedNormalized extends Function {
 	}
 
 	/**
-	 * init(): called at first execute () call, calculates integral once for all.
+	 * computeIntegral(): the integral of the gaussian on the domain, computed once
+	 * for all at construction time.
 	 */
-	private void init(Parameters p) throws Exception {
+	private double computeIntegral(Parameters p) throws Exception {
 
 		BiochemicalClass bc = p.getBiochemicalClassMap().get(biochemicalClassName);
+		if (bc == null)
+			throw new Exception("GaussianTruncatedNormalized, unknown biochemicalClass name: " + biochemicalClassName);
 		double[] valuesX = bc.getPolymerization().getDiscretization();
 
 		double[] valuesY = new double[valuesX.length];
@@ -98,7 +108,7 @@ public class GaussianTruncatedNormalized extends Function {
 		}
 
 		DiscretePositiveDistribution dpd = new DiscretePositiveDistribution(valuesX, valuesY, p.getIntegrationMethod());
-		integral = dpd.getIntegral();
+		return dpd.getIntegral();
 	}
 
 	/**
@@ -110,13 +120,20 @@ public class GaussianTruncatedNormalized extends Function {
 		v.checkIf(OneVariable.class);
 		double x = ((OneVariable) v).x1;
 
-		if (integral < 0)
-			init(p);
-
 		return BasicFunctions.indicator(domain, x) * BasicFunctions.gaussian(mean, sd, x) / integral;
 
 	}
 	
+	/**
+	 * evaluate()
+	 */
+	@Override
+	public void evaluate(Parameters p, Context c, State s, double[] x, double[] y, double[] out) throws Exception {
+		checkLength(x, out);
+		for (int i = 0; i < out.length; i++)
+			out[i] = BasicFunctions.indicator(domain, x[i]) * BasicFunctions.gaussian(mean, sd, x[i]) / integral;
+	}
+
 	/**
 	 * expectedVariables()
 	 */
@@ -23,32 +23,38 @@ public class GaussianTruncatedProportionalized extends Function {
 
 	// Note: Function implements Decodable
 
-	private String biochemicalClassName;
-	private double proportion;
-	private double mean;
-	private double sd;
-	private Interval<Double> domain; // name to be checked
-
-	// Calculated in init ()
-	private double proportionalizationCoefficient = -1;
+	// immutable: the instances may be shared by simulations running in parallel
+	private final String biochemicalClassName;
+	private final double proportion;
+	private final double mean;
+	private final double sd;
+	private final Interval<Double> domain; // name to be checked
+	private final double proportionalizationCoefficient; // on the polymerization of the biochemical class
 
 	/**
-	 * Default constructor
+	 * Default constructor, for the prototype
 	 */
 	public GaussianTruncatedProportionalized() {
+		this.biochemicalClassName = null;
+		this.proportion = 0;
+		this.mean = 0;
+		this.sd = 0;
+		this.domain = null;
+		this.proportionalizationCoefficient = 0;
 	}
 
 	/**
-	 * Constructor
+	 * Constructor, the biochemical class and the integration method must be
+	 * defined in p
 	 */
 	public GaussianTruncatedProportionalized(String biochemicalClassName, double proportion, double mean, double sd,
-			Interval<Double> domain) {
+			Interval<Double> domain, Parameters p) throws Exception {
 		this.biochemicalClassName = biochemicalClassName;
 		this.proportion = proportion;
 		this.mean = mean;
 		this.sd = sd;
 		this.domain = domain;
-
+		this.proportionalizationCoefficient = computeProportionalizationCoefficient(p);
 	}
 
 	/**
@@ -69,17 +75,17 @@ public class GaussianTruncatedProportionalized extends Function {
 			s = s.replace(")", "");
 			StringTokenizer st = new StringTokenizer(s, ";");
 
-			biochemicalClassName = st.nextToken().trim();
+			String biochemicalClassName = st.nextToken().trim();
 
-			proportion = Double.parseDouble(st.nextToken().trim());
+			double proportion = Double.parseDouble(st.nextToken().trim());
 
-			mean = Double.parseDouble(st.nextToken().trim());
+			double mean = Double.parseDouble(st.nextToken().trim());
 
-			sd = Double.parseDouble(st.nextToken().trim());
+			double sd = Double.parseDouble(st.nextToken().trim());
 
-			domain = (Interval<Double>) Decodable.pleaseDecode(Interval.class, st.nextToken().trim(), p, c);
+			Interval<Double> domain = (Interval<Double>) Decodable.pleaseDecode(Interval.class, st.nextToken().trim(), p, c);
 
-			return new GaussianTruncatedProportionalized(biochemicalClassName, proportion, mean, sd, domain);
+			return new GaussianTruncatedProportionalized(biochemicalClassName, proportion, mean, sd, domain, p);
 
 		} catch (Exception e) {
 			throw new Exception(
@@ -90,12 +96,15 @@ public class GaussianTruncatedProportionalized extends Function {
 	}
 
 	/**
-	 * init(): called at first execute () call, calculates proportionalization
-	 * coefficient once for all.
+	 * computeProportionalizationCoefficient(): computed once for all at
+	 * construction time.
 	 */
-	private void init(Parameters p) throws Exception {
+	private double computeProportionalizationCoefficient(Parameters p) throws Exception {
 
 		BiochemicalClass bc = p.getBiochemicalClassMap().get(biochemicalClassName);
+		if (bc == null)
+			throw new Exception(
+					"GaussianTruncatedProportionalized, unknown biochemicalClass name: " + biochemicalClassName);
 		double[] valuesX = bc.getPolymerization().getDiscretization();
 
 		double[] valuesY = new double[valuesX.length];
@@ -107,7 +116,7 @@ public class GaussianTruncatedProportionalized extends Function {
 
 		DiscretePositiveDistribution dpd = new DiscretePositiveDistribution(valuesX, valuesY, p.getIntegrationMethod());
 		dpd.proportionalize(proportion);
-		proportionalizationCoefficient = dpd.getIntegral();
+		return dpd.getIntegral();
 	}
 
 	/**
@@ -119,13 +128,22 @@ public class GaussianTruncatedProportionalized extends Function {
 		v.checkIf(OneVariable.class);
 		double x = ((OneVariable) v).x1;
 
-		if (proportionalizationCoefficient < 0)
-			init(p);
 		return BasicFunctions.indicator(domain, x) * BasicFunctions.gaussian(mean, sd, x)
 				* proportionalizationCoefficient;
 
 	}
 
+	/**
+	 * evaluate()
+	 */
+	@Override
+	public void evaluate(Parameters p, Context c, State s, double[] x, double[] y, double[] out) throws Exception {
+		checkLength(x, out);
+		for (int i = 0; i < out.length; i++)
+			out[i] = BasicFunctions.indicator(domain, x[i]) * BasicFunctions.gaussian(mean, sd, x[i])
+					* proportionalizationCoefficient;
+	}
+
 	/**
 	 * expectedVariables()
 	 */
@@ -16,7 +16,7 @@ import capsis.lib.cstability.util.Interval;
  * @author J. Sainte-Marie, F. de Coligny - March 2021
  */
 @SuppressWarnings("serial")
-public class KernelAlpha extends Function implements PrimitiveAvailable {
+public class KernelAlpha extends Function implements PrimitiveAvailable, SeparableKernel {
 
 	// Note: Function implements Decodable
 
@@ -58,7 +58,7 @@ public class KernelAlpha extends Function implements PrimitiveAvailable {
 			Interval<Double> domain = (Interval<Double>) Decodable.pleaseDecode(Interval.class, st.nextToken().trim(),
 					p, c);
 
-			alpha = Double.parseDouble(st.nextToken().trim());
+			double alpha = Double.parseDouble(st.nextToken().trim());
 
 			return new KernelAlpha(domain, alpha);
 
@@ -118,6 +118,60 @@ public class KernelAlpha extends Function implements PrimitiveAvailable {
 		return Lij;
 	}
 
+	/**
+	 * executeLeftFactor(): for pi < pj, the kernel and its primitive are
+	 * proportional to (pi - pmin)^alpha
+	 */
+	@Override
+	public double executeLeftFactor(Parameters p, Context c, State s, double pi) throws Exception {
+		double pmin = domain.getMin();
+		return pmin < pi ? Math.pow(pi - pmin, alpha) : 0;
+	}
+
+	/**
+	 * executeRightFactor(): for pi < pj, the kernel is (alpha + 1) * (pi -
+	 * pmin)^alpha / (pj - pmin)^(alpha + 1)
+	 */
+	@Override
+	public double executeRightFactor(Parameters p, Context c, State s, double pj) throws Exception {
+		double pmin = domain.getMin();
+		return pmin < pj && pj <= domain.getMax() ? (alpha + 1) / Math.pow(pj - pmin, alpha + 1) : 0;
+	}
+
+	/**
+	 * executeRightFactorPrimitive(): see executePrimitive()
+	 */
+	@Override
+	public double executeRightFactorPrimitive(Parameters p, Context c, State s, double pj, double pjplus1)
+			throws Exception {
+		double pmin = domain.getMin();
+		if (!(pmin < pj))
+			return 0;
+		return (alpha + 1) / alpha * (Math.pow(pj - pmin, -alpha) - Math.pow(pjplus1 - pmin, -alpha));
+	}
+
+	/**
+	 * evaluate(): x are the values of pi, y of pj
+	 */
+	@Override
+	public void evaluate(Parameters p, Context c, State s, double[] x, double[] y, double[] out) throws Exception {
+		checkLength(x, out);
+		checkLength(y, out);
+		double pmin = domain.getMin();
+		double pmax = domain.getMax();
+		for (int i = 0; i < out.length; i++) {
+			double pi = x[i];
+			double pj = y[i];
+			double val = 0;
+			if (pmin < pi && pi <= pj && pj <= pmax) {
+				val = (alpha + 1) * Math.pow(pi - pmin, alpha) / Math.pow(pj - pmin, alpha + 1);
+			} else if (pmin == pi && pi == pj) {
+				val = 1 / p.getUserPolymerizationStep();
+			}
+			out[i] = val;
+		}
+	}
+
 	/**
 	 * expectedVariables()
 	 */
@@ -51,7 +51,7 @@ public class Linear extends Function {
 			s = s.replace(")", "");
 			StringTokenizer st = new StringTokenizer(s, ";");
 
-			slope = Double.parseDouble(st.nextToken().trim());
+			double slope = Double.parseDouble(st.nextToken().trim());
 
 			return new Linear(slope);
 
@@ -74,6 +74,16 @@ public class Linear extends Function {
 
 	}
 
+	/**
+	 * evaluate()
+	 */
+	@Override
+	public void evaluate(Parameters p, Context c, State s, double[] x, double[] y, double[] out) throws Exception {
+		checkLength(x, out);
+		for (int i = 0; i < out.length; i++)
+			out[i] = slope * x[i];
+	}
+
 	/**
 	 * expectedVariables()
 	 */
@@ -0,0 +1,38 @@
+package capsis.lib.cstability.function;
+
+import capsis.lib.cstability.context.Context;
+import capsis.lib.cstability.parameter.Parameters;
+import capsis.lib.cstability.state.State;
+
+/**
+ * An interface SeparableKernel of the model C-STABILITY: the kernel is null on
+ * the lower triangle pi > pj and, on the strict upper triangle pi < pj, it is
+ * a product leftFactor(pi) * rightFactor(pj). The kernel matrix is then built
+ * from the factors in O(n) evaluations, the values on the diagonal and next to
+ * it are evaluated exactly.
+ *
+ * @author agent - October 2026
+ */
+public interface SeparableKernel {
+
+	/**
+	 * executeLeftFactor(): the factor depending on the first variable of the
+	 * kernel
+	 */
+	public abstract double executeLeftFactor(Parameters p, Context c, State s, double pi) throws Exception;
+
+	/**
+	 * executeRightFactor(): the factor depending on the second variable of the
+	 * kernel
+	 */
+	public abstract double executeRightFactor(Parameters p, Context c, State s, double pj) throws Exception;
+
+	/**
+	 * executeRightFactorPrimitive(): the integral of the right factor on [pj,
+	 * pjplus1], the right factor of the primitive of the kernel (see
+	 * PrimitiveAvailable) for pi < pj
+	 */
+	public abstract double executeRightFactorPrimitive(Parameters p, Context c, State s, double pj, double pjplus1)
+			throws Exception;
+
+}
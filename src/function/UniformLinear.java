@@ -56,9 +56,9 @@ public class UniformLinear extends Function {
 			s = s.replace(")", "");
 			StringTokenizer st = new StringTokenizer(s, ";");
 
-			domain = (Interval<Double>) Decodable.pleaseDecode(Interval.class, st.nextToken().trim(), p, c);
+			Interval<Double> domain = (Interval<Double>) Decodable.pleaseDecode(Interval.class, st.nextToken().trim(), p, c);
 
-			slope = Double.parseDouble(st.nextToken().trim());
+			double slope = Double.parseDouble(st.nextToken().trim());
 
 			return new UniformLinear(domain, slope);
 
@@ -82,6 +82,17 @@ public class UniformLinear extends Function {
 
 	}
 
+	/**
+	 * evaluate(): x are the values of x1, y of x2
+	 */
+	@Override
+	public void evaluate(Parameters p, Context c, State s, double[] x, double[] y, double[] out) throws Exception {
+		checkLength(x, out);
+		checkLength(y, out);
+		for (int i = 0; i < out.length; i++)
+			out[i] = BasicFunctions.indicator(domain, x[i]) * slope * y[i];
+	}
+
 	/**
 	 * expectedVariables()
 	 */
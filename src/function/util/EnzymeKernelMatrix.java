@@ -1,20 +1,35 @@
 package capsis.lib.cstability.function.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import capsis.lib.cstability.context.Context;
 import capsis.lib.cstability.distribution.DiscreteDistribution;
 import capsis.lib.cstability.function.Function;
 import capsis.lib.cstability.function.PrimitiveAvailable;
+import capsis.lib.cstability.function.SeparableKernel;
 import capsis.lib.cstability.parameter.Parameters;
 import capsis.lib.cstability.parameter.Polymerization;
 import capsis.lib.cstability.state.State;
+import capsis.lib.cstability.util.BackwardSweep;
 import capsis.lib.cstability.util.Log;
+import capsis.lib.cstability.util.LowRankStorage;
 import capsis.lib.cstability.util.Matrix;
+import capsis.lib.cstability.util.MatrixStorage;
+import capsis.lib.cstability.util.SeparableStorage;
 
 /**
- * Kernel matrix for enzyme in the model C-STABILITY.
+ * Kernel matrix for enzyme in the model C-STABILITY. Once built, the structure
+ * of the kernel (upper triangular, banded, sparse) is detected and its values
+ * are kept in a compact MatrixStorage when possible. A SeparableKernel is
+ * built from its factors, without dense values, and applied in O(n)
+ * operations. With a positive lowRankTolerance, any other kernel may be
+ * replaced by a hierarchical low-rank approximation applied in
+ * O(n.k.log(n)) operations. The kernel is then read only: clone() returns a
+ * dense copy to be modified. The Matrix operations still apply to a compact
+ * kernel: it is read through a dense copy of its values, and any modification
+ * first turns it back into dense values.
  * 
  * @author J. Sainte-Marie, F. de Coligny - April 2021
  */
@@ -28,51 +43,228 @@ public class EnzymeKernelMatrix extends Matrix {
 	private double discretizationStep;
 	private Function kernelFunction;
 	private String kernelIntegrationMethod;
+	private double lowRankTolerance; // 0: no low-rank approximation
+	private MatrixStorage storage; // null if values are stored densely
+	// evaluated at first call, published when complete: the matrix may be shared
+	// by simulations running in parallel
+	private volatile Boolean upperTriangular; // see isUpperTriangular()
+	private volatile double[] absoluteColumnSums; // see getAbsoluteColumnSums()
 
 	/**
 	 * EnzymeKernelMatrix(): the EnzymeKernelMatrix is evaluated with a function
 	 */
 	public EnzymeKernelMatrix(Polymerization polymerization, Function kernelFunction, String kernelIntegrationMethod,
 			Parameters p, Context c, State s) throws Exception {
+		this(polymerization, kernelFunction, kernelIntegrationMethod, 0, p, c, s);
+	}
+
+	/**
+	 * EnzymeKernelMatrix(): the EnzymeKernelMatrix is evaluated with a function
+	 * and approximated with a low rank under lowRankTolerance (relative Frobenius
+	 * error) if lowRankTolerance > 0
+	 */
+	public EnzymeKernelMatrix(Polymerization polymerization, Function kernelFunction, String kernelIntegrationMethod,
+			double lowRankTolerance, Parameters p, Context c, State s) throws Exception {
 
-		super(polymerization.getDiscretization().length);
+		super(polymerization.getDiscretization().length, polymerization.getDiscretization().length, false);
+		if (lowRankTolerance < 0)
+			throw new Exception("EnzymeKernelMatrix.constructor(), lowRankTolerance must be positive or null: "
+					+ lowRankTolerance);
+		this.lowRankTolerance = lowRankTolerance;
 		discretization = polymerization.getDiscretization();
 		discretizationStep = polymerization.getStep();
 		this.kernelFunction = kernelFunction;
 		this.kernelIntegrationMethod = kernelIntegrationMethod;
 
-		if (kernelIntegrationMethod.equals(STANDARD_KERNEL_INTEGRATION)) {
+		if (!kernelIntegrationMethod.equals(STANDARD_KERNEL_INTEGRATION)
+				&& !kernelIntegrationMethod.equals(INTEGRAL_KERNEL_INTEGRATION))
+			throw new Exception("EnzymeKernelMatrix.constructor(), unknown kernel type" + kernelIntegrationMethod
+					+ ", expect: " + STANDARD_KERNEL_INTEGRATION + ", " + INTEGRAL_KERNEL_INTEGRATION);
+
+		// a SeparableKernel is built from its factors, without the dense values
+		if (kernelFunction instanceof SeparableKernel)
+			storage = buildSeparableStorage(p, c, s);
+		if (storage != null)
+			return;
+
+		values = new double[nLines * nColumns];
+		if (kernelIntegrationMethod.equals(STANDARD_KERNEL_INTEGRATION))
 			buildStandardKernel(p, c, s);
-		} else if (kernelIntegrationMethod.equals(INTEGRAL_KERNEL_INTEGRATION)) {
+		else
 			buildIntegralKernel(p, c, s);
+		compress(p, c, s);
+	}
+
+	/**
+	 * buildSeparableStorage(): the storage of a SeparableKernel built from its
+	 * factors in O(n) evaluations, with the same values as buildStandardKernel()
+	 * or buildIntegralKernel(). Returns null if a value is not finite.
+	 */
+	private SeparableStorage buildSeparableStorage(Parameters p, Context c, State s) throws Exception {
+		SeparableKernel sk = (SeparableKernel) kernelFunction;
+		int n = nLines;
+		double[] diagonal = new double[n];
+		double[] superDiagonal = new double[n - 1]; // values (i, i + 1)
+		double[] left = new double[n];
+		double[] right = new double[n];
+		for (int i = 0; i < n; i++)
+			left[i] = sk.executeLeftFactor(p, c, s, discretization[i]);
+
+		if (kernelIntegrationMethod.equals(STANDARD_KERNEL_INTEGRATION)) {
+			// K_ij = lineWeights[i] * columnWeights[j] * kernel(pi, pj), see
+			// buildStandardKernel()
+			double[] lineWeights = new double[n];
+			double[] columnWeights = new double[n];
+			setStandardWeights(p, lineWeights, columnWeights);
+			kernelFunction.evaluate(p, c, s, discretization, discretization, diagonal);
+			kernelFunction.evaluate(p, c, s, Arrays.copyOf(discretization, n - 1),
+					Arrays.copyOfRange(discretization, 1, n), superDiagonal);
+			for (int j = 0; j < n; j++) {
+				left[j] *= lineWeights[j];
+				right[j] = columnWeights[j] * sk.executeRightFactor(p, c, s, discretization[j]);
+				diagonal[j] *= lineWeights[j] * columnWeights[j];
+				if (j > 0)
+					superDiagonal[j - 1] *= lineWeights[j - 1] * columnWeights[j];
+			}
+
+			// normalization of the columns, see checkMassConservationAndNormalize()
+			double leftSum = 0; // sum of left[i] for i < j - 1
+			for (int j = 0; j < n; j++) {
+				double columnSum = diagonal[j];
+				if (j > 0) {
+					columnSum += superDiagonal[j - 1] + right[j] * leftSum;
+					leftSum += left[j - 1];
+				}
+				double test = columnSum * p.getUserPolymerizationStep();
+				checkMassConservation(test);
+				double scale = test != 0 ? discretizationStep / test : discretizationStep;
+				diagonal[j] *= scale;
+				right[j] *= scale;
+				if (j > 0)
+					superDiagonal[j - 1] *= scale;
+			}
+
 		} else {
-			throw new Exception("EnzymeKernelMatrix.constructor(), unknown kernel type" + kernelIntegrationMethod
-					+ ", expect: " + STANDARD_KERNEL_INTEGRATION + ", " + INTEGRAL_KERNEL_INTEGRATION);
+			// K_ij = (L_i,j-1 + L_ij) / 2 with L the primitive, see
+			// buildIntegralKernel()
+			if (!(kernelFunction instanceof PrimitiveAvailable))
+				throw new Exception("EnzymeKernelMatrix.buildSeparableStorage(), the kernelFunction "
+						+ kernelFunction + " has no primitive.");
+			PrimitiveAvailable fpa = (PrimitiveAvailable) kernelFunction;
+			double[] primitives = new double[n - 1];
+			for (int j = 0; j < n - 1; j++)
+				primitives[j] = sk.executeRightFactorPrimitive(p, c, s, discretization[j], discretization[j + 1]);
+			for (int j = 0; j < n; j++)
+				right[j] = 0.5 * ((j > 0 ? primitives[j - 1] : 0) + (j < n - 1 ? primitives[j] : 0));
+			for (int i = 0; i < n; i++) {
+				double lii = i < n - 1 ? fpa.executePrimitive(p, c, s, discretization, new TwoVariables(i, i)) : 0;
+				double liPrevious = i > 0 ? fpa.executePrimitive(p, c, s, discretization, new TwoVariables(i, i - 1))
+						: 0;
+				diagonal[i] = 0.5 * (liPrevious + lii);
+				if (i < n - 1) {
+					double liNext = i + 1 < n - 1
+							? fpa.executePrimitive(p, c, s, discretization, new TwoVariables(i, i + 1))
+							: 0;
+					superDiagonal[i] = 0.5 * (lii + liNext);
+				}
+			}
+		}
+
+		return SeparableStorage.build(diagonal, left, right, superDiagonal);
+	}
+
+	/**
+	 * setStandardWeights(): the weights of the lines and columns of the standard
+	 * kernel for the integration method
+	 */
+	private void setStandardWeights(Parameters p, double[] lineWeights, double[] columnWeights) {
+		int n = nLines;
+		if (p.getIntegrationMethod().equals(DiscreteDistribution.INTEGRATION_RECTANGLE_LEFT)) {
+			Arrays.fill(lineWeights, 0, n - 1, 1d);
+			Arrays.fill(columnWeights, 0, n - 1, 1d);
+		} else if (p.getIntegrationMethod().equals(DiscreteDistribution.INTEGRATION_RECTANGLE_RIGHT)) {
+			Arrays.fill(lineWeights, 1, n, 1d);
+			Arrays.fill(columnWeights, 1, n, 1d);
+		} else if (p.getIntegrationMethod().equals(DiscreteDistribution.INTEGRATION_TRAPEZE)) {
+			Arrays.fill(lineWeights, 1d);
+			Arrays.fill(columnWeights, 1d);
+			columnWeights[0] = 0.5;
+			columnWeights[n - 1] = 0.5;
+		}
+	}
+
+	/**
+	 * compress(): the dense values are replaced by the most compact storage
+	 * matching the kernel structure or by the low-rank approximation if
+	 * requested, if any
+	 */
+	private void compress(Parameters p, Context c, State s) throws Exception {
+		storage = MatrixStorage.detect(this);
+		if (lowRankTolerance > 0) {
+			LowRankStorage lowRank = LowRankStorage.build(this, lowRankTolerance);
+			int exactCount = storage != null ? storage.getStoredValuesCount() : nLines * nColumns;
+			if (lowRank.getStoredValuesCount() < exactCount) {
+				storage = lowRank;
+				Log.println("EnzymeKernelMatrix.compress()", "low-rank kernel, max rank: " + lowRank.getMaxRank()
+						+ ", relative error: " + lowRank.getRelativeError() + ", kernel: " + kernelFunction);
+			} else {
+				Log.println("EnzymeKernelMatrix.compress()", "WARNING, low-rank approximation with relative error <= "
+						+ lowRankTolerance + " is not more compact than the exact kernel, kernel: " + kernelFunction);
+			}
+		}
+		if (storage != null)
+			values = null;
+	}
+
+	/**
+	 * decompress(): back to dense values, e.g. to rebuild the kernel
+	 */
+	private void decompress() {
+		if (storage == null)
+			return;
+		values = new double[nLines * nColumns];
+		for (int i = 0; i < nLines; i++) {
+			for (int j = 0; j < nColumns; j++) {
+				values[i * nColumns + j] = storage.get(i, j);
+			}
 		}
+		storage = null;
 	}
 
 	/**
 	 * buildStandardKernel()
 	 */
 	public void buildStandardKernel(Parameters p, Context c, State s) throws Exception {
+		// the values are written directly, the kernel is made modifiable once
+		modify();
+		// the kernel is evaluated line by line: (discretization[i], discretization[j]) for all j
+		double[] pi = new double[nColumns];
+		double[] line = new double[nColumns];
 		if (p.getIntegrationMethod().equals(DiscreteDistribution.INTEGRATION_RECTANGLE_LEFT)) {
 			for (int i = 0; i < nLines - 1; i++) {
+				int row = i * nColumns;
+				Arrays.fill(pi, discretization[i]);
+				kernelFunction.evaluate(p, c, null, pi, discretization, line);
 				for (int j = 0; j < nColumns - 1; j++)
-					set(i, j,
-							kernelFunction.execute(p, c, null, new TwoVariables(discretization[i], discretization[j])));
+					values[row + j] = line[j];
 			}
 		} else if (p.getIntegrationMethod().equals(DiscreteDistribution.INTEGRATION_RECTANGLE_RIGHT)) {
 			for (int i = 1; i < nLines; i++) {
+				int row = i * nColumns;
+				Arrays.fill(pi, discretization[i]);
+				kernelFunction.evaluate(p, c, s, pi, discretization, line);
 				for (int j = 1; j < nColumns; j++)
-					set(i, j, kernelFunction.execute(p, c, s, new TwoVariables(discretization[i], discretization[j])));
+					values[row + j] = line[j];
 			}
 		} else if (p.getIntegrationMethod().equals(DiscreteDistribution.INTEGRATION_TRAPEZE)) {
 			for (int i = 0; i < nLines; i++) {
-				set(i, 0, kernelFunction.execute(p, c, s, new TwoVariables(discretization[i], discretization[0])) / 2d);
+				int row = i * nColumns;
+				Arrays.fill(pi, discretization[i]);
+				kernelFunction.evaluate(p, c, s, pi, discretization, line);
+				values[row] = line[0] / 2d;
 				for (int j = 1; j < nColumns - 1; j++)
-					set(i, j, kernelFunction.execute(p, c, s, new TwoVariables(discretization[i], discretization[j])));
-				set(i, nColumns - 1, kernelFunction.execute(p, c, s,
-						new TwoVariables(discretization[i], discretization[nColumns - 1])) / 2d);
+					values[row + j] = line[j];
+				values[row + nColumns - 1] = line[nColumns - 1] / 2d;
 			}
 		}
 		checkMassConservationAndNormalize(p);
@@ -88,16 +280,18 @@ public class EnzymeKernelMatrix extends Matrix {
 					+ " has no primitive.");
 		PrimitiveAvailable fpa = (PrimitiveAvailable) kernelFunction;
 
+		modify(); // once, see buildStandardKernel()
 		for (int i = 0; i < nLines; i++) {
+			int row = i * nColumns;
 			List<Double> Li = new ArrayList<>();
 			for (int j = 0; j < nLines - 1; j++) {
 				Li.add(fpa.executePrimitive(p, c, s, discretization, new TwoVariables(i, j)));
 			}
 
-			set(i, 0, 0.5 * Li.get(0));
+			values[row] = 0.5 * Li.get(0);
 			for (int j = 1; j < nLines - 1; j++)
-				set(i, j, 0.5 * Li.get(j - 1) + 0.5 * Li.get(j));
-			set(i, nLines - 1, 0.5 * Li.get(nLines - 2));
+				values[row + j] = 0.5 * Li.get(j - 1) + 0.5 * Li.get(j);
+			values[row + nLines - 1] = 0.5 * Li.get(nLines - 2);
 		}
 	}
 
@@ -106,16 +300,315 @@ public class EnzymeKernelMatrix extends Matrix {
 	 */
 	private void checkMassConservationAndNormalize(Parameters p) throws Exception {
 		for (int j = 0; j < nColumns; j++) {
-			Matrix col = this.getColumn(j);
-			double test = col.sum() * p.getUserPolymerizationStep();
-			if (test < 0.99 || test > 1.01)
-				Log.println("EnzymeKernelMatrix.checkMassConservationAndNormalize()",
-						"WARNING, check kernel formulation for mass conservation, expect 1 for norm, get " + test);
-			if (test != 0) {
-				Matrix normCol = Matrix.product(1 / test, col);
-				this.setColum(normCol, j);
+			double test = columnSum(j) * p.getUserPolymerizationStep();
+			checkMassConservation(test);
+			if (test != 0)
+				multiplyColumn(1 / test, j);
+		}
+	}
+
+	/**
+	 * checkMassConservation(): test is the norm of a column of the kernel
+	 */
+	private void checkMassConservation(double test) {
+		if (test < 0.99 || test > 1.01)
+			Log.println("EnzymeKernelMatrix.checkMassConservationAndNormalize()",
+					"WARNING, check kernel formulation for mass conservation, expect 1 for norm, get " + test);
+	}
+
+	/**
+	 * addScaledColumnsTo(): m = m + this . diag(d)
+	 */
+	public void addScaledColumnsTo(Matrix m, double[] d) throws Exception {
+		if (storage != null)
+			storage.addScaledColumnsTo(m, d);
+		else
+			m.addScaledColumns(this, d);
+	}
+
+	/**
+	 * getBackwardSweep(): the products of the strict upper part of the kernel
+	 * with x, for a back-substitution
+	 */
+	public BackwardSweep getBackwardSweep(double[] x) {
+		if (storage != null)
+			return storage.getBackwardSweep(x);
+		return i -> {
+			double sum = 0d;
+			int row = i * nColumns;
+			for (int j = i + 1; j < nColumns; j++)
+				sum += values[row + j] * x[j];
+			return sum;
+		};
+	}
+
+	/**
+	 * isUpperTriangular()
+	 */
+	public boolean isUpperTriangular() {
+		Boolean result = upperTriangular;
+		if (result == null) {
+			boolean triangular = true;
+			if (storage != null) {
+				triangular = storage.isUpperTriangular();
+			} else {
+				for (int i = 1; i < nLines && triangular; i++) {
+					for (int j = 0; j < i; j++) {
+						if (values[i * nColumns + j] != 0d) {
+							triangular = false;
+							break;
+						}
+					}
+				}
+			}
+			result = triangular;
+			upperTriangular = result;
+		}
+		return result;
+	}
+
+	/**
+	 * getAbsoluteColumnSums(): sum_i |K_ij| for each column j, i.e. the bounds
+	 * of the norm 1 of K.diag(d)
+	 */
+	public double[] getAbsoluteColumnSums() {
+		double[] sums = absoluteColumnSums;
+		if (sums == null) {
+			sums = new double[nColumns];
+			if (storage != null) {
+				storage.addAbsoluteColumnSums(sums);
+			} else {
+				for (int i = 0; i < nLines; i++) {
+					int row = i * nColumns;
+					for (int j = 0; j < nColumns; j++)
+						sums[j] += Math.abs(values[row + j]);
+				}
 			}
+			absoluteColumnSums = sums;
 		}
+		return sums;
+	}
+
+	/**
+	 * multiply()
+	 */
+	@Override
+	public void multiply(double[] x, double[] y) throws Exception {
+		if (storage != null)
+			storage.multiply(x, y);
+		else
+			super.multiply(x, y);
+	}
+
+	/**
+	 * multiplyAdd()
+	 */
+	@Override
+	public void multiplyAdd(double a, double[] x, double[] y) throws Exception {
+		if (storage != null)
+			storage.multiplyAdd(a, x, y);
+		else
+			super.multiplyAdd(a, x, y);
+	}
+
+	/**
+	 * clone(): returns a dense copy
+	 */
+	@Override
+	public Matrix clone() throws CloneNotSupportedException {
+		if (storage == null)
+			return super.clone();
+		Matrix m = new Matrix(nLines, nColumns);
+		for (int i = 0; i < nLines; i++) {
+			for (int j = 0; j < nColumns; j++) {
+				m.set(i, j, storage.get(i, j));
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * get()
+	 */
+	@Override
+	public double get(int i, int j) {
+		if (storage != null)
+			return storage.get(i, j);
+		return super.get(i, j);
+	}
+
+	/**
+	 * getDenseValues(): a dense copy of the values if the kernel is compact
+	 */
+	@Override
+	protected double[] getDenseValues() {
+		if (storage == null)
+			return values;
+		double[] denseValues = new double[nLines * nColumns];
+		for (int i = 0; i < nLines; i++) {
+			for (int j = 0; j < nColumns; j++) {
+				denseValues[i * nColumns + j] = storage.get(i, j);
+			}
+		}
+		return denseValues;
+	}
+
+	/**
+	 * getModifiableValues(): the kernel is decompressed and its cached properties
+	 * are cleared, see modify()
+	 */
+	@Override
+	protected double[] getModifiableValues() {
+		modify();
+		return values;
+	}
+
+	/**
+	 * modify(): to be called before any modification of the values, the kernel
+	 * is decompressed and its cached properties are cleared
+	 */
+	private void modify() {
+		decompress();
+		upperTriangular = null;
+		absoluteColumnSums = null;
+	}
+
+	/**
+	 * set()
+	 */
+	@Override
+	public void set(int i, int j, double value) {
+		modify();
+		super.set(i, j, value);
+	}
+
+	/**
+	 * mult()
+	 */
+	@Override
+	public void mult(double scalar) {
+		modify();
+		super.mult(scalar);
+	}
+
+	/**
+	 * multiplyColumn()
+	 */
+	@Override
+	public void multiplyColumn(double scal, int j) throws Exception {
+		modify();
+		super.multiplyColumn(scal, j);
+	}
+
+	/**
+	 * add()
+	 */
+	@Override
+	public void add(Matrix m) throws Exception {
+		modify();
+		super.add(m);
+	}
+
+	/**
+	 * substract()
+	 */
+	@Override
+	public void substract(Matrix m) throws Exception {
+		modify();
+		super.substract(m);
+	}
+
+	/**
+	 * axpy()
+	 */
+	@Override
+	public void axpy(double a, Matrix m) throws Exception {
+		modify();
+		super.axpy(a, m);
+	}
+
+	/**
+	 * scaleColumns()
+	 */
+	@Override
+	public void scaleColumns(double[] d) throws Exception {
+		modify();
+		super.scaleColumns(d);
+	}
+
+	/**
+	 * addScaledColumns()
+	 */
+	@Override
+	public void addScaledColumns(Matrix m, double[] d) throws Exception {
+		modify();
+		super.addScaledColumns(m, d);
+	}
+
+	/**
+	 * addDiagonal()
+	 */
+	@Override
+	public void addDiagonal(double a, double[] d) throws Exception {
+		modify();
+		super.addDiagonal(a, d);
+	}
+
+	/**
+	 * setColum()
+	 */
+	@Override
+	public void setColum(Matrix m, int j) throws Exception {
+		modify();
+		super.setColum(m, j);
+	}
+
+	/**
+	 * sum()
+	 */
+	@Override
+	public double sum() {
+		double sum = 0;
+		for (int i = 0; i < nLines; i++)
+			for (int j = 0; j < nColumns; j++)
+				sum += get(i, j);
+		return sum;
+	}
+
+	/**
+	 * columnSum()
+	 */
+	@Override
+	public double columnSum(int j) {
+		double sum = 0;
+		for (int i = 0; i < nLines; i++)
+			sum += get(i, j);
+		return sum;
+	}
+
+	/**
+	 * getColumn()
+	 */
+	@Override
+	public Matrix getColumn(int j) {
+		Matrix column = new Matrix(nLines, 1);
+		for (int i = 0; i < nLines; i++)
+			column.set(i, 0, get(i, j));
+		return column;
+	}
+
+	/**
+	 * getStorage(): returns null if the kernel is stored densely
+	 */
+	public MatrixStorage getStorage() {
+		return storage;
+	}
+
+	/**
+	 * getLowRankTolerance()
+	 */
+	public double getLowRankTolerance() {
+		return lowRankTolerance;
 	}
 
 	/**
@@ -0,0 +1,395 @@
+package capsis.lib.cstability.integrator;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import capsis.lib.cstability.function.util.EnzymeKernelMatrix;
+import capsis.lib.cstability.parameter.EnzymeTraits;
+import capsis.lib.cstability.parameter.PoolTransferTraits;
+import capsis.lib.cstability.state.EnzymaticOperator;
+import capsis.lib.cstability.state.Pool;
+import capsis.lib.cstability.state.PoolTransfer;
+import capsis.lib.cstability.state.State;
+import capsis.lib.cstability.util.Matrix;
+import capsis.lib.cstability.util.MatrixStorage;
+
+/**
+ * The pools of a biochemical class seen as the affine system u' = A.u + b for
+ * the microbes and the enzymes of a state s. A gathers the enzymatic
+ * depolymerization of the accessible pool, sum_{enz} (K - I).diag(tau), and
+ * the pool transfers with rates frozen in s (flux / origin value). b gathers
+ * the inputs, the microbial terms and the transfers from null origin values.
+ *
+ * Local vectors u store the pool p of the class (accessible first) at
+ * p * length + i.
+ *
+ * @author agent - October 2026
+ */
+@SuppressWarnings("serial")
+public class AffinePoolOperator implements Serializable {
+
+	// the Taylor series of exp(h * A) is used with ||h * A||_1 <= TAYLOR_NORM
+	private static final double TAYLOR_NORM = 1;
+	private static final int TAYLOR_MAX_TERMS = 60;
+	private static final double TAYLOR_TOLERANCE = 1e-15;
+
+	private String bcName;
+	private int nPools;
+	private int length;
+	private int[] offsets; // offsets of the pools in the vectors of the OdeSystem
+
+	private List<EnzymeKernelMatrix> kernels;
+	private double[][] tau;
+	private List<int[]> transferPools; // {origin, arrival}
+	private List<double[]> transferRates;
+	private double[] source;
+	private double poolScale; // the largest pool value of the class in s
+	private double norm = -1; // computed at the first call of getNorm()
+
+	private double[] work, delta;
+
+	/**
+	 * Constructor: f is the non linear derivative of the system in s
+	 */
+	public AffinePoolOperator(OdeSystem system, State s, String bcName, double[] f) throws Exception {
+		this.bcName = bcName;
+
+		List<String> poolKeys = system.getPoolKeys(bcName);
+		nPools = poolKeys.size();
+		length = system.getPoolLength(bcName);
+		offsets = new int[nPools];
+		for (int p = 0; p < nPools; p++)
+			offsets[p] = system.getPoolOffset(poolKeys.get(p));
+
+		source = new double[nPools * length];
+		gather(f, source);
+		List<Pool> pools = new ArrayList<>(s.getSubstrate().getInaccessiblePools(bcName));
+		pools.add(s.getSubstrate().getAccessiblePool(bcName));
+		for (Pool pool : pools) {
+			for (double v : pool.getValuesY())
+				poolScale = Math.max(poolScale, Math.abs(v));
+		}
+
+		/**
+		 * Pool transfers: flux = rate * origin value, fluxes from a null origin
+		 * value are in b
+		 */
+		transferPools = new ArrayList<>();
+		transferRates = new ArrayList<>();
+		for (PoolTransfer pt : s.getPoolTransfers()) {
+			PoolTransferTraits ptt = pt.getTraits();
+			if (!ptt.getBiochemicalClass().getName().equals(bcName))
+				continue;
+			int origin = poolKeys.indexOf(bcName + "_" + ptt.getOrigin().getKey());
+			int arrival = poolKeys.indexOf(bcName + "_" + ptt.getArrival().getKey());
+			Pool originPool = s.getSubstrate().getPool(bcName, ptt.getOrigin().getKey());
+			double[] flux = pt.getValuesY();
+			double[] rate = new double[length];
+			for (int i = 0; i < length; i++) {
+				double v = originPool.getValuesY()[i];
+				if (v > 0) {
+					rate[i] = flux[i] / v;
+				} else {
+					source[origin * length + i] -= flux[i];
+					source[arrival * length + i] += flux[i];
+				}
+			}
+			transferPools.add(new int[] { origin, arrival });
+			transferRates.add(rate);
+		}
+
+		/**
+		 * Enzymatic depolymerization of the accessible pool (pool 0)
+		 */
+		EnzymaticOperator op = system.getEnzymaticOperatorMap().get(bcName);
+		List<EnzymeTraits> enzymes = op != null ? op.getEnzymeTraitsList() : new ArrayList<>();
+		kernels = new ArrayList<>();
+		tau = new double[enzymes.size()][];
+		for (int e = 0; e < enzymes.size(); e++) {
+			EnzymeTraits et = enzymes.get(e);
+			kernels.add(et.getKernelMatrix());
+			tau[e] = s.getEnzyme(et.getName()).getDepolymerizationRate().getValuesY();
+		}
+
+		work = new double[length];
+		delta = new double[length];
+	}
+
+	/**
+	 * gather(): u = the pools of the class in y, a vector of the OdeSystem
+	 */
+	public void gather(double[] y, double[] u) {
+		for (int p = 0; p < nPools; p++)
+			System.arraycopy(y, offsets[p], u, p * length, length);
+	}
+
+	/**
+	 * scatter(): the pools of the class in y = u
+	 */
+	public void scatter(double[] u, double[] y) {
+		for (int p = 0; p < nPools; p++)
+			System.arraycopy(u, p * length, y, offsets[p], length);
+	}
+
+	/**
+	 * multiplyAdd(): out = out + a * A.u
+	 */
+	public void multiplyAdd(double a, double[] u, double[] out) throws Exception {
+		for (int e = 0; e < kernels.size(); e++) {
+			for (int i = 0; i < length; i++) {
+				work[i] = tau[e][i] * u[i];
+				delta[i] = -work[i];
+			}
+			kernels.get(e).multiplyAdd(1d, work, delta);
+			for (int i = 0; i < length; i++)
+				out[i] += a * delta[i];
+		}
+		for (int k = 0; k < transferPools.size(); k++) {
+			int origin = transferPools.get(k)[0] * length;
+			int arrival = transferPools.get(k)[1] * length;
+			double[] rate = transferRates.get(k);
+			for (int i = 0; i < length; i++) {
+				double flux = a * rate[i] * u[origin + i];
+				out[origin + i] -= flux;
+				out[arrival + i] += flux;
+			}
+		}
+	}
+
+	/**
+	 * exponentialAction(): u = exp(dt * [A b; 0 0]) . (u, 1) if affine, u = exp(dt
+	 * * A) . u otherwise, by the Taylor series on sub-steps h with ||h * A||_1 <=
+	 * TAYLOR_NORM. Returns the number of products by A.
+	 */
+	public int exponentialAction(double dt, double[] u, boolean affine) throws Exception {
+
+		int subSteps = Math.max(1, (int) Math.ceil(dt * getNorm() / TAYLOR_NORM));
+		double h = dt / subSteps;
+
+		double[] term = new double[u.length];
+		double[] next = new double[u.length];
+		int products = 0;
+
+		for (int step = 0; step < subSteps; step++) {
+
+			// first term: h * (A.u + b)
+			for (int i = 0; i < u.length; i++)
+				term[i] = affine ? h * source[i] : 0d;
+			multiplyAdd(h, u, term);
+			add(term, u);
+			products++;
+
+			// next terms: h / k * A.term
+			for (int k = 2; !isNegligible(term, u); k++) {
+				if (k > TAYLOR_MAX_TERMS)
+					throw new Exception("AffinePoolOperator.exponentialAction(), no convergence of the Taylor series");
+				Arrays.fill(next, 0d);
+				multiplyAdd(h / k, term, next);
+				double[] swap = term;
+				term = next;
+				next = swap;
+				add(term, u);
+				products++;
+			}
+		}
+		return products;
+	}
+
+	/**
+	 * isNegligible(): true if the term is negligible compared to the sum
+	 */
+	private static boolean isNegligible(double[] term, double[] sum) {
+		double termNorm = 0;
+		double sumNorm = 0;
+		for (int i = 0; i < term.length; i++) {
+			termNorm = Math.max(termNorm, Math.abs(term[i]));
+			sumNorm = Math.max(sumNorm, Math.abs(sum[i]));
+		}
+		return termNorm <= TAYLOR_TOLERANCE * sumNorm;
+	}
+
+	/**
+	 * add(): sum = sum + term
+	 */
+	private static void add(double[] term, double[] sum) {
+		for (int i = 0; i < term.length; i++)
+			sum[i] += term[i];
+	}
+
+	/**
+	 * getNorm(): an upper bound of ||A||_1
+	 */
+	public double getNorm() {
+		if (norm >= 0)
+			return norm;
+		double[] columnSums = new double[nPools * length];
+		for (int e = 0; e < kernels.size(); e++) {
+			double[] kernelSums = kernels.get(e).getAbsoluteColumnSums();
+			for (int j = 0; j < length; j++)
+				columnSums[j] += tau[e][j] * (kernelSums[j] + 1);
+		}
+		for (int k = 0; k < transferPools.size(); k++) {
+			int origin = transferPools.get(k)[0] * length;
+			double[] rate = transferRates.get(k);
+			for (int j = 0; j < length; j++)
+				columnSums[origin + j] += 2 * Math.abs(rate[j]);
+		}
+		norm = 0;
+		for (double sum : columnSums)
+			norm = Math.max(norm, sum);
+		return norm;
+	}
+
+	/**
+	 * getProductCost(): the number of values read by a product by A
+	 */
+	public long getProductCost() {
+		long cost = 0;
+		for (EnzymeKernelMatrix kernel : kernels) {
+			MatrixStorage storage = kernel.getStorage();
+			cost += (storage != null ? storage.getStoredValuesCount() : (long) length * length) + 3 * length;
+		}
+		return cost + 2L * length * transferPools.size();
+	}
+
+	/**
+	 * isUpperTriangular(): true if A.u on a cell i depends on the cells j >= i
+	 * only, i.e. if all the kernels are upper triangular (the pool transfers stay
+	 * in their cell)
+	 */
+	public boolean isUpperTriangular() {
+		for (EnzymeKernelMatrix kernel : kernels) {
+			if (!kernel.isUpperTriangular())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * getAugmentedMatrix(): h * [A b; 0 0], its exponential maps (u, 1) to (u(t +
+	 * h), 1) for the system frozen on [t, t + h]
+	 */
+	public Matrix getAugmentedMatrix(double h) throws Exception {
+		int size = nPools * length;
+		Matrix m = new Matrix(size + 1, size + 1);
+		for (int e = 0; e < kernels.size(); e++) {
+			EnzymeKernelMatrix kernel = kernels.get(e);
+			for (int i = 0; i < length; i++) {
+				for (int j = 0; j < length; j++) {
+					double kij = kernel.get(i, j);
+					if (kij != 0d)
+						m.set(i, j, m.get(i, j) + h * kij * tau[e][j]);
+				}
+				m.set(i, i, m.get(i, i) - h * tau[e][i]);
+			}
+		}
+		for (int k = 0; k < transferPools.size(); k++) {
+			int origin = transferPools.get(k)[0] * length;
+			int arrival = transferPools.get(k)[1] * length;
+			double[] rate = transferRates.get(k);
+			for (int i = 0; i < length; i++) {
+				m.set(origin + i, origin + i, m.get(origin + i, origin + i) - h * rate[i]);
+				m.set(arrival + i, origin + i, m.get(arrival + i, origin + i) + h * rate[i]);
+			}
+		}
+		for (int i = 0; i < size; i++)
+			m.set(i, size, h * source[i]);
+		return m;
+	}
+
+	/**
+	 * relativeChange(): the largest relative difference between the rates and
+	 * the sources of this operator and of the operator o of the same class, the
+	 * sources are also compared to the pool values (over a time unit)
+	 */
+	public double relativeChange(AffinePoolOperator o) throws Exception {
+		if (!o.bcName.equals(bcName) || o.tau.length != tau.length || o.transferRates.size() != transferRates.size())
+			throw new Exception("AffinePoolOperator.relativeChange(), operators of different systems: " + bcName
+					+ ", " + o.bcName);
+		double change = relativeChange(source, o.source, Math.max(poolScale, o.poolScale));
+		for (int e = 0; e < tau.length; e++)
+			change = Math.max(change, relativeChange(tau[e], o.tau[e], 0));
+		for (int k = 0; k < transferRates.size(); k++)
+			change = Math.max(change, relativeChange(transferRates.get(k), o.transferRates.get(k), 0));
+		return change;
+	}
+
+	/**
+	 * relativeChange(): max |a - b| / max(|a|, |b|, minScale)
+	 */
+	private static double relativeChange(double[] a, double[] b, double minScale) {
+		double difference = 0;
+		double scale = minScale;
+		for (int i = 0; i < a.length; i++) {
+			difference = Math.max(difference, Math.abs(a[i] - b[i]));
+			scale = Math.max(scale, Math.max(Math.abs(a[i]), Math.abs(b[i])));
+		}
+		return scale == 0 ? 0 : difference / scale;
+	}
+
+	/**
+	 * getBCName()
+	 */
+	public String getBCName() {
+		return bcName;
+	}
+
+	/**
+	 * getSize(): the size of the local vectors
+	 */
+	public int getSize() {
+		return nPools * length;
+	}
+
+	/**
+	 * getNPools()
+	 */
+	public int getNPools() {
+		return nPools;
+	}
+
+	/**
+	 * getLength()
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * getKernels()
+	 */
+	public List<EnzymeKernelMatrix> getKernels() {
+		return kernels;
+	}
+
+	/**
+	 * getTau(): the depolymerization rates, one line per kernel
+	 */
+	public double[][] getTau() {
+		return tau;
+	}
+
+	/**
+	 * getTransferPools(): {origin, arrival} for each transfer
+	 */
+	public List<int[]> getTransferPools() {
+		return transferPools;
+	}
+
+	/**
+	 * getTransferRates()
+	 */
+	public List<double[]> getTransferRates() {
+		return transferRates;
+	}
+
+	/**
+	 * getSource(): b
+	 */
+	public double[] getSource() {
+		return source;
+	}
+
+}
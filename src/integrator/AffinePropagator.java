@@ -0,0 +1,116 @@
+package capsis.lib.cstability.integrator;
+
+import java.util.Arrays;
+
+/**
+ * The propagator exp(dt * [A b; 0 0]) of an AffinePoolOperator, which maps (u,
+ * 1) to (u(t + dt), 1). Its column of a pool value (p, j) is the action of the
+ * exponential on this value, computed without any matrix by
+ * AffinePoolOperator.exponentialAction(). When A is upper triangular in the
+ * cells (depolymerization towards the lower polymerizations), so is the
+ * propagator and the column (p, j) only stores the cells i <= j of each pool.
+ *
+ * @author agent - October 2026
+ */
+public class AffinePropagator {
+
+	private int nPools;
+	private int length;
+	private boolean upperTriangular;
+	private double[][] columns; // column (p, j): cell i of pool q at q * rows(j) + i
+	private double[] affineColumn;
+
+	/**
+	 * Constructor
+	 */
+	public AffinePropagator(AffinePoolOperator op, double dt) throws Exception {
+		nPools = op.getNPools();
+		length = op.getLength();
+		upperTriangular = op.isUpperTriangular();
+
+		int size = op.getSize();
+		double[] u = new double[size];
+		columns = new double[size][];
+		for (int c = 0; c < size; c++) {
+			Arrays.fill(u, 0d);
+			u[c] = 1;
+			op.exponentialAction(dt, u, false);
+			int rows = rows(c % length);
+			double[] column = new double[nPools * rows];
+			for (int q = 0; q < nPools; q++)
+				System.arraycopy(u, q * length, column, q * rows, rows);
+			columns[c] = column;
+		}
+		affineColumn = new double[size];
+		op.exponentialAction(dt, affineColumn, true);
+	}
+
+	/**
+	 * getCost(): the number of values of the propagator of op, read by a
+	 * multiply()
+	 */
+	public static long getCost(AffinePoolOperator op) {
+		long length = op.getLength();
+		long cells = op.isUpperTriangular() ? length * (length + 1) / 2 : length * length;
+		return (long) op.getNPools() * op.getNPools() * cells + op.getSize();
+	}
+
+	/**
+	 * multiply(): v = the pool values of the propagator . (u, 1), v is
+	 * overwritten
+	 */
+	public void multiply(double[] u, double[] v) throws Exception {
+		if (u.length != affineColumn.length || v.length != affineColumn.length)
+			throw new Exception("AffinePropagator.multiply(), dimension mismatch");
+		System.arraycopy(affineColumn, 0, v, 0, v.length);
+		for (int c = 0; c < columns.length; c++) {
+			double uc = u[c];
+			if (uc == 0d)
+				continue;
+			double[] column = columns[c];
+			int rows = rows(c % length);
+			for (int q = 0; q < nPools; q++) {
+				int offset = q * length;
+				int k = q * rows;
+				for (int i = 0; i < rows; i++)
+					v[offset + i] += column[k + i] * uc;
+			}
+		}
+	}
+
+	/**
+	 * get(): the value (r, c) of the propagator, c == getSize() for the affine
+	 * column
+	 */
+	public double get(int r, int c) {
+		if (c == affineColumn.length)
+			return affineColumn[r];
+		int rows = rows(c % length);
+		int i = r % length;
+		return i < rows ? columns[c][r / length * rows + i] : 0d;
+	}
+
+	/**
+	 * rows(): the number of stored cells in the columns of cell j
+	 */
+	private int rows(int j) {
+		return upperTriangular ? j + 1 : length;
+	}
+
+	/**
+	 * getStoredValuesCount()
+	 */
+	public int getStoredValuesCount() {
+		int count = affineColumn.length;
+		for (double[] column : columns)
+			count += column.length;
+		return count;
+	}
+
+	/**
+	 * isUpperTriangular()
+	 */
+	public boolean isUpperTriangular() {
+		return upperTriangular;
+	}
+}
@@ -0,0 +1,203 @@
+package capsis.lib.cstability.integrator;
+
+import capsis.lib.cstability.state.State;
+
+/**
+ * The embedded Runge-Kutta Dormand-Prince 5(4) integrator with error
+ * controlled step size. The step is also rejected if a pool value becomes
+ * negative beyond the absolute tolerance, smaller negative values are set to
+ * zero. The step size is kept from one call to the next one.
+ *
+ * @author agent - October 2026
+ */
+public class DormandPrinceIntegrator implements Integrator {
+
+	private static final double C2 = 1d / 5, C3 = 3d / 10, C4 = 4d / 5, C5 = 8d / 9;
+
+	private static final double A21 = 1d / 5;
+	private static final double A31 = 3d / 40, A32 = 9d / 40;
+	private static final double A41 = 44d / 45, A42 = -56d / 15, A43 = 32d / 9;
+	private static final double A51 = 19372d / 6561, A52 = -25360d / 2187, A53 = 64448d / 6561, A54 = -212d / 729;
+	private static final double A61 = 9017d / 3168, A62 = -355d / 33, A63 = 46732d / 5247, A64 = 49d / 176,
+			A65 = -5103d / 18656;
+	// 5th order solution, also the last line of the Butcher tableau (FSAL)
+	private static final double B1 = 35d / 384, B3 = 500d / 1113, B4 = 125d / 192, B5 = -2187d / 6784,
+			B6 = 11d / 84;
+	// difference between the 5th and 4th order solutions
+	private static final double E1 = 71d / 57600, E3 = -71d / 16695, E4 = 71d / 1920, E5 = -17253d / 339200,
+			E6 = 22d / 525, E7 = -1d / 40;
+
+	private static final double SAFETY = 0.9;
+	private static final double MIN_FACTOR = 0.2;
+	private static final double MAX_FACTOR = 5;
+
+	private double relativeTolerance;
+	private double absoluteTolerance;
+	private double stepSize; // the next step size to try
+
+	private int acceptedSteps;
+	private int rejectedSteps;
+
+	private double[] y, yNew, yStage, k1, k2, k3, k4, k5, k6, k7;
+
+	/**
+	 * Constructor
+	 */
+	public DormandPrinceIntegrator(double relativeTolerance, double absoluteTolerance, double initialStepSize)
+			throws Exception {
+		if (relativeTolerance <= 0 || absoluteTolerance <= 0)
+			throw new Exception("DormandPrinceIntegrator(), tolerances must be positive");
+		if (initialStepSize <= 0)
+			throw new Exception("DormandPrinceIntegrator(), initialStepSize must be positive");
+		this.relativeTolerance = relativeTolerance;
+		this.absoluteTolerance = absoluteTolerance;
+		this.stepSize = initialStepSize;
+	}
+
+	/**
+	 * integrate()
+	 */
+	@Override
+	public State integrate(OdeSystem system, State s, double t1) throws Exception {
+
+		allocate(system.getSize());
+
+		double t = s.getDate();
+		system.pack(s, y);
+		system.derivative(s, k1);
+
+		while (t < t1) {
+
+			// the last step ends exactly at t1
+			double h = stepSize;
+			boolean last = t + h * 1.01 >= t1;
+			if (last)
+				h = t1 - t;
+
+			for (int i = 0; i < y.length; i++)
+				yStage[i] = y[i] + h * A21 * k1[i];
+			system.derivative(system.evaluate(t + C2 * h, yStage), k2);
+
+			for (int i = 0; i < y.length; i++)
+				yStage[i] = y[i] + h * (A31 * k1[i] + A32 * k2[i]);
+			system.derivative(system.evaluate(t + C3 * h, yStage), k3);
+
+			for (int i = 0; i < y.length; i++)
+				yStage[i] = y[i] + h * (A41 * k1[i] + A42 * k2[i] + A43 * k3[i]);
+			system.derivative(system.evaluate(t + C4 * h, yStage), k4);
+
+			for (int i = 0; i < y.length; i++)
+				yStage[i] = y[i] + h * (A51 * k1[i] + A52 * k2[i] + A53 * k3[i] + A54 * k4[i]);
+			system.derivative(system.evaluate(t + C5 * h, yStage), k5);
+
+			for (int i = 0; i < y.length; i++)
+				yStage[i] = y[i] + h * (A61 * k1[i] + A62 * k2[i] + A63 * k3[i] + A64 * k4[i] + A65 * k5[i]);
+			system.derivative(system.evaluate(t + h, yStage), k6);
+
+			for (int i = 0; i < y.length; i++)
+				yNew[i] = y[i] + h * (B1 * k1[i] + B3 * k3[i] + B4 * k4[i] + B5 * k5[i] + B6 * k6[i]);
+			system.derivative(system.evaluate(t + h, yNew), k7);
+
+			// error norm (root mean square), > 1 if the step is rejected
+			double sum = 0;
+			for (int i = 0; i < y.length; i++) {
+				double e = h * (E1 * k1[i] + E3 * k3[i] + E4 * k4[i] + E5 * k5[i] + E6 * k6[i] + E7 * k7[i]);
+				double scale = absoluteTolerance + relativeTolerance * Math.max(Math.abs(y[i]), Math.abs(yNew[i]));
+				sum += (e / scale) * (e / scale);
+			}
+			double error = Math.sqrt(sum / y.length);
+
+			boolean negative = false;
+			for (int i = 0; i < system.getMicrobeOffset(); i++) {
+				if (yNew[i] < -absoluteTolerance)
+					negative = true;
+			}
+
+			if (error <= 1 && !negative) {
+				acceptedSteps++;
+				t = last ? t1 : t + h;
+
+				boolean clamped = false;
+				for (int i = 0; i < system.getMicrobeOffset(); i++) {
+					if (yNew[i] < 0) {
+						yNew[i] = 0;
+						clamped = true;
+					}
+				}
+
+				double[] swap = y;
+				y = yNew;
+				yNew = swap;
+				if (clamped) {
+					system.derivative(system.evaluate(t, y), k1);
+				} else {
+					swap = k1;
+					k1 = k7;
+					k7 = swap;
+				}
+
+				if (!last || h >= stepSize)
+					stepSize = h * Math.min(MAX_FACTOR, Math.max(MIN_FACTOR, SAFETY * Math.pow(error, -0.2)));
+
+			} else {
+				rejectedSteps++;
+				double factor = negative ? 0.5 : Math.max(MIN_FACTOR, SAFETY * Math.pow(error, -0.2));
+				stepSize = h * Math.min(1, factor);
+			}
+
+			if (stepSize < 1e-12 * Math.max(1, Math.abs(t)))
+				throw new Exception("DormandPrinceIntegrator.integrate(), step size underflow at date " + t);
+		}
+
+		return system.evaluate(t1, y).copy();
+	}
+
+	/**
+	 * allocate(): the work vectors are allocated at the first call
+	 */
+	private void allocate(int size) {
+		if (y != null && y.length == size)
+			return;
+		y = new double[size];
+		yNew = new double[size];
+		yStage = new double[size];
+		k1 = new double[size];
+		k2 = new double[size];
+		k3 = new double[size];
+		k4 = new double[size];
+		k5 = new double[size];
+		k6 = new double[size];
+		k7 = new double[size];
+	}
+
+	/**
+	 * getAcceptedSteps()
+	 */
+	public int getAcceptedSteps() {
+		return acceptedSteps;
+	}
+
+	/**
+	 * getRejectedSteps()
+	 */
+	public int getRejectedSteps() {
+		return rejectedSteps;
+	}
+
+	/**
+	 * getName()
+	 */
+	@Override
+	public String getName() {
+		return "Dormand-Prince 5(4)";
+	}
+
+	/**
+	 * toString()
+	 */
+	@Override
+	public String toString() {
+		return "DormandPrinceIntegrator, relativeTolerance: " + relativeTolerance + ", absoluteTolerance: "
+				+ absoluteTolerance + ", accepted steps: " + acceptedSteps + ", rejected steps: " + rejectedSteps;
+	}
+}
@@ -0,0 +1,305 @@
+package capsis.lib.cstability.integrator;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import capsis.lib.cstability.state.State;
+
+/**
+ * The exponential Euler integrator with a fixed time step dt. For each
+ * biochemical class, the pools follow u' = A.u + b on [t, t + dt] with A and b
+ * frozen at time t (see AffinePoolOperator), which is solved exactly:
+ *
+ * (u(t + dt), 1) = exp(dt * [A b; 0 0]) . (u(t), 1)
+ *
+ * The microbe masses follow an explicit Euler step.
+ *
+ * While the rates change, the action of the exponential is computed without
+ * any matrix by its Taylor series. When the rates and the sources of two
+ * consecutive steps differ by less than the tolerance (e.g. during a spin-up
+ * from a state close to a steady state), the system is frozen and the steps up
+ * to the next integer date are made at once with it. For each class, the
+ * propagator exp(dt * [A b; 0 0]) is then built from the action of the
+ * exponential on each pool value (see AffinePropagator, upper triangular when
+ * the kernels are) if its product is cheaper than a Taylor step, e.g. for
+ * stiff depolymerization rates or coarse polymerization steps, and is reused
+ * at the next calls. The frozen system is kept while the rates and sources
+ * stay within the tolerance of those of the frozen system, and the steps are
+ * made again without it if they lead to negative pool values.
+ *
+ * @author agent - October 2026
+ */
+public class ExponentialIntegrator implements Integrator {
+
+	/**
+	 * The affine systems of the classes and the microbe mass fluxes frozen at a
+	 * date.
+	 */
+	private static class FrozenSystem {
+		Map<String, AffinePoolOperator> operators;
+		double[] microbeFluxes;
+		double[] microbeMasses;
+
+		/**
+		 * relativeChange(): the largest relative change of rates and sources
+		 * between this and the frozen system o, the microbe fluxes are compared
+		 * to the microbe masses
+		 */
+		double relativeChange(FrozenSystem o) throws Exception {
+			double change = 0;
+			for (String bcName : operators.keySet())
+				change = Math.max(change, operators.get(bcName).relativeChange(o.operators.get(bcName)));
+			for (int k = 0; k < microbeFluxes.length; k++) {
+				double scale = Math.max(Math.abs(microbeMasses[k]), Math.abs(o.microbeMasses[k]));
+				scale = Math.max(scale, Math.max(Math.abs(microbeFluxes[k]), Math.abs(o.microbeFluxes[k])));
+				if (scale > 0)
+					change = Math.max(change, Math.abs(microbeFluxes[k] - o.microbeFluxes[k]) / scale);
+			}
+			return change;
+		}
+	}
+
+	private double timeStep;
+	private double tolerance;
+
+	private FrozenSystem previous; // frozen at the previous step
+	private FrozenSystem cached; // frozen at the cached propagators, if any
+	private double cachedTimeStep;
+	// bcName -> propagator of the frozen system
+	private Map<String, AffinePropagator> propagatorMap;
+	// the classes of the frozen system stepped by the Taylor series
+	private Set<String> taylorClasses;
+
+	private int taylorSteps;
+	private int cachedSteps;
+	private int propagatorBuilds;
+
+	private double[] y, yCopy, f;
+
+	/**
+	 * Constructor: tolerance is the relative change of rates and sources under
+	 * which a propagator is reused
+	 */
+	public ExponentialIntegrator(double timeStep, double tolerance) throws Exception {
+		if (timeStep <= 0)
+			throw new Exception("ExponentialIntegrator(), timeStep must be positive");
+		if (tolerance <= 0)
+			throw new Exception("ExponentialIntegrator(), tolerance must be positive");
+		this.timeStep = timeStep;
+		this.tolerance = tolerance;
+		propagatorMap = new HashMap<>();
+		taylorClasses = new HashSet<>();
+	}
+
+	/**
+	 * integrate()
+	 */
+	@Override
+	public State integrate(OdeSystem system, State s, double t1) throws Exception {
+
+		allocate(system.getSize());
+
+		double t0 = s.getDate();
+		int n = Math.max(1, (int) Math.round((t1 - t0) / timeStep));
+		double dt = (t1 - t0) / n;
+
+		system.pack(s, y);
+		State state = s;
+		boolean rejected = false; // the cached steps are tried once per call
+		int k = 0;
+		while (k < n) {
+
+			FrozenSystem frozen = freeze(system, state);
+
+			if (cached != null && (cachedTimeStep != dt || frozen.relativeChange(cached) > tolerance)) {
+				clearCache();
+			}
+			if (cached == null && !rejected && previous != null && frozen.relativeChange(previous) <= tolerance) {
+				cached = frozen;
+				cachedTimeStep = dt;
+			}
+			previous = frozen;
+
+			int steps = 0;
+			if (cached != null) {
+				// the cached steps are undone if they lead to negative pool values
+				System.arraycopy(y, 0, yCopy, 0, y.length);
+				propagate(cached, n - k, dt);
+				if (isNonNegative(system)) {
+					steps = n - k;
+					cachedSteps += steps;
+				} else {
+					System.arraycopy(yCopy, 0, y, 0, y.length);
+					rejected = true;
+					clearCache();
+				}
+			}
+			if (steps == 0) {
+				steps = 1;
+				taylorStep(frozen, dt);
+				taylorSteps++;
+				if (!isNonNegative(system))
+					throw new Exception("ExponentialIntegrator.integrate(), negative pool value at date "
+							+ state.getDate() + ", the explicit microbial uptake needs a smaller userTimeStep");
+			}
+
+			k += steps;
+			state = system.evaluate(k == n ? t1 : t0 + k * dt, y);
+		}
+		return state.copy();
+	}
+
+	/**
+	 * clearCache()
+	 */
+	private void clearCache() {
+		cached = null;
+		propagatorMap.clear();
+		taylorClasses.clear();
+	}
+
+	/**
+	 * freeze(): the affine systems and the microbe fluxes in state s
+	 */
+	private FrozenSystem freeze(OdeSystem system, State s) throws Exception {
+		system.nonLinearDerivative(s, f);
+
+		FrozenSystem frozen = new FrozenSystem();
+		frozen.operators = new LinkedHashMap<>();
+		for (String bcName : system.getBCNames())
+			frozen.operators.put(bcName, new AffinePoolOperator(system, s, bcName, f));
+
+		int offset = system.getMicrobeOffset();
+		frozen.microbeFluxes = new double[y.length - offset];
+		frozen.microbeMasses = new double[y.length - offset];
+		System.arraycopy(f, offset, frozen.microbeFluxes, 0, frozen.microbeFluxes.length);
+		System.arraycopy(y, offset, frozen.microbeMasses, 0, frozen.microbeMasses.length);
+		return frozen;
+	}
+
+	/**
+	 * taylorStep(): one step dt, the action of the exponential on the pools of
+	 * each class is given by its Taylor series
+	 */
+	private void taylorStep(FrozenSystem frozen, double dt) throws Exception {
+
+		for (AffinePoolOperator op : frozen.operators.values()) {
+			double[] u = new double[op.getSize()];
+			op.gather(y, u);
+			op.exponentialAction(dt, u, true);
+			op.scatter(u, y);
+		}
+
+		for (int k = 0; k < frozen.microbeFluxes.length; k++)
+			y[y.length - frozen.microbeFluxes.length + k] += dt * frozen.microbeFluxes[k];
+	}
+
+	/**
+	 * propagate(): steps of dt with the frozen system. The first step of a class
+	 * is made by the Taylor series, the propagator of the class is then built if
+	 * its product is cheaper than a Taylor step, the next steps are made by
+	 * products by the propagator or by Taylor steps
+	 */
+	private void propagate(FrozenSystem frozen, int steps, double dt) throws Exception {
+
+		for (AffinePoolOperator op : frozen.operators.values()) {
+
+			double[] u = new double[op.getSize()];
+			op.gather(y, u);
+
+			int step = 0;
+			AffinePropagator propagator = propagatorMap.get(op.getBCName());
+			if (propagator == null && !taylorClasses.contains(op.getBCName())) {
+				int products = op.exponentialAction(dt, u, true);
+				step++;
+				if (products * op.getProductCost() > AffinePropagator.getCost(op)) {
+					propagator = new AffinePropagator(op, dt);
+					propagatorMap.put(op.getBCName(), propagator);
+					propagatorBuilds++;
+				} else {
+					taylorClasses.add(op.getBCName());
+				}
+			}
+
+			if (propagator != null) {
+				double[] v = new double[u.length];
+				for (; step < steps; step++) {
+					propagator.multiply(u, v);
+					double[] swap = u;
+					u = v;
+					v = swap;
+				}
+			} else {
+				for (; step < steps; step++)
+					op.exponentialAction(dt, u, true);
+			}
+			op.scatter(u, y);
+		}
+
+		for (int k = 0; k < frozen.microbeFluxes.length; k++)
+			y[y.length - frozen.microbeFluxes.length + k] += steps * dt * frozen.microbeFluxes[k];
+	}
+
+	/**
+	 * isNonNegative(): true if all the pool values are non negative
+	 */
+	private boolean isNonNegative(OdeSystem system) {
+		for (int i = 0; i < system.getMicrobeOffset(); i++) {
+			if (y[i] < 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * allocate(): the work vectors are allocated at the first call
+	 */
+	private void allocate(int size) {
+		if (y != null && y.length == size)
+			return;
+		y = new double[size];
+		yCopy = new double[size];
+		f = new double[size];
+	}
+
+	/**
+	 * getTaylorSteps()
+	 */
+	public int getTaylorSteps() {
+		return taylorSteps;
+	}
+
+	/**
+	 * getCachedSteps(): the number of steps made with cached propagators
+	 */
+	public int getCachedSteps() {
+		return cachedSteps;
+	}
+
+	/**
+	 * getPropagatorBuilds()
+	 */
+	public int getPropagatorBuilds() {
+		return propagatorBuilds;
+	}
+
+	/**
+	 * getName()
+	 */
+	@Override
+	public String getName() {
+		return "exponential Euler";
+	}
+
+	/**
+	 * toString()
+	 */
+	@Override
+	public String toString() {
+		return "ExponentialIntegrator, timeStep: " + timeStep + ", tolerance: " + tolerance + ", Taylor steps: "
+				+ taylorSteps + ", cached steps: " + cachedSteps + ", propagator builds: " + propagatorBuilds;
+	}
+}
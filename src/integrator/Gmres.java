@@ -0,0 +1,148 @@
+package capsis.lib.cstability.integrator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The restarted GMRES solver of the linear systems A.x = rhs of the steady
+ * state solvers, in the inner product of a WeightedNorm (modified Gram-Schmidt
+ * and Givens rotations). A is only used through its products A.v.
+ *
+ * @author agent - October 2026
+ */
+public class Gmres {
+
+	/**
+	 * A linear operator known by its products.
+	 */
+	public interface LinearOperator {
+
+		/**
+		 * multiply(): av = A.v
+		 */
+		public void multiply(double[] v, double[] av) throws Exception;
+	}
+
+	private int restart;
+	private int maxRestarts;
+	private double tolerance; // relative to the norm of rhs
+
+	private int iterations;
+
+	/**
+	 * Constructor
+	 */
+	public Gmres(int restart, int maxRestarts, double tolerance) throws Exception {
+		if (restart <= 0 || maxRestarts <= 0)
+			throw new Exception("Gmres(), restart and maxRestarts must be positive");
+		this.restart = restart;
+		this.maxRestarts = maxRestarts;
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * solve(): returns x with A.x = rhs, or the last iterate if the tolerance is
+	 * not reached after maxRestarts restarts
+	 */
+	public double[] solve(LinearOperator a, double[] rhs, WeightedNorm norm) throws Exception {
+
+		int size = rhs.length;
+		double[] x = new double[size];
+		double[] ax = new double[size];
+		double rhsNorm = norm.norm(rhs);
+		if (rhsNorm == 0)
+			return x;
+
+		for (int r = 0; r < maxRestarts; r++) {
+
+			// residual = rhs - A.x
+			double[] residual = rhs.clone();
+			if (r > 0) {
+				a.multiply(x, ax);
+				for (int i = 0; i < size; i++)
+					residual[i] -= ax[i];
+			}
+			double beta = norm.norm(residual);
+			if (beta <= tolerance * rhsNorm)
+				return x;
+
+			// Arnoldi with modified Gram-Schmidt
+			List<double[]> basis = new ArrayList<>();
+			double[][] h = new double[restart + 1][restart];
+			double[] cs = new double[restart];
+			double[] sn = new double[restart];
+			double[] g = new double[restart + 1];
+			g[0] = beta;
+			basis.add(scaled(1 / beta, residual));
+
+			int m = 0;
+			while (m < restart) {
+				iterations++;
+				double[] w = new double[size];
+				a.multiply(basis.get(m), w);
+				for (int k = 0; k <= m; k++) {
+					h[k][m] = norm.dot(w, basis.get(k));
+					double[] vk = basis.get(k);
+					for (int i = 0; i < size; i++)
+						w[i] -= h[k][m] * vk[i];
+				}
+				h[m + 1][m] = norm.norm(w);
+
+				// Givens rotations
+				for (int k = 0; k < m; k++) {
+					double t = cs[k] * h[k][m] + sn[k] * h[k + 1][m];
+					h[k + 1][m] = -sn[k] * h[k][m] + cs[k] * h[k + 1][m];
+					h[k][m] = t;
+				}
+				double d = Math.hypot(h[m][m], h[m + 1][m]);
+				cs[m] = d == 0 ? 1 : h[m][m] / d;
+				sn[m] = d == 0 ? 0 : h[m + 1][m] / d;
+				double hNext = h[m + 1][m];
+				h[m][m] = d;
+				h[m + 1][m] = 0;
+				g[m + 1] = -sn[m] * g[m];
+				g[m] = cs[m] * g[m];
+				m++;
+
+				if (Math.abs(g[m]) <= tolerance * rhsNorm || hNext == 0)
+					break;
+				basis.add(scaled(1 / hNext, w));
+			}
+
+			// x = x + V.z with H.z = g
+			double[] z = new double[m];
+			for (int k = m - 1; k >= 0; k--) {
+				double sum = g[k];
+				for (int q = k + 1; q < m; q++)
+					sum -= h[k][q] * z[q];
+				z[k] = h[k][k] == 0 ? 0 : sum / h[k][k];
+			}
+			for (int k = 0; k < m; k++) {
+				double[] vk = basis.get(k);
+				for (int i = 0; i < size; i++)
+					x[i] += z[k] * vk[i];
+			}
+			if (Math.abs(g[m]) <= tolerance * rhsNorm)
+				return x;
+		}
+		return x;
+	}
+
+	/**
+	 * scaled(): returns a * x
+	 */
+	static double[] scaled(double a, double[] x) {
+		double[] ax = new double[x.length];
+		for (int i = 0; i < x.length; i++)
+			ax[i] = a * x[i];
+		return ax;
+	}
+
+	/**
+	 * getIterations(): the total number of products A.v
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+}
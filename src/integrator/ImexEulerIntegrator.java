@@ -0,0 +1,210 @@
+package capsis.lib.cstability.integrator;
+
+import java.util.List;
+
+import capsis.lib.cstability.function.util.EnzymeKernelMatrix;
+import capsis.lib.cstability.parameter.EnzymeTraits;
+import capsis.lib.cstability.state.EnzymaticOperator;
+import capsis.lib.cstability.state.State;
+import capsis.lib.cstability.util.BackwardSweep;
+import capsis.lib.cstability.util.Matrix;
+
+/**
+ * The implicit-explicit (IMEX) Euler integrator with a fixed time step dt:
+ *
+ * y(t + dt) = y(t) + dt * N(t, y(t)) + dt * L(t) . y(t + dt)
+ *
+ * with N the inputs and the microbial terms (explicit) and L the pool
+ * transfers and the enzymatic depolymerization, linear in the pool values
+ * for the microbes and enzymes of time t (implicit). The implicit part is
+ * unconditionally stable and keeps the pools non negative.
+ *
+ * The kernel matrices are upper triangular and the pool transfers act value
+ * by value, so for each biochemical class, I - dt * L is solved by a
+ * back-substitution from the largest polymerization index: each index needs a
+ * small system between the pools of the class.
+ *
+ * @author agent - October 2026
+ */
+public class ImexEulerIntegrator implements Integrator {
+
+	private double timeStep;
+	private int steps;
+
+	private double[] y, yNew, f;
+
+	/**
+	 * Constructor
+	 */
+	public ImexEulerIntegrator(double timeStep) throws Exception {
+		if (timeStep <= 0)
+			throw new Exception("ImexEulerIntegrator(), timeStep must be positive");
+		this.timeStep = timeStep;
+	}
+
+	/**
+	 * integrate()
+	 */
+	@Override
+	public State integrate(OdeSystem system, State s, double t1) throws Exception {
+
+		allocate(system.getSize());
+		checkKernels(system);
+
+		double t0 = s.getDate();
+		int n = Math.max(1, (int) Math.round((t1 - t0) / timeStep));
+		double dt = (t1 - t0) / n;
+
+		system.pack(s, y);
+		State state = s;
+		for (int k = 1; k <= n; k++) {
+			step(system, state, dt);
+			double t = k == n ? t1 : t0 + k * dt;
+			double[] swap = y;
+			y = yNew;
+			yNew = swap;
+			state = system.evaluate(t, y);
+			steps++;
+		}
+		return state.copy();
+	}
+
+	/**
+	 * step(): yNew = y(t + dt) from y = y(t), s is evaluated at (t, y)
+	 */
+	private void step(OdeSystem system, State s, double dt) throws Exception {
+
+		/**
+		 * Explicit part: microbe masses are final
+		 */
+		system.nonLinearDerivative(s, f);
+		for (int i = system.getMicrobeOffset(); i < y.length; i++)
+			yNew[i] = y[i] + dt * f[i];
+
+		/**
+		 * Implicit part: (I - dt * L) . u(t + dt) = u(t) + dt * N for the pools u
+		 * of each biochemical class (L and N in an AffinePoolOperator)
+		 */
+		for (String bcName : system.getBCNames())
+			solve(new AffinePoolOperator(system, s, bcName, f), dt);
+
+		for (int i = 0; i < system.getMicrobeOffset(); i++) {
+			if (yNew[i] < 0)
+				throw new Exception("ImexEulerIntegrator.step(), negative pool value at date " + s.getDate()
+						+ ", the explicit microbial uptake needs a smaller userTimeStep");
+		}
+	}
+
+	/**
+	 * solve(): back-substitution for the pools of a biochemical class, the
+	 * solution is written in yNew
+	 */
+	private void solve(AffinePoolOperator op, double dt) throws Exception {
+
+		int nPools = op.getNPools();
+		int length = op.getLength();
+		double[] u = new double[op.getSize()];
+		op.gather(y, u);
+		double[] source = op.getSource();
+		for (int k = 0; k < u.length; k++)
+			u[k] += dt * source[k];
+
+		/**
+		 * Enzymatic depolymerization of the accessible pool (pool 0):
+		 * sum_{enz} (K - I).diag(tau)
+		 */
+		List<EnzymeKernelMatrix> kernels = op.getKernels();
+		int nEnzymes = kernels.size();
+		double[][] tau = op.getTau();
+		double[][] tauV = new double[nEnzymes][]; // tau * solution, filled along the sweep
+		BackwardSweep[] sweeps = new BackwardSweep[nEnzymes];
+		for (int e = 0; e < nEnzymes; e++) {
+			tauV[e] = new double[length];
+			sweeps[e] = kernels.get(e).getBackwardSweep(tauV[e]);
+		}
+
+		List<int[]> transferPools = op.getTransferPools();
+		List<double[]> transferRates = op.getTransferRates();
+
+		double[][] a = new double[nPools][nPools];
+		double[] b = new double[nPools];
+		for (int i = length - 1; i >= 0; i--) {
+
+			for (int p = 0; p < nPools; p++) {
+				for (int q = 0; q < nPools; q++)
+					a[p][q] = p == q ? 1 : 0;
+				b[p] = u[p * length + i];
+			}
+
+			for (int e = 0; e < nEnzymes; e++) {
+				double kii = kernels.get(e).get(i, i);
+				a[0][0] += dt * (1 - kii) * tau[e][i];
+				b[0] += dt * sweeps[e].upperRowProduct(i);
+			}
+
+			for (int k = 0; k < transferPools.size(); k++) {
+				int origin = transferPools.get(k)[0];
+				int arrival = transferPools.get(k)[1];
+				double r = dt * transferRates.get(k)[i];
+				a[origin][origin] += r;
+				a[arrival][origin] -= r;
+			}
+
+			Matrix.gaussianElimination(a, b);
+
+			for (int p = 0; p < nPools; p++)
+				u[p * length + i] = b[p];
+			for (int e = 0; e < nEnzymes; e++)
+				tauV[e][i] = tau[e][i] * b[0];
+		}
+
+		op.scatter(u, yNew);
+	}
+
+	/**
+	 * checkKernels(): the back-substitution needs upper triangular kernels
+	 */
+	private static void checkKernels(OdeSystem system) throws Exception {
+		for (EnzymaticOperator op : system.getEnzymaticOperatorMap().values()) {
+			for (EnzymeTraits et : op.getEnzymeTraitsList()) {
+				if (!et.getKernelMatrix().isUpperTriangular())
+					throw new Exception("ImexEulerIntegrator, the kernel matrix of enzyme " + et.getName()
+							+ " is not upper triangular");
+			}
+		}
+	}
+
+	/**
+	 * allocate(): the work vectors are allocated at the first call
+	 */
+	private void allocate(int size) {
+		if (y != null && y.length == size)
+			return;
+		y = new double[size];
+		yNew = new double[size];
+		f = new double[size];
+	}
+
+	/**
+	 * getSteps()
+	 */
+	public int getSteps() {
+		return steps;
+	}
+
+	/**
+	 * getName()
+	 */
+	@Override
+	public String getName() {
+		return "IMEX Euler";
+	}
+
+	/**
+	 * toString()
+	 */
+	@Override
+	public String toString() {
+		return "ImexEulerIntegrator, timeStep: " + timeStep + ", steps: " + steps;
+	}
+}
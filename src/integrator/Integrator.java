@@ -0,0 +1,25 @@
+package capsis.lib.cstability.integrator;
+
+import capsis.lib.cstability.state.State;
+
+/**
+ * An integrator of the model C-STABILITY seen as an OdeSystem. The Euler
+ * scheme with a fixed time step remains the engine of the Simulator, the
+ * integrators are used with the other values of Context.integrator.
+ *
+ * @author agent - October 2026
+ */
+public interface Integrator {
+
+	/**
+	 * integrate(): integrates the system from the evaluated state s to the date
+	 * t1, returns a new state evaluated at t1
+	 */
+	public State integrate(OdeSystem system, State s, double t1) throws Exception;
+
+	/**
+	 * getName()
+	 */
+	public String getName();
+
+}
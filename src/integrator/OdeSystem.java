@@ -0,0 +1,398 @@
+package capsis.lib.cstability.integrator;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import capsis.lib.cstability.context.Context;
+import capsis.lib.cstability.context.SubstrateInputManager;
+import capsis.lib.cstability.context.poolinput.PoolInput;
+import capsis.lib.cstability.distribution.DiscreteDistribution;
+import capsis.lib.cstability.parameter.MicrobeSpecies;
+import capsis.lib.cstability.parameter.Parameters;
+import capsis.lib.cstability.parameter.PoolTransferTraits;
+import capsis.lib.cstability.parameter.SubstrateAccessibility;
+import capsis.lib.cstability.state.EnzymaticOperator;
+import capsis.lib.cstability.state.Microbe;
+import capsis.lib.cstability.state.Pool;
+import capsis.lib.cstability.state.PoolTransfer;
+import capsis.lib.cstability.state.State;
+import capsis.lib.cstability.state.Substrate;
+
+/**
+ * The model C-STABILITY seen as an ordinary differential system y' = F(t, y).
+ * The vector y contains the values of all the pools, then the masses of the
+ * microbes. F is computed from a State evaluated at (t, y) with the same terms
+ * as the Euler step of the Simulator: inputs, microbial uptake and mortality,
+ * pool transfers and enzymatic depolymerization.
+ *
+ * @author agent - October 2026
+ */
+@SuppressWarnings("serial")
+public class OdeSystem implements Serializable {
+
+	private Parameters parameters;
+	private Context context;
+	private Map<String, EnzymaticOperator> enzymaticOperatorMap; // key: bcName
+
+	// layout of y, key: poolKey
+	private List<String> bcNames;
+	private Map<String, List<String>> bcPoolKeysMap; // key: bcName
+	private List<String> poolKeys;
+	private Map<String, Integer> poolOffsetMap;
+	private List<String> microbeNames;
+	private int microbeOffset;
+	// the same layout by indices: the pools in the order of poolKeys, the
+	// microbes in the order of microbeNames
+	private int[] poolBCIndices;
+	private int[] poolAccessibilityIndices;
+	private int[] poolOffsets;
+	private int[][] poolOffsetTable; // [bcIndex][accessibilityIndex], -1 if no pool
+	private int[] microbeIndices;
+	private int size;
+
+	private State work; // evaluated at each call of evaluate()
+	private Map<String, double[]> enzymaticDeltaMap; // key: bcName
+
+	/**
+	 * Constructor, the layout of the system is given by the pools and microbes of
+	 * the state s
+	 */
+	public OdeSystem(Parameters p, Context c, State s, Map<String, EnzymaticOperator> enzymaticOperatorMap)
+			throws Exception {
+		this.parameters = p;
+		this.context = c;
+		this.enzymaticOperatorMap = enzymaticOperatorMap;
+
+		bcNames = new ArrayList<>();
+		bcPoolKeysMap = new TreeMap<>();
+		poolKeys = new ArrayList<>();
+		poolOffsetMap = new TreeMap<>();
+		List<Pool> pools = getPools(s.getSubstrate());
+		poolBCIndices = new int[pools.size()];
+		poolAccessibilityIndices = new int[pools.size()];
+		poolOffsets = new int[pools.size()];
+		poolOffsetTable = new int[p.getBiochemicalClasses().size()][SubstrateAccessibility.getCount()];
+		for (int[] line : poolOffsetTable)
+			Arrays.fill(line, -1);
+		int offset = 0;
+		for (int k = 0; k < pools.size(); k++) {
+			Pool pool = pools.get(k);
+			String bcName = pool.getBiochemicalClass().getName();
+			poolBCIndices[k] = pool.getBiochemicalClass().getIndex();
+			poolAccessibilityIndices[k] = pool.getAccessibility().getIndex();
+			poolOffsets[k] = offset;
+			poolOffsetTable[poolBCIndices[k]][poolAccessibilityIndices[k]] = offset;
+			if (!bcPoolKeysMap.containsKey(bcName)) {
+				bcNames.add(bcName);
+				bcPoolKeysMap.put(bcName, new ArrayList<>());
+			}
+			bcPoolKeysMap.get(bcName).add(pool.getKey());
+			poolKeys.add(pool.getKey());
+			poolOffsetMap.put(pool.getKey(), offset);
+			offset += pool.getLength();
+		}
+		microbeOffset = offset;
+		microbeNames = new ArrayList<>();
+		for (Microbe m : s.getMicrobes())
+			microbeNames.add(m.getName());
+		microbeNames.sort(null);
+		microbeIndices = new int[microbeNames.size()];
+		for (int k = 0; k < microbeNames.size(); k++)
+			microbeIndices[k] = s.getMicrobe(microbeNames.get(k)).getSpecies().getIndex();
+		size = microbeOffset + microbeNames.size();
+
+		work = s.copy();
+		enzymaticDeltaMap = new TreeMap<>();
+		for (String bcName : enzymaticOperatorMap.keySet())
+			enzymaticDeltaMap.put(bcName, new double[s.getSubstrate().getAccessiblePool(bcName).getLength()]);
+	}
+
+	/**
+	 * getPools(): the pools of the substrate in the order of the layout
+	 */
+	private static List<Pool> getPools(Substrate substrate) throws Exception {
+		List<Pool> pools = new ArrayList<>();
+		List<String> bcNames = new ArrayList<>(substrate.getAccessibleBCNames());
+		bcNames.sort(null);
+		for (String bcName : bcNames) {
+			pools.add(substrate.getAccessiblePool(bcName));
+			pools.addAll(substrate.getInaccessiblePools(bcName));
+		}
+		return pools;
+	}
+
+	/**
+	 * pack(): y = values of the state s
+	 */
+	public void pack(State s, double[] y) throws Exception {
+		checkSize(y);
+		Substrate substrate = s.getSubstrate();
+		for (int k = 0; k < poolOffsets.length; k++) {
+			Pool pool = substrate.getPool(poolBCIndices[k], poolAccessibilityIndices[k]);
+			System.arraycopy(pool.getValuesY(), 0, y, poolOffsets[k], pool.getLength());
+		}
+		for (int k = 0; k < microbeIndices.length; k++)
+			y[microbeOffset + k] = s.getMicrobe(microbeIndices[k]).getMass();
+	}
+
+	/**
+	 * evaluate(): returns the work state of the system set with the values y and
+	 * evaluated at the given date. The work state is reused by the next call, it
+	 * must be copied to be kept.
+	 */
+	public State evaluate(double date, double[] y) throws Exception {
+		checkSize(y);
+		work.reset(date);
+		Substrate substrate = work.getSubstrate();
+		for (int k = 0; k < poolOffsets.length; k++)
+			substrate.getPool(poolBCIndices[k], poolAccessibilityIndices[k]).copyValuesY(y, poolOffsets[k]);
+		for (int k = 0; k < microbeIndices.length; k++)
+			work.getMicrobe(microbeIndices[k]).setMass(y[microbeOffset + k]);
+		work.evaluate(substrate, parameters, context);
+		return work;
+	}
+
+	/**
+	 * derivative(): f = F(t, y) with (t, y) the date and values of the evaluated
+	 * state s
+	 */
+	public void derivative(State s, double[] f) throws Exception {
+		nonLinearDerivative(s, f);
+		addPoolTransfers(s, f);
+		addEnzymaticDepolymerization(s, f);
+	}
+
+	/**
+	 * nonLinearDerivative(): f = the inputs and the microbial terms of F(t, y),
+	 * i.e. F without the pool transfers and the enzymatic depolymerization, which
+	 * are linear in the pool values for given microbes and enzymes.
+	 */
+	public void nonLinearDerivative(State s, double[] f) throws Exception {
+		checkSize(f);
+		Arrays.fill(f, 0d);
+
+		/**
+		 * Inputs
+		 */
+		SubstrateInputManager sim = context.getSubstrateInputManager();
+		if (sim != null) {
+			for (int k = 0; k < poolOffsets.length; k++) {
+				PoolInput pi = sim.getPoolInput(parameters, context, s, poolKeys.get(k), s.getDate());
+				if (pi != null)
+					add(1d, pi.getValuesY(), f, poolOffsets[k]);
+			}
+		}
+
+		/**
+		 * Microbial assimilation and mortality
+		 */
+		for (int k = 0; k < microbeIndices.length; k++) {
+			Microbe m = s.getMicrobe(microbeIndices[k]);
+			MicrobeSpecies species = m.getSpecies();
+
+			double assimilationFlux = 0;
+			for (int bcIndex : species.getAssimilationBCIndices()) {
+				DiscreteDistribution uptakeFlux = m.getUptakeFlux(bcIndex);
+				assimilationFlux += DiscreteDistribution.integrateProduct(m.getCUseEfficiency(bcIndex), uptakeFlux);
+				add(-1d, uptakeFlux.getValuesY(), f, getAccessibleOffset(bcIndex));
+			}
+
+			double mortalityFlux = m.getMortalityFlux();
+			for (int bcIndex : species.getSignatureBCIndices())
+				add(mortalityFlux, species.getSignature(bcIndex).getValuesY(), f, getAccessibleOffset(bcIndex));
+
+			f[microbeOffset + k] = assimilationFlux - mortalityFlux;
+		}
+	}
+
+	/**
+	 * getFluxScale(): the carbon flux of the evaluated state s in mass per time
+	 * unit, the sum of the inputs, the uptakes and the mortalities. It is the
+	 * scale of F(t, y) used by the steady state solvers: F is negligible when
+	 * the imbalance of each pool and microbe is small compared to this flux.
+	 */
+	public double getFluxScale(State s) throws Exception {
+		double flux = 0;
+		SubstrateInputManager sim = context.getSubstrateInputManager();
+		if (sim != null) {
+			for (String poolKey : poolKeys) {
+				PoolInput pi = sim.getPoolInput(parameters, context, s, poolKey, s.getDate());
+				if (pi != null)
+					flux += Math.abs(pi.getCarbonFlux());
+			}
+		}
+		for (int k = 0; k < microbeIndices.length; k++) {
+			Microbe m = s.getMicrobe(microbeIndices[k]);
+			for (int bcIndex : m.getSpecies().getAssimilationBCIndices())
+				flux += m.getUptakeFlux(bcIndex).getIntegral();
+			flux += m.getMortalityFlux();
+		}
+		return flux;
+	}
+
+	/**
+	 * addPoolTransfers(): f = f + the pool transfers evaluated in state s
+	 */
+	private void addPoolTransfers(State s, double[] f) {
+		for (PoolTransfer pt : s.getPoolTransfers()) {
+			PoolTransferTraits ptt = pt.getTraits();
+			int bcIndex = ptt.getBiochemicalClass().getIndex();
+			add(-1d, pt.getValuesY(), f, getPoolOffset(bcIndex, ptt.getOrigin().getIndex()));
+			add(1d, pt.getValuesY(), f, getPoolOffset(bcIndex, ptt.getArrival().getIndex()));
+		}
+	}
+
+	/**
+	 * addEnzymaticDepolymerization(): f = f + the enzymatic depolymerization of
+	 * the accessible pools of state s
+	 */
+	private void addEnzymaticDepolymerization(State s, double[] f) throws Exception {
+		Substrate substrate = s.getSubstrate();
+		for (String bcName : enzymaticOperatorMap.keySet()) {
+			EnzymaticOperator operator = enzymaticOperatorMap.get(bcName);
+			int bcIndex = operator.getBiochemicalClass().getIndex();
+			double[] delta = enzymaticDeltaMap.get(bcName);
+			Arrays.fill(delta, 0d);
+			operator.apply(s, substrate.getAccessiblePool(bcIndex).getValuesY(), 1d, delta);
+			add(1d, delta, f, getAccessibleOffset(bcIndex));
+		}
+	}
+
+	/**
+	 * add(): f[offset + i] += a * x[i]
+	 */
+	private static void add(double a, double[] x, double[] f, int offset) {
+		for (int i = 0; i < x.length; i++)
+			f[offset + i] += a * x[i];
+	}
+
+	/**
+	 * checkSize()
+	 */
+	private void checkSize(double[] y) throws Exception {
+		if (y.length != size)
+			throw new Exception("OdeSystem, wrong vector size: " + y.length + ", expected: " + size);
+	}
+
+	/**
+	 * getSize()
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * getMicrobeOffset(): the pool values are before this offset in y, the
+	 * microbe masses after
+	 */
+	public int getMicrobeOffset() {
+		return microbeOffset;
+	}
+
+	/**
+	 * getPoolOffset()
+	 */
+	public int getPoolOffset(String poolKey) {
+		return poolOffsetMap.get(poolKey);
+	}
+
+	/**
+	 * getPoolOffset()
+	 */
+	public int getPoolOffset(String bcName, String accessKey) {
+		return getPoolOffset(bcName + "_" + accessKey);
+	}
+
+	/**
+	 * getPoolOffset(): by indices of the biochemical class and accessibility
+	 */
+	public int getPoolOffset(int bcIndex, int accessibilityIndex) {
+		return poolOffsetTable[bcIndex][accessibilityIndex];
+	}
+
+	/**
+	 * getAccessibleOffset()
+	 */
+	public int getAccessibleOffset(int bcIndex) {
+		return poolOffsetTable[bcIndex][SubstrateAccessibility.ACCESSIBLE.getIndex()];
+	}
+
+	/**
+	 * getAccessibleOffset()
+	 */
+	public int getAccessibleOffset(String bcName) {
+		return getPoolOffset(bcName, SubstrateAccessibility.ACCESSIBLE.getKey());
+	}
+
+	/**
+	 * getBCNames(): the names of the biochemical classes in the order of the
+	 * layout
+	 */
+	public List<String> getBCNames() {
+		return bcNames;
+	}
+
+	/**
+	 * getPoolKeys(): the keys of the pools of the biochemical class, the
+	 * accessible pool first
+	 */
+	public List<String> getPoolKeys(String bcName) {
+		return bcPoolKeysMap.get(bcName);
+	}
+
+	/**
+	 * getPoolLength(): the number of values of each pool of the biochemical class
+	 */
+	public int getPoolLength(String bcName) {
+		return parameters.getBiochemicalClassMap().get(bcName).getPolymerization().getDiscretization().length;
+	}
+
+	/**
+	 * getPoolStep(): the mean step of the polymerization grid of the pools of the
+	 * biochemical class, 1 for a single value
+	 */
+	public double getPoolStep(String bcName) {
+		double[] x = parameters.getBiochemicalClassMap().get(bcName).getPolymerization().getDiscretization();
+		return x.length > 1 ? (x[x.length - 1] - x[0]) / (x.length - 1) : 1;
+	}
+
+	/**
+	 * getPoolKeys()
+	 */
+	public List<String> getPoolKeys() {
+		return poolKeys;
+	}
+
+	/**
+	 * getMicrobeNames()
+	 */
+	public List<String> getMicrobeNames() {
+		return microbeNames;
+	}
+
+	/**
+	 * getParameters()
+	 */
+	public Parameters getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * getContext()
+	 */
+	public Context getContext() {
+		return context;
+	}
+
+	/**
+	 * getEnzymaticOperatorMap()
+	 */
+	public Map<String, EnzymaticOperator> getEnzymaticOperatorMap() {
+		return enzymaticOperatorMap;
+	}
+
+}
@@ -0,0 +1,264 @@
+package capsis.lib.cstability.integrator;
+
+import java.util.Arrays;
+
+import capsis.lib.cstability.state.State;
+
+/**
+ * A solver of the periodic steady state of the OdeSystem for inputs of period
+ * T: the state y at the date t0 of the initial state which is mapped back on
+ * itself by one period, P(y) = y with P the integration of the system from t0
+ * to t0 + T by an Integrator (shooting method). It replaces the spin-ups made
+ * of many identical periods.
+ *
+ * The Newton iterations on G(y) = P(y) - y solve (I - M).delta = G(y), with M
+ * the derivative of P, by GMRES: M is only used through the products M.v =
+ * (P(y + eps.v) - P(y)) / eps, each product costs the integration of one
+ * period. The Newton step keeps the pool values non negative and the microbe
+ * masses positive, it is halved until it reduces the residual. If it still
+ * does not, a plain period y = P(y) is made instead, i.e. a period of the
+ * usual spin-up.
+ *
+ * The periodic steady state is reached when the root mean square of G(y) / T
+ * in the WeightedNorm is lower than 1, i.e. when the mean drift of each pool
+ * and microbe over a period is lower than the tolerances relative to the flux
+ * scale of the system. The weights of the norm are the ones of the current y:
+ * the backtracking trials are compared with y in these weights, which are
+ * updated once a point is accepted. A pool which keeps growing from period to
+ * period is never stationary: if the iterations do not converge, an exception
+ * is thrown.
+ *
+ * @author agent - October 2026
+ */
+public class PeriodicSteadyStateSolver {
+
+	private static final int MAX_NEWTON_ITERATIONS = 100;
+	private static final int GMRES_RESTART = 20;
+	private static final int GMRES_MAX_RESTARTS = 2;
+	private static final double GMRES_TOLERANCE = 1e-3; // relative to the residual
+	private static final double MIN_MASS_FRACTION = 0.5; // of a microbe mass at each step
+	private static final int MAX_BACKTRACKINGS = 3; // halvings of the Newton step
+
+	private Integrator integrator;
+	private double period;
+	private double relativeTolerance;
+	private double absoluteTolerance;
+
+	private int newtonIterations;
+	private int plainPeriods; // Newton steps replaced by a plain period
+	private int periods; // integrations of one period
+	private double residualNorm;
+
+	// the system and the date of the current resolution
+	private OdeSystem system;
+	private double date;
+	private int size;
+	private WeightedNorm norm;
+	private Gmres gmres;
+
+	/**
+	 * Constructor: the integrator computes the periods
+	 */
+	public PeriodicSteadyStateSolver(Integrator integrator, double period, double relativeTolerance,
+			double absoluteTolerance) throws Exception {
+		if (period <= 0)
+			throw new Exception("PeriodicSteadyStateSolver(), period must be positive");
+		if (relativeTolerance <= 0 || absoluteTolerance <= 0)
+			throw new Exception("PeriodicSteadyStateSolver(), tolerances must be positive");
+		this.integrator = integrator;
+		this.period = period;
+		this.relativeTolerance = relativeTolerance;
+		this.absoluteTolerance = absoluteTolerance;
+		gmres = new Gmres(GMRES_RESTART, GMRES_MAX_RESTARTS, GMRES_TOLERANCE);
+	}
+
+	/**
+	 * solve(): returns the periodic steady state of the system from the evaluated
+	 * state s, a new state evaluated at the date of s
+	 */
+	public State solve(OdeSystem system, State s) throws Exception {
+
+		this.system = system;
+		date = s.getDate();
+		size = system.getSize();
+		norm = new WeightedNorm(system, relativeTolerance, absoluteTolerance);
+		gmres = new Gmres(GMRES_RESTART, GMRES_MAX_RESTARTS, GMRES_TOLERANCE);
+		newtonIterations = 0;
+		plainPeriods = 0;
+		periods = 0;
+
+		double[] y = new double[size];
+		double[] py = new double[size];
+		double[] g = new double[size];
+		system.pack(s, y);
+		accept(y, py, g);
+
+		while (residualNorm > 1) {
+
+			if (newtonIterations == MAX_NEWTON_ITERATIONS)
+				throw new Exception("PeriodicSteadyStateSolver.solve(), no periodic steady state found after "
+						+ newtonIterations + " Newton iterations and " + periods + " periods, residual norm: "
+						+ residualNorm);
+			newtonIterations++;
+
+			if (!newtonStep(y, py, g)) {
+				// plain period: y = P(y)
+				plainPeriods++;
+				System.arraycopy(py, 0, y, 0, size);
+				accept(y, py, g);
+			}
+		}
+
+		return system.evaluate(date, y).copy();
+	}
+
+	/**
+	 * accept(): py = P(y) and g = P(y) - y, the weights of the norm are set for
+	 * the flux scale of y and the residual is measured with them
+	 */
+	private void accept(double[] y, double[] py, double[] g) throws Exception {
+		norm.setWeights(system.getFluxScale(system.evaluate(date, y)));
+		residualNorm = residual(y, py, g);
+	}
+
+	/**
+	 * residual(): py = P(y) and g = P(y) - y, returns the norm of the mean drift
+	 * g / T in the current weights
+	 */
+	private double residual(double[] y, double[] py, double[] g) throws Exception {
+		integratePeriod(y, py);
+		for (int i = 0; i < size; i++)
+			g[i] = py[i] - y[i];
+		double r = norm.rootMeanSquare(g) / period;
+		if (Double.isNaN(r) || Double.isInfinite(r))
+			throw new Exception("PeriodicSteadyStateSolver.residual(), non finite residual at Newton iteration "
+					+ newtonIterations);
+		return r;
+	}
+
+	/**
+	 * integratePeriod(): py = P(y)
+	 */
+	private void integratePeriod(double[] y, double[] py) throws Exception {
+		periods++;
+		State end = integrator.integrate(system, system.evaluate(date, y), date + period);
+		system.pack(end, py);
+	}
+
+	/**
+	 * newtonStep(): y, py = P(y) and g = P(y) - y are replaced by the Newton
+	 * step, returns false if the halved steps do not reduce the residual
+	 */
+	private boolean newtonStep(double[] y, double[] py, double[] g) throws Exception {
+
+		// (I - M).delta = g
+		double[] delta = gmres.solve((v, av) -> {
+			monodromyProduct(y, py, v, av);
+			for (int i = 0; i < size; i++)
+				av[i] = v[i] - av[i];
+		}, g, norm);
+
+		double lambda = 1;
+		for (int i = system.getMicrobeOffset(); i < size; i++) {
+			if (y[i] + delta[i] < MIN_MASS_FRACTION * y[i])
+				lambda = Math.min(lambda, (1 - MIN_MASS_FRACTION) * y[i] / -delta[i]);
+		}
+
+		double[] yTrial = new double[size];
+		double[] pyTrial = new double[size];
+		double[] gTrial = new double[size];
+		double trialNorm = Double.NaN;
+		for (int k = 0; k <= MAX_BACKTRACKINGS && !(trialNorm < residualNorm); k++, lambda /= 2) {
+			for (int i = 0; i < size; i++)
+				yTrial[i] = Math.max(0, y[i] + lambda * delta[i]);
+			try {
+				trialNorm = residual(yTrial, pyTrial, gTrial); // in the weights of y
+			} catch (Exception e) {
+				// e.g. negative pool values during the period
+				trialNorm = Double.NaN;
+			}
+		}
+		if (!(trialNorm < residualNorm))
+			return false;
+
+		System.arraycopy(yTrial, 0, y, 0, size);
+		System.arraycopy(pyTrial, 0, py, 0, size);
+		System.arraycopy(gTrial, 0, g, 0, size);
+		norm.setWeights(system.getFluxScale(system.evaluate(date, y)));
+		residualNorm = norm.rootMeanSquare(g) / period;
+		return true;
+	}
+
+	/**
+	 * monodromyProduct(): mv = M(y).v by a finite difference, py = P(y)
+	 */
+	private void monodromyProduct(double[] y, double[] py, double[] v, double[] mv) throws Exception {
+		double vNorm = 0;
+		double yNorm = 0;
+		for (int i = 0; i < size; i++) {
+			vNorm += v[i] * v[i];
+			yNorm += y[i] * y[i];
+		}
+		vNorm = Math.sqrt(vNorm);
+		if (vNorm == 0) {
+			Arrays.fill(mv, 0d);
+			return;
+		}
+		double eps = Math.sqrt(Math.ulp(1d)) * (1 + Math.sqrt(yNorm)) / vNorm;
+
+		// the pool values must stay non negative: backward difference if
+		// needed, else the perturbation is projected
+		double[] yEps = new double[size];
+		if (!perturb(y, eps, v, yEps)) {
+			if (perturb(y, -eps, v, yEps)) {
+				eps = -eps;
+			} else {
+				perturb(y, eps, v, yEps);
+				for (int i = 0; i < system.getMicrobeOffset(); i++)
+					yEps[i] = Math.max(0, yEps[i]);
+			}
+		}
+
+		integratePeriod(yEps, mv);
+		for (int i = 0; i < size; i++)
+			mv[i] = (mv[i] - py[i]) / eps;
+	}
+
+	/**
+	 * perturb(): yEps = y + eps * v, returns false if a pool value is negative
+	 */
+	private boolean perturb(double[] y, double eps, double[] v, double[] yEps) {
+		boolean nonNegative = true;
+		for (int i = 0; i < size; i++) {
+			yEps[i] = y[i] + eps * v[i];
+			if (i < system.getMicrobeOffset() && yEps[i] < 0)
+				nonNegative = false;
+		}
+		return nonNegative;
+	}
+
+	/**
+	 * getNewtonIterations()
+	 */
+	public int getNewtonIterations() {
+		return newtonIterations;
+	}
+
+	/**
+	 * getPeriods(): the number of integrations of one period
+	 */
+	public int getPeriods() {
+		return periods;
+	}
+
+	/**
+	 * toString()
+	 */
+	@Override
+	public String toString() {
+		return "PeriodicSteadyStateSolver, integrator: " + integrator.getName() + ", period: " + period
+				+ ", relativeTolerance: " + relativeTolerance + ", absoluteTolerance: " + absoluteTolerance
+				+ ", Newton iterations: " + newtonIterations + ", plain periods: " + plainPeriods
+				+ ", periods: " + periods + ", residual norm: " + residualNorm;
+	}
+}
@@ -0,0 +1,336 @@
+package capsis.lib.cstability.integrator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import capsis.lib.cstability.state.State;
+import capsis.lib.cstability.util.Log;
+import capsis.lib.cstability.util.Matrix;
+
+/**
+ * A solver of the steady state F(t0, y) = 0 of the OdeSystem, with the inputs
+ * of the date t0 of the initial state: it replaces the long spin-up
+ * integrations.
+ *
+ * The Newton iterations are globalized by pseudo-transient continuation: each
+ * iteration is an implicit Euler step of pseudo time step dtau, (I / dtau - J).
+ * delta = F(y), and dtau grows as the residual decreases, up to the Newton
+ * step (dtau infinite). The linear systems are solved by GMRES, J is only used
+ * through the products J.v = (F(y + eps.v) - F(y)) / eps (Newton-Krylov). If
+ * the iterations fail repeatedly, Anderson accelerated explicit pseudo time
+ * steps y = y + pseudoTimeStep * F(y) are made before the Newton iterations
+ * start again. The pool values are kept non negative and the microbe masses
+ * positive: a null microbe mass is a trivial steady state of its microbe.
+ *
+ * The steady state is reached when the root mean square of F(y) in the
+ * WeightedNorm is lower than 1, i.e. when the imbalance of each pool and
+ * microbe is lower than the tolerances relative to the flux scale of the
+ * system. The weights of the norm are the ones of the current y: a trial
+ * point is compared with y in these weights, which are updated once the
+ * point is accepted. If the Newton iterations do not converge and the Anderson
+ * iterations can not halve the residual either, the system has no steady
+ * state reachable from the initial state (e.g. a pool receives carbon and is
+ * never consumed) and an exception is thrown.
+ *
+ * @author agent - October 2026
+ */
+public class SteadyStateSolver {
+
+	private static final int MAX_NEWTON_ITERATIONS = 500;
+	private static final int MAX_FAILURES = 3; // consecutive failed Newton iterations before Anderson
+	private static final double MAX_PSEUDO_TIME_STEP_GROWTH = 10;
+	private static final double MIN_PSEUDO_TIME_STEP_GROWTH = 1.5;
+	private static final double MAX_RESIDUAL_GROWTH = 1.3; // of a full step, in the weights of y
+	private static final int GMRES_RESTART = 40;
+	private static final int GMRES_MAX_RESTARTS = 5;
+	private static final double GMRES_TOLERANCE = 1e-3; // relative to the residual
+	private static final double MIN_MASS_FRACTION = 0.5; // of a microbe mass at each step
+
+	private static final int ANDERSON_DEPTH = 5;
+	private static final int ANDERSON_ITERATIONS = 2000; // at each Newton failure
+
+	private double relativeTolerance;
+	private double absoluteTolerance;
+	private double pseudoTimeStep;
+
+	private int newtonIterations;
+	private int andersonIterations;
+	private double residualNorm;
+	private double newtonPseudoTimeStep; // dtau
+
+	// the system and the date of the current resolution
+	private OdeSystem system;
+	private double date;
+	private int size;
+	private WeightedNorm norm;
+	private Gmres gmres;
+
+	/**
+	 * Constructor: pseudoTimeStep is the time step of the Anderson fallback, e.g.
+	 * the time step of the Euler scheme
+	 */
+	public SteadyStateSolver(double relativeTolerance, double absoluteTolerance, double pseudoTimeStep)
+			throws Exception {
+		if (relativeTolerance <= 0 || absoluteTolerance <= 0)
+			throw new Exception("SteadyStateSolver(), tolerances must be positive");
+		if (pseudoTimeStep <= 0)
+			throw new Exception("SteadyStateSolver(), pseudoTimeStep must be positive");
+		this.relativeTolerance = relativeTolerance;
+		this.absoluteTolerance = absoluteTolerance;
+		this.pseudoTimeStep = pseudoTimeStep;
+		gmres = new Gmres(GMRES_RESTART, GMRES_MAX_RESTARTS, GMRES_TOLERANCE);
+	}
+
+	/**
+	 * solve(): returns the steady state of the system from the evaluated state s,
+	 * a new state evaluated at the date of s
+	 */
+	public State solve(OdeSystem system, State s) throws Exception {
+
+		this.system = system;
+		date = s.getDate();
+		size = system.getSize();
+		norm = new WeightedNorm(system, relativeTolerance, absoluteTolerance);
+		gmres = new Gmres(GMRES_RESTART, GMRES_MAX_RESTARTS, GMRES_TOLERANCE);
+		newtonIterations = 0;
+		andersonIterations = 0;
+
+		double[] y = new double[size];
+		double[] f = new double[size];
+		system.pack(s, y);
+		accept(derivative(y, f), f);
+		newtonPseudoTimeStep = pseudoTimeStep;
+
+		int failures = 0;
+		while (residualNorm > 1) {
+
+			if (newtonIterations == MAX_NEWTON_ITERATIONS)
+				throw noSteadyState();
+			newtonIterations++;
+
+			if (newtonStep(y, f)) {
+				failures = 0;
+			} else if (++failures == MAX_FAILURES) {
+				Log.trace("	SteadyStateSolver, Newton iterations failed at residual norm " + residualNorm
+						+ ", Anderson iterations");
+				if (!anderson(y, f))
+					throw noSteadyState();
+				newtonPseudoTimeStep = pseudoTimeStep;
+				failures = 0;
+			}
+		}
+
+		return system.evaluate(date, y).copy();
+	}
+
+	/**
+	 * noSteadyState(): the exception thrown when the iterations do not converge
+	 */
+	private Exception noSteadyState() {
+		return new Exception("SteadyStateSolver.solve(), no steady state found after " + newtonIterations
+				+ " Newton iterations and " + andersonIterations + " Anderson iterations, residual norm: "
+				+ residualNorm);
+	}
+
+	/**
+	 * derivative(): f = F(date, y), returns the flux scale of the system at y
+	 */
+	private double derivative(double[] y, double[] f) throws Exception {
+		State evaluated = system.evaluate(date, y);
+		system.derivative(evaluated, f);
+		return system.getFluxScale(evaluated);
+	}
+
+	/**
+	 * accept(): the weights of the norm are set for the flux scale of the
+	 * accepted y, f = F(y) is the residual measured with them
+	 */
+	private void accept(double fluxScale, double[] f) {
+		norm.setWeights(fluxScale);
+		residualNorm = norm.rootMeanSquare(f);
+	}
+
+	/**
+	 * newtonStep(): y and f = F(y) are replaced by the pseudo-transient Newton
+	 * step, returns false and reduces the pseudo time step if the step fails
+	 */
+	private boolean newtonStep(double[] y, double[] f) throws Exception {
+
+		// (I / dtau - J).delta = F
+		double shift = 1 / newtonPseudoTimeStep;
+		double[] delta = gmres.solve((v, av) -> {
+			jacobianProduct(y, f, v, av);
+			for (int i = 0; i < size; i++)
+				av[i] = shift * v[i] - av[i];
+		}, f, norm);
+
+		double lambda = 1;
+		for (int i = system.getMicrobeOffset(); i < size; i++) {
+			if (y[i] + delta[i] < MIN_MASS_FRACTION * y[i])
+				lambda = Math.min(lambda, (1 - MIN_MASS_FRACTION) * y[i] / -delta[i]);
+		}
+
+		double[] yTrial = new double[size];
+		double[] fTrial = new double[size];
+		for (int i = 0; i < size; i++)
+			yTrial[i] = Math.max(0, y[i] + lambda * delta[i]);
+		double trialFluxScale = derivative(yTrial, fTrial);
+		double trialNorm = norm.rootMeanSquare(fTrial); // in the weights of y
+
+		// a shortened step must decrease the residual, a full step may increase it a
+		// little: pseudo-transient steps are not monotone
+		double maxNorm = lambda < 1 ? residualNorm : MAX_RESIDUAL_GROWTH * residualNorm;
+		if (Double.isNaN(trialNorm) || Double.isInfinite(trialNorm) || trialNorm > maxNorm) {
+			newtonPseudoTimeStep /= MAX_PSEUDO_TIME_STEP_GROWTH;
+			return false;
+		}
+
+		// switched evolution relaxation: dtau grows as the residual decreases, and
+		// at least by MIN_PSEUDO_TIME_STEP_GROWTH after a full step
+		double growth = Math.min(MAX_PSEUDO_TIME_STEP_GROWTH, residualNorm / trialNorm);
+		if (lambda == 1)
+			growth = Math.max(MIN_PSEUDO_TIME_STEP_GROWTH, growth);
+		newtonPseudoTimeStep *= growth;
+		System.arraycopy(yTrial, 0, y, 0, size);
+		System.arraycopy(fTrial, 0, f, 0, size);
+		accept(trialFluxScale, f);
+		return true;
+	}
+
+	/**
+	 * jacobianProduct(): jv = J(y).v by a finite difference, f = F(y)
+	 */
+	private void jacobianProduct(double[] y, double[] f, double[] v, double[] jv) throws Exception {
+		double vNorm = 0;
+		double yNorm = 0;
+		for (int i = 0; i < size; i++) {
+			vNorm += v[i] * v[i];
+			yNorm += y[i] * y[i];
+		}
+		vNorm = Math.sqrt(vNorm);
+		if (vNorm == 0) {
+			Arrays.fill(jv, 0d);
+			return;
+		}
+		double eps = Math.sqrt(Math.ulp(1d)) * (1 + Math.sqrt(yNorm)) / vNorm;
+
+		double[] yEps = new double[size];
+		for (int i = 0; i < size; i++)
+			yEps[i] = y[i] + eps * v[i];
+		system.derivative(system.evaluate(date, yEps), jv);
+		for (int i = 0; i < size; i++)
+			jv[i] = (jv[i] - f[i]) / eps;
+	}
+
+	/**
+	 * anderson(): Anderson accelerated pseudo time steps, the fixed point of G(y)
+	 * = y + pseudoTimeStep * F(y), until the residual is divided by 2 or after
+	 * ANDERSON_ITERATIONS iterations. y and f = F(y) are updated, returns false
+	 * if the residual was not divided by 2.
+	 */
+	private boolean anderson(double[] y, double[] f) throws Exception {
+
+		double targetNorm = residualNorm / 2;
+		List<double[]> dyList = new ArrayList<>(); // y_{k+1} - y_k
+		List<double[]> dgList = new ArrayList<>(); // g_{k+1} - g_k with g = G(y) - y
+		double[] g = Gmres.scaled(pseudoTimeStep, f);
+		double[] yPrevious = null;
+		double[] gPrevious = null;
+
+		for (int it = 0; it < ANDERSON_ITERATIONS && residualNorm > targetNorm; it++) {
+			andersonIterations++;
+
+			if (yPrevious != null) {
+				double[] dy = new double[size];
+				double[] dg = new double[size];
+				for (int i = 0; i < size; i++) {
+					dy[i] = y[i] - yPrevious[i];
+					dg[i] = g[i] - gPrevious[i];
+				}
+				dyList.add(dy);
+				dgList.add(dg);
+				if (dyList.size() > ANDERSON_DEPTH) {
+					dyList.remove(0);
+					dgList.remove(0);
+				}
+			}
+			yPrevious = y.clone();
+			gPrevious = g.clone();
+
+			// gamma = argmin |g - DG.gamma| (normal equations), y = y + g - (DY + DG).gamma
+			double[] gamma = new double[dgList.size()];
+			if (gamma.length > 0) {
+				int m = gamma.length;
+				double[][] a = new double[m][m];
+				for (int p = 0; p < m; p++) {
+					for (int q = 0; q < m; q++)
+						a[p][q] = norm.dot(dgList.get(p), dgList.get(q));
+					a[p][p] *= 1 + 1e-10; // regularization
+					gamma[p] = norm.dot(dgList.get(p), g);
+				}
+				try {
+					Matrix.gaussianElimination(a, gamma);
+				} catch (Exception e) {
+					// singular history: plain step
+					gamma = new double[0];
+					dyList.clear();
+					dgList.clear();
+				}
+			}
+			for (int i = 0; i < size; i++) {
+				double yi = y[i] + g[i];
+				for (int k = 0; k < gamma.length; k++)
+					yi -= gamma[k] * (dyList.get(k)[i] + dgList.get(k)[i]);
+				y[i] = Math.max(i < system.getMicrobeOffset() ? 0 : MIN_MASS_FRACTION * y[i], yi);
+			}
+
+			// the new point is compared with the previous one in its weights
+			double fluxScale = derivative(y, f);
+			double norm = this.norm.rootMeanSquare(f);
+			if (!(norm <= 10 * residualNorm) && gamma.length > 0) {
+				// the extrapolation diverges: plain step from the previous y
+				dyList.clear();
+				dgList.clear();
+				for (int i = 0; i < size; i++) {
+					double floor = i < system.getMicrobeOffset() ? 0 : MIN_MASS_FRACTION * yPrevious[i];
+					y[i] = Math.max(floor, yPrevious[i] + gPrevious[i]);
+				}
+				fluxScale = derivative(y, f);
+				norm = this.norm.rootMeanSquare(f);
+			}
+			if (Double.isNaN(norm) || Double.isInfinite(norm))
+				throw new Exception("SteadyStateSolver.anderson(), non finite residual, pseudoTimeStep "
+						+ pseudoTimeStep + " may be too large");
+			accept(fluxScale, f);
+			for (int i = 0; i < size; i++)
+				g[i] = pseudoTimeStep * f[i];
+		}
+		return residualNorm <= targetNorm;
+	}
+
+	/**
+	 * getNewtonIterations()
+	 */
+	public int getNewtonIterations() {
+		return newtonIterations;
+	}
+
+	/**
+	 * getAndersonIterations()
+	 */
+	public int getAndersonIterations() {
+		return andersonIterations;
+	}
+
+	/**
+	 * toString()
+	 */
+	@Override
+	public String toString() {
+		return "SteadyStateSolver, relativeTolerance: " + relativeTolerance + ", absoluteTolerance: "
+				+ absoluteTolerance + ", Newton iterations: " + newtonIterations + ", Krylov iterations: "
+				+ gmres.getIterations() + ", Anderson iterations: " + andersonIterations + ", residual norm: "
+				+ residualNorm;
+	}
+}
@@ -0,0 +1,102 @@
+package capsis.lib.cstability.integrator;
+
+import java.util.Arrays;
+
+/**
+ * The weighted norm of the derivatives F(t, y) of an OdeSystem used by the
+ * steady state solvers. The values are split in blocks, each pool and each
+ * microbe mass. A pool value is a density on the polymerization grid of step
+ * h: with the weights h * sqrt(length) / (absoluteTolerance +
+ * relativeTolerance * fluxScale), the norm of a pool block bounds the
+ * integral of |F| on the pool relative to the tolerances, and the norm of a
+ * microbe block is |F| relative to the tolerances. The tolerances are relative
+ * to the flux scale of the system (OdeSystem.getFluxScale()), not to the
+ * values y: a pool which keeps growing is never negligible.
+ *
+ * @author agent - October 2026
+ */
+public class WeightedNorm {
+
+	private double relativeTolerance;
+	private double absoluteTolerance;
+
+	private int size;
+	private int blockCount; // the pools and the microbe masses
+	private double[] scales; // h * sqrt(length) of the block of each value
+	private double[] weights;
+
+	/**
+	 * Constructor
+	 */
+	public WeightedNorm(OdeSystem system, double relativeTolerance, double absoluteTolerance) throws Exception {
+		if (relativeTolerance <= 0 || absoluteTolerance <= 0)
+			throw new Exception("WeightedNorm(), tolerances must be positive");
+		this.relativeTolerance = relativeTolerance;
+		this.absoluteTolerance = absoluteTolerance;
+
+		size = system.getSize();
+		weights = new double[size];
+		scales = new double[size];
+		Arrays.fill(scales, 1d);
+		for (String bcName : system.getBCNames()) {
+			int length = system.getPoolLength(bcName);
+			double scale = system.getPoolStep(bcName) * Math.sqrt(length);
+			for (String poolKey : system.getPoolKeys(bcName)) {
+				int offset = system.getPoolOffset(poolKey);
+				Arrays.fill(scales, offset, offset + length, scale);
+				blockCount++;
+			}
+		}
+		blockCount += size - system.getMicrobeOffset();
+	}
+
+	/**
+	 * setWeights(): the weights for the flux scale of the system, a
+	 * derivative is negligible when its rootMeanSquare() is lower than 1
+	 */
+	public void setWeights(double fluxScale) {
+		double tolerance = absoluteTolerance + relativeTolerance * Math.abs(fluxScale);
+		for (int i = 0; i < size; i++)
+			weights[i] = scales[i] / tolerance;
+	}
+
+	/**
+	 * dot(): the weighted inner product
+	 */
+	public double dot(double[] a, double[] b) {
+		double sum = 0;
+		for (int i = 0; i < size; i++)
+			sum += a[i] * b[i] * weights[i] * weights[i];
+		return sum;
+	}
+
+	/**
+	 * norm(): the norm of the weighted inner product
+	 */
+	public double norm(double[] a) {
+		return Math.sqrt(dot(a, a));
+	}
+
+	/**
+	 * rootMeanSquare(): the root mean square of the weighted norms of the
+	 * blocks, a vector is negligible when it is lower than 1
+	 */
+	public double rootMeanSquare(double[] a) {
+		return Math.sqrt(dot(a, a) / blockCount);
+	}
+
+	/**
+	 * getRelativeTolerance()
+	 */
+	public double getRelativeTolerance() {
+		return relativeTolerance;
+	}
+
+	/**
+	 * getAbsoluteTolerance()
+	 */
+	public double getAbsoluteTolerance() {
+		return absoluteTolerance;
+	}
+
+}
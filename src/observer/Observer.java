@@ -18,7 +18,7 @@ import capsis.lib.cstability.util.Log;
  * @author J. Sainte-Marie, F. de Coligny - April 2021
  */
 @SuppressWarnings("serial")
-public abstract class Observer implements Decodable, Serializable {
+public abstract class Observer implements Decodable, Cloneable, Serializable {
 
 	protected ObservableVariable observableVariable;
 	protected List<Integer> datesToObserve;
@@ -39,6 +39,16 @@ public abstract class Observer implements Decodable, Serializable {
 		this.observations = new ArrayList<>();
 	}
 
+	/**
+	 * getEmptyCopy(): a copy observing the same variable at the same dates,
+	 * without the observations
+	 */
+	public Observer getEmptyCopy() throws Exception {
+		Observer o = (Observer) super.clone();
+		o.observations = new ArrayList<>();
+		return o;
+	}
+
 	/**
 	 * observe()
 	 */
@@ -51,6 +51,24 @@ public class ObserverList implements Serializable {
 		}
 	}
 
+	/**
+	 * isObserving(): true if at least one observer expects an observation at the
+	 * given date
+	 */
+	public boolean isObserving(double date) {
+
+		if ((int) date != date)
+			return false;
+
+		int d = (int) date;
+
+		for (Observer o : observers) {
+			if (o.getDatesToObserve().contains(d))
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * setDefaultObserverList()
 	 */
@@ -130,6 +148,16 @@ public class ObserverList implements Serializable {
 		}
 	}
 
+	/**
+	 * getEmptyCopy(): the same observers, without the observations
+	 */
+	public ObserverList getEmptyCopy() throws Exception {
+		ObserverList ol = new ObserverList();
+		for (Observer o : observers)
+			ol.addObserver(o.getEmptyCopy());
+		return ol;
+	}
+
 	/**
 	 * isEmpty()
 	 */
@@ -17,6 +17,7 @@ public class BiochemicalClass implements Comparable<BiochemicalClass>, Decodable
 
 	private String name; // e.g. Lipid
 	private Polymerization polymerization;
+	private int index = -1; // dense id, see Parameters
 
 	/**
 	 * Default constructor
@@ -81,6 +82,21 @@ public class BiochemicalClass implements Comparable<BiochemicalClass>, Decodable
 		return name;
 	}
 
+	/**
+	 * getIndex(): the dense id given by Parameters at load time, -1 if not
+	 * registered in Parameters
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * setIndex(): called by Parameters
+	 */
+	void setIndex(int index) {
+		this.index = index;
+	}
+
 	/**
 	 * getPolymerization()
 	 */
@@ -0,0 +1,90 @@
+package capsis.lib.cstability.parameter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import capsis.lib.cstability.function.Function;
+
+/**
+ * The incidence of the enzymes and the microbe species producing them, built
+ * by Parameters from the enzyme production maps of the species. Sparse storage
+ * by enzyme index: the producers of the enzyme e are at positions k in
+ * [getStart(e), getEnd(e)[, with the index of the species and its production
+ * function of the enzyme.
+ *
+ * @author agent - October 2026
+ */
+@SuppressWarnings("serial")
+public class EnzymeProductionIndex implements Serializable {
+
+	private int[] start; // length: number of enzymes + 1
+	private int[] producerIndices;
+	private Function[] productionFunctions;
+
+	/**
+	 * Constructor, the producers of each enzyme are in the order of the species
+	 * indices
+	 */
+	public EnzymeProductionIndex(List<EnzymeTraits> enzymeTraitsList, List<MicrobeSpecies> microbeSpeciesList) {
+		int enzymeCount = enzymeTraitsList.size();
+		start = new int[enzymeCount + 1];
+		List<Integer> producers = new ArrayList<>();
+		List<Function> functions = new ArrayList<>();
+		for (int e = 0; e < enzymeCount; e++) {
+			start[e] = producers.size();
+			String enzymeName = enzymeTraitsList.get(e).getName();
+			for (MicrobeSpecies ms : microbeSpeciesList) {
+				Function productionFunction = ms.getEnzymeProductionMap().get(enzymeName);
+				if (productionFunction != null) {
+					producers.add(ms.getIndex());
+					functions.add(productionFunction);
+				}
+			}
+		}
+		start[enzymeCount] = producers.size();
+
+		producerIndices = new int[producers.size()];
+		for (int k = 0; k < producerIndices.length; k++)
+			producerIndices[k] = producers.get(k);
+		productionFunctions = functions.toArray(new Function[functions.size()]);
+	}
+
+	/**
+	 * getStart(): the position of the first producer of the enzyme
+	 */
+	public int getStart(int enzymeIndex) {
+		return start[enzymeIndex];
+	}
+
+	/**
+	 * getEnd(): the position after the last producer of the enzyme
+	 */
+	public int getEnd(int enzymeIndex) {
+		return start[enzymeIndex + 1];
+	}
+
+	/**
+	 * getProducerIndex(): the index of the microbe species at position k
+	 */
+	public int getProducerIndex(int k) {
+		return producerIndices[k];
+	}
+
+	/**
+	 * getProductionFunction(): the production function of the enzyme by the
+	 * species at position k
+	 */
+	public Function getProductionFunction(int k) {
+		return productionFunctions[k];
+	}
+
+	/**
+	 * toString()
+	 */
+	@Override
+	public String toString() {
+		return "EnzymeProductionIndex, enzymes: " + (start.length - 1) + ", producers: " + producerIndices.length;
+	}
+
+}
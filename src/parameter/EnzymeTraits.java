@@ -23,6 +23,7 @@ public class EnzymeTraits implements Decodable, Serializable {
 	private Interval<Double> depolymerizationDomain;
 	private Function depolymerizationRateFunction;
 	private EnzymeKernelMatrix kernelMatrix;
+	private int index = -1; // dense id, see Parameters
 
 	/**
 	 * Default constructor
@@ -37,6 +38,17 @@ public class EnzymeTraits implements Decodable, Serializable {
 	public EnzymeTraits(String name, BiochemicalClass biochemicalClass, Interval<Double> depolymerizationDomain,
 			Function depolymerizationRateFunction, Function kernelFunction, String kernelIntegrationMethod,
 			Parameters p, Context c) throws Exception {
+		this(name, biochemicalClass, depolymerizationDomain, depolymerizationRateFunction, kernelFunction,
+				kernelIntegrationMethod, 0, p, c);
+	}
+
+	/**
+	 * Constructor, the kernel matrix is approximated with a low rank if
+	 * lowRankTolerance > 0
+	 */
+	public EnzymeTraits(String name, BiochemicalClass biochemicalClass, Interval<Double> depolymerizationDomain,
+			Function depolymerizationRateFunction, Function kernelFunction, String kernelIntegrationMethod,
+			double lowRankTolerance, Parameters p, Context c) throws Exception {
 		this.name = name;
 		this.biochemicalClass = biochemicalClass;
 		if ((double) biochemicalClass.getPolymerization().getMin() > (double) depolymerizationDomain.getMin()
@@ -46,7 +58,7 @@ public class EnzymeTraits implements Decodable, Serializable {
 		this.depolymerizationDomain = depolymerizationDomain;
 		this.depolymerizationRateFunction = depolymerizationRateFunction;
 		this.kernelMatrix = new EnzymeKernelMatrix(biochemicalClass.getPolymerization(), kernelFunction,
-				kernelIntegrationMethod, p, c, new State());
+				kernelIntegrationMethod, lowRankTolerance, p, c, new State());
 	}
 
 	/**
@@ -57,7 +69,7 @@ public class EnzymeTraits implements Decodable, Serializable {
 
 		// e.g. ENZYME_TRAITS \tab cellulolysis \tab cellulose \tab [0,2] \tab
 		// uniformLinear([0,2];1.8) \tab kernelAlpha([0,2];5) \tab
-		// INTEGRAL_KERNEL_INTEGRATION
+		// INTEGRAL_KERNEL_INTEGRATION [\tab lowRank(1e-6)]
 		try {
 			String s = encodedString.trim();
 			StringTokenizer st = new StringTokenizer(s, "\t");
@@ -79,8 +91,16 @@ public class EnzymeTraits implements Decodable, Serializable {
 				Function kernelFunction = Function.getFunction(st.nextToken().trim(), p, c);
 				String kernelIntegrationMethod = st.nextToken().trim();
 
+				double lowRankTolerance = 0;
+				if (st.hasMoreTokens()) {
+					String token = st.nextToken().trim();
+					if (!token.startsWith("lowRank(") || !token.endsWith(")"))
+						throw new Exception("Unexpected token: " + token + ", expect e.g. lowRank(1e-6)");
+					lowRankTolerance = Double.parseDouble(token.replace("lowRank(", "").replace(")", "").trim());
+				}
+
 				return new EnzymeTraits(name, biochemicalClass, depolymerizationDomain, depolymerizationRateFunction,
-						kernelFunction, kernelIntegrationMethod, p, c);
+						kernelFunction, kernelIntegrationMethod, lowRankTolerance, p, c);
 			} else {
 				throw new Exception("Wrong flag, expect ENZYME_TRAITS");
 			}
@@ -98,6 +118,21 @@ public class EnzymeTraits implements Decodable, Serializable {
 		return this.name;
 	}
 
+	/**
+	 * getIndex(): the dense id given by Parameters at load time, -1 if not
+	 * registered in Parameters
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * setIndex(): called by Parameters
+	 */
+	void setIndex(int index) {
+		this.index = index;
+	}
+
 	/**
 	 * getBiochemicalClass()
 	 */
@@ -23,6 +23,15 @@ public class MicrobeSpecies implements Serializable {
 	private Map<String, AssimilationElement> assimilationMap; // Assimilation: key: biochemicalClassName
 	private Function mortalityFunction; // Mortality
 
+	// Built by Parameters at load time, indexed by biochemical class index, null
+	// if the biochemical class is not concerned
+	private int index = -1; // dense id, see Parameters
+	private int[] assimilationBCIndices;
+	private Function[] uptakeFluxFunctions;
+	private Function[] carbonUseEfficiencyFunctions;
+	private int[] signatureBCIndices;
+	private DiscretePositiveDistribution[] signatures;
+
 	/**
 	 * Inner Class
 	 */
@@ -49,6 +58,20 @@ public class MicrobeSpecies implements Serializable {
 		assimilationMap = new HashMap<>();
 	}
 
+	/**
+	 * copy(): a copy to be modified, e.g. by setMortalityFunction(), then added in
+	 * a copy of the Parameters in place of this species. The functions and the
+	 * signatures are shared.
+	 */
+	public MicrobeSpecies copy() {
+		MicrobeSpecies ms = new MicrobeSpecies(name);
+		ms.signatureMap.putAll(signatureMap);
+		ms.enzymeProductionMap.putAll(enzymeProductionMap);
+		ms.assimilationMap.putAll(assimilationMap);
+		ms.mortalityFunction = mortalityFunction;
+		return ms;
+	}
+
 	/**
 	 * checkSignature(): check microbe species signature (sum = 1)
 	 */
@@ -62,11 +85,22 @@ public class MicrobeSpecies implements Serializable {
 			throw new Exception("MicrobeSpecies, " + name + " Signature integral equals " + test + " instead of 1.");
 	}
 
+	/**
+	 * checkNotRegistered(): the elements indexed by Parameters can not be added
+	 * once the species is registered, a modified copy() must be added instead
+	 */
+	private void checkNotRegistered(String methodName) throws Exception {
+		if (index >= 0)
+			throw new Exception("MicrobeSpecies." + methodName + "(), " + name
+					+ " is registered in Parameters, add a modified copy() instead");
+	}
+
 	/**
 	 * addSignatureElement()
 	 */
 	public void addSignatureElement(String biochemicalClassName,
-			DiscretePositiveDistribution polymerizationDistribution) {
+			DiscretePositiveDistribution polymerizationDistribution) throws Exception {
+		checkNotRegistered("addSignatureElement");
 		signatureMap.put(biochemicalClassName, polymerizationDistribution);
 	}
 
@@ -74,6 +108,7 @@ public class MicrobeSpecies implements Serializable {
 	 * addEnzyme()
 	 */
 	public void addEnzyme(String enzymeName, Function productionFunction) throws Exception {
+		checkNotRegistered("addEnzyme");
 		if (enzymeProductionMap.containsKey(enzymeName))
 			throw new Exception("MicrobeSpecies, " + name + " Enzyme, " + enzymeName + " is defined twice.");
 		enzymeProductionMap.put(enzymeName, productionFunction);
@@ -84,6 +119,7 @@ public class MicrobeSpecies implements Serializable {
 	 */
 	public void addAssimilationElement(String biochemicalClassName, Function uptakeFluxFunction,
 			Function carbonUseEfficiencyFunction) throws Exception {
+		checkNotRegistered("addAssimilationElement");
 		if (assimilationMap.containsKey(biochemicalClassName))
 			throw new Exception(
 					"MicrobeSpecies, " + name + " Assimilation for " + biochemicalClassName + " is defined twice.");
@@ -91,6 +127,38 @@ public class MicrobeSpecies implements Serializable {
 		assimilationMap.put(biochemicalClassName, ae);
 	}
 
+	/**
+	 * buildIndex(): the arrays indexed by biochemical class index, called by
+	 * Parameters when the species is added, after the biochemical classes, and
+	 * again when a biochemical class is added. The indices are in the order of
+	 * the maps by name.
+	 */
+	void buildIndex(int index, Parameters p) throws Exception {
+		this.index = index;
+		int bcCount = p.getBiochemicalClasses().size();
+
+		assimilationBCIndices = new int[assimilationMap.size()];
+		uptakeFluxFunctions = new Function[bcCount];
+		carbonUseEfficiencyFunctions = new Function[bcCount];
+		int k = 0;
+		for (String bcName : assimilationMap.keySet()) {
+			int bcIndex = p.getBiochemicalClassIndex(bcName);
+			AssimilationElement ae = assimilationMap.get(bcName);
+			assimilationBCIndices[k++] = bcIndex;
+			uptakeFluxFunctions[bcIndex] = ae.uptakeFluxFunction;
+			carbonUseEfficiencyFunctions[bcIndex] = ae.carbonUseEfficiencyFunction;
+		}
+
+		signatureBCIndices = new int[signatureMap.size()];
+		signatures = new DiscretePositiveDistribution[bcCount];
+		k = 0;
+		for (String bcName : signatureMap.keySet()) {
+			int bcIndex = p.getBiochemicalClassIndex(bcName);
+			signatureBCIndices[k++] = bcIndex;
+			signatures[bcIndex] = signatureMap.get(bcName);
+		}
+	}
+
 	/**
 	 * setMortalityFunction()
 	 */
@@ -105,6 +173,14 @@ public class MicrobeSpecies implements Serializable {
 		return name;
 	}
 
+	/**
+	 * getIndex(): the dense id given by Parameters at load time, -1 if not
+	 * registered in Parameters
+	 */
+	public int getIndex() {
+		return index;
+	}
+
 	/**
 	 * getEnzymeNames()
 	 */
@@ -133,6 +209,21 @@ public class MicrobeSpecies implements Serializable {
 		return signatureMap.get(biochemicalClassName);
 	}
 
+	/**
+	 * getSignature(): null if the signature has no element for the biochemical
+	 * class
+	 */
+	public DiscretePositiveDistribution getSignature(int bcIndex) {
+		return signatures[bcIndex];
+	}
+
+	/**
+	 * getSignatureBCIndices()
+	 */
+	public int[] getSignatureBCIndices() {
+		return signatureBCIndices;
+	}
+
 	/**
 	 * getSignatureBCNames()
 	 */
@@ -147,6 +238,14 @@ public class MicrobeSpecies implements Serializable {
 		return assimilationMap.get(biochemicalClassName).uptakeFluxFunction;
 	}
 
+	/**
+	 * getUptakeFluxFunction(): null if the species does not assimilate the
+	 * biochemical class
+	 */
+	public Function getUptakeFluxFunction(int bcIndex) {
+		return uptakeFluxFunctions[bcIndex];
+	}
+
 	/**
 	 * getCarbonUseEfficiencyFunction()
 	 */
@@ -154,6 +253,27 @@ public class MicrobeSpecies implements Serializable {
 		return assimilationMap.get(biochemicalClassName).carbonUseEfficiencyFunction;
 	}
 
+	/**
+	 * getCarbonUseEfficiencyFunction()
+	 */
+	public Function getCarbonUseEfficiencyFunction(int bcIndex) {
+		return carbonUseEfficiencyFunctions[bcIndex];
+	}
+
+	/**
+	 * assimilates(): true if the species takes up C in the biochemical class
+	 */
+	public boolean assimilates(int bcIndex) {
+		return uptakeFluxFunctions[bcIndex] != null;
+	}
+
+	/**
+	 * getAssimilationBCIndices()
+	 */
+	public int[] getAssimilationBCIndices() {
+		return assimilationBCIndices;
+	}
+
 	/**
 	 * getAssimilationBCNames()
 	 */
@@ -30,6 +30,15 @@ public class Parameters implements Serializable {
 	// key is poolTransferTraits key (bcName + origin + arrival)
 	private Map<String, PoolTransferTraits> poolTransferTraitsMap;
 
+	// the same objects by dense id, given in the order they are added
+	private List<BiochemicalClass> biochemicalClasses;
+	private List<MicrobeSpecies> microbeSpeciesList;
+	private List<EnzymeTraits> enzymeTraitsList;
+	private List<PoolTransferTraits> poolTransferTraitsList;
+
+	// the producers of each enzyme, built again when species or enzymes are added
+	private EnzymeProductionIndex enzymeProductionIndex;
+
 	/**
 	 * Constructor
 	 */
@@ -39,6 +48,35 @@ public class Parameters implements Serializable {
 		microbeSpeciesMap = new HashMap<>();
 		enzymeTraitsMap = new HashMap<>();
 		poolTransferTraitsMap = new HashMap<>();
+		biochemicalClasses = new ArrayList<>();
+		microbeSpeciesList = new ArrayList<>();
+		enzymeTraitsList = new ArrayList<>();
+		poolTransferTraitsList = new ArrayList<>();
+		enzymeProductionIndex = new EnzymeProductionIndex(enzymeTraitsList, microbeSpeciesList);
+	}
+
+	/**
+	 * copy(): a copy sharing the biochemical classes, microbe species, enzyme and
+	 * pool transfer traits of this Parameters, e.g. for the members of an
+	 * ensemble. They must not be modified but may be replaced in the copy by
+	 * objects with the same names, which keep their indices.
+	 */
+	public Parameters copy() {
+		Parameters p = new Parameters();
+		p.integrationMethod = integrationMethod;
+		p.userPolymerizationStep = userPolymerizationStep;
+		p.biochemicalClassMap.putAll(biochemicalClassMap);
+		for (String bcName : substrateAccessibilityMap.keySet())
+			p.substrateAccessibilityMap.put(bcName, new ArrayList<>(substrateAccessibilityMap.get(bcName)));
+		p.microbeSpeciesMap.putAll(microbeSpeciesMap);
+		p.enzymeTraitsMap.putAll(enzymeTraitsMap);
+		p.poolTransferTraitsMap.putAll(poolTransferTraitsMap);
+		p.biochemicalClasses.addAll(biochemicalClasses);
+		p.microbeSpeciesList.addAll(microbeSpeciesList);
+		p.enzymeTraitsList.addAll(enzymeTraitsList);
+		p.poolTransferTraitsList.addAll(poolTransferTraitsList);
+		p.enzymeProductionIndex = enzymeProductionIndex;
+		return p;
 	}
 
 	/**
@@ -65,10 +103,29 @@ public class Parameters implements Serializable {
 	}
 
 	/**
-	 * addBiochemicalClass()
+	 * addBiochemicalClass(): the arrays of the microbe species indexed by
+	 * biochemical class index are built again for a new class
+	 */
+	public void addBiochemicalClass(BiochemicalClass bc) throws Exception {
+		BiochemicalClass previous = biochemicalClassMap.put(bc.getName(), bc);
+		bc.setIndex(register(biochemicalClasses, previous == null ? -1 : previous.getIndex(), bc));
+		if (previous == null) {
+			for (MicrobeSpecies ms : microbeSpeciesList)
+				ms.buildIndex(ms.getIndex(), this);
+		}
+	}
+
+	/**
+	 * register(): the dense id of an object added to list, the one of the object
+	 * with the same name if any (previousIndex >= 0), else the next one
 	 */
-	public void addBiochemicalClass(BiochemicalClass bc) {
-		biochemicalClassMap.put(bc.getName(), bc);
+	private static <T> int register(List<T> list, int previousIndex, T o) {
+		if (previousIndex >= 0) {
+			list.set(previousIndex, o);
+			return previousIndex;
+		}
+		list.add(o);
+		return list.size() - 1;
 	}
 
 	/**
@@ -95,21 +152,26 @@ public class Parameters implements Serializable {
 			if (!enzymeTraitsMap.keySet().contains(enzymeName))
 				throw new Exception("Unknown enzyme name: " + enzymeName + " for MicrobeSpecies: " + ms.getName());
 		}
-		microbeSpeciesMap.put(ms.getName(), ms);
+		MicrobeSpecies previous = microbeSpeciesMap.put(ms.getName(), ms);
+		ms.buildIndex(register(microbeSpeciesList, previous == null ? -1 : previous.getIndex(), ms), this);
+		enzymeProductionIndex = new EnzymeProductionIndex(enzymeTraitsList, microbeSpeciesList);
 	}
 
 	/**
 	 * addEnzymeTraits()
 	 */
 	public void addEnzymeTraits(EnzymeTraits et) {
-		enzymeTraitsMap.put(et.getName(), et);
+		EnzymeTraits previous = enzymeTraitsMap.put(et.getName(), et);
+		et.setIndex(register(enzymeTraitsList, previous == null ? -1 : previous.getIndex(), et));
+		enzymeProductionIndex = new EnzymeProductionIndex(enzymeTraitsList, microbeSpeciesList);
 	}
 
 	/**
 	 * addPoolTransferTraits()
 	 */
 	public void addPoolTransferTraits(PoolTransferTraits ptt) {
-		poolTransferTraitsMap.put(ptt.getKey(), ptt);
+		PoolTransferTraits previous = poolTransferTraitsMap.put(ptt.getKey(), ptt);
+		ptt.setIndex(register(poolTransferTraitsList, previous == null ? -1 : previous.getIndex(), ptt));
 	}
 
 	/**
@@ -133,6 +195,23 @@ public class Parameters implements Serializable {
 		return biochemicalClassMap;
 	}
 
+	/**
+	 * getBiochemicalClasses(): by index
+	 */
+	public List<BiochemicalClass> getBiochemicalClasses() {
+		return biochemicalClasses;
+	}
+
+	/**
+	 * getBiochemicalClassIndex()
+	 */
+	public int getBiochemicalClassIndex(String bcName) throws Exception {
+		BiochemicalClass bc = biochemicalClassMap.get(bcName);
+		if (bc == null)
+			throw new Exception("Parameters.getBiochemicalClassIndex(), unknown biochemical class: " + bcName);
+		return bc.getIndex();
+	}
+
 	/**
 	 * getSubstrateAccessibilityMap()
 	 */
@@ -154,6 +233,13 @@ public class Parameters implements Serializable {
 		return microbeSpeciesMap;
 	}
 
+	/**
+	 * getMicrobeSpeciesList(): by index
+	 */
+	public List<MicrobeSpecies> getMicrobeSpeciesList() {
+		return microbeSpeciesList;
+	}
+
 	/**
 	 * getEnzymeTraitsMap()
 	 */
@@ -161,6 +247,20 @@ public class Parameters implements Serializable {
 		return enzymeTraitsMap;
 	}
 
+	/**
+	 * getEnzymeTraitsList(): by index
+	 */
+	public List<EnzymeTraits> getEnzymeTraitsList() {
+		return enzymeTraitsList;
+	}
+
+	/**
+	 * getEnzymeProductionIndex()
+	 */
+	public EnzymeProductionIndex getEnzymeProductionIndex() {
+		return enzymeProductionIndex;
+	}
+
 	/**
 	 * getPoolTransferTraitsMap()
 	 */
@@ -168,6 +268,13 @@ public class Parameters implements Serializable {
 		return poolTransferTraitsMap;
 	}
 
+	/**
+	 * getPoolTransferTraitsList(): by index
+	 */
+	public List<PoolTransferTraits> getPoolTransferTraitsList() {
+		return poolTransferTraitsList;
+	}
+
 	/**
 	 * toString()
 	 */
@@ -1,6 +1,7 @@
 package capsis.lib.cstability.parameter;
 
 import capsis.lib.cstability.util.Format;
+import capsis.lib.cstability.util.Grid;
 import capsis.lib.cstability.util.Interval;
 
 /**
@@ -13,6 +14,7 @@ public class Polymerization extends Interval<Double> {
 
 	private double step;
 	private double[] discretization;
+	private Grid grid;
 
 	/**
 	 * Constructor
@@ -28,6 +30,8 @@ public class Polymerization extends Interval<Double> {
 		this.step = this.length() / ((double) nSteps);
 
 		discretize(nSteps);
+		grid = Grid.of(discretization);
+		discretization = grid.getValues();
 	}
 
 	/**
@@ -50,12 +54,20 @@ public class Polymerization extends Interval<Double> {
 	}
 
 	/**
-	 * ()
+	 * getDiscretization(): the values of the grid, not to be modified
 	 */
 	public double[] getDiscretization() {
 		return discretization;
 	}
 
+	/**
+	 * getGrid(): the interned grid of the discretization, shared by the
+	 * distributions of the biochemical class
+	 */
+	public Grid getGrid() {
+		return grid;
+	}
+
 	/**
 	 * toString()
 	 */
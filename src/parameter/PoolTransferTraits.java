@@ -20,6 +20,7 @@ public class PoolTransferTraits implements Decodable, Serializable {
 	private SubstrateAccessibility origin;
 	private SubstrateAccessibility arrival;
 	private Function transferFunction;
+	private int index = -1; // dense id, see Parameters
 
 	/**
 	 * Default constructor
@@ -107,6 +108,21 @@ public class PoolTransferTraits implements Decodable, Serializable {
 		return key;
 	}
 
+	/**
+	 * getIndex(): the dense id given by Parameters at load time, -1 if not
+	 * registered in Parameters
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * setIndex(): called by Parameters
+	 */
+	void setIndex(int index) {
+		this.index = index;
+	}
+
 	/**
 	 * getBiochemicalClass()
 	 */
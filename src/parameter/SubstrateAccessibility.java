@@ -15,13 +15,13 @@ import capsis.lib.cstability.util.Format;
 public class SubstrateAccessibility implements Serializable {
 
 	public static final SubstrateAccessibility ACCESSIBLE = new SubstrateAccessibility("ACCESSIBLE", "accessible",
-			true);
+			true, 0);
 	public static final SubstrateAccessibility INACCESSIBLE_AGGREGATION = new SubstrateAccessibility(
-			"INACCESSIBLE_AGGREGATION", "inaccessible_aggregation", false);
+			"INACCESSIBLE_AGGREGATION", "inaccessible_aggregation", false, 1);
 	public static final SubstrateAccessibility INACCESSIBLE_MINERAL_ASSOCIATION = new SubstrateAccessibility(
-			"INACCESSIBLE_MINERAL_ASSOCIATION", "inaccessible_mineral_association", false);
+			"INACCESSIBLE_MINERAL_ASSOCIATION", "inaccessible_mineral_association", false, 2);
 	public static final SubstrateAccessibility INACCESSIBLE_EMBEDMENT = new SubstrateAccessibility(
-			"INACCESSIBLE_EMBEDMENT", "Inaccessible_embedment", false);
+			"INACCESSIBLE_EMBEDMENT", "Inaccessible_embedment", false, 3);
 
 	private static Map<String, SubstrateAccessibility> availableSubstrateAccessibilities;
 
@@ -36,14 +36,16 @@ public class SubstrateAccessibility implements Serializable {
 	private String key; // "ACCESSIBLE", "INACCESSIBLE_AGGREGATION"....
 	private String status; // "accessible", "inaccessible_aggregation"....
 	private boolean accessible;
+	private int index; // dense id, in [0, getCount()[
 
 	/**
 	 * Constructor
 	 */
-	private SubstrateAccessibility(String key, String status, boolean accessible) {
+	private SubstrateAccessibility(String key, String status, boolean accessible, int index) {
 		this.key = key;
 		this.status = status;
 		this.accessible = accessible;
+		this.index = index;
 	}
 
 	/**
@@ -60,6 +62,20 @@ public class SubstrateAccessibility implements Serializable {
 		return key;
 	}
 
+	/**
+	 * getIndex()
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * getCount(): the number of accessibilities, the indices are lower
+	 */
+	public static int getCount() {
+		return availableSubstrateAccessibilities.size();
+	}
+
 	/**
 	 * getStatus()
 	 */
@@ -0,0 +1,96 @@
+package capsis.lib.cstability.state;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import capsis.lib.cstability.parameter.BiochemicalClass;
+import capsis.lib.cstability.parameter.EnzymeTraits;
+import capsis.lib.cstability.parameter.Parameters;
+
+/**
+ * The cumulated depolymerization operator of the enzymes acting on a
+ * biochemical class. For the accessible pool v, the variation is
+ *
+ * sum_{enz} (K - Id).diag(tau).v = sum_{enz} K.(tau * v) - tau * v
+ *
+ * and is computed without building any matrix.
+ *
+ * @author agent - October 2026
+ */
+@SuppressWarnings("serial")
+public class EnzymaticOperator implements Serializable {
+
+	private BiochemicalClass biochemicalClass;
+	private List<EnzymeTraits> enzymeTraitsList;
+	private double[] work; // tau * v
+
+	/**
+	 * Constructor
+	 */
+	public EnzymaticOperator(BiochemicalClass biochemicalClass) {
+		this.biochemicalClass = biochemicalClass;
+		enzymeTraitsList = new ArrayList<>();
+		work = new double[biochemicalClass.getPolymerization().getDiscretization().length];
+	}
+
+	/**
+	 * getEnzymaticOperators(): returns the operators of the biochemical classes
+	 * targeted by at least one enzyme, key: bcName
+	 */
+	public static Map<String, EnzymaticOperator> getEnzymaticOperators(Parameters p) {
+		Map<String, EnzymaticOperator> map = new HashMap<>();
+		for (EnzymeTraits et : p.getEnzymeTraitsMap().values()) {
+			BiochemicalClass bc = et.getBiochemicalClass();
+			EnzymaticOperator op = map.get(bc.getName());
+			if (op == null) {
+				op = new EnzymaticOperator(bc);
+				map.put(bc.getName(), op);
+			}
+			op.addEnzymeTraits(et);
+		}
+		return map;
+	}
+
+	/**
+	 * addEnzymeTraits()
+	 */
+	public void addEnzymeTraits(EnzymeTraits et) {
+		enzymeTraitsList.add(et);
+	}
+
+	/**
+	 * apply(): delta = delta + a * sum_{enz} (K - Id).diag(tau).v with tau the
+	 * depolymerization rates of the enzymes evaluated in state s
+	 */
+	public void apply(State s, double[] v, double a, double[] delta) throws Exception {
+		if (v.length != work.length || delta.length != work.length)
+			throw new Exception("EnzymaticOperator.apply(), dimension mismatch for " + biochemicalClass.getName());
+
+		for (EnzymeTraits et : enzymeTraitsList) {
+			double[] tau = s.getEnzyme(et.getIndex()).getDepolymerizationRate().getValuesY();
+			for (int i = 0; i < work.length; i++) {
+				work[i] = tau[i] * v[i];
+				delta[i] -= a * work[i];
+			}
+			et.getKernelMatrix().multiplyAdd(a, work, delta);
+		}
+	}
+
+	/**
+	 * getBiochemicalClass()
+	 */
+	public BiochemicalClass getBiochemicalClass() {
+		return biochemicalClass;
+	}
+
+	/**
+	 * getEnzymeTraitsList()
+	 */
+	public List<EnzymeTraits> getEnzymeTraitsList() {
+		return enzymeTraitsList;
+	}
+
+}
@@ -1,14 +1,14 @@
 package capsis.lib.cstability.state;
 
 import java.io.Serializable;
-import java.util.Set;
+import java.util.Arrays;
 
 import capsis.lib.cstability.context.Context;
 import capsis.lib.cstability.distribution.DiscreteDistribution;
 import capsis.lib.cstability.distribution.DiscretePositiveDistribution;
 import capsis.lib.cstability.function.Function;
 import capsis.lib.cstability.function.util.OneVariable;
-import capsis.lib.cstability.function.util.TwoVariables;
+import capsis.lib.cstability.parameter.EnzymeProductionIndex;
 import capsis.lib.cstability.parameter.EnzymeTraits;
 import capsis.lib.cstability.parameter.Parameters;
 
@@ -24,6 +24,9 @@ public class Enzyme implements Serializable {
 	private DiscretePositiveDistribution depolymerizationRate;
 	private DiscreteDistribution activityDistribution;
 	private double activity;
+	// reused by evaluate()
+	private double[] productions;
+	private transient OneVariable producerMass;
 
 	/**
 	 * Constructor
@@ -33,7 +36,20 @@ public class Enzyme implements Serializable {
 	}
 
 	/**
-	 * evaluate()
+	 * copy(): evaluated distributions are cloned
+	 */
+	public Enzyme copy() throws Exception {
+		Enzyme e = new Enzyme(traits);
+		if (depolymerizationRate != null)
+			e.depolymerizationRate = depolymerizationRate.clone();
+		if (activityDistribution != null)
+			e.activityDistribution = activityDistribution.clone();
+		e.activity = activity;
+		return e;
+	}
+
+	/**
+	 * evaluate(): the distributions of a previous evaluation are updated in place
 	 */
 	public void evaluate(Parameters p, Context c, State s) throws Exception {
 
@@ -42,11 +58,17 @@ public class Enzyme implements Serializable {
 		 *
 		 * production = sum_{mic}(prod_function(p,c,mic_mass(t)))
 		 */
-		Set<String> microbeProducerNames = Microbe.getMicrobeProducing(this.getName());
+		EnzymeProductionIndex producers = p.getEnzymeProductionIndex();
+		int enzymeIndex = traits.getIndex();
+		if (producerMass == null)
+			producerMass = new OneVariable(0);
 		double production = 0;
-		for (Microbe m : s.getMicrobes(microbeProducerNames)) {
-			Function productionFunction = m.getSpecies().getEnzymeProductionMap().get(this.getName());
-			production += productionFunction.execute(p, c, s, new OneVariable(m.getMass()));
+		for (int k = producers.getStart(enzymeIndex); k < producers.getEnd(enzymeIndex); k++) {
+			Microbe m = s.getMicrobe(producers.getProducerIndex(k));
+			if (m != null) {
+				producerMass.x1 = m.getMass();
+				production += producers.getProductionFunction(k).execute(p, c, s, producerMass);
+			}
 		}
 
 		/**
@@ -56,20 +78,24 @@ public class Enzyme implements Serializable {
 		 */
 		double[] discretization = traits.getBiochemicalClass().getPolymerization().getDiscretization();
 		Function depolymerizationRateFunction = traits.getDepolymerizationRateFunction();
-		String bcName = traits.getBiochemicalClass().getName();
 
-		depolymerizationRate = DiscretePositiveDistribution.getZeroDiscreteDistribution(discretization,
-				p.getIntegrationMethod());
-		for (int i = 0; i < depolymerizationRate.getLength(); i++) {
-			depolymerizationRate.getValuesY()[i] = depolymerizationRateFunction.execute(p, c, s,
-					new TwoVariables(discretization[i], production));
+		if (depolymerizationRate == null) {
+			depolymerizationRate = DiscretePositiveDistribution.getZeroDiscreteDistribution(
+					traits.getBiochemicalClass().getPolymerization().getGrid(), p.getIntegrationMethod());
+			activityDistribution = DiscreteDistribution.getZeroDiscreteDistribution(depolymerizationRate);
 		}
+		if (productions == null)
+			productions = new double[discretization.length];
+		Arrays.fill(productions, production);
+		depolymerizationRateFunction.evaluate(p, c, s, discretization, productions,
+				depolymerizationRate.getValuesY());
+		depolymerizationRate.valuesYChanged();
 
 		/**
 		 * enzymatic activity
 		 */
-		activityDistribution = DiscreteDistribution.mult(depolymerizationRate,
-				s.getSubstrate().getAccessiblePool(bcName));
+		DiscreteDistribution.mult(depolymerizationRate,
+				s.getSubstrate().getAccessiblePool(traits.getBiochemicalClass().getIndex()), activityDistribution);
 		activity = activityDistribution.getIntegral(traits.getDepolymerizationDomain());
 
 	}
@@ -2,9 +2,7 @@ package capsis.lib.cstability.state;
 
 import java.io.Serializable;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 import capsis.lib.cstability.context.Context;
 import capsis.lib.cstability.distribution.DiscreteDistribution;
@@ -23,15 +21,15 @@ import capsis.lib.cstability.util.Format;
 @SuppressWarnings("serial")
 public class Microbe implements Serializable {
 
-	// this map links each enzyme to a list of the microbes producing it
-	static private Map<String, Set<String>> enzyme_microbeNames = new HashMap<>();
-
 	private MicrobeSpecies species;
 	private double mass; // g
-	private Map<String, DiscreteDistribution> uptakeFluxMap; // key: bcName
-	private Map<String, DiscreteDistribution> cUseEfficiencyMap; // key: bcName
+	// index: bcIndex, null if not evaluated or not assimilated
+	private DiscreteDistribution[] uptakeFluxes;
+	private DiscreteDistribution[] cUseEfficiencies;
+	private boolean evaluated;
 	private double respiration;
 	private double mortalityFlux; //
+	private transient OneVariable massVariable; // reused by evaluate()
 
 	/**
 	 * Constructor
@@ -39,20 +37,36 @@ public class Microbe implements Serializable {
 	public Microbe(MicrobeSpecies species, double mass) {
 		this.species = species;
 		this.mass = mass;
+	}
 
-		// update enzyme_microbeNames
-		for (String eName : species.getEnzymeProductionMap().keySet()) {
-			Set<String> l = enzyme_microbeNames.get(eName);
-			if (l == null) {
-				l = new HashSet<String>();
-				enzyme_microbeNames.put(eName, l);
+	/**
+	 * copy(): evaluated distributions are cloned
+	 */
+	public Microbe copy() throws Exception {
+		Microbe m = new Microbe(species, mass);
+		if (evaluated) {
+			m.uptakeFluxes = new DiscreteDistribution[uptakeFluxes.length];
+			m.cUseEfficiencies = new DiscreteDistribution[cUseEfficiencies.length];
+			for (int bcIndex : species.getAssimilationBCIndices()) {
+				m.uptakeFluxes[bcIndex] = uptakeFluxes[bcIndex].clone();
+				m.cUseEfficiencies[bcIndex] = cUseEfficiencies[bcIndex].clone();
 			}
-			if (!l.contains(this.getName()))
-				l.add(this.getName());
+			m.evaluated = true;
 		}
+		m.respiration = respiration;
+		m.mortalityFlux = mortalityFlux;
+		return m;
+	}
 
-		this.uptakeFluxMap = new HashMap<>();
-		this.cUseEfficiencyMap = new HashMap<>();
+	/**
+	 * reset(): clears the evaluated variables, the microbe can then be evaluated
+	 * again. The distributions are kept and updated in place by the next
+	 * evaluate().
+	 */
+	public void reset() {
+		evaluated = false;
+		respiration = 0;
+		mortalityFlux = 0;
 	}
 
 	/**
@@ -60,27 +74,39 @@ public class Microbe implements Serializable {
 	 */
 	public void evaluate(Parameters p, Context c, State s) throws Exception {
 
-		if (!uptakeFluxMap.isEmpty() || !cUseEfficiencyMap.isEmpty())
+		if (evaluated)
 			throw new Exception("Microbe.evaluate(), cannot be evaluated twice");
 
-		respiration = 0.;
-		for (String assimilationBCName : species.getAssimilationBCNames()) {
-			DiscretePositiveDistribution accessiblePoolDistribution = s.getSubstrate()
-					.getAccessiblePool(assimilationBCName);
-
-			DiscreteDistribution uptakeFlux = DiscreteDistribution.apply(accessiblePoolDistribution, p, c, s,
-					species.getUptakeFluxFunction(assimilationBCName));
-			DiscreteDistribution cUseEfficiency = DiscreteDistribution.apply(accessiblePoolDistribution, p, c, s,
-					species.getCarbonUseEfficiencyFunction(assimilationBCName));
+		if (uptakeFluxes == null) {
+			int bcCount = p.getBiochemicalClasses().size();
+			uptakeFluxes = new DiscreteDistribution[bcCount];
+			cUseEfficiencies = new DiscreteDistribution[bcCount];
+		}
 
-			this.respiration += DiscreteDistribution.mult(cUseEfficiency.getComplementary(), uptakeFlux).getIntegral();
+		respiration = 0.;
+		for (int bcIndex : species.getAssimilationBCIndices()) {
+			DiscretePositiveDistribution accessiblePoolDistribution = s.getSubstrate().getAccessiblePool(bcIndex);
 
-			uptakeFluxMap.put(assimilationBCName, uptakeFlux);
-			cUseEfficiencyMap.put(assimilationBCName, cUseEfficiency);
+			if (uptakeFluxes[bcIndex] == null) {
+				uptakeFluxes[bcIndex] = DiscreteDistribution.getZeroDiscreteDistribution(accessiblePoolDistribution);
+				cUseEfficiencies[bcIndex] = DiscreteDistribution.getZeroDiscreteDistribution(accessiblePoolDistribution);
+			}
+			DiscreteDistribution uptakeFlux = uptakeFluxes[bcIndex];
+			DiscreteDistribution cUseEfficiency = cUseEfficiencies[bcIndex];
+			DiscreteDistribution.apply(accessiblePoolDistribution, p, c, s, species.getUptakeFluxFunction(bcIndex),
+					uptakeFlux);
+			DiscreteDistribution.apply(accessiblePoolDistribution, p, c, s,
+					species.getCarbonUseEfficiencyFunction(bcIndex), cUseEfficiency);
+
+			this.respiration += DiscreteDistribution.integrateComplementaryProduct(cUseEfficiency, uptakeFlux);
 		}
+		evaluated = true;
 
+		if (massVariable == null)
+			massVariable = new OneVariable(mass);
+		massVariable.x1 = mass;
 		Function mortalityFunction = species.getMortalityFunction();
-		mortalityFlux = mortalityFunction.execute(p, c, s, new OneVariable(mass));
+		mortalityFlux = mortalityFunction.execute(p, c, s, massVariable);
 
 	}
 
@@ -105,32 +131,72 @@ public class Microbe implements Serializable {
 		return this.mass;
 	}
 
+	/**
+	 * setMass()
+	 */
+	public void setMass(double mass) {
+		this.mass = mass;
+	}
+
+	/**
+	 * getUptakeFlux(): null if not evaluated or not assimilated
+	 */
+	public DiscreteDistribution getUptakeFlux(int bcIndex) {
+		return evaluated ? uptakeFluxes[bcIndex] : null;
+	}
+
+	/**
+	 * getCUseEfficiency(): null if not evaluated or not assimilated
+	 */
+	public DiscreteDistribution getCUseEfficiency(int bcIndex) {
+		return evaluated ? cUseEfficiencies[bcIndex] : null;
+	}
+
+	/**
+	 * Accessors by name
+	 */
+
 	/**
 	 * getUptakeFlux()
 	 */
 	public DiscreteDistribution getUptakeFlux(String assimilationBCName) {
-		return uptakeFluxMap.get(assimilationBCName);
+		return getUptakeFluxes().get(assimilationBCName);
 	}
 
 	/**
-	 * getUptakeFluxes()
+	 * getUptakeFluxes(): key: bcName, empty if not evaluated
 	 */
 	public Map<String, DiscreteDistribution> getUptakeFluxes() {
-		return uptakeFluxMap;
+		return toMap(uptakeFluxes);
 	}
 
 	/**
 	 * getCUseEfficiency()
 	 */
 	public DiscreteDistribution getCUseEfficiency(String assimilationBCName) {
-		return cUseEfficiencyMap.get(assimilationBCName);
+		return getCUseEfficiencies().get(assimilationBCName);
 	}
 
 	/**
-	 * getCUseEfficiencies()
+	 * getCUseEfficiencies(): key: bcName, empty if not evaluated
 	 */
 	public Map<String, DiscreteDistribution> getCUseEfficiencies() {
-		return cUseEfficiencyMap;
+		return toMap(cUseEfficiencies);
+	}
+
+	/**
+	 * toMap(): the distributions indexed by bcIndex, by bcName. The assimilation
+	 * indices of the species are in the order of its assimilation names.
+	 */
+	private Map<String, DiscreteDistribution> toMap(DiscreteDistribution[] distributions) {
+		Map<String, DiscreteDistribution> map = new HashMap<>();
+		if (!evaluated)
+			return map;
+		int[] bcIndices = species.getAssimilationBCIndices();
+		int k = 0;
+		for (String bcName : species.getAssimilationBCNames())
+			map.put(bcName, distributions[bcIndices[k++]]);
+		return map;
 	}
 
 	/**
@@ -147,13 +213,6 @@ public class Microbe implements Serializable {
 		return mortalityFlux;
 	}
 
-	/**
-	 * getMicrobeProducing()
-	 */
-	public static Set<String> getMicrobeProducing(String enzymeName) {
-		return enzyme_microbeNames.get(enzymeName);
-	}
-
 	/**
 	 * toString()
 	 */
@@ -2,10 +2,10 @@ package capsis.lib.cstability.state;
 
 import java.io.Serializable;
 
-import capsis.lib.cstability.distribution.DiscreteDistribution;
 import capsis.lib.cstability.distribution.SubstrateDistribution;
 import capsis.lib.cstability.parameter.BiochemicalClass;
 import capsis.lib.cstability.parameter.SubstrateAccessibility;
+import capsis.lib.cstability.util.Grid;
 
 /**
  * A pool of substrate of C-STABILITY
@@ -23,14 +23,28 @@ public class Pool extends SubstrateDistribution implements Serializable {
 	public Pool(double[] valuesX, double[] valuesY, String integrationMethod, BiochemicalClass biochemicalClass,
 			SubstrateAccessibility accessibility) throws Exception {
 		super(valuesX, valuesY, integrationMethod, biochemicalClass, accessibility);
-		carbonMass = integral;
 	}
 
 	/**
-	 * copy()
+	 * Constructor, on a shared grid
+	 */
+	public Pool(Grid grid, double[] valuesY, String integrationMethod, BiochemicalClass biochemicalClass,
+			SubstrateAccessibility accessibility) throws Exception {
+		super(grid, valuesY, integrationMethod, biochemicalClass, accessibility);
+	}
+
+	/**
+	 * Trusted constructor, for copy()
+	 */
+	private Pool(Pool pool, double[] valuesY) {
+		super(pool, valuesY);
+	}
+
+	/**
+	 * copy(): the values are not checked again, the checked mode is kept
 	 */
 	public Pool copy() throws Exception {
-		return new Pool(valuesX.clone(), valuesY.clone(), integrationMethod, biochemicalClass, accessibility);
+		return new Pool(this, valuesY.clone());
 	}
 
 	/**
@@ -38,9 +52,8 @@ public class Pool extends SubstrateDistribution implements Serializable {
 	 */
 	public static Pool getEmptySubstratePool(BiochemicalClass bc, SubstrateAccessibility sa, String integrationMethod)
 			throws Exception {
-		DiscreteDistribution zeroDD = DiscreteDistribution
-				.getZeroDiscreteDistribution(bc.getPolymerization().getDiscretization(), integrationMethod);
-		return new Pool(zeroDD.getValuesX(), zeroDD.getValuesY(), integrationMethod, bc, sa);
+		Grid grid = bc.getPolymerization().getGrid();
+		return new Pool(grid, new double[grid.getLength()], integrationMethod, bc, sa);
 	}
 
 	/**
@@ -54,7 +67,7 @@ public class Pool extends SubstrateDistribution implements Serializable {
 	 * getCarbonMass()
 	 */
 	public double getCarbonMass() {
-		carbonMass = integral;
+		carbonMass = getIntegral();
 		return carbonMass;
 	}
 
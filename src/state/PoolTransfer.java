@@ -19,9 +19,9 @@ public class PoolTransfer extends DiscreteDistribution {
 	 * Constructor
 	 */
 	public PoolTransfer(String pttName, Parameters p) throws Exception {
-		super(p.getPoolTransferTraitsMap().get(pttName).getBiochemicalClass().getPolymerization().getDiscretization(),
+		super(p.getPoolTransferTraitsMap().get(pttName).getBiochemicalClass().getPolymerization().getGrid(),
 				new double[p.getPoolTransferTraitsMap().get(pttName).getBiochemicalClass().getPolymerization()
-						.getDiscretization().length],
+						.getGrid().getLength()],
 				p.getIntegrationMethod());
 		traits = p.getPoolTransferTraitsMap().get(pttName);
 	}
@@ -30,7 +30,7 @@ public class PoolTransfer extends DiscreteDistribution {
 	 * Constructor
 	 */
 	public PoolTransfer(PoolTransfer pt) throws Exception {
-		super(pt.valuesX.clone(), pt.valuesY.clone(), pt.getIntegrationMethod());
+		super(pt.grid, pt.valuesY.clone(), pt.getIntegrationMethod());
 		traits = pt.traits;
 	}
 
@@ -38,8 +38,9 @@ public class PoolTransfer extends DiscreteDistribution {
 	 * evaluate()
 	 */
 	public void evaluate(Parameters p, Context c, State s) throws Exception {
-		Pool originPool = s.getSubstrate().getPool(traits.getBiochemicalClass().getName(), traits.getOriginName());
-		this.valuesY = DiscreteDistribution.apply(originPool, p, c, s, traits.getTransferFunction()).getValuesY();
+		Pool originPool = s.getSubstrate().getPool(traits.getBiochemicalClass().getIndex(),
+				traits.getOrigin().getIndex());
+		DiscreteDistribution.apply(originPool, p, c, s, traits.getTransferFunction(), this);
 	}
 
 	/**
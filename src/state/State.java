@@ -2,13 +2,14 @@ package capsis.lib.cstability.state;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import capsis.lib.cstability.context.Context;
 import capsis.lib.cstability.parameter.Parameters;
+import capsis.lib.cstability.util.ForkJoin;
 import capsis.lib.cstability.util.Format;
 
 /**
@@ -21,18 +22,26 @@ public class State implements Serializable {
 
 	private double date;
 	private Substrate substrate;
-	private Map<String, Microbe> microbeMap;
-	private Map<String, Enzyme> enzymeMap;
-	private Map<String, PoolTransfer> poolTransferMap;
+	// the entities by the index of their species or traits (null if absent),
+	// and in lists in the order of the indices
+	private Microbe[] microbes;
+	private Enzyme[] enzymes;
+	private PoolTransfer[] poolTransfers;
+	private List<Microbe> microbeList;
+	private List<Enzyme> enzymeList;
+	private List<PoolTransfer> poolTransferList;
 	private double respiration;
 
 	/**
 	 * Constructor
 	 */
 	public State() {
-		poolTransferMap = new HashMap<>();
-		microbeMap = new HashMap<>();
-		enzymeMap = new HashMap<>();
+		microbes = new Microbe[0];
+		enzymes = new Enzyme[0];
+		poolTransfers = new PoolTransfer[0];
+		microbeList = new ArrayList<>();
+		enzymeList = new ArrayList<>();
+		poolTransferList = new ArrayList<>();
 		respiration = 0;
 	}
 
@@ -44,6 +53,52 @@ public class State implements Serializable {
 		this.date = date;
 	}
 
+	/**
+	 * copy(): deep copy of the state, evaluated variables included
+	 */
+	public State copy() throws Exception {
+		State s = new State(date);
+		if (substrate != null)
+			s.substrate = new Substrate(substrate);
+		for (Microbe m : getMicrobes())
+			s.addMicrobe(m.copy());
+		for (Enzyme e : getEnzymes())
+			s.addEnzyme(e.copy());
+		for (PoolTransfer pt : getPoolTransfers())
+			s.addPoolTransfer(new PoolTransfer(pt));
+		s.respiration = respiration;
+		return s;
+	}
+
+	/**
+	 * copy(): copy of the substrate and of the microbe masses, with the species
+	 * and traits of the given parameters, matched by index (e.g. a copy of the
+	 * parameters with replaced species). The copy has to be evaluated.
+	 */
+	public State copy(Parameters p) throws Exception {
+		State s = new State(date);
+		if (substrate != null)
+			s.substrate = new Substrate(substrate);
+		for (Microbe m : getMicrobes())
+			s.addMicrobe(new Microbe(p.getMicrobeSpeciesList().get(m.getSpecies().getIndex()), m.getMass()));
+		for (Enzyme e : getEnzymes())
+			s.addEnzyme(new Enzyme(p.getEnzymeTraitsList().get(e.getTraits().getIndex())));
+		for (PoolTransfer pt : getPoolTransfers())
+			s.addPoolTransfer(new PoolTransfer(p.getPoolTransferTraitsList().get(pt.getTraits().getIndex()).getKey(), p));
+		return s;
+	}
+
+	/**
+	 * reset(): prepares the state to be evaluated again at the given date, its
+	 * entities are kept and their evaluated variables are cleared.
+	 */
+	public void reset(double date) {
+		this.date = date;
+		respiration = 0;
+		for (Microbe m : getMicrobes())
+			m.reset();
+	}
+
 	/**
 	 * evaluate(): this method evaluates each function of microbe, enzyme and pool
 	 * transfer depending on the substrate.
@@ -52,16 +107,19 @@ public class State implements Serializable {
 
 		setSubstrate(s);
 
-		for (Microbe m : getMicrobes()) {
-			m.evaluate(p, c, this);
+		/**
+		 * Microbes, enzymes and pool transfers are evaluated in this order, each
+		 * category in parallel if engineThreads > 1: the enzymes are produced by
+		 * the microbes and the pool transfers may need the enzyme activities (e.g.
+		 * EnzymaticLinearTransfer). The respiration is summed in the order of the
+		 * microbes whatever the number of threads.
+		 */
+		ForkJoinPool pool = c.getForkJoinPool();
+		ForkJoin.forEach(pool, getMicrobes(), m -> m.evaluate(p, c, this));
+		for (Microbe m : getMicrobes())
 			respiration += m.getRespiration();
-		}
-		for (Enzyme e : getEnzymes()) {
-			e.evaluate(p, c, this);
-		}
-		for (PoolTransfer pt : getPoolTransfers()) {
-			pt.evaluate(p, c, this);
-		}
+		ForkJoin.forEach(pool, getEnzymes(), e -> e.evaluate(p, c, this));
+		ForkJoin.forEach(pool, getPoolTransfers(), pt -> pt.evaluate(p, c, this));
 	}
 
 	/**
@@ -75,27 +133,43 @@ public class State implements Serializable {
 	 * addMicrobe()
 	 */
 	public void addMicrobe(Microbe microbe) throws Exception {
-		if (microbeMap.containsKey(microbe.getSpecies().getName()))
-			throw new Exception("State, microbe " + microbe.getSpecies().getName() + " is defined twice.");
-		microbeMap.put(microbe.getSpecies().getName(), microbe);
+		microbes = store(microbes, microbeList, microbe.getSpecies().getIndex(), microbe,
+				"microbe " + microbe.getName());
 	}
 
 	/**
 	 * addEnzyme()
 	 */
 	public void addEnzyme(Enzyme enzyme) throws Exception {
-		if (enzymeMap.containsKey(enzyme.getTraits().getName()))
-			throw new Exception("State, enzyme " + enzyme.getTraits().getName() + " is defined twice.");
-		enzymeMap.put(enzyme.getTraits().getName(), enzyme);
+		enzymes = store(enzymes, enzymeList, enzyme.getTraits().getIndex(), enzyme, "enzyme " + enzyme.getName());
 	}
 
 	/**
 	 * addPoolTransfer()
 	 */
 	public void addPoolTransfer(PoolTransfer pt) throws Exception {
-		if (poolTransferMap.containsKey(pt.getTraits().getKey()))
-			throw new Exception("State, poolTransfer " + pt.getTraits().getKey() + " is defined twice.");
-		poolTransferMap.put(pt.getTraits().getKey(), pt);
+		poolTransfers = store(poolTransfers, poolTransferList, pt.getTraits().getIndex(), pt,
+				"poolTransfer " + pt.getTraits().getKey());
+	}
+
+	/**
+	 * store(): stores o at index in array, grown if needed, and in list in the
+	 * order of the indices, returns the array
+	 */
+	private static <T> T[] store(T[] array, List<T> list, int index, T o, String name) throws Exception {
+		if (index < 0)
+			throw new Exception("State, " + name + " is not registered in Parameters.");
+		if (index < array.length && array[index] != null)
+			throw new Exception("State, " + name + " is defined twice.");
+		if (index >= array.length)
+			array = Arrays.copyOf(array, index + 1);
+		array[index] = o;
+		int position = 0;
+		for (int i = 0; i < index; i++)
+			if (array[i] != null)
+				position++;
+		list.add(position, o);
+		return array;
 	}
 
 	/**
@@ -115,8 +189,8 @@ public class State implements Serializable {
 	/**
 	 * getMicrobes()
 	 */
-	public Collection<Microbe> getMicrobes() {
-		return microbeMap.values();
+	public List<Microbe> getMicrobes() {
+		return microbeList;
 	}
 
 	/**
@@ -125,43 +199,73 @@ public class State implements Serializable {
 	public List<Microbe> getMicrobes(Collection<String> names) {
 		List<Microbe> ml = new ArrayList<>();
 		for (String name : names)
-			ml.add(microbeMap.get(name));
+			ml.add(getMicrobe(name));
 		return ml;
 	}
 
 	/**
-	 * getMicrobe()
+	 * getMicrobe(): by index of the species, null if absent
+	 */
+	public Microbe getMicrobe(int index) {
+		return index < microbes.length ? microbes[index] : null;
+	}
+
+	/**
+	 * getMicrobe(): by name, null if absent
 	 */
 	public Microbe getMicrobe(String name) {
-		return microbeMap.get(name);
+		for (Microbe m : microbeList)
+			if (m.getName().equals(name))
+				return m;
+		return null;
 	}
 
 	/**
 	 * getEnzymes()
 	 */
-	public Collection<Enzyme> getEnzymes() {
-		return enzymeMap.values();
+	public List<Enzyme> getEnzymes() {
+		return enzymeList;
 	}
 
 	/**
-	 * getEnzyme()
+	 * getEnzyme(): by index of the traits, null if absent
+	 */
+	public Enzyme getEnzyme(int index) {
+		return index < enzymes.length ? enzymes[index] : null;
+	}
+
+	/**
+	 * getEnzyme(): by name, null if absent
 	 */
 	public Enzyme getEnzyme(String name) {
-		return enzymeMap.get(name);
+		for (Enzyme e : enzymeList)
+			if (e.getName().equals(name))
+				return e;
+		return null;
 	}
 
 	/**
 	 * getPoolTransfers()
 	 */
-	public Collection<PoolTransfer> getPoolTransfers() {
-		return poolTransferMap.values();
+	public List<PoolTransfer> getPoolTransfers() {
+		return poolTransferList;
+	}
+
+	/**
+	 * getPoolTransfer(): by index of the traits, null if absent
+	 */
+	public PoolTransfer getPoolTransfer(int index) {
+		return index < poolTransfers.length ? poolTransfers[index] : null;
 	}
 
 	/**
-	 * getPoolTransfer()
+	 * getPoolTransfer(): by key of the traits, null if absent
 	 */
 	public PoolTransfer getPoolTransfer(String name) {
-		return poolTransferMap.get(name);
+		for (PoolTransfer pt : poolTransferList)
+			if (pt.getTraits().getKey().equals(name))
+				return pt;
+		return null;
 	}
 
 	/**
@@ -182,9 +286,9 @@ public class State implements Serializable {
 		b.append(CR);
 		b.append("Substrate: " + substrate);
 		b.append(CR);
-		b.append("microbeMap: " + Format.toString(microbeMap));
+		b.append("microbes: " + Format.toString(microbeList));
 		b.append(CR);
-		b.append("enzymeMap: " + Format.toString(enzymeMap));
+		b.append("enzymes: " + Format.toString(enzymeList));
 
 		b.append(CR);
 		b.append("--- end-of-State");
@@ -3,13 +3,13 @@ package capsis.lib.cstability.state;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import capsis.lib.cstability.context.Context;
 import capsis.lib.cstability.context.poolinput.PoolInput;
-import capsis.lib.cstability.distribution.DiscreteDistribution;
 import capsis.lib.cstability.parameter.BiochemicalClass;
 import capsis.lib.cstability.parameter.Parameters;
 import capsis.lib.cstability.parameter.SubstrateAccessibility;
@@ -23,16 +23,20 @@ import capsis.lib.cstability.util.Format;
 @SuppressWarnings("serial")
 public class Substrate implements Serializable {
 
-	// key: bcName, value: pool
-	private Map<String, Pool> accessiblePoolMap;
-	private Map<String, List<Pool>> inaccessiblePoolMap;
+	// pools[bcIndex][accessibilityIndex], null if the pool does not exist
+	private Pool[][] pools;
+	// all the pools, in the order they were added
+	private List<Pool> poolList;
+	// key: bcName, value: bcIndex, for the accessors by name
+	private Map<String, Integer> bcIndexMap;
 
 	/**
 	 * Constructor
 	 */
 	public Substrate() {
-		this.accessiblePoolMap = new HashMap<>(); // contains only one accessible pool
-		this.inaccessiblePoolMap = new HashMap<>(); // can contain zero pool
+		this.pools = new Pool[0][];
+		this.poolList = new ArrayList<>();
+		this.bcIndexMap = new HashMap<>();
 	}
 
 	/**
@@ -40,38 +44,51 @@ public class Substrate implements Serializable {
 	 */
 	public Substrate(Substrate substrate) throws Exception {
 		this();
-		for (String bcName : substrate.accessiblePoolMap.keySet()) {
-			Pool accessiblePool = substrate.accessiblePoolMap.get(bcName);
-			addAccessiblePool(bcName, accessiblePool.copy());
-		}
-		for (String bcName : substrate.inaccessiblePoolMap.keySet()) {
-			List<Pool> inaccessiblePools = substrate.inaccessiblePoolMap.get(bcName);
-			for (Pool isp : inaccessiblePools) {
-				addInaccessiblePool(bcName, isp.copy());
-			}
-		}
+		for (Pool pool : substrate.poolList)
+			addPool(pool.getBiochemicalClass().getName(), pool.copy());
+	}
+
+	/**
+	 * copyValues(): copies in place the values of all the pools of the given
+	 * substrate, which must have the same pools
+	 */
+	public void copyValues(Substrate substrate) throws Exception {
+		for (Pool pool : poolList)
+			pool.copyValuesY(substrate.getPool(pool.getBiochemicalClass().getIndex(),
+					pool.getAccessibility().getIndex()));
 	}
 
 	/**
 	 * manageInputs() : Add substrate inputs
 	 */
 	public void manageInputs(Parameters p, Context c, State s, double date) throws Exception {
-		List<Pool> poolList = new ArrayList<>(accessiblePoolMap.values());
-		for (String key : inaccessiblePoolMap.keySet()) {
-			poolList.addAll(inaccessiblePoolMap.get(key));
-		}
-
 		for (Pool pool : poolList) {
 			String poolKey = pool.getKey();
 			PoolInput pi = c.getSubstrateInputManager().getPoolInput(p, c, s, poolKey, date);
 			if (pi != null) {
 				// pool = pool + dt*pi
-				DiscreteDistribution temp = DiscreteDistribution.mult(c.getUserTimeStep(), pi);
-				pool.add(temp);
+				pool.axpy(c.getUserTimeStep(), pi);
 			}
 		}
 	}
 
+	/**
+	 * setChecked(): if false, the values of the pools are not checked after each
+	 * operation, see DiscretePositiveDistribution.setChecked()
+	 */
+	public void setChecked(boolean checked) {
+		for (Pool pool : poolList)
+			pool.setChecked(checked);
+	}
+
+	/**
+	 * checkIfNonNegative(): checks the values of all the pools
+	 */
+	public void checkIfNonNegative() throws Exception {
+		for (Pool pool : poolList)
+			pool.checkIfNonNegative();
+	}
+
 	/**
 	 * init(): initialize empty pools of substrate according to parameters
 	 */
@@ -102,9 +119,9 @@ public class Substrate implements Serializable {
 	public void addAccessiblePool(String bcName, Pool pool) throws Exception {
 		if (!pool.isAccessible())
 			throw new Exception("Substrate.addAccessiblePool, pool is not accessible:" + pool);
-		if (accessiblePoolMap.containsKey(bcName))
+		if (getPool(bcName, pool.getAccessibility().getKey()) != null)
 			throw new Exception("Substrate.addAccessiblePool, pool key already exists");
-		this.accessiblePoolMap.put(bcName, pool);
+		store(bcName, pool);
 	}
 
 	/**
@@ -113,34 +130,74 @@ public class Substrate implements Serializable {
 	public void addInaccessiblePool(String bcName, Pool pool) throws Exception {
 		if (pool.isAccessible())
 			throw new Exception("Substrate.addInaccessiblePool, pool is accessible:" + pool);
-		List<Pool> pools = inaccessiblePoolMap.get(bcName);
-		if (pools == null) {
-			pools = new ArrayList<>();
-			inaccessiblePoolMap.put(bcName, pools);
-		}
-		for (Pool p : pools) {
-			if (p.getAccessibility().getStatus().equals(pool.getAccessibility().getStatus()))
-				throw new Exception("Substrate.addInaccessiblePool, pool accessibility cannot be added twice: "
-						+ p.getAccessibility().getStatus());
+		if (getPool(bcName, pool.getAccessibility().getKey()) != null)
+			throw new Exception("Substrate.addInaccessiblePool, pool accessibility cannot be added twice: "
+					+ pool.getAccessibility().getStatus());
+		store(bcName, pool);
+	}
+
+	/**
+	 * store(): the pool is stored at the indices of its biochemical class and
+	 * accessibility
+	 */
+	private void store(String bcName, Pool pool) throws Exception {
+		int bcIndex = pool.getBiochemicalClass().getIndex();
+		if (bcIndex < 0 || !pool.getBiochemicalClass().getName().equals(bcName))
+			throw new Exception("Substrate.store, the biochemical class of the pool is not registered as " + bcName
+					+ " in Parameters: " + pool);
+		if (bcIndex >= pools.length) {
+			Pool[][] newPools = new Pool[bcIndex + 1][];
+			System.arraycopy(pools, 0, newPools, 0, pools.length);
+			pools = newPools;
 		}
-		pools.add(pool);
+		if (pools[bcIndex] == null)
+			pools[bcIndex] = new Pool[SubstrateAccessibility.getCount()];
+		pools[bcIndex][pool.getAccessibility().getIndex()] = pool;
+		poolList.add(pool);
+		bcIndexMap.put(bcName, bcIndex);
 	}
 
 	/**
-	 * getPool()
+	 * getPool(): null if the pool does not exist
+	 */
+	public Pool getPool(int bcIndex, int accessibilityIndex) {
+		if (bcIndex >= pools.length || pools[bcIndex] == null)
+			return null;
+		return pools[bcIndex][accessibilityIndex];
+	}
+
+	/**
+	 * getAccessiblePool()
+	 */
+	public Pool getAccessiblePool(int bcIndex) throws Exception {
+		Pool p = getPool(bcIndex, SubstrateAccessibility.ACCESSIBLE.getIndex());
+		if (p == null)
+			throw new Exception("Substrate.getAccessiblePool, accessible pool does not exist for index: " + bcIndex);
+		return p;
+	}
+
+	/**
+	 * getPools(): all the pools, in the order they were added
+	 */
+	public List<Pool> getPools() {
+		return poolList;
+	}
+
+	/**
+	 * Accessors by name
+	 */
+
+	/**
+	 * getPool(): null if the pool does not exist
 	 */
 	public Pool getPool(String bcName, String accessKey) {
-		if (accessKey.equals(SubstrateAccessibility.ACCESSIBLE.getKey()))
-			return accessiblePoolMap.get(bcName);
-		else {
-			Pool res = null;
-			for (Pool sp : inaccessiblePoolMap.get(bcName)) {
-				if (sp.getAccessibility().getKey().equals(accessKey)) {
-					res = sp;
-					break;
-				}
-			}
-			return res;
+		Integer bcIndex = bcIndexMap.get(bcName);
+		if (bcIndex == null)
+			return null;
+		try {
+			return getPool(bcIndex, SubstrateAccessibility.getSubstrateAccessibility(accessKey).getIndex());
+		} catch (Exception e) {
+			return null; // unknown accessKey
 		}
 	}
 
@@ -148,27 +205,32 @@ public class Substrate implements Serializable {
 	 * getAccessiblePool()
 	 */
 	public Pool getAccessiblePool(String bcName) throws Exception {
-		Pool p = accessiblePoolMap.get(bcName);
+		Pool p = getPool(bcName, SubstrateAccessibility.ACCESSIBLE.getKey());
 		if (p == null)
 			throw new Exception("Substrate.getAccessiblePool, accessible pool does not exist for: " + bcName);
 		return p;
 	}
 
 	/**
-	 * getAccessibleBCNames()
+	 * getAccessibleBCNames(): in the order of the indices
 	 */
 	public Set<String> getAccessibleBCNames() {
-		return accessiblePoolMap.keySet();
+		Set<String> bcNames = new LinkedHashSet<>();
+		for (Pool[] bcPools : pools)
+			if (bcPools != null && bcPools[SubstrateAccessibility.ACCESSIBLE.getIndex()] != null)
+				bcNames.add(bcPools[SubstrateAccessibility.ACCESSIBLE.getIndex()].getBiochemicalClass().getName());
+		return bcNames;
 	}
 
 	/**
-	 * getInaccessiblePools()
+	 * getInaccessiblePools(): in the order they were added
 	 */
 	public List<Pool> getInaccessiblePools(String bcName) {
-		List<Pool> pools = inaccessiblePoolMap.get(bcName);
-		if (pools == null)
-			pools = new ArrayList<>();
-		return pools;
+		List<Pool> inaccessiblePools = new ArrayList<>();
+		for (Pool pool : poolList)
+			if (!pool.isAccessible() && pool.getBiochemicalClass().getName().equals(bcName))
+				inaccessiblePools.add(pool);
+		return inaccessiblePools;
 	}
 
 	/**
@@ -181,10 +243,7 @@ public class Substrate implements Serializable {
 		StringBuffer b = new StringBuffer("--- Substrate");
 
 		b.append(CR);
-		b.append("accessiblePoolMap: " + Format.toString(accessiblePoolMap));
-
-		b.append(CR);
-		b.append("inaccessiblePoolMap: " + Format.toString(inaccessiblePoolMap));
+		b.append("pools: " + Format.toString(poolList));
 
 		b.append(CR);
 		b.append("--- end-of-Substrate");
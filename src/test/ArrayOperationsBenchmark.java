@@ -0,0 +1,109 @@
+package capsis.lib.cstability.test;
+
+import java.util.Random;
+
+import capsis.lib.cstability.util.ArrayOperations;
+
+/**
+ * Comparison of the scalar and vector backends of ArrayOperations: the mean
+ * time of each operation after a warm-up, and the greatest difference of the
+ * results.
+ *
+ * to launch, with the sources of src and src-vector compiled in ./class (see
+ * cstability.sh): java --add-modules jdk.incubator.vector -cp ./class
+ * capsis.lib.cstability.test.ArrayOperationsBenchmark [size]
+ *
+ * @author agent - October 2026
+ */
+
+public class ArrayOperationsBenchmark {
+
+	private static final int WARM_UP_ITERATIONS = 20000;
+	private static final int ITERATIONS = 20000;
+
+	private interface Operation {
+		public double run(ArrayOperations op, double[] a, double[] b, double[] out);
+	}
+
+	private int size;
+	private double[] a;
+	private double[] b;
+	private double[] out;
+	private double sink; // keeps the results alive
+
+	public static void main(String[] args) throws Exception {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		new ArrayOperationsBenchmark(size);
+	}
+
+	/**
+	 * Constructor
+	 */
+	public ArrayOperationsBenchmark(int size) throws Exception {
+		this.size = size;
+
+		Random random = new Random(1);
+		a = new double[size];
+		b = new double[size];
+		out = new double[size];
+		for (int i = 0; i < size; i++) {
+			a[i] = i + random.nextDouble(); // sorted, as values of X
+			b[i] = random.nextDouble();
+		}
+
+		ArrayOperations scalar = ArrayOperations.getScalarOperations();
+		ArrayOperations vector = ArrayOperations.getVectorOperations();
+		if (vector == null)
+			throw new Exception(
+					"ArrayOperationsBenchmark(), vector backend not available, run with --add-modules jdk.incubator.vector");
+
+		System.out.println("ArrayOperationsBenchmark, size: " + size + ", times in ns per call");
+		benchmark("add", scalar, vector, (op, x, y, o) -> {
+			op.add(x, y, o);
+			return o[0];
+		});
+		benchmark("mult", scalar, vector, (op, x, y, o) -> {
+			op.mult(x, y, o);
+			return o[0];
+		});
+		benchmark("mult scalar", scalar, vector, (op, x, y, o) -> {
+			op.mult(0.5, x, o);
+			return o[0];
+		});
+		benchmark("integrateRectangleLeft", scalar, vector, (op, x, y, o) -> op.integrateRectangleLeft(x, y));
+		benchmark("integrateTrapeze", scalar, vector, (op, x, y, o) -> op.integrateTrapeze(x, y));
+		benchmark("dot", scalar, vector, (op, x, y, o) -> op.dot(x, 0, y, 0, size));
+		System.out.println("(sink " + sink + ")");
+	}
+
+	/**
+	 * benchmark()
+	 */
+	private void benchmark(String name, ArrayOperations scalar, ArrayOperations vector, Operation operation) {
+		double scalarTime = time(scalar, operation);
+		double vectorTime = time(vector, operation);
+
+		double scalarResult = operation.run(scalar, a, b, out);
+		double[] scalarOut = out.clone();
+		double vectorResult = operation.run(vector, a, b, out);
+		double difference = Math.abs(vectorResult - scalarResult);
+		for (int i = 0; i < size; i++)
+			difference = Math.max(difference, Math.abs(out[i] - scalarOut[i]));
+
+		System.out.println(String.format("%-24s scalar: %10.1f vector: %10.1f speed-up: %5.2f max difference: %.3e",
+				name, scalarTime, vectorTime, scalarTime / vectorTime, difference));
+	}
+
+	/**
+	 * time(): the mean time of a call in ns, after a warm-up
+	 */
+	private double time(ArrayOperations op, Operation operation) {
+		for (int k = 0; k < WARM_UP_ITERATIONS; k++)
+			sink += operation.run(op, a, b, out);
+		long start = System.nanoTime();
+		for (int k = 0; k < ITERATIONS; k++)
+			sink += operation.run(op, a, b, out);
+		return (double) (System.nanoTime() - start) / ITERATIONS;
+	}
+
+}
@@ -0,0 +1,143 @@
+package capsis.lib.cstability.test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import capsis.lib.cstability.app.EnsembleRunner;
+import capsis.lib.cstability.app.Simulator;
+import capsis.lib.cstability.filereader.SetupFileLoader;
+import capsis.lib.cstability.state.Microbe;
+import capsis.lib.cstability.state.Pool;
+import capsis.lib.cstability.state.State;
+import capsis.lib.cstability.util.Log;
+import capsis.lib.cstability.util.LogSink;
+
+/**
+ * Stress test of simulations run in parallel in the same JVM: the same setup
+ * file, the enzymatic model of TestModel, is loaded and executed by several
+ * threads at the same time, each simulation with its own log sink, then by the
+ * members of an EnsembleRunner.
+ * The final states must be identical to the one of a simulation run alone,
+ * except for a member with a perturbed initial state.
+ *
+ * to launch: java -cp ./class capsis.lib.cstability.test.ConcurrencyStressTest
+ * [threads] [simulations]
+ *
+ * @author agent - October 2026
+ */
+
+public class ConcurrencyStressTest {
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int simulations = args.length > 1 ? Integer.parseInt(args[1]) : 4 * threads;
+		new ConcurrencyStressTest(TestModel.enzymaticModel(0.2, 0.5, 0.4, 0.1, 0.5, 1), threads, simulations);
+	}
+
+	/**
+	 * Constructor
+	 */
+	public ConcurrencyStressTest(String setup, int threads, int simulations) throws Exception {
+
+		double[] expected = run(setup);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<double[]>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < simulations; i++)
+				results.add(executor.submit(() -> run(setup)));
+
+			int failures = 0;
+			for (Future<double[]> result : results)
+				if (!Arrays.equals(expected, result.get()))
+					failures++;
+
+			String message = simulations + " simulations on " + threads + " threads, " + failures
+					+ " different from the sequential simulation";
+			System.out.println("ConcurrencyStressTest, " + (failures == 0 ? "SUCCESS: " : "FAILURE: ") + message);
+		} finally {
+			executor.shutdown();
+		}
+
+		testEnsembleRunner(setup, threads, simulations, expected);
+	}
+
+	/**
+	 * testEnsembleRunner(): the members share the loaded model, the last one
+	 * has a perturbed microbe mass
+	 */
+	private void testEnsembleRunner(String setup, int threads, int simulations, double[] expected)
+			throws Exception {
+
+		LogSink sink = new LogSink(new StringWriter());
+		LogSink previousSink = Log.bind(sink);
+		try {
+			Simulator model = new Simulator();
+			SetupFileLoader sfl = TestModel.load(model, setup);
+			EnsembleRunner runner = new EnsembleRunner(model, sfl.getContext(), sfl.getObserverList());
+			for (int i = 0; i < simulations - 1; i++)
+				runner.addMember("member_" + i, null, null);
+			EnsembleRunner.Member perturbed = runner.addMember("perturbed", m -> {
+				Microbe microbe = m.getInitialState().getMicrobes().get(0);
+				microbe.setMass(1.1 * microbe.getMass());
+			}, null);
+			runner.execute(threads);
+
+			int failures = 0;
+			for (EnsembleRunner.Member m : runner.getMembers())
+				if (Arrays.equals(expected, getValues(m.getFinalState())) == (m == perturbed))
+					failures++;
+
+			String message = simulations + " ensemble members on " + threads + " threads, " + failures
+					+ " unexpected final states";
+			System.out.println("ConcurrencyStressTest, " + (failures == 0 ? "SUCCESS: " : "FAILURE: ") + message);
+		} finally {
+			Log.bind(previousSink);
+		}
+	}
+
+	/**
+	 * run(): loads and executes a simulation, returns the values of its final
+	 * state
+	 */
+	private double[] run(String setup) throws Exception {
+
+		LogSink sink = new LogSink(new StringWriter());
+		LogSink previousSink = Log.bind(sink);
+		try {
+			Simulator simulator = new Simulator();
+			SetupFileLoader sfl = TestModel.load(simulator, setup);
+			sfl.getContext().setLogSink(sink);
+			simulator.execute(sfl.getContext(), sfl.getObserverList());
+
+			return getValues(simulator.getCurrentState());
+		} finally {
+			Log.bind(previousSink);
+		}
+	}
+
+	/**
+	 * getValues(): the values of the pools, the masses of the microbes and the
+	 * respiration of the state
+	 */
+	private double[] getValues(State s) {
+		List<Double> values = new ArrayList<>();
+		for (Pool pool : s.getSubstrate().getPools())
+			for (double y : pool.getValuesY())
+				values.add(y);
+		for (Microbe m : s.getMicrobes())
+			values.add(m.getMass());
+		values.add(s.getRespiration());
+
+		double[] array = new double[values.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = values.get(i);
+		return array;
+	}
+
+}
@@ -1,7 +1,66 @@
 package capsis.lib.cstability.test;
 
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import capsis.lib.cstability.app.EnsembleRunner;
+import capsis.lib.cstability.app.Simulator;
+import capsis.lib.cstability.context.Context;
+import capsis.lib.cstability.context.poolinput.ConstantInputFunction;
+import capsis.lib.cstability.distribution.DiscreteDistribution;
 import capsis.lib.cstability.distribution.DiscretePositiveDistribution;
+import capsis.lib.cstability.filereader.Decodable;
+import capsis.lib.cstability.filereader.SetupFileLoader;
+import capsis.lib.cstability.function.Constant;
+import capsis.lib.cstability.function.EnzymaticLinearTransfer;
+import capsis.lib.cstability.function.Function;
+import capsis.lib.cstability.function.Gaussian;
+import capsis.lib.cstability.function.GaussianTruncatedNormalized;
+import capsis.lib.cstability.function.GaussianTruncatedProportionalized;
+import capsis.lib.cstability.function.KernelAlpha;
+import capsis.lib.cstability.function.Linear;
+import capsis.lib.cstability.function.PrimitiveAvailable;
+import capsis.lib.cstability.function.UniformLinear;
+import capsis.lib.cstability.function.util.EnzymeKernelMatrix;
+import capsis.lib.cstability.function.util.OneVariable;
+import capsis.lib.cstability.function.util.TwoVariables;
+import capsis.lib.cstability.function.util.Variables;
+import capsis.lib.cstability.function.util.ZeroVariable;
+import capsis.lib.cstability.integrator.AffinePoolOperator;
+import capsis.lib.cstability.integrator.AffinePropagator;
+import capsis.lib.cstability.integrator.DormandPrinceIntegrator;
+import capsis.lib.cstability.integrator.ExponentialIntegrator;
+import capsis.lib.cstability.integrator.ImexEulerIntegrator;
+import capsis.lib.cstability.integrator.OdeSystem;
+import capsis.lib.cstability.integrator.PeriodicSteadyStateSolver;
+import capsis.lib.cstability.integrator.SteadyStateSolver;
+import capsis.lib.cstability.observer.ObserverList;
+import capsis.lib.cstability.parameter.BiochemicalClass;
+import capsis.lib.cstability.parameter.EnzymeProductionIndex;
+import capsis.lib.cstability.parameter.EnzymeTraits;
+import capsis.lib.cstability.parameter.MicrobeSpecies;
+import capsis.lib.cstability.parameter.Parameters;
+import capsis.lib.cstability.parameter.Polymerization;
+import capsis.lib.cstability.state.EnzymaticOperator;
+import capsis.lib.cstability.state.Pool;
+import capsis.lib.cstability.state.State;
+import capsis.lib.cstability.util.ArrayOperations;
+import capsis.lib.cstability.util.BandedStorage;
+import capsis.lib.cstability.util.ForkJoin;
+import capsis.lib.cstability.util.Grid;
 import capsis.lib.cstability.util.Interval;
+import capsis.lib.cstability.util.Log;
+import capsis.lib.cstability.util.LogSink;
+import capsis.lib.cstability.util.LowRankStorage;
+import capsis.lib.cstability.util.Matrix;
+import capsis.lib.cstability.util.MatrixStorage;
+import capsis.lib.cstability.util.SeparableStorage;
+import capsis.lib.cstability.util.SparseStorage;
+import capsis.lib.cstability.util.UpperTriangularStorage;
 
 /**
  * Test of cstability library.
@@ -24,7 +83,12 @@ public class CstabilityTest {
 	 */
 	public CstabilityTest () throws Exception {
 		testUtil();
+		testDistribution();
 		testState();
+		testParameter();
+		testFunction();
+		testIntegrator();
+		testApp();
 	}
 	
 	/**
@@ -60,7 +124,273 @@ public class CstabilityTest {
 		} else {
 			print(packageName, className, methodName, !SUCCESS, testDescription);
 		}
-			
+
+		/*
+		 * Grid
+		 */
+		className = "Grid";
+
+		methodName = "isUniform";
+		testDescription = "uniform and non uniform grids expected";
+		double[] uniformValues = new double[11];
+		for (int i = 0; i < uniformValues.length; i++)
+			uniformValues[i] = 0.1 * i;
+		Grid uniformGrid = Grid.of(uniformValues);
+		Grid grid = Grid.of(new double[] { 0, 1, 3, 7, 8 });
+		print(packageName, className, methodName, uniformGrid.isUniform() && !grid.isUniform(), testDescription);
+
+		methodName = "of";
+		testDescription = "the same grid for the same values expected";
+		print(packageName, className, methodName,
+				Grid.of(uniformValues.clone()) == uniformGrid && Grid.of(uniformValues) == uniformGrid, testDescription);
+
+		testDescription = "the grid of the new values of a modified and reused array expected";
+		double[] reusedX = { 0, 1, 2, 3 };
+		double[] ones = { 1, 1, 1, 1 };
+		DiscreteDistribution before = new DiscreteDistribution(reusedX, ones, DiscreteDistribution.INTEGRATION_TRAPEZE);
+		for (int i = 0; i < reusedX.length; i++)
+			reusedX[i] *= 10;
+		DiscreteDistribution after = new DiscreteDistribution(reusedX, ones, DiscreteDistribution.INTEGRATION_TRAPEZE);
+		print(packageName, className, methodName,
+				before.getIntegral() == 3 && after.getIntegral() == 30 && Arrays.equals(after.getValuesX(), reusedX)
+						&& Grid.of(reusedX) == after.getGrid() && Grid.of(new double[] { 0, 1, 2, 3 }) == before.getGrid(),
+				testDescription);
+
+		methodName = "getPreviousIndex";
+		testDescription = "same indices as a linear scan expected";
+		boolean success = true;
+		for (double x = 0; x < 1; x += 0.01) {
+			int index = 0;
+			for (int i = 0; i < uniformValues.length - 1; ++i)
+				if (uniformValues[i] <= x && x < uniformValues[i + 1])
+					index = i;
+			success &= uniformGrid.getPreviousIndex(x) == index;
+		}
+		success &= grid.getPreviousIndex(3) == 2 && grid.getPreviousIndex(6.9) == 2 && grid.getPreviousIndex(8) == 3;
+		print(packageName, className, methodName, success, testDescription);
+
+		methodName = "getNextIndex";
+		testDescription = "2, 3 and 0 expected";
+		print(packageName, className, methodName,
+				grid.getNextIndex(3) == 2 && grid.getNextIndex(3.1) == 3 && grid.getNextIndex(0) == 0,
+				testDescription);
+
+		methodName = "getIndex";
+		testDescription = "3 and -1 expected";
+		print(packageName, className, methodName, uniformGrid.getIndex(0.1 * 3) == 3 && grid.getIndex(2) == -1,
+				testDescription);
+
+		/*
+		 * ArrayOperations
+		 */
+		className = "ArrayOperations";
+
+		methodName = "getVectorOperations";
+		ArrayOperations scalarOperations = ArrayOperations.getScalarOperations();
+		ArrayOperations vectorOperations = ArrayOperations.getVectorOperations();
+		if (vectorOperations == null) {
+			testDescription = "same results as the scalar backend within 1e-12 expected, vector backend not available";
+			printSkipped(packageName, className, methodName, testDescription);
+		} else {
+			testDescription = "same results as the scalar backend within 1e-12 expected";
+			Random random = new Random(1);
+			success = true;
+			for (int n : new int[] { 1, 2, 7, 33, 201 }) {
+				double[] x = new double[n];
+				double[] y = new double[n];
+				for (int i = 0; i < n; i++) {
+					x[i] = (i == 0 ? 0 : x[i - 1]) + random.nextDouble();
+					y[i] = random.nextDouble() - 0.5;
+				}
+				double[] scalarOut = new double[n];
+				double[] vectorOut = new double[n];
+				scalarOperations.add(x, y, scalarOut);
+				vectorOperations.add(x, y, vectorOut);
+				success &= Arrays.equals(scalarOut, vectorOut);
+				scalarOperations.mult(x, y, scalarOut);
+				vectorOperations.mult(x, y, vectorOut);
+				success &= Arrays.equals(scalarOut, vectorOut);
+				scalarOperations.axpy(0.3, x, scalarOut);
+				vectorOperations.axpy(0.3, x, vectorOut);
+				success &= Arrays.equals(scalarOut, vectorOut);
+				success &= Math.abs(scalarOperations.integrateTrapeze(x, y)
+						- vectorOperations.integrateTrapeze(x, y)) <= 1e-12 * n;
+				success &= Math.abs(scalarOperations.integrateRectangleLeft(x, y)
+						- vectorOperations.integrateRectangleLeft(x, y)) <= 1e-12 * n;
+				success &= Math.abs(scalarOperations.integrateRectangleRight(x, y)
+						- vectorOperations.integrateRectangleRight(x, y)) <= 1e-12 * n;
+				success &= Math.abs(scalarOperations.dot(x, 0, y, 0, n) - vectorOperations.dot(x, 0, y, 0, n))
+						<= 1e-12 * n * x[n - 1];
+			}
+			print(packageName, className, methodName, success, testDescription);
+		}
+
+		/*
+		 * ForkJoin
+		 */
+		className = "ForkJoin";
+		List<Integer> elements = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+			elements.add(i);
+		ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+
+		methodName = "forEach";
+		testDescription = "exception of the first failing element in the order of the collection expected";
+		try {
+			ForkJoin.forEach(forkJoinPool, elements, i -> {
+				if (i == 13)
+					throw new Exception("element 13");
+				if (i == 7) {
+					Thread.sleep(50);
+					throw new Exception("element 7");
+				}
+			});
+			print(packageName, className, methodName, !SUCCESS, testDescription);
+		} catch (Exception e) {
+			print(packageName, className, methodName, e.getMessage().equals("element 7"), testDescription);
+		}
+
+		testDescription = "lines of the tasks in the log sink of the caller expected";
+		StringWriter writer = new StringWriter();
+		LogSink previousSink = Log.bind(new LogSink(writer));
+		try {
+			ForkJoin.forEach(forkJoinPool, elements, i -> Log.println("task", "element " + i));
+		} finally {
+			Log.bind(previousSink);
+		}
+		List<String> lines = Arrays.asList(writer.toString().split(System.lineSeparator()));
+		success = lines.size() == elements.size();
+		for (int i : elements)
+			success &= lines.contains("task, element " + i);
+		print(packageName, className, methodName, success, testDescription);
+		forkJoinPool.shutdown();
+
+		/*
+		 * Matrix
+		 */
+		className = "Matrix";
+		Random random = new Random(2);
+		Matrix a = new Matrix(3, 4);
+		Matrix b = new Matrix(4, 2);
+		for (int i = 0; i < 3; i++)
+			for (int j = 0; j < 4; j++)
+				a.set(i, j, random.nextDouble() - 0.5);
+		for (int i = 0; i < 4; i++)
+			for (int j = 0; j < 2; j++)
+				b.set(i, j, random.nextDouble() - 0.5);
+
+		methodName = "product";
+		testDescription = "same values as the sums of products of lines and columns expected";
+		Matrix ab = Matrix.product(a, b);
+		success = ab.getNLines() == 3 && ab.getNColumns() == 2;
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 2; j++) {
+				double sum = 0;
+				for (int k = 0; k < 4; k++)
+					sum += a.get(i, k) * b.get(k, j);
+				success &= Math.abs(ab.get(i, j) - sum) <= 1e-15;
+			}
+		}
+		print(packageName, className, methodName, success, testDescription);
+
+		methodName = "multiplyAdd";
+		testDescription = "y + 2 * a.x with the values of the product by a column expected";
+		double[] column = Matrix.columnToArray(b.getColumn(0));
+		double[] product = Matrix.columnToArray(Matrix.product(a, b.getColumn(0)));
+		double[] y = { 1, 2, 3 };
+		a.multiplyAdd(2, column, y);
+		success = true;
+		for (int i = 0; i < 3; i++)
+			success &= Math.abs(y[i] - (i + 1 + 2 * product[i])) <= 1e-15;
+		print(packageName, className, methodName, success, testDescription);
+
+		methodName = "exponential";
+		testDescription = "exponentials of a diagonal and of a nilpotent matrix expected";
+		Matrix exponential = Matrix.exponential(Matrix.diagonal(new double[] { -30, 0, 2 }));
+		success = Math.abs(exponential.get(0, 0) / Math.exp(-30) - 1) < 1e-12 && exponential.get(1, 1) == 1
+				&& Math.abs(exponential.get(2, 2) / Math.exp(2) - 1) < 1e-12 && exponential.get(0, 2) == 0;
+		Matrix nilpotent = new Matrix(2);
+		nilpotent.set(0, 1, 3);
+		exponential = Matrix.exponential(nilpotent);
+		success &= Math.abs(exponential.get(0, 0) - 1) < 1e-15 && Math.abs(exponential.get(0, 1) - 3) < 1e-14
+				&& exponential.get(1, 0) == 0 && Math.abs(exponential.get(1, 1) - 1) < 1e-15;
+		print(packageName, className, methodName, success, testDescription);
+
+		methodName = "gaussianElimination";
+		testDescription = "residual of the solution below 1e-12 expected";
+		int n = 6;
+		double[][] system = new double[n][n];
+		double[][] systemCopy = new double[n][];
+		double[] rhs = new double[n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++)
+				system[i][j] = random.nextDouble() - 0.5;
+			systemCopy[i] = system[i].clone();
+			rhs[i] = random.nextDouble();
+		}
+		double[] solution = rhs.clone();
+		Matrix.gaussianElimination(system, solution);
+		success = true;
+		for (int i = 0; i < n; i++) {
+			double sum = 0;
+			for (int j = 0; j < n; j++)
+				sum += systemCopy[i][j] * solution[j];
+			success &= Math.abs(sum - rhs[i]) < 1e-12;
+		}
+		print(packageName, className, methodName, success, testDescription);
+
+		/*
+		 * MatrixStorage
+		 */
+		className = "MatrixStorage";
+		Matrix triangular = new Matrix(8);
+		Matrix banded = new Matrix(8);
+		Matrix sparse = new Matrix(8);
+		for (int i = 0; i < 8; i++) {
+			for (int j = i; j < 8; j++)
+				triangular.set(i, j, random.nextDouble() - 0.5);
+			for (int j = Math.max(0, i - 1); j < Math.min(8, i + 2); j++)
+				banded.set(i, j, random.nextDouble() - 0.5);
+		}
+		sparse.set(0, 7, 1.5);
+		sparse.set(7, 0, -2);
+		sparse.set(3, 3, 0.25);
+		sparse.set(5, 1, 3);
+
+		methodName = "detect";
+		testDescription = "upper triangular, banded and sparse storages with the products of the matrices expected";
+		MatrixStorage triangularStorage = MatrixStorage.detect(triangular);
+		MatrixStorage bandedStorage = MatrixStorage.detect(banded);
+		MatrixStorage sparseStorage = MatrixStorage.detect(sparse);
+		success = triangularStorage instanceof UpperTriangularStorage && bandedStorage instanceof BandedStorage
+				&& sparseStorage instanceof SparseStorage && triangularStorage.isUpperTriangular()
+				&& !bandedStorage.isUpperTriangular() && !sparseStorage.isUpperTriangular();
+		success &= isStorageOf(triangularStorage, triangular, random) && isStorageOf(bandedStorage, banded, random)
+				&& isStorageOf(sparseStorage, sparse, random);
+		print(packageName, className, methodName, success, testDescription);
+
+		testDescription = "storages of the matrices of size 1 and 2 expected";
+		Matrix one = new Matrix(1);
+		one.set(0, 0, 2);
+		Matrix upper = new Matrix(2);
+		upper.set(0, 0, 1);
+		upper.set(0, 1, -3);
+		upper.set(1, 1, 0.5);
+		Matrix diagonal = Matrix.diagonal(new double[] { 4, -1 });
+		Matrix full = upper.clone();
+		full.set(1, 0, 2);
+		success = MatrixStorage.detect(one) == null && MatrixStorage.detect(full) == null
+				&& MatrixStorage.detect(upper) instanceof UpperTriangularStorage
+				&& MatrixStorage.detect(diagonal) instanceof BandedStorage;
+		for (Matrix m : new Matrix[] { one, upper, diagonal }) {
+			success &= isStorageOf(new UpperTriangularStorage(m), m, random)
+					&& isStorageOf(new BandedStorage(m, 0, m.getNLines() - 1), m, random)
+					&& isStorageOf(new SparseStorage(m), m, random);
+		}
+		success &= isStorageOf(new BandedStorage(full, 1, 1), full, random)
+				&& isStorageOf(new SparseStorage(full), full, random);
+		print(packageName, className, methodName, success, testDescription);
+
 		/*
 		 * DiscretePositiveDistribution
 		 */
@@ -74,14 +404,1109 @@ public class CstabilityTest {
 		//		
 	}
 
+	/**
+	 * testDistribution()
+	 */
+	private void testDistribution() throws Exception {
+		String packageName = "distribution";
+		String className = "";
+		String methodName = "";
+		String testDescription = "";
+
+		/*
+		 * DiscreteDistribution
+		 */
+		className = "DiscreteDistribution";
+
+		// y = x on [0, 1]
+		double[] valuesX = new double[11];
+		for (int i = 0; i < valuesX.length; i++)
+			valuesX[i] = 0.1 * i;
+		DiscreteDistribution dd = new DiscreteDistribution(valuesX, valuesX.clone(),
+				DiscreteDistribution.INTEGRATION_TRAPEZE);
+
+		methodName = "getIntegral";
+		testDescription = "integral on the whole interval expected";
+		double integral = dd.getIntegral(new Interval<Double>(0d, 1d));
+		print(packageName, className, methodName, Math.abs(integral - dd.getIntegral()) < 1e-12, testDescription);
+
+		testDescription = "0.25 expected on [0.25, 0.75]";
+		integral = dd.getIntegral(new Interval<Double>(0.25, 0.75));
+		print(packageName, className, methodName, Math.abs(integral - 0.25) < 1e-12, testDescription);
+
+		testDescription = "0.00825 expected on [0.02, 0.13]";
+		integral = dd.getIntegral(new Interval<Double>(0.02, 0.13));
+		print(packageName, className, methodName, Math.abs(integral - 0.00825) < 1e-12, testDescription);
+
+		methodName = "add";
+		testDescription = "updated integral on [0.25, 0.75] expected";
+		dd.add(dd.clone());
+		integral = dd.getIntegral(new Interval<Double>(0.25, 0.75));
+		print(packageName, className, methodName, Math.abs(integral - 0.5) < 1e-12, testDescription);
+
+		methodName = "substractAndIntegrate";
+		testDescription = "same integral as substract() then getIntegral() expected";
+		DiscreteDistribution other = dd.clone();
+		double fusedIntegral = dd.substractAndIntegrate(DiscreteDistribution.mult(0.3, dd));
+		other.substract(DiscreteDistribution.mult(0.3, other));
+		print(packageName, className, methodName, fusedIntegral == other.getIntegral(), testDescription);
+
+		methodName = "axpy";
+		testDescription = "same values as add(mult()) expected";
+		DiscreteDistribution expected = DiscreteDistribution.add(other, DiscreteDistribution.mult(0.7, dd));
+		other.axpy(0.7, dd);
+		print(packageName, className, methodName,
+				Arrays.equals(other.getValuesY(), expected.getValuesY())
+						&& other.getIntegral() == expected.getIntegral(),
+				testDescription);
+
+		methodName = "integrateProduct";
+		testDescription = "same integral as mult().getIntegral() expected";
+		print(packageName, className, methodName,
+				DiscreteDistribution.integrateProduct(dd, other) == DiscreteDistribution.mult(dd, other).getIntegral(),
+				testDescription);
+
+		methodName = "copyValuesY";
+		testDescription = "exception for a source on another grid of the same length expected";
+		double[] shiftedX = new double[valuesX.length];
+		for (int i = 0; i < shiftedX.length; i++)
+			shiftedX[i] = valuesX[i] + 1;
+		try {
+			other.copyValuesY(new DiscreteDistribution(shiftedX, valuesX.clone(),
+					DiscreteDistribution.INTEGRATION_TRAPEZE));
+			print(packageName, className, methodName, !SUCCESS, testDescription);
+		} catch (Exception e) {
+			print(packageName, className, methodName, SUCCESS, testDescription);
+		}
+
+		testDescription = "exception for a source with another integrationMethod expected";
+		try {
+			other.copyValuesY(new DiscreteDistribution(valuesX, valuesX.clone(),
+					DiscreteDistribution.INTEGRATION_RECTANGLE_LEFT));
+			print(packageName, className, methodName, !SUCCESS, testDescription);
+		} catch (Exception e) {
+			print(packageName, className, methodName, SUCCESS, testDescription);
+		}
+
+		methodName = "add";
+		testDescription = "integrationMethod read from a file accepted in a destination-passing operation expected";
+		DiscreteDistribution parsed = new DiscreteDistribution(valuesX, valuesX.clone(),
+				new String(DiscreteDistribution.INTEGRATION_TRAPEZE.toCharArray()));
+		DiscreteDistribution sum = DiscreteDistribution.getZeroDiscreteDistribution(dd);
+		DiscreteDistribution.add(dd, parsed, sum);
+		boolean success = true;
+		for (int i = 0; i < valuesX.length; i++)
+			success &= sum.getValuesY()[i] == dd.getValuesY()[i] + valuesX[i];
+		print(packageName, className, methodName, success, testDescription);
+
+		testDescription = "exception for a destination with another integrationMethod expected";
+		try {
+			DiscreteDistribution.add(dd, parsed, new DiscreteDistribution(valuesX, new double[valuesX.length],
+					DiscreteDistribution.INTEGRATION_RECTANGLE_LEFT));
+			print(packageName, className, methodName, !SUCCESS, testDescription);
+		} catch (Exception e) {
+			print(packageName, className, methodName, SUCCESS, testDescription);
+		}
+
+		methodName = "apply";
+		testDescription = "same values and partial integral as apply() expected in a destination applied again";
+		DiscreteDistribution applied = DiscreteDistribution.getZeroDiscreteDistribution(dd);
+		DiscreteDistribution.apply(dd, null, null, null, new Linear(2), applied);
+		applied.getIntegral(new Interval<Double>(0.25, 0.75));
+		DiscreteDistribution.apply(dd, null, null, null, new Linear(3), applied);
+		expected = DiscreteDistribution.apply(dd, null, null, null, new Linear(3));
+		print(packageName, className, methodName,
+				Arrays.equals(applied.getValuesY(), expected.getValuesY())
+						&& applied.getIntegral(new Interval<Double>(0.25, 0.75)) == expected
+								.getIntegral(new Interval<Double>(0.25, 0.75)),
+				testDescription);
+
+		/*
+		 * DiscretePositiveDistribution
+		 */
+		className = "DiscretePositiveDistribution";
+
+		methodName = "setChecked";
+		testDescription = "negative values accepted by an unchecked copy, then detected by checkIfNonNegative()";
+		DiscretePositiveDistribution dpd = new DiscretePositiveDistribution(valuesX, valuesX.clone(),
+				DiscreteDistribution.INTEGRATION_TRAPEZE);
+		dpd.setChecked(false);
+		DiscretePositiveDistribution copy = dpd.clone();
+		DiscreteDistribution negative = DiscreteDistribution.mult(-2, dd);
+		copy.add(negative);
+		try {
+			copy.checkIfNonNegative();
+			print(packageName, className, methodName, !SUCCESS, testDescription);
+		} catch (Exception e) {
+			print(packageName, className, methodName, !copy.isChecked(), testDescription);
+		}
+
+		methodName = "mult";
+		testDescription = "negative values rejected in a checked destination, accepted in an unchecked one";
+		DiscretePositiveDistribution checkedDst = new DiscretePositiveDistribution(valuesX, valuesX.clone(),
+				DiscreteDistribution.INTEGRATION_TRAPEZE);
+		try {
+			DiscreteDistribution.mult(-1, dd, checkedDst);
+			success = false;
+		} catch (Exception e) {
+			success = true;
+		}
+		DiscreteDistribution.mult(-1, dd, dpd);
+		print(packageName, className, methodName, success && dpd.getValuesY()[1] < 0, testDescription);
+
+		methodName = "axpy";
+		testDescription = "same negative values after axpy(-1) as after substract() in a checked distribution, rejected at the next addition expected";
+		DiscretePositiveDistribution checkedY = new DiscretePositiveDistribution(valuesX, valuesX.clone(),
+				DiscreteDistribution.INTEGRATION_TRAPEZE);
+		DiscretePositiveDistribution substracted = checkedY.clone();
+		DiscreteDistribution twice = DiscreteDistribution.mult(2, dd);
+		checkedY.axpy(-1, twice);
+		substracted.substract(twice);
+		success = Arrays.equals(checkedY.getValuesY(), substracted.getValuesY()) && checkedY.getValuesY()[1] < 0;
+		try {
+			checkedY.add(DiscreteDistribution.mult(0, dd));
+			print(packageName, className, methodName, !SUCCESS, testDescription);
+		} catch (Exception e) {
+			print(packageName, className, methodName, success, testDescription);
+		}
+
+		className = "DiscreteDistribution";
+		testDescription = "exception for a matrix product in a destination sharing the values of the operand";
+		DiscreteDistribution sharing = new DiscreteDistribution(valuesX, dd.getValuesY(),
+				DiscreteDistribution.INTEGRATION_TRAPEZE);
+		try {
+			DiscreteDistribution.mult(Matrix.eye(valuesX.length), dd, sharing);
+			print(packageName, className, methodName, !SUCCESS, testDescription);
+		} catch (Exception e) {
+			print(packageName, className, methodName, SUCCESS, testDescription);
+		}
+	}
+
 	private void testState() throws Exception {
 		String packageName = "state";
+		String className = "";
+		String methodName = "";
+		String testDescription = "";
+
+		/*
+		 * State
+		 */
+		className = "State";
+		Simulator sim = new Simulator();
+		SetupFileLoader sfl = TestModel.load(sim, TestModel.enzymaticModel(0.2, 0.5, 0.4, 0.1, 0.5, 1));
+		State state = sim.getCurrentState();
+
+		methodName = "copy";
+		testDescription = "same values and independent pools expected";
+		State copy = state.copy();
+		Pool pool = state.getSubstrate().getAccessiblePool(TestModel.SUGAR);
+		Pool poolCopy = copy.getSubstrate().getAccessiblePool(TestModel.SUGAR);
+		boolean success = copy.getDate() == state.getDate() && copy.getRespiration() == state.getRespiration()
+				&& copy.getMicrobe(TestModel.MICROBE).getMass() == state.getMicrobe(TestModel.MICROBE).getMass()
+				&& Arrays.equals(poolCopy.getValuesY(), pool.getValuesY())
+				&& Arrays.equals(copy.getEnzyme(TestModel.ENZYME).getDepolymerizationRate().getValuesY(),
+						state.getEnzyme(TestModel.ENZYME).getDepolymerizationRate().getValuesY());
+		double value = pool.getValuesY()[1];
+		poolCopy.getValuesY()[1] = value + 1;
+		success &= pool.getValuesY()[1] == value;
+		print(packageName, className, methodName, success, testDescription);
+
+		methodName = "reset";
+		testDescription = "cleared respiration, then same respiration after a new evaluation expected";
+		copy = state.copy();
+		copy.reset(state.getDate() + 1);
+		success = copy.getDate() == state.getDate() + 1 && copy.getRespiration() == 0
+				&& copy.getMicrobe(TestModel.MICROBE).getRespiration() == 0;
+		copy.evaluate(copy.getSubstrate(), sim.getParameters(), sfl.getContext());
+		success &= copy.getRespiration() == state.getRespiration();
+		print(packageName, className, methodName, success, testDescription);
+	}
+
+	/**
+	 * testParameter()
+	 */
+	private void testParameter() throws Exception {
+		String packageName = "parameter";
+		String className = "";
+		String methodName = "";
+		String testDescription = "";
+
+		/*
+		 * Parameters
+		 */
+		className = "Parameters";
+		String setup = TestModel.unbalancedModel(0.2, 0.5, 0.4, 0.1);
+		Simulator sim = new Simulator();
+		SetupFileLoader sfl = TestModel.load(sim, setup);
+		Parameters p = sim.getParameters();
+
+		methodName = "addBiochemicalClass";
+		testDescription = "same dense id for a class added again with the same name expected";
+		int sugarIndex = p.getBiochemicalClassIndex(TestModel.SUGAR);
+		int waxIndex = p.getBiochemicalClassIndex(TestModel.WAX);
+		BiochemicalClass sugar = p.getBiochemicalClassMap().get(TestModel.SUGAR);
+		BiochemicalClass sugarAgain = new BiochemicalClass(TestModel.SUGAR, sugar.getPolymerization());
+		p.addBiochemicalClass(sugarAgain);
+		boolean success = sugarIndex != waxIndex && sugarAgain.getIndex() == sugarIndex
+				&& p.getBiochemicalClassIndex(TestModel.WAX) == waxIndex && p.getBiochemicalClasses().size() == 2
+				&& p.getBiochemicalClasses().get(sugarIndex) == sugarAgain
+				&& p.getBiochemicalClassMap().get(TestModel.SUGAR) == sugarAgain;
+		p.addBiochemicalClass(sugar);
+		success &= sugar.getIndex() == sugarIndex && p.getBiochemicalClasses().get(sugarIndex) == sugar;
+		print(packageName, className, methodName, success, testDescription);
+
+		methodName = "addMicrobeSpecies";
+		testDescription = "same dense id and same outputs for a species added again with the same name expected";
+		MicrobeSpecies species = p.getMicrobeSpeciesMap().get(TestModel.MICROBE);
+		int speciesIndex = species.getIndex();
+		MicrobeSpecies speciesAgain = species.copy();
+		p.addMicrobeSpecies(speciesAgain);
+		success = speciesAgain.getIndex() == speciesIndex && p.getMicrobeSpeciesList().size() == 1
+				&& p.getMicrobeSpeciesList().get(speciesIndex) == speciesAgain
+				&& p.getMicrobeSpeciesMap().get(TestModel.MICROBE) == speciesAgain;
+		for (int bcIndex : new int[] { sugarIndex, waxIndex })
+			success &= speciesAgain.getSignature(bcIndex) == species.getSignature(bcIndex)
+					&& speciesAgain.getUptakeFluxFunction(bcIndex) == species.getUptakeFluxFunction(bcIndex);
+		OdeSystem system = getOdeSystem(sim, sfl.getContext());
+		sim.execute(sfl.getContext(), new ObserverList());
+		double[] y = new double[system.getSize()];
+		system.pack(sim.getCurrentState(), y);
+		success &= Arrays.equals(y, execute(setup));
+		print(packageName, className, methodName, success, testDescription);
+
+		methodName = "addBiochemicalClass";
+		testDescription = "no signature nor assimilation of a species for a class added after the species expected";
+		BiochemicalClass lignin = new BiochemicalClass("lignin", sugar.getPolymerization());
+		p.addBiochemicalClass(lignin);
+		success = lignin.getIndex() == 2 && speciesAgain.getSignature(lignin.getIndex()) == null
+				&& speciesAgain.getUptakeFluxFunction(lignin.getIndex()) == null
+				&& !speciesAgain.assimilates(lignin.getIndex())
+				&& speciesAgain.getSignature(sugarIndex) == species.getSignature(sugarIndex);
+		print(packageName, className, methodName, success, testDescription);
+
+		className = "MicrobeSpecies";
+		methodName = "addSignatureElement";
+		testDescription = "exception expected for a species registered in Parameters";
+		try {
+			speciesAgain.addSignatureElement("lignin", speciesAgain.getSignature(sugarIndex));
+			print(packageName, className, methodName, !SUCCESS, testDescription);
+		} catch (Exception e) {
+			print(packageName, className, methodName, SUCCESS, testDescription);
+		}
+
+		/*
+		 * EnzymeProductionIndex
+		 */
+		className = "EnzymeProductionIndex";
+		sim = new Simulator();
+		sfl = TestModel.load(sim, TestModel.enzymaticModel(0.2, 0.5, 0.4, 0.1, 0.5, 1));
+		p = sim.getParameters();
+		species = p.getMicrobeSpeciesMap().get(TestModel.MICROBE);
+		EnzymeTraits enzyme = p.getEnzymeTraitsMap().get(TestModel.ENZYME);
+		int enzymeIndex = enzyme.getIndex();
+
+		methodName = "constructor";
+		testDescription = "same producer for an enzyme traits added again with the same name expected";
+		p.addEnzymeTraits(enzyme);
+		EnzymeProductionIndex index = p.getEnzymeProductionIndex();
+		int k = index.getStart(enzymeIndex);
+		success = enzyme.getIndex() == enzymeIndex && p.getEnzymeTraitsList().size() == 1
+				&& index.getEnd(enzymeIndex) == k + 1 && index.getProducerIndex(k) == species.getIndex()
+				&& index.getProductionFunction(k) == species.getEnzymeProductionMap().get(TestModel.ENZYME);
+		print(packageName, className, methodName, success, testDescription);
+
+		testDescription = "a single producer with the new production function for a species added again expected";
+		speciesAgain = species.copy();
+		Function productionFunction = species.getMortalityFunction(); // linear(0.1)
+		speciesAgain.getEnzymeProductionMap().put(TestModel.ENZYME, productionFunction);
+		p.addMicrobeSpecies(speciesAgain);
+		index = p.getEnzymeProductionIndex();
+		k = index.getStart(enzymeIndex);
+		success = index.getEnd(enzymeIndex) == k + 1 && index.getProducerIndex(k) == species.getIndex()
+				&& index.getProductionFunction(k) == productionFunction;
+		State initialState = sim.getCurrentState(); // evaluated at load with the previous production
+		initialState.reset(initialState.getDate());
+		initialState.evaluate(initialState.getSubstrate(), p, sfl.getContext());
+		system = getOdeSystem(sim, sfl.getContext());
+		sim.execute(sfl.getContext(), new ObserverList());
+		y = new double[system.getSize()];
+		system.pack(sim.getCurrentState(), y);
+		success &= Arrays.equals(y, execute(TestModel.enzymaticModel(0.2, 0.5, 0.4, 0.1, 0.1, 1)));
+		print(packageName, className, methodName, success, testDescription);
+	}
+
+	/**
+	 * testFunction()
+	 */
+	private void testFunction() throws Exception {
+		String packageName = "function.util";
+		String className = "";
+		String methodName = "";
+		String testDescription = "";
+
+		/*
+		 * EnzymeKernelMatrix
+		 */
+		className = "EnzymeKernelMatrix";
+
+		methodName = "constructor";
+		testDescription = "separable storage with the products and column sums of the dense kernel expected";
+		boolean success = true;
+		Random random = new Random(1);
+		String[] integrationMethods = { DiscreteDistribution.INTEGRATION_TRAPEZE,
+				DiscreteDistribution.INTEGRATION_RECTANGLE_LEFT, DiscreteDistribution.INTEGRATION_RECTANGLE_RIGHT };
+		String[] kernelIntegrationMethods = { EnzymeKernelMatrix.STANDARD_KERNEL_INTEGRATION,
+				EnzymeKernelMatrix.INTEGRAL_KERNEL_INTEGRATION };
+		for (String integrationMethod : integrationMethods) {
+			Simulator sim = new Simulator();
+			SetupFileLoader sfl = TestModel.load(sim, TestModel.linearModel(0.2, 0.5, 0.4, 0.1)
+					.replace(DiscreteDistribution.INTEGRATION_TRAPEZE, integrationMethod));
+			Parameters p = sim.getParameters();
+			Polymerization polymerization = p.getBiochemicalClassMap().get(TestModel.SUGAR).getPolymerization();
+			KernelAlpha kernel = new KernelAlpha(new Interval<Double>(0d, 1d), 2.1);
+			for (String kernelIntegrationMethod : kernelIntegrationMethods) {
+				EnzymeKernelMatrix separable = new EnzymeKernelMatrix(polymerization, kernel, kernelIntegrationMethod,
+						p, sfl.getContext(), sim.getCurrentState());
+				EnzymeKernelMatrix dense = new EnzymeKernelMatrix(polymerization, new NonSeparableKernel(kernel),
+						kernelIntegrationMethod, p, sfl.getContext(), sim.getCurrentState());
+				success &= separable.getStorage() instanceof SeparableStorage;
+				success &= !(dense.getStorage() instanceof SeparableStorage);
+
+				int n = polymerization.getDiscretization().length;
+				double[] x = new double[n];
+				for (int i = 0; i < n; i++)
+					x[i] = random.nextDouble();
+				double[] separableProduct = new double[n];
+				double[] denseProduct = new double[n];
+				separable.multiply(x, separableProduct);
+				dense.multiply(x, denseProduct);
+				double scale = 0;
+				for (int i = 0; i < n; i++)
+					scale = Math.max(scale, Math.abs(denseProduct[i]));
+				for (int i = 0; i < n; i++)
+					success &= Math.abs(separableProduct[i] - denseProduct[i]) <= 1e-12 * scale;
+				for (int j = 0; j < n; j++)
+					success &= Math.abs(separable.columnSum(j) - dense.columnSum(j)) <= 1e-12
+							* Math.abs(dense.columnSum(j));
+			}
+		}
+		print(packageName, className, methodName, success, testDescription);
+
+		methodName = "operations";
+		testDescription = "same results with a compact kernel as with its dense copy expected";
+		Simulator sim = new Simulator();
+		SetupFileLoader sfl = TestModel.load(sim, TestModel.linearModel(0.2, 0.5, 0.4, 0.1));
+		Parameters p = sim.getParameters();
+		Polymerization polymerization = p.getBiochemicalClassMap().get(TestModel.SUGAR).getPolymerization();
+		KernelAlpha kernel = new KernelAlpha(new Interval<Double>(0d, 1d), 2.1);
+		EnzymeKernelMatrix k = new EnzymeKernelMatrix(polymerization, kernel,
+				EnzymeKernelMatrix.INTEGRAL_KERNEL_INTEGRATION, p, sfl.getContext(), sim.getCurrentState());
+		Matrix dense = k.clone();
+		int n = k.getNLines();
+		Matrix eye = Matrix.eye(n);
+		double[] d = new double[n];
+		for (int i = 0; i < n; i++)
+			d[i] = random.nextDouble();
+		success = k.getStorage() != null;
+		success &= isClose(Matrix.substraction(k, eye), Matrix.substraction(dense, eye), 1e-12);
+		success &= isClose(Matrix.product(k, eye), dense, 1e-12);
+		success &= isClose(Matrix.product(eye, k), dense, 1e-12);
+		success &= isClose(Matrix.exponential(k), Matrix.exponential(dense), 1e-12);
+		Matrix sum = eye.clone();
+		sum.axpy(2, k);
+		Matrix denseSum = eye.clone();
+		denseSum.axpy(2, dense);
+		success &= isClose(sum, denseSum, 1e-12) && k.getStorage() != null;
+		k.addDiagonal(1, d);
+		dense.addDiagonal(1, d);
+		success &= isClose(k, dense, 1e-12);
+		k.scaleColumns(d);
+		dense.scaleColumns(d);
+		success &= isClose(k, dense, 1e-12) && k.getStorage() == null;
+		print(packageName, className, methodName, success, testDescription);
+
+		methodName = "addScaledColumnsTo";
+		testDescription = "compact kernels read and written as their dense copies expected";
+		EnzymeKernelMatrix source = new EnzymeKernelMatrix(polymerization, kernel,
+				EnzymeKernelMatrix.INTEGRAL_KERNEL_INTEGRATION, p, sfl.getContext(), sim.getCurrentState());
+		EnzymeKernelMatrix destination = new EnzymeKernelMatrix(polymerization, kernel,
+				EnzymeKernelMatrix.INTEGRAL_KERNEL_INTEGRATION, p, sfl.getContext(), sim.getCurrentState());
+		Matrix denseSource = source.clone();
+		double[] destinationSums = destination.getAbsoluteColumnSums();
+		success = source.getStorage() != null && destination.getStorage() != null;
+		MatrixStorage detected = MatrixStorage.detect(source);
+		success &= detected != null;
+		for (int i = 0; success && i < n; i++) {
+			for (int j = 0; j < n; j++)
+				success &= detected.get(i, j) == denseSource.get(i, j);
+		}
+		success &= LowRankStorage.build(source, 1e-6).getRelativeError() <= 1e-6;
+		Matrix expectedSum = destination.clone();
+		expectedSum.addScaledColumns(denseSource, d);
+		source.addScaledColumnsTo(destination, d);
+		success &= isClose(destination, expectedSum, 1e-12) && source.getStorage() != null;
+		double[] expectedSums = new double[n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++)
+				expectedSums[j] += Math.abs(expectedSum.get(i, j));
+		}
+		success &= destination.getAbsoluteColumnSums() != destinationSums
+				&& isClose(Matrix.arrayToLine(destination.getAbsoluteColumnSums()),
+						Matrix.arrayToLine(expectedSums), 1e-12);
+		print(packageName, className, methodName, success, testDescription);
+
+		methodName = "constructor";
+		testDescription = "low-rank storage with get, multiply and upperRowProduct of the exact kernel within the tolerance expected";
+		double tolerance = 1e-8;
+		sim = new Simulator();
+		sfl = TestModel.load(sim, TestModel.linearModel(0.2, 0.5, 0.4, 0.1).replace("userPolymerizationStep = 0.05",
+				"userPolymerizationStep = 0.005"));
+		p = sim.getParameters();
+		polymerization = p.getBiochemicalClassMap().get(TestModel.SUGAR).getPolymerization();
+		EnzymeKernelMatrix exact = new EnzymeKernelMatrix(polymerization, new NonSeparableKernel(kernel),
+				EnzymeKernelMatrix.INTEGRAL_KERNEL_INTEGRATION, p, sfl.getContext(), sim.getCurrentState());
+		EnzymeKernelMatrix lowRank = new EnzymeKernelMatrix(polymerization, new NonSeparableKernel(kernel),
+				EnzymeKernelMatrix.INTEGRAL_KERNEL_INTEGRATION, tolerance, p, sfl.getContext(),
+				sim.getCurrentState());
+		n = exact.getNLines();
+		double[] x = new double[n];
+		for (int i = 0; i < n; i++)
+			x[i] = random.nextDouble();
+		// the Frobenius error bounds the errors of the products: ||(M - A).x|| <=
+		// ||M - A||_F ||x||
+		double norm = 0;
+		double getError = 0;
+		double upperRowProductError = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				norm += exact.get(i, j) * exact.get(i, j);
+				getError += Math.pow(lowRank.get(i, j) - exact.get(i, j), 2);
+			}
+			upperRowProductError += Math.pow(lowRank.getStorage().upperRowProduct(i, x)
+					- exact.getStorage().upperRowProduct(i, x), 2);
+		}
+		double[] exactProduct = new double[n];
+		double[] lowRankProduct = new double[n];
+		exact.multiply(x, exactProduct);
+		lowRank.multiply(x, lowRankProduct);
+		double multiplyError = 0;
+		for (int i = 0; i < n; i++)
+			multiplyError += Math.pow(lowRankProduct[i] - exactProduct[i], 2);
+		double bound = tolerance * Math.sqrt(norm);
+		double productBound = bound * Math.sqrt(ArrayOperations.get().dot(x, 0, x, 0, n));
+		success = n == 201 && lowRank.getStorage() instanceof LowRankStorage && Math.sqrt(getError) <= bound
+				&& Math.sqrt(multiplyError) <= productBound && Math.sqrt(upperRowProductError) <= productBound
+				&& lowRank.getStorage().getStoredValuesCount() < n * (n + 1) / 2;
+		print(packageName, className, methodName, success, testDescription);
+
+		methodName = "getAbsoluteColumnSums";
+		testDescription = "column sums of the absolute values given by get() expected for the low-rank and exact kernels";
+		success = true;
+		for (EnzymeKernelMatrix kernelMatrix : new EnzymeKernelMatrix[] { lowRank, exact }) {
+			double[] columnSums = new double[n];
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < n; j++)
+					columnSums[j] += Math.abs(kernelMatrix.get(i, j));
+			}
+			success &= isClose(Matrix.arrayToLine(kernelMatrix.getAbsoluteColumnSums()),
+					Matrix.arrayToLine(columnSums), 1e-12);
+		}
+		print(packageName, className, methodName, success, testDescription);
+
+		methodName = "constructor";
+
+		testDescription = "exact kernel kept if its low-rank approximation is not more compact expected";
+		sim = new Simulator();
+		sfl = TestModel.load(sim, TestModel.linearModel(0.2, 0.5, 0.4, 0.1));
+		p = sim.getParameters();
+		polymerization = p.getBiochemicalClassMap().get(TestModel.SUGAR).getPolymerization();
+		exact = new EnzymeKernelMatrix(polymerization, new NonSeparableKernel(kernel),
+				EnzymeKernelMatrix.INTEGRAL_KERNEL_INTEGRATION, p, sfl.getContext(), sim.getCurrentState());
+		lowRank = new EnzymeKernelMatrix(polymerization, new NonSeparableKernel(kernel),
+				EnzymeKernelMatrix.INTEGRAL_KERNEL_INTEGRATION, tolerance, p, sfl.getContext(),
+				sim.getCurrentState());
+		success = !(lowRank.getStorage() instanceof LowRankStorage)
+				&& (lowRank.getStorage() == null) == (exact.getStorage() == null)
+				&& (exact.getStorage() == null || lowRank.getStorage().getClass() == exact.getStorage().getClass())
+				&& isClose(lowRank, exact, 0);
+		print(packageName, className, methodName, success, testDescription);
+
+		/*
+		 * Function
+		 */
+		packageName = "function";
+		className = "Function";
+
+		methodName = "evaluate";
+		testDescription = "same values as execute() at each point, domain edges included, expected";
+		sim = new Simulator();
+		sfl = TestModel.load(sim, TestModel.enzymaticModel(0.2, 0.5, 0.4, 0.1, 0.5, 1));
+		p = sim.getParameters();
+		Context c = sfl.getContext();
+		State state = sim.getCurrentState();
+		Interval<Double> domain = new Interval<Double>(0.2, 0.8);
+		Function signature = new GaussianTruncatedNormalized(TestModel.SUGAR, 0.5, 0.2, domain, p);
+		Function[] functions = { new Constant(0.7), new Linear(0.3), new Gaussian(0.5, 0.2), signature,
+				new GaussianTruncatedProportionalized(TestModel.SUGAR, 1.2, 0.5, 0.2, domain, p),
+				new UniformLinear(domain, 0.4), new KernelAlpha(new Interval<Double>(0d, 1d), 2.1),
+				Function.getFunction("enzymaticLinearTransfer(" + TestModel.ENZYME + ";1)", p, c),
+				new EnzymaticLinearTransfer(TestModel.ENZYME, 2), new ConstantInputFunction(0.3, signature) };
+		// the points of the polymerization, the edges of the domains and points
+		// out of them, by pairs (xs[i], ys[i]) for the functions of two variables
+		double[] discretization = polymerization.getDiscretization();
+		double[] points = Arrays.copyOf(discretization, discretization.length + 6);
+		System.arraycopy(new double[] { -0.1, 0, 0.2, 0.8, 1, 1.1 }, 0, points, discretization.length, 6);
+		double[] xs = new double[points.length * points.length];
+		double[] ys = new double[xs.length];
+		for (int i = 0; i < points.length; i++) {
+			for (int j = 0; j < points.length; j++) {
+				xs[i * points.length + j] = points[i];
+				ys[i * points.length + j] = points[j];
+			}
+		}
+		success = true;
+		for (Function f : functions) {
+			double[] out = new double[xs.length];
+			f.evaluate(p, c, state, xs, ys, out);
+			Class<?> expected = f.expectedVariables();
+			for (int i = 0; i < xs.length; i++) {
+				Variables v = expected.equals(ZeroVariable.class) ? new ZeroVariable()
+						: expected.equals(OneVariable.class) ? new OneVariable(xs[i]) : new TwoVariables(xs[i], ys[i]);
+				double value = f.execute(p, c, state, v);
+				if (Double.compare(out[i], value) != 0) {
+					success = false;
+					System.out.println("Function.evaluate(), " + f + " at (" + xs[i] + ", " + ys[i] + "): " + out[i]
+							+ " instead of " + value);
+					break;
+				}
+			}
+		}
+		print(packageName, className, methodName, success, testDescription);
+	}
+
+	/**
+	 * testIntegrator()
+	 */
+	private void testIntegrator() throws Exception {
+		String packageName = "integrator";
+		String className = "";
+		String methodName = "";
+		String testDescription = "";
+
+		// the linear model, see TestModel
+		double input = 0.2;
+		double k = 0.5;
+		double e = 0.4;
+		double m = 0.1;
+
+		/*
+		 * SteadyStateSolver
+		 */
+		className = "SteadyStateSolver";
+
+		methodName = "solve";
+		testDescription = "analytic steady state of the linear model expected";
+		Simulator sim = new Simulator();
+		SetupFileLoader sfl = TestModel.load(sim, TestModel.linearModel(input, k, e, m));
+		OdeSystem system = getOdeSystem(sim, sfl.getContext());
+		SteadyStateSolver solver = new SteadyStateSolver(1e-8, 1e-12, 0.01);
+		State steadyState = solver.solve(system, sim.getCurrentState());
+		double sugarMass = steadyState.getSubstrate().getAccessiblePool(TestModel.SUGAR).getCarbonMass();
+		double microbeMass = steadyState.getMicrobe(TestModel.MICROBE).getMass();
+		print(packageName, className, methodName,
+				Math.abs(sugarMass / (input / (k * (1 - e))) - 1) < 1e-6
+						&& Math.abs(microbeMass / (e * input / ((1 - e) * m)) - 1) < 1e-6,
+				testDescription);
+
+		testDescription = "same Newton iterations for a second resolution expected";
+		int newtonIterations = solver.getNewtonIterations();
+		solver.solve(system, sim.getCurrentState());
+		print(packageName, className, methodName, solver.getNewtonIterations() == newtonIterations,
+				testDescription);
+
+		testDescription = "exception expected without steady state";
+		sim = new Simulator();
+		sfl = TestModel.load(sim, TestModel.unbalancedModel(input, k, e, m));
+		system = getOdeSystem(sim, sfl.getContext());
+		try {
+			new SteadyStateSolver(1e-8, 1e-12, 0.01).solve(system, sim.getCurrentState());
+			print(packageName, className, methodName, !SUCCESS, testDescription);
+		} catch (Exception ex) {
+			print(packageName, className, methodName, ex.getMessage().contains("no steady state"),
+					testDescription);
+		}
+
+		/*
+		 * PeriodicSteadyStateSolver
+		 */
+		className = "PeriodicSteadyStateSolver";
+
+		// input I * (1 + a * sin(w * t)): the sugar mass V and the microbe mass M
+		// follow V' = I(t) - k * V + m * M and M' = e * k * V - m * M, the periodic
+		// solution is the steady state plus Im(X * exp(i * w * t)) with (i * w - A).X
+		// = (a * I, 0)
+		double a = 0.5;
+		double period = 10;
+		double w = 2 * Math.PI / period;
+		double detRe = -w * w + k * m - e * k * m;
+		double detIm = w * (k + m);
+		double det2 = detRe * detRe + detIm * detIm;
+		double expectedSugarMass = input / (k * (1 - e)) + a * input * (w * detRe - m * detIm) / det2;
+		double expectedMicrobeMass = e * input / ((1 - e) * m) - a * input * e * k * detIm / det2;
+
+		methodName = "solve";
+		testDescription = "analytic periodic solution of the linear model with a sinusoidal input expected";
+		sim = new Simulator();
+		sfl = TestModel.load(sim, TestModel.linearModel(input, k, e, m));
+		TestModel.setSinusoidalInput(sfl.getContext(), a, period);
+		system = getOdeSystem(sim, sfl.getContext());
+		PeriodicSteadyStateSolver periodicSolver = new PeriodicSteadyStateSolver(
+				new DormandPrinceIntegrator(1e-10, 1e-13, 0.01), period, 1e-8, 1e-12);
+		State periodicState = periodicSolver.solve(system, sim.getCurrentState());
+		sugarMass = periodicState.getSubstrate().getAccessiblePool(TestModel.SUGAR).getCarbonMass();
+		microbeMass = periodicState.getMicrobe(TestModel.MICROBE).getMass();
+		print(packageName, className, methodName,
+				Math.abs(sugarMass / expectedSugarMass - 1) < 1e-6
+						&& Math.abs(microbeMass / expectedMicrobeMass - 1) < 1e-6,
+				testDescription);
+
+		testDescription = "same periods for a second resolution expected";
+		int periods = periodicSolver.getPeriods();
+		periodicSolver.solve(system, sim.getCurrentState());
+		print(packageName, className, methodName, periodicSolver.getPeriods() == periods, testDescription);
+
+		testDescription = "exception expected without periodic steady state";
+		sim = new Simulator();
+		sfl = TestModel.load(sim, TestModel.unbalancedModel(input, k, e, m));
+		system = getOdeSystem(sim, sfl.getContext());
+		try {
+			new PeriodicSteadyStateSolver(new DormandPrinceIntegrator(1e-8, 1e-12, 0.01), 1, 1e-8, 1e-12)
+					.solve(system, sim.getCurrentState());
+			print(packageName, className, methodName, !SUCCESS, testDescription);
+		} catch (Exception ex) {
+			print(packageName, className, methodName, ex.getMessage().contains("no periodic steady state"),
+					testDescription);
+		}
+
+		/*
+		 * DormandPrinceIntegrator
+		 */
+		className = "DormandPrinceIntegrator";
+
+		methodName = "integrate";
+		testDescription = "fewer steps than the 500 Euler steps over 5 days expected";
+		sim = new Simulator();
+		sfl = TestModel.load(sim, TestModel.enzymaticModel(input, k, e, m, 0.5, 1));
+		system = getOdeSystem(sim, sfl.getContext());
+		DormandPrinceIntegrator adaptive = new DormandPrinceIntegrator(1e-6, 1e-9, 0.01);
+		State adaptiveState = sim.getCurrentState();
+		for (int date = 1; date <= 5; date++)
+			adaptiveState = adaptive.integrate(system, adaptiveState, date);
+		print(packageName, className, methodName,
+				adaptiveState.getDate() == 5 && adaptive.getAcceptedSteps() + adaptive.getRejectedSteps() < 500,
+				testDescription);
+
+		/*
+		 * ImexEulerIntegrator
+		 */
+		className = "ImexEulerIntegrator";
+
+		// the stiff depolymerization rate 100: the explicit Euler steps of 0.05
+		// give negative pool values
+		methodName = "integrate";
+		testDescription = "exception expected with explicit Euler steps of 0.05 on stiff depolymerization";
+		String stiffSetup = TestModel.enzymaticModel(input, k, e, m, 0.5, 100);
+		try {
+			execute(stiffSetup.replace("userTimeStep = 0.01", "userTimeStep = 0.05"));
+			print(packageName, className, methodName, !SUCCESS, testDescription);
+		} catch (Exception ex) {
+			print(packageName, className, methodName, ex.getMessage().contains("Negative value"), testDescription);
+		}
+
+		testDescription = "non negative pools with steps of 0.05, within 2e-2 of Dormand-Prince expected";
+		sim = new Simulator();
+		sfl = TestModel.load(sim, stiffSetup);
+		system = getOdeSystem(sim, sfl.getContext());
+		ImexEulerIntegrator imex = new ImexEulerIntegrator(0.05);
+		DormandPrinceIntegrator stiffReference = new DormandPrinceIntegrator(1e-8, 1e-12, 0.001);
+		State imexState = sim.getCurrentState();
+		State stiffReferenceState = sim.getCurrentState();
+		boolean success = true;
+		for (int date = 1; date <= 5; date++) {
+			imexState = imex.integrate(system, imexState, date);
+			stiffReferenceState = stiffReference.integrate(system, stiffReferenceState, date);
+			double[] values = new double[system.getSize()];
+			system.pack(imexState, values);
+			for (double v : values)
+				success &= v >= 0;
+			success &= Math.abs(imexState.getMicrobe(TestModel.MICROBE).getMass()
+					/ stiffReferenceState.getMicrobe(TestModel.MICROBE).getMass() - 1) < 2e-2;
+			success &= Math.abs(imexState.getSubstrate().getAccessiblePool(TestModel.SUGAR).getCarbonMass()
+					/ stiffReferenceState.getSubstrate().getAccessiblePool(TestModel.SUGAR).getCarbonMass() - 1) < 2e-2;
+		}
+		print(packageName, className, methodName, success && imex.getSteps() == 100, testDescription);
+
+		/*
+		 * ExponentialIntegrator
+		 */
+		className = "ExponentialIntegrator";
+		double r = 0.5; // enzyme production rate
+
+		methodName = "integrate";
+		testDescription = "same masses as the Dormand-Prince integrator within 1e-3 expected";
+		sim = new Simulator();
+		sfl = TestModel.load(sim, TestModel.enzymaticModel(input, k, e, m, r, 1));
+		system = getOdeSystem(sim, sfl.getContext());
+		ExponentialIntegrator exponential = new ExponentialIntegrator(0.01, 1e-6);
+		State exponentialState = sim.getCurrentState();
+		State referenceState = sim.getCurrentState();
+		DormandPrinceIntegrator dormandPrince = new DormandPrinceIntegrator(1e-10, 1e-13, 0.01);
+		success = true;
+		for (int date = 1; date <= 5; date++) {
+			exponentialState = exponential.integrate(system, exponentialState, date);
+			referenceState = dormandPrince.integrate(system, referenceState, date);
+			success &= Math.abs(exponentialState.getMicrobe(TestModel.MICROBE).getMass()
+					/ referenceState.getMicrobe(TestModel.MICROBE).getMass() - 1) < 1e-3;
+			success &= Math.abs(exponentialState.getSubstrate().getAccessiblePool(TestModel.SUGAR).getCarbonMass()
+					/ referenceState.getSubstrate().getAccessiblePool(TestModel.SUGAR).getCarbonMass() - 1) < 1e-3;
+		}
+		print(packageName, className, methodName, success, testDescription);
+
+		// from the steady state, the system is frozen after the first step: with
+		// steps of 0.5, the next steps are made by the Taylor series for the
+		// depolymerization rate 1 and by the propagator for the stiff rate 100
+		testDescription = "steps with the frozen system from the steady state expected";
+		success = true;
+		for (double d : new double[] { 1, 100 }) {
+			Simulator steadySim = new Simulator();
+			SetupFileLoader steadySfl = TestModel.load(steadySim, TestModel.enzymaticModel(input, k, e, m, r, d));
+			OdeSystem steadySystem = getOdeSystem(steadySim, steadySfl.getContext());
+			steadyState = new SteadyStateSolver(1e-10, 1e-14, 0.01).solve(steadySystem,
+					steadySim.getCurrentState());
+			ExponentialIntegrator frozen = new ExponentialIntegrator(0.5, 1e-6);
+			State state = steadyState;
+			for (int date = 1; date <= 5; date++)
+				state = frozen.integrate(steadySystem, state, steadyState.getDate() + date);
+			double[] steadyValues = new double[steadySystem.getSize()];
+			double[] values = new double[steadySystem.getSize()];
+			steadySystem.pack(steadyState, steadyValues);
+			steadySystem.pack(state, values);
+			success &= frozen.getTaylorSteps() == 1 && frozen.getCachedSteps() == 9 && frozen.getPropagatorBuilds() == (d == 1 ? 0 : 1);
+			for (int i = 0; i < values.length; i++)
+				success &= Math.abs(values[i] - steadyValues[i]) <= 1e-6 * Math.max(1, Math.abs(steadyValues[i]));
+		}
+		print(packageName, className, methodName, success, testDescription);
+
+		/*
+		 * AffinePropagator
+		 */
+		className = "AffinePropagator";
+
+		methodName = "constructor";
+		testDescription = "upper triangular propagator with the values of the dense exponential expected";
+		double[] f = new double[system.getSize()];
+		system.nonLinearDerivative(exponentialState, f);
+		AffinePoolOperator op = new AffinePoolOperator(system, exponentialState, TestModel.SUGAR, f);
+		AffinePropagator propagator = new AffinePropagator(op, 0.01);
+		Matrix dense = Matrix.exponential(op.getAugmentedMatrix(0.01));
+		success = op.getNPools() == 2 && propagator.isUpperTriangular()
+				&& propagator.getStoredValuesCount() < op.getSize() * op.getSize();
+		for (int i = 0; i < op.getSize(); i++) {
+			for (int j = 0; j <= op.getSize(); j++)
+				success &= Math.abs(propagator.get(i, j) - dense.get(i, j)) <= 1e-12;
+		}
+		print(packageName, className, methodName, success, testDescription);
+	}
+
+	/**
+	 * testApp()
+	 */
+	private void testApp() throws Exception {
+		String packageName = "app";
+		String className = "";
+		String methodName = "";
+		String testDescription = "";
+
+		/*
+		 * Simulator
+		 */
+		className = "Simulator";
+		String setup = TestModel.enzymaticModel(0.2, 0.5, 0.4, 0.1, 0.5, 1);
+
+		methodName = "execute";
+		testDescription = "same final state with the double-buffered engine as with the standard one expected";
+		double[] standard = execute(setup);
+		double[] doubleBuffered = execute(setup + "engineMode = " + Context.ENGINE_DOUBLE_BUFFERED + "\n");
+		print(packageName, className, methodName, Arrays.equals(doubleBuffered, standard), testDescription);
+
+		testDescription = "same observe() calls and observed states with the double-buffered engine as with the standard one expected";
+		RecordingObserverList standardObservers = record(setup);
+		RecordingObserverList doubleBufferedObservers = record(
+				setup + "engineMode = " + Context.ENGINE_DOUBLE_BUFFERED + "\n");
+		print(packageName, className, methodName, doubleBufferedObservers.calls == standardObservers.calls
+				&& isClose(doubleBufferedObservers.states, standardObservers.states, 1e-12), testDescription);
+
+		testDescription = "initial state still checked after a simulation in fast check mode expected";
+		Simulator fastSim = new Simulator();
+		SetupFileLoader fastSfl = TestModel.load(fastSim, setup + "checkMode = " + Context.CHECK_MODE_FAST + "\n");
+		State initialState = fastSim.getCurrentState();
+		fastSim.execute(fastSfl.getContext(), new ObserverList());
+		print(packageName, className, methodName,
+				initialState.getSubstrate().getAccessiblePool(TestModel.SUGAR).isChecked()
+						&& !fastSim.getCurrentState().getSubstrate().getAccessiblePool(TestModel.SUGAR).isChecked(),
+				testDescription);
+
+		testDescription = "same final state with 4 threads as with one on two biochemical classes expected";
+		String twoClassesSetup = TestModel.unbalancedModel(0.2, 0.5, 0.4, 0.1);
+		double[] sequential = execute(twoClassesSetup);
+		double[] parallel = execute(twoClassesSetup + "engineThreads = 4\n");
+		print(packageName, className, methodName, Arrays.equals(parallel, sequential), testDescription);
+
+		testDescription = "observations at the integer dates with Dormand-Prince, within 1e-3 of the Euler ones expected";
+		List<State> eulerStates = observe(setup);
+		List<State> dormandPrinceStates = observe(
+				setup + "integrator = " + Context.INTEGRATOR_DORMAND_PRINCE + "\nintegratorRelativeTolerance = 1e-8\n");
+		print(packageName, className, methodName,
+				eulerStates.size() == 6 && isClose(dormandPrinceStates, eulerStates, 1e-3), testDescription);
+
+		/*
+		 * EnsembleRunner
+		 */
+		className = "EnsembleRunner";
+		methodName = "execute";
+		testDescription = "same final state for a member replacing the species as for the model written with it expected";
+		Simulator other = new Simulator();
+		TestModel.load(other, TestModel.enzymaticModel(0.2, 0.5, 0.4, 0.2, 0.5, 1));
+		Function mortality = other.getParameters().getMicrobeSpeciesMap().get(TestModel.MICROBE)
+				.getMortalityFunction(); // linear(0.2)
+		Simulator model = new Simulator();
+		SetupFileLoader sfl = TestModel.load(model, setup);
+		EnsembleRunner runner = new EnsembleRunner(model, sfl.getContext(), new ObserverList());
+		EnsembleRunner.Member member = runner.addMember("replaced", m -> {
+			MicrobeSpecies ms = m.getParameters().getMicrobeSpeciesMap().get(TestModel.MICROBE).copy();
+			ms.setMortalityFunction(mortality);
+			m.getParameters().addMicrobeSpecies(ms);
+		}, null);
+		runner.execute(1);
+		OdeSystem system = getOdeSystem(model, sfl.getContext());
+		double[] y = new double[system.getSize()];
+		system.pack(member.getFinalState(), y);
+		print(packageName, className, methodName,
+				Arrays.equals(y, execute(TestModel.enzymaticModel(0.2, 0.5, 0.4, 0.2, 0.5, 1))), testDescription);
+
+		testDescription = "exception for a member adding a species with a new name expected";
+		runner = new EnsembleRunner(model, sfl.getContext(), new ObserverList());
+		runner.addMember("added", m -> {
+			MicrobeSpecies ms = new MicrobeSpecies("fungi");
+			ms.setMortalityFunction(mortality);
+			m.getParameters().addMicrobeSpecies(ms);
+		}, null);
+		String message = "";
+		try {
+			runner.execute(1);
+		} catch (Exception e) {
+			message = e.getMessage();
+		}
+		print(packageName, className, methodName, message.contains("member added"), testDescription);
+
+		testDescription = "members in parallel with a sequential engine, same final state as with the engine threads of the model expected";
+		sfl.getContext().setEngineThreads(4);
+		runner = new EnsembleRunner(model, sfl.getContext(), new ObserverList());
+		EnsembleRunner.Member reference = runner.addMember("sequential", null, null);
+		runner.execute(1);
+		double[] sequentialY = new double[system.getSize()];
+		system.pack(reference.getFinalState(), sequentialY);
+		boolean success = reference.getContext().getEngineThreads() == 4;
+		runner = new EnsembleRunner(model, sfl.getContext(), new ObserverList());
+		List<EnsembleRunner.Member> parallelMembers = new ArrayList<>();
+		for (int k = 0; k < 3; k++)
+			parallelMembers.add(runner.addMember("parallel_" + k, null, null));
+		runner.execute(3);
+		for (EnsembleRunner.Member pm : parallelMembers) {
+			double[] parallelY = new double[system.getSize()];
+			system.pack(pm.getFinalState(), parallelY);
+			success &= pm.getContext().getEngineThreads() == 1 && Arrays.equals(parallelY, sequentialY);
+		}
+		success &= sfl.getContext().getEngineThreads() == 4;
+		sfl.getContext().setEngineThreads(1);
+		print(packageName, className, methodName, success, testDescription);
 	}
 
 	/**
 	 * Methods
 	 */
 
+	/**
+	 * A kernel with the values of another one which is not seen as a
+	 * SeparableKernel, its matrix is built densely
+	 */
+	@SuppressWarnings("serial")
+	private static class NonSeparableKernel extends Function implements PrimitiveAvailable {
+
+		private KernelAlpha kernel;
+
+		public NonSeparableKernel(KernelAlpha kernel) {
+			this.kernel = kernel;
+		}
+
+		@Override
+		public Decodable decode(String encodedString, Parameters p, Context c) throws Exception {
+			throw new Exception("NonSeparableKernel.decode(), not decodable");
+		}
+
+		@Override
+		public double execute(Parameters p, Context c, State s, Variables v) throws Exception {
+			return kernel.execute(p, c, s, v);
+		}
+
+		@Override
+		public double executePrimitive(Parameters p, Context c, State s, double[] discretization, Variables v)
+				throws Exception {
+			return kernel.executePrimitive(p, c, s, discretization, v);
+		}
+
+		@Override
+		public Class<?> expectedVariables() {
+			return kernel.expectedVariables();
+		}
+
+		@Override
+		public Class<?> primitiveExpectedVariables() {
+			return kernel.primitiveExpectedVariables();
+		}
+	}
+
+	/**
+	 * execute(): runs the simulation of the setup and returns its final state
+	 * packed in a vector of the OdeSystem
+	 */
+	private double[] execute(String setup) throws Exception {
+		Simulator sim = new Simulator();
+		SetupFileLoader sfl = TestModel.load(sim, setup);
+		OdeSystem system = getOdeSystem(sim, sfl.getContext());
+		sim.execute(sfl.getContext(), new ObserverList());
+		double[] y = new double[system.getSize()];
+		system.pack(sim.getCurrentState(), y);
+		return y;
+	}
+
+	/**
+	 * observe(): runs the simulation of the setup and returns the observed
+	 * states
+	 */
+	private List<State> observe(String setup) throws Exception {
+		return record(setup).states;
+	}
+
+	/**
+	 * record(): runs the simulation of the setup and returns its recording
+	 * observer list
+	 */
+	private RecordingObserverList record(String setup) throws Exception {
+		Simulator sim = new Simulator();
+		SetupFileLoader sfl = TestModel.load(sim, setup);
+		RecordingObserverList ol = new RecordingObserverList();
+		sim.execute(sfl.getContext(), ol);
+		return ol;
+	}
+
+	/**
+	 * isStorageOf(): true if the storage has the values of the square matrix m
+	 * and the same products with random vectors
+	 */
+	private boolean isStorageOf(MatrixStorage storage, Matrix m, Random random) throws Exception {
+		int n = m.getNLines();
+		double[] x = new double[n];
+		double[] d = new double[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = random.nextDouble() - 0.5;
+			d[i] = random.nextDouble() - 0.5;
+		}
+		boolean success = storage.getN() == n;
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				success &= storage.get(i, j) == m.get(i, j);
+
+		double[] y = new double[n];
+		double[] expected = new double[n];
+		Arrays.fill(y, 1);
+		Arrays.fill(expected, 1);
+		storage.multiplyAdd(0.5, x, y);
+		m.multiplyAdd(0.5, x, expected);
+		for (int i = 0; i < n; i++) {
+			success &= Math.abs(y[i] - expected[i]) <= 1e-14;
+			double upperSum = 0;
+			for (int j = i + 1; j < n; j++)
+				upperSum += m.get(i, j) * x[j];
+			success &= Math.abs(storage.upperRowProduct(i, x) - upperSum) <= 1e-14;
+		}
+
+		Matrix sum = Matrix.eye(n);
+		storage.addScaledColumnsTo(sum, d);
+		Matrix expectedSum = Matrix.eye(n);
+		expectedSum.addScaledColumns(m, d);
+		return success && isClose(sum, expectedSum, 1e-15);
+	}
+
+	/**
+	 * isClose(): true if the matrices have the same dimensions and values within
+	 * the tolerance relative to the greatest absolute value of b
+	 */
+	private boolean isClose(Matrix a, Matrix b, double tolerance) {
+		if (a.getNLines() != b.getNLines() || a.getNColumns() != b.getNColumns())
+			return false;
+		double scale = 0;
+		for (int i = 0; i < b.getNLines(); i++)
+			for (int j = 0; j < b.getNColumns(); j++)
+				scale = Math.max(scale, Math.abs(b.get(i, j)));
+		for (int i = 0; i < b.getNLines(); i++)
+			for (int j = 0; j < b.getNColumns(); j++)
+				if (!(Math.abs(a.get(i, j) - b.get(i, j)) <= tolerance * scale))
+					return false;
+		return true;
+	}
+
+	/**
+	 * isClose(): true if the states are observed at the same dates with microbe
+	 * and sugar masses within the relative tolerance
+	 */
+	private boolean isClose(List<State> states, List<State> references, double tolerance) throws Exception {
+		boolean close = states.size() == references.size();
+		for (int k = 0; close && k < states.size(); k++) {
+			State s = states.get(k);
+			State r = references.get(k);
+			close &= s.getDate() == r.getDate();
+			close &= Math.abs(s.getMicrobe(TestModel.MICROBE).getMass() / r.getMicrobe(TestModel.MICROBE).getMass()
+					- 1) < tolerance;
+			close &= Math.abs(s.getSubstrate().getAccessiblePool(TestModel.SUGAR).getCarbonMass()
+					/ r.getSubstrate().getAccessiblePool(TestModel.SUGAR).getCarbonMass() - 1) < tolerance;
+		}
+		return close;
+	}
+
+	/**
+	 * An observer list keeping a copy of the states observed at integer dates
+	 */
+	@SuppressWarnings("serial")
+	private static class RecordingObserverList extends ObserverList {
+
+		private List<State> states = new ArrayList<>();
+		private int calls;
+
+		@Override
+		public void observe(State s) throws Exception {
+			calls++;
+			if ((int) s.getDate() == s.getDate())
+				states.add(s.copy());
+			super.observe(s);
+		}
+	}
+
+	private OdeSystem getOdeSystem(Simulator sim, Context c) throws Exception {
+		Parameters p = sim.getParameters();
+		return new OdeSystem(p, c, sim.getCurrentState(), EnzymaticOperator.getEnzymaticOperators(p));
+	}
+
 	private void print(String packageName, String className, String methodName, Boolean success, String message) {
 		if (success) {
 			System.out.println(packageName + "." + className + "." + methodName + ", SUCCESS: " + message);
@@ -90,5 +1515,13 @@ public class CstabilityTest {
 		}
 	}
 
+	/**
+	 * printSkipped(): for a test which cannot run in this environment, neither
+	 * a success nor a failure
+	 */
+	private void printSkipped(String packageName, String className, String methodName, String message) {
+		System.out.println(packageName + "." + className + "." + methodName + ", SKIPPED: " + message);
+	}
+
 	
 }
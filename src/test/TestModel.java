@@ -0,0 +1,168 @@
+package capsis.lib.cstability.test;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import capsis.lib.cstability.app.Simulator;
+import capsis.lib.cstability.context.Context;
+import capsis.lib.cstability.context.SubstrateInputManager;
+import capsis.lib.cstability.context.poolinput.PoolInput;
+import capsis.lib.cstability.context.poolinput.PoolInputManager;
+import capsis.lib.cstability.filereader.SetupFileLoader;
+import capsis.lib.cstability.parameter.Parameters;
+import capsis.lib.cstability.parameter.SubstrateAccessibility;
+import capsis.lib.cstability.state.State;
+
+/**
+ * Small models of C-STABILITY written in setup files for the tests, so that
+ * the tests do not depend on a setup file given by the user.
+ *
+ * The linear model has a single biochemical class, sugar on [0,1], with an
+ * accessible pool only, and a microbe, bacteria, taking up sugar at the rate
+ * k on the whole domain with the carbon use efficiency e, dying at the rate m
+ * and returning its carbon to sugar. With a constant input of I per time unit,
+ * its steady state is analytic: the sugar mass is I / (k * (1 - e)) and the
+ * microbe mass e * I / ((1 - e) * m). With a sinusoidal input (see
+ * setSinusoidalInput()), the masses follow a linear system and its periodic
+ * solution is analytic too. The enzymatic model adds an enzyme produced by
+ * the microbe, depolymerizing sugar and releasing an inaccessible sugar pool.
+ *
+ * @author agent - October 2026
+ */
+public class TestModel {
+
+	public static final String MICROBE = "bacteria";
+	public static final String SUGAR = "sugar";
+	public static final String WAX = "wax";
+	public static final String ENZYME = "sugarase";
+
+	/**
+	 * linearModel(): the setup file of the linear model, with the constant input
+	 * I, the uptake rate k, the carbon use efficiency e and the mortality rate m
+	 */
+	public static String linearModel(double input, double uptakeRate, double efficiency, double mortalityRate) {
+		StringBuilder b = new StringBuilder();
+		b.append("timeUnit = day\n");
+		b.append("initialDate = 0\n");
+		b.append("finalDate = 5\n");
+		b.append("userTimeStep = 0.01\n");
+		b.append("userPolymerizationStep = 0.05\n");
+		b.append("integrationMethod = INTEGRATION_TRAPEZE\n");
+		b.append("BIOCHEMICAL_CLASS\t" + SUGAR + "\t[0,1]\n");
+		b.append("POOL_ACCESSIBILITY\t" + SUGAR + "\t[ACCESSIBLE]\n");
+		b.append("SIGNATURE\t" + MICROBE + "\t" + SUGAR + "\t1\tgaussianTruncatedNormalized(" + SUGAR
+				+ ";0.5;0.2;[0,1])\n");
+		b.append("ASSIMILATION\t" + MICROBE + "\t" + SUGAR + "\tuniformLinear([0,1];" + uptakeRate + ")\tconstant("
+				+ efficiency + ")\n");
+		b.append("MORTALITY\t" + MICROBE + "\tlinear(" + mortalityRate + ")\n");
+		b.append("POOL_INITIALIZATION\t" + SUGAR + "\tACCESSIBLE\tgaussianTruncatedProportionalized(" + SUGAR
+				+ ";1.;0.5;0.2;[0,1])\n");
+		b.append("POOL_INPUT\t" + SUGAR + "\tACCESSIBLE\tconstantInput(" + input + ":gaussianTruncatedNormalized("
+				+ SUGAR + ";0.3;0.2;[0,1]))\n");
+		b.append("MICROBE_INITIALIZATION\t" + MICROBE + "\t1.0\n");
+		b.append("MICROBE_OBSERVER\t" + MICROBE + "\tmass\t[0:1:5]\n");
+		return b.toString();
+	}
+
+	/**
+	 * unbalancedModel(): the linear model in which half of the microbe carbon
+	 * returns to wax, a biochemical class which is never taken up: wax grows
+	 * forever, the model has no steady state
+	 */
+	public static String unbalancedModel(double input, double uptakeRate, double efficiency,
+			double mortalityRate) {
+		String setup = linearModel(input, uptakeRate, efficiency, mortalityRate);
+		String sugarClass = "BIOCHEMICAL_CLASS\t" + SUGAR + "\t[0,1]\n";
+		String sugarAccessibility = "POOL_ACCESSIBILITY\t" + SUGAR + "\t[ACCESSIBLE]\n";
+		String sugarSignature = "SIGNATURE\t" + MICROBE + "\t" + SUGAR + "\t1\t";
+		setup = setup.replace(sugarClass, sugarClass + "BIOCHEMICAL_CLASS\t" + WAX + "\t[0,1]\n");
+		setup = setup.replace(sugarAccessibility,
+				sugarAccessibility + "POOL_ACCESSIBILITY\t" + WAX + "\t[ACCESSIBLE]\n");
+		setup = setup.replace(sugarSignature, "SIGNATURE\t" + MICROBE + "\t" + WAX
+				+ "\t0.5\tgaussianTruncatedNormalized(" + WAX + ";0.5;0.2;[0,1])\n" + "SIGNATURE\t" + MICROBE
+				+ "\t" + SUGAR + "\t0.5\t");
+		return setup;
+	}
+
+	/**
+	 * enzymaticModel(): the linear model in which the microbe produces an enzyme
+	 * at the rate r, depolymerizing sugar at the rate d and transferring sugar
+	 * from an inaccessible pool to the accessible one
+	 */
+	public static String enzymaticModel(double input, double uptakeRate, double efficiency, double mortalityRate,
+			double productionRate, double depolymerizationRate) {
+		String setup = linearModel(input, uptakeRate, efficiency, mortalityRate);
+		String sugarAccessibility = "POOL_ACCESSIBILITY\t" + SUGAR + "\t[ACCESSIBLE]\n";
+		String mortality = "MORTALITY\t" + MICROBE + "\t";
+		String sugarInitialization = "POOL_INITIALIZATION\t" + SUGAR + "\t";
+		setup = setup.replace(sugarAccessibility, "POOL_ACCESSIBILITY\t" + SUGAR
+				+ "\t[ACCESSIBLE,INACCESSIBLE_MINERAL_ASSOCIATION]\n" + "ENZYME_TRAITS\t" + ENZYME + "\t" + SUGAR
+				+ "\t[0,1]\tuniformLinear([0,1];" + depolymerizationRate + ")\tkernelAlpha([0,1];2.1)\tINTEGRAL_KERNEL_INTEGRATION\n");
+		setup = setup.replace(mortality,
+				"ENZYME_PRODUCTION\t" + MICROBE + "\t" + ENZYME + "\tlinear(" + productionRate + ")\n" + mortality);
+		setup = setup.replace(sugarInitialization, "POOL_TRANSFER\t" + SUGAR
+				+ "\tINACCESSIBLE_MINERAL_ASSOCIATION\tACCESSIBLE\tenzymaticLinearTransfer(" + ENZYME + ";1)\n"
+				+ "POOL_INITIALIZATION\t" + SUGAR + "\tINACCESSIBLE_MINERAL_ASSOCIATION\tgaussianTruncatedProportionalized("
+				+ SUGAR + ";1.;0.7;0.1;[0,1])\n" + sugarInitialization);
+		return setup;
+	}
+
+	/**
+	 * load(): writes the setup in a temporary file and loads it in the simulator
+	 */
+	public static SetupFileLoader load(Simulator sim, String setup) throws Exception {
+		File file = File.createTempFile("cstability_test_", ".csv");
+		file.deleteOnExit();
+		try (PrintWriter out = new PrintWriter(file)) {
+			out.print(setup);
+		}
+		return sim.load(file.getAbsolutePath());
+	}
+
+	/**
+	 * setSinusoidalInput(): the input of sugar of the loaded linear model is
+	 * multiplied by 1 + amplitude * sin(2 * pi * t / period)
+	 */
+	public static void setSinusoidalInput(Context c, double amplitude, double period) {
+		SubstrateInputManager sim = c.getSubstrateInputManager();
+		String poolKey = SUGAR + "_" + SubstrateAccessibility.ACCESSIBLE.getKey();
+		sim.addPoolInputManager(poolKey, new SinusoidalInputManager(sim.getPoolInputManager(poolKey), amplitude,
+				period));
+	}
+
+	/**
+	 * A pool input manager multiplying the inputs of another one by 1 +
+	 * amplitude * sin(2 * pi * t / period)
+	 */
+	private static class SinusoidalInputManager extends PoolInputManager {
+
+		private PoolInputManager constantInput;
+		private double amplitude;
+		private double period;
+
+		/**
+		 * Constructor
+		 */
+		public SinusoidalInputManager(PoolInputManager constantInput, double amplitude, double period) {
+			super(SUGAR, SubstrateAccessibility.ACCESSIBLE.getKey());
+			this.constantInput = constantInput;
+			this.amplitude = amplitude;
+			this.period = period;
+		}
+
+		/**
+		 * getInput()
+		 */
+		@Override
+		public PoolInput getInput(Parameters p, Context c, State s, double date) throws Exception {
+			PoolInput pi = constantInput.getInput(p, c, s, date);
+			double factor = 1 + amplitude * Math.sin(2 * Math.PI * date / period);
+			double[] valuesY = pi.getValuesY().clone();
+			for (int i = 0; i < valuesY.length; i++)
+				valuesY[i] *= factor;
+			return new PoolInput(pi.getValuesX(), valuesY, pi.getIntegrationMethod(), pi.getBiochemicalClass(),
+					pi.getAccessibility());
+		}
+	}
+
+}
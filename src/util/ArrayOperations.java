@@ -0,0 +1,159 @@
+package capsis.lib.cstability.util;
+
+/**
+ * The loops over double arrays of the distributions and matrices: element-wise
+ * operations, integration rules and dot products of the matrix-vector
+ * products. This class is the scalar backend, the operations are made in the
+ * order of the indices.
+ *
+ * A backend with the Java Vector API (SIMD) can be selected at runtime with the
+ * system property -Dcstability.arrayOperations=VECTOR. Its source is in the
+ * separate directory src-vector and needs a JDK with the module
+ * jdk.incubator.vector (--add-modules jdk.incubator.vector at compile and run
+ * time, see cstability.sh). If it is not available, the scalar backend is
+ * used. The vector backend sums in a different order: results may differ in
+ * the last bits.
+ *
+ * @author agent - October 2026
+ */
+public class ArrayOperations {
+
+	public static final String PROPERTY = "cstability.arrayOperations";
+	public static final String SCALAR = "SCALAR";
+	public static final String VECTOR = "VECTOR";
+
+	private static final String VECTOR_CLASS_NAME = "capsis.lib.cstability.util.vector.VectorArrayOperations";
+
+	private static final ArrayOperations SCALAR_OPERATIONS = new ArrayOperations();
+	private static final ArrayOperations OPERATIONS = select();
+
+	/**
+	 * select(): the backend chosen by the system property
+	 */
+	private static ArrayOperations select() {
+		String backend = System.getProperty(PROPERTY, SCALAR);
+		if (backend.equals(VECTOR)) {
+			ArrayOperations vectorOperations = getVectorOperations();
+			if (vectorOperations != null)
+				return vectorOperations;
+			Log.println("ArrayOperations.select()", "the vector backend is not available, scalar backend used", true);
+		} else if (!backend.equals(SCALAR)) {
+			Log.println("ArrayOperations.select()", "unknown backend " + backend + ", scalar backend used", true);
+		}
+		return SCALAR_OPERATIONS;
+	}
+
+	/**
+	 * get(): the backend selected at runtime
+	 */
+	public static ArrayOperations get() {
+		return OPERATIONS;
+	}
+
+	/**
+	 * getScalarOperations()
+	 */
+	public static ArrayOperations getScalarOperations() {
+		return SCALAR_OPERATIONS;
+	}
+
+	/**
+	 * getVectorOperations(): the vector backend, null if it is not available
+	 */
+	public static ArrayOperations getVectorOperations() {
+		try {
+			return (ArrayOperations) Class.forName(VECTOR_CLASS_NAME).getConstructor().newInstance();
+		} catch (Throwable t) {
+			// class not compiled or module jdk.incubator.vector not loaded
+			return null;
+		}
+	}
+
+	/**
+	 * add(): out = a + b
+	 */
+	public void add(double[] a, double[] b, double[] out) {
+		for (int i = 0; i < out.length; i++)
+			out[i] = a[i] + b[i];
+	}
+
+	/**
+	 * sub(): out = a - b
+	 */
+	public void sub(double[] a, double[] b, double[] out) {
+		for (int i = 0; i < out.length; i++)
+			out[i] = a[i] - b[i];
+	}
+
+	/**
+	 * mult(): out = a * b, element-wise
+	 */
+	public void mult(double[] a, double[] b, double[] out) {
+		for (int i = 0; i < out.length; i++)
+			out[i] = a[i] * b[i];
+	}
+
+	/**
+	 * mult(): out = scalar * a
+	 */
+	public void mult(double scalar, double[] a, double[] out) {
+		for (int i = 0; i < out.length; i++)
+			out[i] = scalar * a[i];
+	}
+
+	/**
+	 * axpy(): y = y + a * x
+	 */
+	public void axpy(double a, double[] x, double[] y) {
+		for (int i = 0; i < y.length; i++)
+			y[i] += a * x[i];
+	}
+
+	/**
+	 * integrateRectangleLeft(): sum (x[i + 1] - x[i]) * y[i]
+	 */
+	public double integrateRectangleLeft(double[] x, double[] y) {
+		double integral = 0d;
+		for (int i = 0; i < x.length - 1; i++)
+			integral += (x[i + 1] - x[i]) * y[i];
+		return integral;
+	}
+
+	/**
+	 * integrateRectangleRight(): sum (x[i + 1] - x[i]) * y[i + 1]
+	 */
+	public double integrateRectangleRight(double[] x, double[] y) {
+		double integral = 0d;
+		for (int i = 0; i < x.length - 1; i++)
+			integral += (x[i + 1] - x[i]) * y[i + 1];
+		return integral;
+	}
+
+	/**
+	 * integrateTrapeze(): sum (x[i + 1] - x[i]) * (y[i] + y[i + 1]) / 2
+	 */
+	public double integrateTrapeze(double[] x, double[] y) {
+		double integral = 0d;
+		for (int i = 0; i < x.length - 1; i++)
+			integral += (x[i + 1] - x[i]) * (y[i] + y[i + 1]) / 2d;
+		return integral;
+	}
+
+	/**
+	 * dot(): sum a[aOffset + k] * b[bOffset + k] for k < n
+	 */
+	public double dot(double[] a, int aOffset, double[] b, int bOffset, int n) {
+		double sum = 0d;
+		for (int k = 0; k < n; k++)
+			sum += a[aOffset + k] * b[bOffset + k];
+		return sum;
+	}
+
+	/**
+	 * getName()
+	 */
+	public String getName() {
+		return SCALAR;
+	}
+
+}
@@ -0,0 +1,17 @@
+package capsis.lib.cstability.util;
+
+/**
+ * The products sum_{j > i} M_ij x_j of the strict upper part of a matrix M with
+ * a vector x, asked for i = n - 1 down to 0 as in a back-substitution: x_j must
+ * be known for j > i when line i is asked.
+ *
+ * @author agent - October 2026
+ */
+public interface BackwardSweep {
+
+	/**
+	 * upperRowProduct(): sum_{j > i} M_ij x_j
+	 */
+	public double upperRowProduct(int i);
+
+}
@@ -0,0 +1,111 @@
+package capsis.lib.cstability.util;
+
+/**
+ * Storage of a banded square matrix: for each line i, the values (i, j) with
+ * i - lowerBandwidth <= j <= i + upperBandwidth are stored.
+ *
+ * @author agent - October 2026
+ */
+@SuppressWarnings("serial")
+public class BandedStorage extends MatrixStorage {
+
+	private int lowerBandwidth;
+	private int upperBandwidth;
+	private int width;
+	private double[] values; // value (i, j) is at i * width + j - i + lowerBandwidth
+
+	/**
+	 * Constructor
+	 */
+	public BandedStorage(Matrix m, int lowerBandwidth, int upperBandwidth) throws Exception {
+		super(m.nLines);
+		this.lowerBandwidth = lowerBandwidth;
+		this.upperBandwidth = upperBandwidth;
+		width = lowerBandwidth + upperBandwidth + 1;
+		double[] mValues = m.getDenseValues();
+		values = new double[n * width];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				double v = mValues[i * n + j];
+				if (j < i - lowerBandwidth || j > i + upperBandwidth) {
+					if (v != 0d)
+						throw new Exception("BandedStorage, value out of the band at (" + i + ", " + j + ")");
+				} else {
+					values[i * width + j - i + lowerBandwidth] = v;
+				}
+			}
+		}
+	}
+
+	/**
+	 * get()
+	 */
+	@Override
+	public double get(int i, int j) {
+		if (j < i - lowerBandwidth || j > i + upperBandwidth)
+			return 0d;
+		return values[i * width + j - i + lowerBandwidth];
+	}
+
+	/**
+	 * multiplyAdd()
+	 */
+	@Override
+	public void multiplyAdd(double a, double[] x, double[] y) throws Exception {
+		checkDimensions(x, y);
+		ArrayOperations op = ArrayOperations.get();
+		for (int i = 0; i < n; i++) {
+			int jMin = Math.max(0, i - lowerBandwidth);
+			int jMax = Math.min(n - 1, i + upperBandwidth);
+			int k = i * width - i + lowerBandwidth;
+			double sum = op.dot(values, k + jMin, x, jMin, jMax - jMin + 1);
+			y[i] += a * sum;
+		}
+	}
+
+	/**
+	 * upperRowProduct()
+	 */
+	@Override
+	public double upperRowProduct(int i, double[] x) {
+		int jMax = Math.min(n - 1, i + upperBandwidth);
+		int k = i * width - i + lowerBandwidth;
+		double sum = 0d;
+		for (int j = i + 1; j <= jMax; j++)
+			sum += values[k + j] * x[j];
+		return sum;
+	}
+
+	/**
+	 * addScaledColumnsTo()
+	 */
+	@Override
+	public void addScaledColumnsTo(Matrix m, double[] d) throws Exception {
+		double[] mValues = m.getModifiableValues();
+		for (int i = 0; i < n; i++) {
+			int jMin = Math.max(0, i - lowerBandwidth);
+			int jMax = Math.min(n - 1, i + upperBandwidth);
+			int k = i * width - i + lowerBandwidth;
+			int row = i * n;
+			for (int j = jMin; j <= jMax; j++) {
+				mValues[row + j] += values[k + j] * d[j];
+			}
+		}
+	}
+
+	/**
+	 * getStoredValuesCount()
+	 */
+	@Override
+	public int getStoredValuesCount() {
+		return values.length;
+	}
+
+	/**
+	 * getName()
+	 */
+	@Override
+	public String getName() {
+		return "banded (" + lowerBandwidth + ", " + upperBandwidth + ")";
+	}
+}
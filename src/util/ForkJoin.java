@@ -0,0 +1,79 @@
+package capsis.lib.cstability.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Tools to run independent tasks on a ForkJoinPool.
+ *
+ * @author agent - October 2026
+ */
+public class ForkJoin {
+
+	/**
+	 * A task on an element of a collection.
+	 */
+	public interface Task<T> {
+
+		/**
+		 * run()
+		 */
+		public void run(T element) throws Exception;
+	}
+
+	/**
+	 * forEach(): runs the task on each element, in parallel on the pool if it is
+	 * not null, else sequentially in the order of the collection. Returns when
+	 * all the tasks are done, the first exception of a task in the order of the
+	 * collection is thrown.
+	 */
+	public static <T> void forEach(ForkJoinPool pool, Collection<T> elements, Task<T> task) throws Exception {
+
+		if (pool == null || elements.size() < 2) {
+			for (T element : elements)
+				task.run(element);
+			return;
+		}
+
+		// the tasks log in the sink of the caller, their exceptions are kept as
+		// thrown (the pool would wrap them)
+		LogSink sink = Log.getBoundSink();
+		List<T> list = new ArrayList<>(elements);
+		Exception[] exceptions = new Exception[list.size()];
+		List<ForkJoinTask<Object>> tasks = new ArrayList<>();
+		for (int k = 0; k < list.size(); k++) {
+			int index = k;
+			T element = list.get(k);
+			tasks.add(pool.submit(() -> {
+				LogSink previousSink = Log.bind(sink);
+				try {
+					task.run(element);
+				} catch (Exception e) {
+					exceptions[index] = e;
+				} finally {
+					Log.bind(previousSink);
+				}
+				return null;
+			}));
+		}
+
+		Exception exception = null;
+		for (int k = 0; k < tasks.size(); k++) {
+			try {
+				tasks.get(k).get();
+			} catch (ExecutionException e) {
+				if (exceptions[k] == null)
+					exceptions[k] = e;
+			}
+			if (exception == null)
+				exception = exceptions[k];
+		}
+		if (exception != null)
+			throw exception;
+	}
+
+}
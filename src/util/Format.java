@@ -13,19 +13,19 @@ import java.util.Map;
  */
 public class Format {
 
-	private static final NumberFormat nf;
-
-	static {
-		nf = NumberFormat.getInstance(Locale.ENGLISH);
-		nf.setGroupingUsed(false);
-		nf.setMaximumFractionDigits(3);
-	}
+	// NumberFormat is not thread safe: one instance per thread
+	private static final ThreadLocal<NumberFormat> nf = ThreadLocal.withInitial(() -> {
+		NumberFormat f = NumberFormat.getInstance(Locale.ENGLISH);
+		f.setGroupingUsed(false);
+		f.setMaximumFractionDigits(3);
+		return f;
+	});
 
 	/**
 	 * toString()
 	 */
 	public static String toString(double v) {
-		return nf.format(v);
+		return nf.get().format(v);
 	}
 
 	/**
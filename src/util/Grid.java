@@ -0,0 +1,203 @@
+package capsis.lib.cstability.util;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A sorted grid of values, e.g. the discretization of a Polymerization or of a
+ * Timeline. The grid knows if it is uniform: the index of a value is then
+ * computed arithmetically, else it is found by binary search.
+ *
+ * Grids are immutable and interned by of(): the distributions on the same
+ * values share one Grid, and two distributions have the same discretization if
+ * and only if they reference the same Grid.
+ *
+ * @author agent - October 2026
+ */
+@SuppressWarnings("serial")
+public class Grid implements Serializable {
+
+	// relative to the step, for the values computed by min + i * step
+	private static final double UNIFORMITY_TOLERANCE = 1e-9;
+
+	// the interned grids, by values
+	private static final Map<Grid, WeakReference<Grid>> internedGrids = new WeakHashMap<>();
+
+	private double[] values; // not to be modified
+	private int length;
+	private boolean uniform;
+	private double step;
+	private int hashCode;
+
+	/**
+	 * Constructor, values must be sorted in increasing order. The values are
+	 * copied.
+	 */
+	private Grid(double[] values) throws Exception {
+		this.length = values.length;
+		if (length < 1)
+			throw new Exception("Grid(), empty grid");
+		for (int i = 0; i < length - 1; i++) {
+			if (!(values[i] < values[i + 1]))
+				throw new Exception("Grid(), values are not sorted in increasing order at index " + i);
+		}
+		this.values = values.clone();
+
+		uniform = false;
+		if (length > 1) {
+			step = (values[length - 1] - values[0]) / (length - 1);
+			uniform = true;
+			for (int i = 1; i < length - 1 && uniform; i++)
+				uniform = Math.abs(values[i] - (values[0] + i * step)) <= UNIFORMITY_TOLERANCE * step;
+		}
+		hashCode = Arrays.hashCode(this.values);
+	}
+
+	/**
+	 * of(): the interned grid of the values, the same Grid for all the arrays with
+	 * the same values. The grid is found by the values and not by the array,
+	 * which may be modified and given again by the caller.
+	 */
+	public static Grid of(double[] values) throws Exception {
+		return intern(new Grid(values));
+	}
+
+	/**
+	 * intern(): the interned grid with the values of grid
+	 */
+	private static synchronized Grid intern(Grid grid) {
+		Grid internedGrid = get(internedGrids, grid);
+		if (internedGrid == null) {
+			internedGrid = grid;
+			internedGrids.put(grid, new WeakReference<>(grid));
+		}
+		return internedGrid;
+	}
+
+	/**
+	 * get()
+	 */
+	private static Grid get(Map<Grid, WeakReference<Grid>> map, Grid key) {
+		WeakReference<Grid> reference = map.get(key);
+		return reference == null ? null : reference.get();
+	}
+
+	/**
+	 * readResolve(): deserialized grids are interned
+	 */
+	private Object readResolve() {
+		return intern(this);
+	}
+
+	/**
+	 * lowerIndex(): the greatest index i with values[i] <= x, -1 if x is lower
+	 * than the first value
+	 */
+	private int lowerIndex(double x) {
+		int i;
+		if (uniform) {
+			double position = Math.floor((x - values[0]) / step);
+			i = (int) Math.max(-1, Math.min(length - 1, position));
+			// rounding errors
+			while (i + 1 < length && values[i + 1] <= x)
+				i++;
+			while (i >= 0 && values[i] > x)
+				i--;
+		} else {
+			int low = 0;
+			int high = length - 1;
+			i = -1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				if (values[middle] <= x) {
+					i = middle;
+					low = middle + 1;
+				} else {
+					high = middle - 1;
+				}
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * getPreviousIndex(): the index i of the interval [values[i], values[i + 1]]
+	 * containing x, with values[i] <= x, in [0, length - 2]
+	 */
+	public int getPreviousIndex(double x) {
+		return Math.max(0, Math.min(length - 2, lowerIndex(x)));
+	}
+
+	/**
+	 * getNextIndex(): the lowest index i with x <= values[i], in [0, length - 1]
+	 */
+	public int getNextIndex(double x) {
+		int i = lowerIndex(x);
+		if (i >= 0 && values[i] == x)
+			return i;
+		return Math.min(length - 1, i + 1);
+	}
+
+	/**
+	 * getIndex(): the index of the value x, -1 if x is not a value of the grid
+	 */
+	public int getIndex(double x) {
+		int i = lowerIndex(x);
+		return i >= 0 && values[i] == x ? i : -1;
+	}
+
+	/**
+	 * getValues(): the values, shared by all the users of the grid, not to be
+	 * modified
+	 */
+	public double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * isUniform()
+	 */
+	public boolean isUniform() {
+		return uniform;
+	}
+
+	/**
+	 * getLength()
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * equals(): same values
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof Grid))
+			return false;
+		Grid g = (Grid) o;
+		return hashCode == g.hashCode && Arrays.equals(values, g.values);
+	}
+
+	/**
+	 * hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	/**
+	 * toString()
+	 */
+	@Override
+	public String toString() {
+		return "Grid, length: " + length + ", uniform: " + uniform + (uniform ? ", step: " + step : "");
+	}
+
+}
@@ -87,6 +87,14 @@ public class Interval<T extends Number & Comparable> implements Decodable, Seria
 		return (min.compareTo(x) <= 0) && (x.compareTo(max) <= 0);
 	}
 
+	/**
+	 * contains(): same result as contains(T) for an Interval of Double, x is not
+	 * boxed
+	 */
+	public boolean contains(double x) {
+		return Double.compare(min.doubleValue(), x) <= 0 && Double.compare(x, max.doubleValue()) <= 0;
+	}
+
 	/**
 	 * toString()
 	 */
@@ -1,69 +1,75 @@
 package capsis.lib.cstability.util;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The log of the model C-STABILITY.
  * 
+ * The lines are written in the sink bound to the current thread if any (see
+ * bind(), each simulation may have its own sink), else in the default sink
+ * opened by init(). Without any sink, e.g. when the library is used without
+ * init(), the lines are only copied to the terminal if requested.
+ * 
  * @author J. Sainte-Marie, F. de Coligny - May 2021
  */
 public class Log {
 
-	private static PrintWriter printWriter; // Only to write exception to terminal
-	private static BufferedWriter out;
-	private static Date date;
-	
+	private static volatile LogSink defaultSink;
+	private static final ThreadLocal<LogSink> threadSink = new ThreadLocal<>();
+	private static final AtomicBoolean noSinkWarned = new AtomicBoolean();
+
 	/**
-	 * init(): to be called at C-STABILITY start time
+	 * init(): to be called at C-STABILITY start time, opens the default sink
 	 */
 	public static void init(String outputDir, String fileName) throws Exception {
-		try {
-			
-            date = new java.util.Date();
-            
-            String datefilename = new SimpleDateFormat("yyyy-MM-dd_HHmmss").format(date);
-			String logFullFileName = outputDir + "/" + datefilename + "_" + fileName;
-
-			File f = new File(outputDir);
-			f.mkdirs();
+		defaultSink = new LogSink(outputDir, fileName);
+	}
 
-			printWriter = new PrintWriter(logFullFileName);
-			out = new BufferedWriter(printWriter);
+	/**
+	 * bind(): the lines written by the current thread go to sink, or to the
+	 * default sink if sink is null. Returns the sink previously bound, to be
+	 * restored with bind() at the end.
+	 */
+	public static LogSink bind(LogSink sink) {
+		LogSink previous = threadSink.get();
+		if (sink == null)
+			threadSink.remove();
+		else
+			threadSink.set(sink);
+		return previous;
+	}
 
-			Log.trace("C-STABILITY simulation start at " + date + " with inpout file: " + fileName);
+	/**
+	 * getBoundSink(): the sink bound to the current thread, may be null
+	 */
+	public static LogSink getBoundSink() {
+		return threadSink.get();
+	}
 
-		} catch (Exception e) {
-			throw e; // can not log the problem
-		}
+	/**
+	 * getSink(): the sink used by the current thread, may be null
+	 */
+	public static LogSink getSink() {
+		LogSink sink = threadSink.get();
+		return sink != null ? sink : defaultSink;
 	}
 
 	/**
 	 * flush(): writes the buffer to file.
 	 */
 	public static void flush() {
-		try {
-			printWriter.flush();
-			out.flush();
-		} catch (Exception e) {
-			// Ignore
-		}
+		LogSink sink = getSink();
+		if (sink != null)
+			sink.flush();
 	}
 
 	/**
-	 * close(): to be called at C-STABILITY ending time
+	 * close(): to be called at C-STABILITY ending time, closes the default sink
 	 */
 	public static void close() {
-		flush(); // seems to be needed
-		try {
-			printWriter.close();
-			out.close();
-		} catch (Exception e) {
-			// Ignore
-		}
+		LogSink sink = defaultSink;
+		if (sink != null)
+			sink.close();
 	}
 
 	/**
@@ -98,30 +104,23 @@ public class Log {
 	 * println()
 	 */
 	public static void println(String source, String message, Exception e, boolean copyToTerminal) {
-		try {
-			String line = message;
-
-			if (source != null && source.length() > 0)
-				line = source + ", " + line;
+		String line = message;
 
-			out.write(line);
-			out.newLine();
+		if (source != null && source.length() > 0)
+			line = source + ", " + line;
 
-			if (copyToTerminal)
+		LogSink sink = getSink();
+		if (sink == null) {
+			if (copyToTerminal) {
 				System.out.println(line);
-
-			if (e != null) {
-				// Write in Log file
-				e.printStackTrace(printWriter);
-				// Write to terminal
-				if (copyToTerminal)
+				if (e != null)
 					e.printStackTrace(System.out);
+			} else if (noSinkWarned.compareAndSet(false, true)) {
+				System.out.println("Log.println(), no log sink, the lines not copied to the terminal are ignored");
 			}
-
-		} catch (Exception ex) {
-			System.out.println("Log.println() could not print in Log, exception: " + ex);
-			// Ignore
+			return;
 		}
+		sink.println(line, e, copyToTerminal);
 	}
 
 }
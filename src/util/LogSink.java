@@ -0,0 +1,77 @@
+package capsis.lib.cstability.util;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * A log file of C-STABILITY. Each simulation may write in its own sink, the
+ * lines written by parallel threads are not mixed.
+ *
+ * @author agent - October 2026
+ */
+public class LogSink {
+
+	private PrintWriter printWriter;
+
+	/**
+	 * Constructor, opens the log file outputDir/date_fileName
+	 */
+	public LogSink(String outputDir, String fileName) throws Exception {
+
+		Date date = new Date();
+
+		String datefilename = new SimpleDateFormat("yyyy-MM-dd_HHmmss").format(date);
+		String logFullFileName = outputDir + "/" + datefilename + "_" + fileName;
+
+		File f = new File(outputDir);
+		f.mkdirs();
+
+		printWriter = new PrintWriter(logFullFileName);
+
+		println("C-STABILITY simulation start at " + date + " with inpout file: " + fileName, null, true);
+	}
+
+	/**
+	 * Constructor, the lines are written in the given writer
+	 */
+	public LogSink(Writer writer) {
+		printWriter = writer instanceof PrintWriter ? (PrintWriter) writer : new PrintWriter(writer);
+	}
+
+	/**
+	 * println(): writes the line and the stack trace of e if not null
+	 */
+	public synchronized void println(String line, Exception e, boolean copyToTerminal) {
+
+		printWriter.println(line);
+
+		if (copyToTerminal)
+			System.out.println(line);
+
+		if (e != null) {
+			// Write in Log file
+			e.printStackTrace(printWriter);
+			// Write to terminal
+			if (copyToTerminal)
+				e.printStackTrace(System.out);
+		}
+	}
+
+	/**
+	 * flush(): writes the buffer to file.
+	 */
+	public synchronized void flush() {
+		printWriter.flush();
+	}
+
+	/**
+	 * close()
+	 */
+	public synchronized void close() {
+		printWriter.close();
+	}
+
+}
@@ -0,0 +1,343 @@
+package capsis.lib.cstability.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical low-rank approximation of a square matrix: the matrix is split
+ * recursively in 2 x 2 blocks, the off-diagonal blocks are approximated by
+ * sums of rank one matrices u_r . v_r^T built by adaptive cross approximation
+ * (ACA) with full pivoting, the small diagonal blocks are kept dense. Kernels
+ * are smooth far from the diagonal even if they are triangular, so the
+ * product M.x costs O(n.k.log(n)) with k the maximal rank of the blocks.
+ *
+ * Each block is approximated with a relative Frobenius error lower than the
+ * tolerance, so is the whole matrix.
+ *
+ * @author agent - October 2026
+ */
+@SuppressWarnings("serial")
+public class LowRankStorage extends MatrixStorage {
+
+	// diagonal blocks of at most LEAF_SIZE lines are kept dense
+	public static final int LEAF_SIZE = 16;
+
+	/**
+	 * A block of the matrix starting at (line0, column0), dense if rank < 0.
+	 */
+	private static class Block implements Serializable {
+		int line0;
+		int column0;
+		int nLines;
+		int nColumns;
+		int rank;
+		double[] u; // dense values or u_r[i] = u[r * nLines + i]
+		double[] v; // v_r[j] = v[r * nColumns + j]
+
+		/**
+		 * contains()
+		 */
+		boolean contains(int i, int j) {
+			return i >= line0 && i < line0 + nLines && j >= column0 && j < column0 + nColumns;
+		}
+	}
+
+	private List<Block> blocks;
+	private int maxRank;
+	private double relativeError; // ||M - approximation||_F / ||M||_F
+
+	/**
+	 * Constructor
+	 */
+	private LowRankStorage(int n) {
+		super(n);
+		blocks = new ArrayList<>();
+	}
+
+	/**
+	 * build(): returns the hierarchical low-rank approximation of m with a
+	 * relative Frobenius error lower than tolerance.
+	 */
+	public static LowRankStorage build(Matrix m, double tolerance) throws Exception {
+
+		if (m.nLines != m.nColumns)
+			throw new Exception("LowRankStorage.build(), m must be a square matrix");
+		if (tolerance <= 0)
+			throw new Exception("LowRankStorage.build(), tolerance must be positive: " + tolerance);
+
+		double[] values = m.getDenseValues();
+		LowRankStorage s = new LowRankStorage(m.nLines);
+		double squaredError = s.split(values, 0, m.nLines, tolerance);
+		double squaredNorm = squaredNorm(values);
+		s.relativeError = squaredNorm == 0 ? 0 : Math.sqrt(squaredError / squaredNorm);
+		return s;
+	}
+
+	/**
+	 * split(): approximates the diagonal block starting at (first, first),
+	 * returns the squared error
+	 */
+	private double split(double[] values, int first, int size, double tolerance) {
+		if (size <= LEAF_SIZE) {
+			addDenseBlock(values, first, first, size, size);
+			return 0;
+		}
+		int half = size / 2;
+		double squaredError = split(values, first, half, tolerance);
+		squaredError += split(values, first + half, size - half, tolerance);
+		squaredError += approximate(values, first, first + half, half, size - half, tolerance);
+		squaredError += approximate(values, first + half, first, size - half, half, tolerance);
+		return squaredError;
+	}
+
+	/**
+	 * approximate(): ACA of an off-diagonal block, kept dense if the
+	 * approximation is not cheaper, returns the squared error
+	 */
+	private double approximate(double[] values, int line0, int column0, int nLines, int nColumns, double tolerance) {
+		double[] residual = new double[nLines * nColumns];
+		for (int i = 0; i < nLines; i++)
+			System.arraycopy(values, (line0 + i) * n + column0, residual, i * nColumns, nColumns);
+
+		double norm = Math.sqrt(squaredNorm(residual));
+		if (norm == 0)
+			return 0; // null block, nothing stored
+
+		// beyond this rank, the dense block is cheaper
+		int rankLimit = nLines * nColumns / (nLines + nColumns);
+		double[] u = new double[nLines * rankLimit];
+		double[] v = new double[nColumns * rankLimit];
+
+		int rank = 0;
+		double error = norm;
+		while (error > tolerance * norm) {
+			if (rank == rankLimit) {
+				addDenseBlock(values, line0, column0, nLines, nColumns);
+				return 0;
+			}
+
+			// pivot: the largest residual value
+			int pivot = 0;
+			for (int k = 1; k < residual.length; k++) {
+				if (Math.abs(residual[k]) > Math.abs(residual[pivot]))
+					pivot = k;
+			}
+			int iPivot = pivot / nColumns;
+			int jPivot = pivot % nColumns;
+			double pivotValue = residual[pivot];
+
+			// cross: column jPivot / pivot value, line iPivot
+			int uOffset = rank * nLines;
+			int vOffset = rank * nColumns;
+			for (int i = 0; i < nLines; i++)
+				u[uOffset + i] = residual[i * nColumns + jPivot] / pivotValue;
+			System.arraycopy(residual, iPivot * nColumns, v, vOffset, nColumns);
+
+			for (int i = 0; i < nLines; i++) {
+				double ui = u[uOffset + i];
+				if (ui == 0d)
+					continue;
+				int row = i * nColumns;
+				for (int j = 0; j < nColumns; j++)
+					residual[row + j] -= ui * v[vOffset + j];
+			}
+			rank++;
+			error = Math.sqrt(squaredNorm(residual));
+		}
+
+		Block b = new Block();
+		b.line0 = line0;
+		b.column0 = column0;
+		b.nLines = nLines;
+		b.nColumns = nColumns;
+		b.rank = rank;
+		b.u = new double[nLines * rank];
+		b.v = new double[nColumns * rank];
+		System.arraycopy(u, 0, b.u, 0, b.u.length);
+		System.arraycopy(v, 0, b.v, 0, b.v.length);
+		blocks.add(b);
+		maxRank = Math.max(maxRank, rank);
+		return error * error;
+	}
+
+	/**
+	 * addDenseBlock()
+	 */
+	private void addDenseBlock(double[] values, int line0, int column0, int nLines, int nColumns) {
+		Block b = new Block();
+		b.line0 = line0;
+		b.column0 = column0;
+		b.nLines = nLines;
+		b.nColumns = nColumns;
+		b.rank = -1;
+		b.u = new double[nLines * nColumns];
+		for (int i = 0; i < nLines; i++)
+			System.arraycopy(values, (line0 + i) * n + column0, b.u, i * nColumns, nColumns);
+		blocks.add(b);
+	}
+
+	/**
+	 * squaredNorm()
+	 */
+	private static double squaredNorm(double[] a) {
+		double sum = 0;
+		for (double x : a)
+			sum += x * x;
+		return sum;
+	}
+
+	/**
+	 * get()
+	 */
+	@Override
+	public double get(int i, int j) {
+		for (Block b : blocks) {
+			if (!b.contains(i, j))
+				continue;
+			int bi = i - b.line0;
+			int bj = j - b.column0;
+			if (b.rank < 0)
+				return b.u[bi * b.nColumns + bj];
+			double sum = 0;
+			for (int r = 0; r < b.rank; r++)
+				sum += b.u[r * b.nLines + bi] * b.v[r * b.nColumns + bj];
+			return sum;
+		}
+		return 0d;
+	}
+
+	/**
+	 * multiplyAdd()
+	 */
+	@Override
+	public void multiplyAdd(double a, double[] x, double[] y) throws Exception {
+		checkDimensions(x, y);
+		for (Block b : blocks) {
+			if (b.rank < 0) {
+				for (int i = 0; i < b.nLines; i++) {
+					int row = i * b.nColumns;
+					double sum = 0;
+					for (int j = 0; j < b.nColumns; j++)
+						sum += b.u[row + j] * x[b.column0 + j];
+					y[b.line0 + i] += a * sum;
+				}
+			} else {
+				for (int r = 0; r < b.rank; r++) {
+					int vOffset = r * b.nColumns;
+					double t = 0;
+					for (int j = 0; j < b.nColumns; j++)
+						t += b.v[vOffset + j] * x[b.column0 + j];
+					t *= a;
+					int uOffset = r * b.nLines;
+					for (int i = 0; i < b.nLines; i++)
+						y[b.line0 + i] += b.u[uOffset + i] * t;
+				}
+			}
+		}
+	}
+
+	/**
+	 * addAbsoluteColumnSums(): block by block, each value is computed once
+	 */
+	@Override
+	public void addAbsoluteColumnSums(double[] sums) {
+		for (Block b : blocks) {
+			for (int i = 0; i < b.nLines; i++) {
+				for (int j = 0; j < b.nColumns; j++) {
+					double value;
+					if (b.rank < 0) {
+						value = b.u[i * b.nColumns + j];
+					} else {
+						value = 0;
+						for (int r = 0; r < b.rank; r++)
+							value += b.u[r * b.nLines + i] * b.v[r * b.nColumns + j];
+					}
+					sums[b.column0 + j] += Math.abs(value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * upperRowProduct()
+	 */
+	@Override
+	public double upperRowProduct(int i, double[] x) {
+		double sum = 0d;
+		for (Block b : blocks) {
+			if (i < b.line0 || i >= b.line0 + b.nLines || b.column0 + b.nColumns <= i + 1)
+				continue;
+			int bi = i - b.line0;
+			for (int bj = Math.max(0, i + 1 - b.column0); bj < b.nColumns; bj++) {
+				double value;
+				if (b.rank < 0) {
+					value = b.u[bi * b.nColumns + bj];
+				} else {
+					value = 0d;
+					for (int r = 0; r < b.rank; r++)
+						value += b.u[r * b.nLines + bi] * b.v[r * b.nColumns + bj];
+				}
+				sum += value * x[b.column0 + bj];
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * addScaledColumnsTo()
+	 */
+	@Override
+	public void addScaledColumnsTo(Matrix m, double[] d) throws Exception {
+		double[] mValues = m.getModifiableValues();
+		for (Block b : blocks) {
+			for (int i = 0; i < b.nLines; i++) {
+				int row = (b.line0 + i) * n + b.column0;
+				for (int j = 0; j < b.nColumns; j++) {
+					double value;
+					if (b.rank < 0) {
+						value = b.u[i * b.nColumns + j];
+					} else {
+						value = 0;
+						for (int r = 0; r < b.rank; r++)
+							value += b.u[r * b.nLines + i] * b.v[r * b.nColumns + j];
+					}
+					mValues[row + j] += value * d[b.column0 + j];
+				}
+			}
+		}
+	}
+
+	/**
+	 * getMaxRank(): the maximal rank of the off-diagonal blocks
+	 */
+	public int getMaxRank() {
+		return maxRank;
+	}
+
+	/**
+	 * getRelativeError(): relative Frobenius error of the approximation
+	 */
+	public double getRelativeError() {
+		return relativeError;
+	}
+
+	/**
+	 * getStoredValuesCount()
+	 */
+	@Override
+	public int getStoredValuesCount() {
+		int count = 0;
+		for (Block b : blocks)
+			count += b.u.length + (b.v != null ? b.v.length : 0);
+		return count;
+	}
+
+	/**
+	 * getName()
+	 */
+	@Override
+	public String getName() {
+		return "low-rank, max rank: " + maxRank + ", relative error: " + relativeError;
+	}
+}
@@ -1,16 +1,21 @@
 package capsis.lib.cstability.util;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
- * Matrix in the model C-STABILITY.
- * 
+ * Matrix in the model C-STABILITY. Values are stored in a single row-major
+ * array: value (i, j) is at index i * nColumns + j.
+ *
  * @author J. Sainte-Marie, F. de Coligny - April 2021
  */
 @SuppressWarnings("serial")
 public class Matrix implements Cloneable, Serializable {
 
-	protected double[][] values;
+	// degree of the Taylor series in exponential()
+	public static final int EXPONENTIAL_DEGREE = 12;
+
+	protected double[] values;
 	protected int nLines;
 	protected int nColumns;
 
@@ -21,17 +26,26 @@ public class Matrix implements Cloneable, Serializable {
 		// this constructor produced a zero matrix
 		this.nLines = nLines;
 		this.nColumns = nColumns;
-		values = new double[nLines][nColumns];
-	}	
-	
+		values = new double[nLines * nColumns];
+	}
+
+	/**
+	 * Constructor for the matrices keeping their values in another form: values
+	 * is null and must be set by the subclass
+	 */
+	protected Matrix(int nLines, int nColumns, boolean allocate) {
+		this.nLines = nLines;
+		this.nColumns = nColumns;
+		if (allocate)
+			values = new double[nLines * nColumns];
+	}
+
 	/**
 	 * Constructor
 	 */
 	public Matrix(int n) {
 		// this constructor produced a zero squared matrix
-		nLines = n;
-		nColumns = n;
-		values = new double[nLines][nColumns];
+		this(n, n);
 	}
 
 	/**
@@ -40,11 +54,7 @@ public class Matrix implements Cloneable, Serializable {
 	@Override
 	public Matrix clone() throws CloneNotSupportedException {
 		Matrix m = new Matrix(nLines, nColumns);
-		for (int i = 0; i < nLines; ++i) {
-			for (int j = 0; j < nColumns; ++j) {
-				m.values[i][j] = values[i][j];
-			}
-		}
+		System.arraycopy(values, 0, m.values, 0, values.length);
 		return m;
 	}
 
@@ -78,11 +88,7 @@ public class Matrix implements Cloneable, Serializable {
 	 */
 	public static Matrix ones(int nLines, int nColumns) {
 		Matrix m = new Matrix(nLines, nColumns);
-		for (int i = 0; i < m.nLines; i++) {
-			for (int j = 0; j < m.nColumns; j++) {
-				m.values[i][j] = 1d;
-			}
-		}
+		Arrays.fill(m.values, 1d);
 		return m;
 	}
 
@@ -97,7 +103,11 @@ public class Matrix implements Cloneable, Serializable {
 	 * eye()
 	 */
 	public static Matrix eye(int n) throws Exception {
-		return diagonal(lineToArray(ones(1, n)));
+		Matrix m = new Matrix(n, n);
+		for (int i = 0; i < n; i++) {
+			m.values[i * n + i] = 1d;
+		}
+		return m;
 	}
 
 	/**
@@ -107,7 +117,7 @@ public class Matrix implements Cloneable, Serializable {
 		int size = array.length;
 		Matrix m = new Matrix(size, size);
 		for (int i = 0; i < size; i++) {
-			m.set(i, i, array[i]);
+			m.values[i * size + i] = array[i];
 		}
 		return m;
 	}
@@ -120,12 +130,8 @@ public class Matrix implements Cloneable, Serializable {
 	 * arrayToLine()
 	 */
 	public static Matrix arrayToLine(double[] array) {
-
-		int size = array.length;
-		Matrix m = new Matrix(1, size);
-		for (int i = 0; i < size; i++) {
-			m.set(0, i, array[i]);
-		}
+		Matrix m = new Matrix(1, array.length);
+		System.arraycopy(array, 0, m.values, 0, array.length);
 		return m;
 	}
 
@@ -133,12 +139,8 @@ public class Matrix implements Cloneable, Serializable {
 	 * arrayToColumn()
 	 */
 	public static Matrix arrayToColumn(double[] array) {
-
-		int size = array.length;
-		Matrix m = new Matrix(size, 1);
-		for (int i = 0; i < size; i++) {
-			m.set(i, 0, array[i]);
-		}
+		Matrix m = new Matrix(array.length, 1);
+		System.arraycopy(array, 0, m.values, 0, array.length);
 		return m;
 	}
 
@@ -150,11 +152,7 @@ public class Matrix implements Cloneable, Serializable {
 		if (m.nColumns != 1)
 			throw new Exception("Matrix.columnToArray(), m must be a column");
 
-		double[] array = new double[m.nLines];
-		for (int i = 0; i < m.nLines; i++) {
-			array[i] = m.values[i][0];
-		}
-		return array;
+		return m.getDenseValues().clone();
 	}
 
 	/**
@@ -165,11 +163,7 @@ public class Matrix implements Cloneable, Serializable {
 		if (m.nLines != 1)
 			throw new Exception("Matrix.lineToArray(), m must be a line");
 
-		double[] array = new double[m.nColumns];
-		for (int i = 0; i < m.nColumns; i++) {
-			array[i] = m.values[0][i];
-		}
-		return array;
+		return m.getDenseValues().clone();
 	}
 
 	/**
@@ -184,10 +178,9 @@ public class Matrix implements Cloneable, Serializable {
 		if (this.nLines != m.nLines || this.nColumns != m.nColumns)
 			throw new Exception("Matrix.add(), dimension mismatch");
 
-		for (int i = 0; i < m.nLines; i++) {
-			for (int j = 0; j < m.nColumns; j++) {
-				this.values[i][j] += m.values[i][j];
-			}
+		double[] mValues = m.getDenseValues();
+		for (int k = 0; k < values.length; k++) {
+			this.values[k] += mValues[k];
 		}
 	}
 
@@ -199,10 +192,9 @@ public class Matrix implements Cloneable, Serializable {
 		if (this.nLines != m.nLines || this.nColumns != m.nColumns)
 			throw new Exception("Matrix.substract(), dimension mismatch");
 
-		for (int i = 0; i < m.nLines; i++) {
-			for (int j = 0; j < m.nColumns; j++) {
-				this.values[i][j] -= m.values[i][j];
-			}
+		double[] mValues = m.getDenseValues();
+		for (int k = 0; k < values.length; k++) {
+			this.values[k] -= mValues[k];
 		}
 	}
 
@@ -210,13 +202,102 @@ public class Matrix implements Cloneable, Serializable {
 	 * mult()
 	 */
 	public void mult(double scalar) {
+		for (int k = 0; k < values.length; k++) {
+			values[k] *= scalar;
+		}
+	}
+
+	/**
+	 * axpy(): this = this + a * m
+	 */
+	public void axpy(double a, Matrix m) throws Exception {
+
+		if (this.nLines != m.nLines || this.nColumns != m.nColumns)
+			throw new Exception("Matrix.axpy(), dimension mismatch");
+
+		double[] mValues = m.getDenseValues();
+		for (int k = 0; k < values.length; k++) {
+			this.values[k] += a * mValues[k];
+		}
+	}
+
+	/**
+	 * scaleColumns(): this = this . diag(d), i.e. column j is multiplied by d[j]
+	 */
+	public void scaleColumns(double[] d) throws Exception {
+
+		if (d.length != nColumns)
+			throw new Exception("Matrix.scaleColumns(), dimension mismatch");
+
+		for (int i = 0; i < nLines; i++) {
+			int row = i * nColumns;
+			for (int j = 0; j < nColumns; j++) {
+				values[row + j] *= d[j];
+			}
+		}
+	}
+
+	/**
+	 * addScaledColumns(): this = this + m . diag(d), i.e. column j of m multiplied
+	 * by d[j] is added to column j of this
+	 */
+	public void addScaledColumns(Matrix m, double[] d) throws Exception {
+
+		if (this.nLines != m.nLines || this.nColumns != m.nColumns || d.length != nColumns)
+			throw new Exception("Matrix.addScaledColumns(), dimension mismatch");
+
+		double[] mValues = m.getDenseValues();
 		for (int i = 0; i < nLines; i++) {
+			int row = i * nColumns;
 			for (int j = 0; j < nColumns; j++) {
-				values[i][j] *= scalar;
+				values[row + j] += mValues[row + j] * d[j];
 			}
 		}
 	}
 
+	/**
+	 * addDiagonal(): this = this + a * diag(d)
+	 */
+	public void addDiagonal(double a, double[] d) throws Exception {
+
+		if (nLines != nColumns || d.length != nLines)
+			throw new Exception("Matrix.addDiagonal(), dimension mismatch");
+
+		for (int i = 0; i < nLines; i++) {
+			values[i * nColumns + i] += a * d[i];
+		}
+	}
+
+	/**
+	 * multiply(): y = this . x, y is overwritten
+	 */
+	public void multiply(double[] x, double[] y) throws Exception {
+
+		if (x.length != nColumns || y.length != nLines)
+			throw new Exception("Matrix.multiply(), dimension mismatch");
+
+		ArrayOperations op = ArrayOperations.get();
+		for (int i = 0; i < nLines; i++) {
+			double sum = op.dot(values, i * nColumns, x, 0, nColumns);
+			y[i] = sum;
+		}
+	}
+
+	/**
+	 * multiplyAdd(): y = y + a * this . x
+	 */
+	public void multiplyAdd(double a, double[] x, double[] y) throws Exception {
+
+		if (x.length != nColumns || y.length != nLines)
+			throw new Exception("Matrix.multiplyAdd(), dimension mismatch");
+
+		ArrayOperations op = ArrayOperations.get();
+		for (int i = 0; i < nLines; i++) {
+			double sum = op.dot(values, i * nColumns, x, 0, nColumns);
+			y[i] += a * sum;
+		}
+	}
+
 	/**
 	 * Static operations
 	 */
@@ -229,11 +310,11 @@ public class Matrix implements Cloneable, Serializable {
 		if (m.nLines != n.nLines || m.nColumns != n.nColumns)
 			throw new Exception("Matrix.addition(), dimension mismatch");
 
-		Matrix sum = m.clone();
-		for (int i = 0; i < m.nLines; i++) {
-			for (int j = 0; j < m.nColumns; j++) {
-				sum.values[i][j] = m.values[i][j] + n.values[i][j];
-			}
+		double[] mValues = m.getDenseValues();
+		double[] nValues = n.getDenseValues();
+		Matrix sum = new Matrix(m.nLines, m.nColumns);
+		for (int k = 0; k < sum.values.length; k++) {
+			sum.values[k] = mValues[k] + nValues[k];
 		}
 		return sum;
 	}
@@ -246,11 +327,11 @@ public class Matrix implements Cloneable, Serializable {
 		if (m.nLines != n.nLines || m.nColumns != n.nColumns)
 			throw new Exception("Matrix.substraction(), dimension mismatch");
 
-		Matrix sum = m.clone();
-		for (int i = 0; i < m.nLines; i++) {
-			for (int j = 0; j < m.nColumns; j++) {
-				sum.values[i][j] = m.values[i][j] - n.values[i][j];
-			}
+		double[] mValues = m.getDenseValues();
+		double[] nValues = n.getDenseValues();
+		Matrix sum = new Matrix(m.nLines, m.nColumns);
+		for (int k = 0; k < sum.values.length; k++) {
+			sum.values[k] = mValues[k] - nValues[k];
 		}
 		return sum;
 	}
@@ -260,34 +341,117 @@ public class Matrix implements Cloneable, Serializable {
 	 */
 	public static Matrix product(double scal, Matrix m) throws Exception {
 
-		Matrix product = m.clone();
-		for (int i = 0; i < m.nLines; i++) {
-			for (int j = 0; j < m.nColumns; j++) {
-				product.values[i][j] *= scal;
-			}
+		double[] mValues = m.getDenseValues();
+		Matrix product = new Matrix(m.nLines, m.nColumns);
+		for (int k = 0; k < product.values.length; k++) {
+			product.values[k] = scal * mValues[k];
 		}
 		return product;
 	}
 
 	/**
-	 * product()
+	 * product(): the loops are ordered (i, k, j) so that m and n are both read
+	 * line by line
 	 */
 	public static Matrix product(Matrix m, Matrix n) throws Exception {
 
 		if (m.nColumns != n.nLines)
 			throw new Exception("Matrix.product(Matrix m, Matrix n), dimension mismatch");
 
+		double[] mValues = m.getDenseValues();
+		double[] nValues = n.getDenseValues();
 		Matrix product = new Matrix(m.nLines, n.nColumns);
 		for (int i = 0; i < m.nLines; i++) {
-			for (int j = 0; j < n.nColumns; j++) {
-				for (int k = 0; k < m.nColumns; k++) {
-					product.values[i][j] += m.values[i][k] * n.values[k][j];
+			int pRow = i * n.nColumns;
+			for (int k = 0; k < m.nColumns; k++) {
+				double mik = mValues[i * m.nColumns + k];
+				if (mik == 0d)
+					continue;
+				int nRow = k * n.nColumns;
+				for (int j = 0; j < n.nColumns; j++) {
+					product.values[pRow + j] += mik * nValues[nRow + j];
 				}
 			}
 		}
 		return product;
 	}
 
+	/**
+	 * exponential(): exp(m) by scaling and squaring, exp(m) = exp(m / 2^s)^(2^s)
+	 * with ||m / 2^s||_1 <= 1/2 and exp(m / 2^s) given by its Taylor series of
+	 * degree EXPONENTIAL_DEGREE (relative truncation error < 2e-14)
+	 */
+	public static Matrix exponential(Matrix m) throws Exception {
+
+		if (m.nLines != m.nColumns)
+			throw new Exception("Matrix.exponential(), m must be a square matrix");
+		int n = m.nLines;
+
+		double[] mValues = m.getDenseValues();
+		double norm = 0;
+		for (int j = 0; j < n; j++) {
+			double sum = 0;
+			for (int i = 0; i < n; i++)
+				sum += Math.abs(mValues[i * n + j]);
+			norm = Math.max(norm, sum);
+		}
+		if (Double.isNaN(norm) || Double.isInfinite(norm))
+			throw new Exception("Matrix.exponential(), m has non finite values");
+
+		int squarings = norm > 0.5 ? (int) Math.ceil(Math.log(norm / 0.5) / Math.log(2)) : 0;
+		Matrix x = product(Math.pow(2, -squarings), m);
+
+		// Horner: exp(x) = I + x.(I + x/2.(I + x/3.(...)))
+		Matrix e = eye(n);
+		for (int k = EXPONENTIAL_DEGREE; k >= 1; k--) {
+			e = product(x, e);
+			e.mult(1d / k);
+			for (int i = 0; i < n; i++)
+				e.values[i * n + i] += 1d;
+		}
+
+		for (int k = 0; k < squarings; k++)
+			e = product(e, e);
+		return e;
+	}
+
+	/**
+	 * gaussianElimination(): solves a.x = b with partial pivoting, b is replaced
+	 * by x
+	 */
+	public static void gaussianElimination(double[][] a, double[] b) throws Exception {
+		int n = b.length;
+		for (int k = 0; k < n; k++) {
+			int pivot = k;
+			for (int p = k + 1; p < n; p++) {
+				if (Math.abs(a[p][k]) > Math.abs(a[pivot][k]))
+					pivot = p;
+			}
+			if (a[pivot][k] == 0)
+				throw new Exception("Matrix.gaussianElimination(), singular system");
+			double[] swapLine = a[k];
+			a[k] = a[pivot];
+			a[pivot] = swapLine;
+			double swap = b[k];
+			b[k] = b[pivot];
+			b[pivot] = swap;
+			for (int p = k + 1; p < n; p++) {
+				double factor = a[p][k] / a[k][k];
+				if (factor == 0)
+					continue;
+				for (int q = k; q < n; q++)
+					a[p][q] -= factor * a[k][q];
+				b[p] -= factor * b[k];
+			}
+		}
+		for (int k = n - 1; k >= 0; k--) {
+			double sum = b[k];
+			for (int q = k + 1; q < n; q++)
+				sum -= a[k][q] * b[q];
+			b[k] = sum / a[k][k];
+		}
+	}
+
 	/**
 	 * productByElement()
 	 */
@@ -296,11 +460,11 @@ public class Matrix implements Cloneable, Serializable {
 		if (m.nLines != n.nLines || m.nColumns != n.nColumns)
 			throw new Exception("Matrix.productByElement(), dimension mismatch");
 
+		double[] mValues = m.getDenseValues();
+		double[] nValues = n.getDenseValues();
 		Matrix product = zeros(m);
-		for (int i = 0; i < m.nLines; i++) {
-			for (int j = 0; j < m.nColumns; j++) {
-				product.values[i][j] = m.values[i][j] * n.values[i][j];
-			}
+		for (int k = 0; k < product.values.length; k++) {
+			product.values[k] = mValues[k] * nValues[k];
 		}
 		return product;
 	}
@@ -309,11 +473,20 @@ public class Matrix implements Cloneable, Serializable {
 	 * sum()
 	 */
 	public double sum() {
+		double sum = 0;
+		for (int k = 0; k < values.length; k++) {
+			sum += values[k];
+		}
+		return sum;
+	}
+
+	/**
+	 * columnSum()
+	 */
+	public double columnSum(int j) {
 		double sum = 0;
 		for (int i = 0; i < nLines; i++) {
-			for (int j = 0; j < nColumns; j++) {
-				sum += values[i][j];
-			}
+			sum += values[i * nColumns + j];
 		}
 		return sum;
 	}
@@ -326,21 +499,26 @@ public class Matrix implements Cloneable, Serializable {
 	 * set()
 	 */
 	public void set(int i, int j, double value) {
-		values[i][j] = value;
+		values[i * nColumns + j] = value;
 	}
 
 	/**
 	 * get()
 	 */
 	public double get(int i, int j) {
-		return values[i][j];
+		return values[i * nColumns + j];
 	}
 
 	/**
 	 * multiplyColumn()
 	 */
 	public void multiplyColumn(double scal, int j) throws Exception {
-		this.setColum(product(scal, this.getColumn(j)), j);
+		if (this.nColumns <= j)
+			throw new Exception("Matrix.multiplyColumn(), index is out of bounds");
+
+		for (int i = 0; i < nLines; i++) {
+			values[i * nColumns + j] *= scal;
+		}
 	}
 
 	/**
@@ -355,8 +533,9 @@ public class Matrix implements Cloneable, Serializable {
 		if (this.nColumns <= j)
 			throw new Exception("Matrix.setColum(), index is out of bounds");
 
+		double[] mValues = m.getDenseValues();
 		for (int i = 0; i < nLines; i++) {
-			this.values[i][j] = m.values[i][0];
+			this.values[i * nColumns + j] = mValues[i];
 		}
 	}
 
@@ -367,11 +546,28 @@ public class Matrix implements Cloneable, Serializable {
 
 		Matrix column = new Matrix(nLines, 1);
 		for (int i = 0; i < nLines; i++) {
-			column.values[i][0] = this.values[i][j];
+			column.values[i] = this.values[i * nColumns + j];
 		}
 		return column;
 	}
 
+	/**
+	 * getDenseValues(): the row-major values, read only. The matrices keeping
+	 * their values in another form override it with a dense copy.
+	 */
+	protected double[] getDenseValues() {
+		return values;
+	}
+
+	/**
+	 * getModifiableValues(): the row-major values, to be modified in place. The
+	 * matrices keeping their values in another form or caching properties of
+	 * their values override it to turn back into dense values first.
+	 */
+	protected double[] getModifiableValues() {
+		return values;
+	}
+
 	/**
 	 * getNLines()
 	 */
@@ -391,15 +587,13 @@ public class Matrix implements Cloneable, Serializable {
 	 */
 	@Override
 	public String toString() {
-		String s = "";
+		StringBuffer b = new StringBuffer();
 		for (int i = 0; i < nLines; i++) {
-			String line = "";
 			for (int j = 0; j < nColumns; ++j) {
-				line += values[i][j] + " ";
+				b.append(get(i, j) + " ");
 			}
-			s += line + "\n";
+			b.append("\n");
 		}
-		return s;
-
+		return b.toString();
 	}
 }
@@ -0,0 +1,162 @@
+package capsis.lib.cstability.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A compact storage of a square matrix exploiting its structure (zero
+ * values are not stored).
+ *
+ * @author agent - October 2026
+ */
+@SuppressWarnings("serial")
+public abstract class MatrixStorage implements Serializable {
+
+	protected int n;
+
+	/**
+	 * Constructor
+	 */
+	public MatrixStorage(int n) {
+		this.n = n;
+	}
+
+	/**
+	 * detect(): returns the most compact storage for the square matrix m, or null
+	 * if the dense storage is the most compact one.
+	 */
+	public static MatrixStorage detect(Matrix m) throws Exception {
+
+		if (m.nLines != m.nColumns)
+			throw new Exception("MatrixStorage.detect(), m must be a square matrix");
+
+		int n = m.nLines;
+		double[] values = m.getDenseValues();
+		int nonZeros = 0;
+		int lowerBandwidth = 0;
+		int upperBandwidth = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (values[i * n + j] != 0d) {
+					nonZeros++;
+					lowerBandwidth = Math.max(lowerBandwidth, i - j);
+					upperBandwidth = Math.max(upperBandwidth, j - i);
+				}
+			}
+		}
+
+		// memory costs in bytes
+		long denseCost = 8L * n * n;
+		long triangularCost = lowerBandwidth == 0 ? 8L * n * (n + 1) / 2 : Long.MAX_VALUE;
+		long bandedCost = 8L * n * (lowerBandwidth + upperBandwidth + 1);
+		long sparseCost = 12L * nonZeros + 4L * (n + 1);
+
+		long best = Math.min(denseCost, Math.min(triangularCost, Math.min(bandedCost, sparseCost)));
+		if (best == denseCost)
+			return null;
+		else if (best == sparseCost)
+			return new SparseStorage(m);
+		else if (best == triangularCost)
+			return new UpperTriangularStorage(m);
+		else
+			return new BandedStorage(m, lowerBandwidth, upperBandwidth);
+	}
+
+	/**
+	 * get()
+	 */
+	public abstract double get(int i, int j);
+
+	/**
+	 * multiply(): y = this . x, y is overwritten
+	 */
+	public void multiply(double[] x, double[] y) throws Exception {
+		Arrays.fill(y, 0d);
+		multiplyAdd(1d, x, y);
+	}
+
+	/**
+	 * multiplyAdd(): y = y + a * this . x
+	 */
+	public abstract void multiplyAdd(double a, double[] x, double[] y) throws Exception;
+
+	/**
+	 * upperRowProduct(): sum_{j > i} M_ij x_j
+	 */
+	public double upperRowProduct(int i, double[] x) {
+		double sum = 0d;
+		for (int j = i + 1; j < n; j++)
+			sum += get(i, j) * x[j];
+		return sum;
+	}
+
+	/**
+	 * getBackwardSweep(): the products of the strict upper part of this matrix
+	 * with x, for a back-substitution
+	 */
+	public BackwardSweep getBackwardSweep(double[] x) {
+		return i -> upperRowProduct(i, x);
+	}
+
+	/**
+	 * isUpperTriangular()
+	 */
+	public boolean isUpperTriangular() {
+		for (int i = 1; i < n; i++) {
+			for (int j = 0; j < i; j++) {
+				if (get(i, j) != 0d)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * addAbsoluteColumnSums(): sums[j] = sums[j] + sum_i |M_ij| for each column
+	 * j
+	 */
+	public void addAbsoluteColumnSums(double[] sums) {
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++)
+				sums[j] += Math.abs(get(i, j));
+		}
+	}
+
+	/**
+	 * addScaledColumnsTo(): m = m + this . diag(d)
+	 */
+	public abstract void addScaledColumnsTo(Matrix m, double[] d) throws Exception;
+
+	/**
+	 * getStoredValuesCount()
+	 */
+	public abstract int getStoredValuesCount();
+
+	/**
+	 * getName()
+	 */
+	public abstract String getName();
+
+	/**
+	 * checkDimensions()
+	 */
+	protected void checkDimensions(double[] x, double[] y) throws Exception {
+		if (x.length != n || y.length != n)
+			throw new Exception("MatrixStorage.multiply(), dimension mismatch");
+	}
+
+	/**
+	 * getN()
+	 */
+	public int getN() {
+		return n;
+	}
+
+	/**
+	 * toString()
+	 */
+	@Override
+	public String toString() {
+		return "MatrixStorage, " + getName() + ", n: " + n + ", stored values: " + getStoredValuesCount();
+	}
+}
@@ -0,0 +1,186 @@
+package capsis.lib.cstability.util;
+
+import java.util.Arrays;
+
+/**
+ * Storage of a square matrix which is separable on its strict upper triangle:
+ *
+ * M = diag(d) + strictUpper(u . w^T) + R
+ *
+ * with R a sparse residual holding the values of the first super diagonal
+ * which do not follow the separable form. The product M.x costs O(n) using
+ * the suffix sums of w * x.
+ *
+ * @author agent - October 2026
+ */
+@SuppressWarnings("serial")
+public class SeparableStorage extends MatrixStorage {
+
+	// relative tolerance on each value of the matrix
+	public static final double TOLERANCE = 1e-10;
+
+	private double[] diagonal;
+	private double[] left;
+	private double[] right;
+	private SparseStorage residual; // null if empty
+
+	/**
+	 * Constructor
+	 */
+	private SeparableStorage(int n, double[] diagonal, double[] left, double[] right, SparseStorage residual) {
+		super(n);
+		this.diagonal = diagonal;
+		this.left = left;
+		this.right = right;
+		this.residual = residual;
+	}
+
+	/**
+	 * build(): returns the separable storage of diag(diagonal) +
+	 * strictUpper(left . right^T), with the exact values of the first super
+	 * diagonal (i, i + 1) in superDiagonal: those which do not match left[i] *
+	 * right[i + 1] are kept in the residual. Returns null if a value is not
+	 * finite.
+	 */
+	public static SeparableStorage build(double[] diagonal, double[] left, double[] right, double[] superDiagonal)
+			throws Exception {
+
+		int n = diagonal.length;
+		if (left.length != n || right.length != n || superDiagonal.length != Math.max(0, n - 1))
+			throw new Exception("SeparableStorage.build(), dimension mismatch");
+		for (int i = 0; i < n; i++) {
+			if (!isFinite(diagonal[i]) || !isFinite(left[i]) || !isFinite(right[i]))
+				return null;
+		}
+
+		int[] lineStart = new int[n + 1];
+		int[] columns = new int[n];
+		double[] values = new double[n];
+		int residualCount = 0;
+		for (int i = 0; i < n - 1; i++) {
+			lineStart[i] = residualCount;
+			double v = superDiagonal[i];
+			if (!isFinite(v))
+				return null;
+			double approx = left[i] * right[i + 1];
+			if (Math.abs(v - approx) > TOLERANCE * Math.abs(v)) {
+				columns[residualCount] = i + 1;
+				values[residualCount] = v - approx;
+				residualCount++;
+			}
+		}
+		for (int i = Math.max(0, n - 1); i <= n; i++)
+			lineStart[i] = residualCount;
+
+		SparseStorage residual = residualCount > 0 ? new SparseStorage(n, lineStart,
+				Arrays.copyOf(columns, residualCount), Arrays.copyOf(values, residualCount)) : null;
+		return new SeparableStorage(n, diagonal.clone(), left.clone(), right.clone(), residual);
+	}
+
+	/**
+	 * isFinite()
+	 */
+	private static boolean isFinite(double v) {
+		return !Double.isNaN(v) && !Double.isInfinite(v);
+	}
+
+	/**
+	 * get()
+	 */
+	@Override
+	public double get(int i, int j) {
+		double v = residual != null ? residual.get(i, j) : 0d;
+		if (i == j)
+			v += diagonal[i];
+		else if (j > i)
+			v += left[i] * right[j];
+		return v;
+	}
+
+	/**
+	 * multiplyAdd()
+	 */
+	@Override
+	public void multiplyAdd(double a, double[] x, double[] y) throws Exception {
+		checkDimensions(x, y);
+		double suffixSum = 0d; // sum_{j > i} right[j] * x[j]
+		for (int i = n - 1; i >= 0; i--) {
+			y[i] += a * (diagonal[i] * x[i] + left[i] * suffixSum);
+			suffixSum += right[i] * x[i];
+		}
+		if (residual != null)
+			residual.multiplyAdd(a, x, y);
+	}
+
+	/**
+	 * upperRowProduct()
+	 */
+	@Override
+	public double upperRowProduct(int i, double[] x) {
+		double suffixSum = 0d;
+		for (int j = i + 1; j < n; j++)
+			suffixSum += right[j] * x[j];
+		return left[i] * suffixSum + (residual != null ? residual.upperRowProduct(i, x) : 0d);
+	}
+
+	/**
+	 * getBackwardSweep(): the suffix sums of right * x are accumulated along the
+	 * sweep, each line costs O(1) plus its residual values
+	 */
+	@Override
+	public BackwardSweep getBackwardSweep(double[] x) {
+		return new BackwardSweep() {
+			private int next = n; // right[j] * x[j] is in suffixSum for j >= next
+			private double suffixSum = 0d;
+
+			@Override
+			public double upperRowProduct(int i) {
+				for (int j = next - 1; j > i; j--)
+					suffixSum += right[j] * x[j];
+				next = Math.min(next, i + 1);
+				return left[i] * suffixSum + (residual != null ? residual.upperRowProduct(i, x) : 0d);
+			}
+		};
+	}
+
+	/**
+	 * isUpperTriangular()
+	 */
+	@Override
+	public boolean isUpperTriangular() {
+		return residual == null || residual.isUpperTriangular();
+	}
+
+	/**
+	 * addScaledColumnsTo()
+	 */
+	@Override
+	public void addScaledColumnsTo(Matrix m, double[] d) throws Exception {
+		double[] mValues = m.getModifiableValues();
+		for (int i = 0; i < n; i++) {
+			int row = i * n;
+			mValues[row + i] += diagonal[i] * d[i];
+			for (int j = i + 1; j < n; j++) {
+				mValues[row + j] += left[i] * right[j] * d[j];
+			}
+		}
+		if (residual != null)
+			residual.addScaledColumnsTo(m, d);
+	}
+
+	/**
+	 * getStoredValuesCount()
+	 */
+	@Override
+	public int getStoredValuesCount() {
+		return 3 * n + (residual != null ? residual.getStoredValuesCount() : 0);
+	}
+
+	/**
+	 * getName()
+	 */
+	@Override
+	public String getName() {
+		return "separable";
+	}
+}
@@ -0,0 +1,151 @@
+package capsis.lib.cstability.util;
+
+/**
+ * Storage of a general sparse square matrix in compressed sparse row (CSR)
+ * format: the non zero values of line i are values[lineStart[i]] to
+ * values[lineStart[i + 1] - 1], their column indices are in columns.
+ *
+ * @author agent - October 2026
+ */
+@SuppressWarnings("serial")
+public class SparseStorage extends MatrixStorage {
+
+	private int[] lineStart;
+	private int[] columns;
+	private double[] values;
+
+	/**
+	 * Constructor
+	 */
+	public SparseStorage(Matrix m) {
+		super(m.nLines);
+		double[] mValues = m.getDenseValues();
+		int nonZeros = 0;
+		for (int k = 0; k < mValues.length; k++) {
+			if (mValues[k] != 0d)
+				nonZeros++;
+		}
+		lineStart = new int[n + 1];
+		columns = new int[nonZeros];
+		values = new double[nonZeros];
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			lineStart[i] = k;
+			for (int j = 0; j < n; j++) {
+				double v = mValues[i * n + j];
+				if (v != 0d) {
+					columns[k] = j;
+					values[k] = v;
+					k++;
+				}
+			}
+		}
+		lineStart[n] = k;
+	}
+
+	/**
+	 * Constructor, from the compressed sparse row arrays
+	 */
+	public SparseStorage(int n, int[] lineStart, int[] columns, double[] values) throws Exception {
+		super(n);
+		if (lineStart.length != n + 1 || columns.length != values.length || lineStart[n] != values.length)
+			throw new Exception("SparseStorage(), inconsistent compressed sparse row arrays");
+		this.lineStart = lineStart;
+		this.columns = columns;
+		this.values = values;
+	}
+
+	/**
+	 * get()
+	 */
+	@Override
+	public double get(int i, int j) {
+		for (int k = lineStart[i]; k < lineStart[i + 1]; k++) {
+			if (columns[k] == j)
+				return values[k];
+		}
+		return 0d;
+	}
+
+	/**
+	 * addAbsoluteColumnSums()
+	 */
+	@Override
+	public void addAbsoluteColumnSums(double[] sums) {
+		for (int k = 0; k < values.length; k++)
+			sums[columns[k]] += Math.abs(values[k]);
+	}
+
+	/**
+	 * multiplyAdd()
+	 */
+	@Override
+	public void multiplyAdd(double a, double[] x, double[] y) throws Exception {
+		checkDimensions(x, y);
+		for (int i = 0; i < n; i++) {
+			double sum = 0d;
+			for (int k = lineStart[i]; k < lineStart[i + 1]; k++) {
+				sum += values[k] * x[columns[k]];
+			}
+			y[i] += a * sum;
+		}
+	}
+
+	/**
+	 * upperRowProduct()
+	 */
+	@Override
+	public double upperRowProduct(int i, double[] x) {
+		double sum = 0d;
+		for (int k = lineStart[i]; k < lineStart[i + 1]; k++) {
+			if (columns[k] > i)
+				sum += values[k] * x[columns[k]];
+		}
+		return sum;
+	}
+
+	/**
+	 * isUpperTriangular()
+	 */
+	@Override
+	public boolean isUpperTriangular() {
+		for (int i = 0; i < n; i++) {
+			for (int k = lineStart[i]; k < lineStart[i + 1]; k++) {
+				if (columns[k] < i)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * addScaledColumnsTo()
+	 */
+	@Override
+	public void addScaledColumnsTo(Matrix m, double[] d) throws Exception {
+		double[] mValues = m.getModifiableValues();
+		for (int i = 0; i < n; i++) {
+			int row = i * n;
+			for (int k = lineStart[i]; k < lineStart[i + 1]; k++) {
+				int j = columns[k];
+				mValues[row + j] += values[k] * d[j];
+			}
+		}
+	}
+
+	/**
+	 * getStoredValuesCount()
+	 */
+	@Override
+	public int getStoredValuesCount() {
+		return values.length;
+	}
+
+	/**
+	 * getName()
+	 */
+	@Override
+	public String getName() {
+		return "sparse CSR";
+	}
+}
@@ -0,0 +1,111 @@
+package capsis.lib.cstability.util;
+
+/**
+ * Storage of an upper triangular square matrix: the values (i, j) with j >= i
+ * are packed line by line.
+ *
+ * @author agent - October 2026
+ */
+@SuppressWarnings("serial")
+public class UpperTriangularStorage extends MatrixStorage {
+
+	private double[] values;
+	private int[] lineStart; // index of value (i, i) in values
+
+	/**
+	 * Constructor
+	 */
+	public UpperTriangularStorage(Matrix m) throws Exception {
+		super(m.nLines);
+		lineStart = new int[n];
+		double[] mValues = m.getDenseValues();
+		values = new double[n * (n + 1) / 2];
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			lineStart[i] = k;
+			for (int j = 0; j < n; j++) {
+				double v = mValues[i * n + j];
+				if (j < i) {
+					if (v != 0d)
+						throw new Exception("UpperTriangularStorage, matrix is not upper triangular");
+				} else {
+					values[k++] = v;
+				}
+			}
+		}
+	}
+
+	/**
+	 * get()
+	 */
+	@Override
+	public double get(int i, int j) {
+		if (j < i)
+			return 0d;
+		return values[lineStart[i] + j - i];
+	}
+
+	/**
+	 * multiplyAdd()
+	 */
+	@Override
+	public void multiplyAdd(double a, double[] x, double[] y) throws Exception {
+		checkDimensions(x, y);
+		ArrayOperations op = ArrayOperations.get();
+		for (int i = 0; i < n; i++) {
+			double sum = op.dot(values, lineStart[i], x, i, n - i);
+			y[i] += a * sum;
+		}
+	}
+
+	/**
+	 * upperRowProduct()
+	 */
+	@Override
+	public double upperRowProduct(int i, double[] x) {
+		int k = lineStart[i] - i;
+		double sum = 0d;
+		for (int j = i + 1; j < n; j++)
+			sum += values[k + j] * x[j];
+		return sum;
+	}
+
+	/**
+	 * isUpperTriangular()
+	 */
+	@Override
+	public boolean isUpperTriangular() {
+		return true;
+	}
+
+	/**
+	 * addScaledColumnsTo()
+	 */
+	@Override
+	public void addScaledColumnsTo(Matrix m, double[] d) throws Exception {
+		double[] mValues = m.getModifiableValues();
+		for (int i = 0; i < n; i++) {
+			int k = lineStart[i] - i;
+			int row = i * n;
+			for (int j = i; j < n; j++) {
+				mValues[row + j] += values[k + j] * d[j];
+			}
+		}
+	}
+
+	/**
+	 * getStoredValuesCount()
+	 */
+	@Override
+	public int getStoredValuesCount() {
+		return values.length;
+	}
+
+	/**
+	 * getName()
+	 */
+	@Override
+	public String getName() {
+		return "upper triangular";
+	}
+}